@@ -5,4 +5,11 @@ import codingblackfemales.sotw.SimpleAlgoState;
 
 public interface AlgoLogic {
     Action evaluate(final SimpleAlgoState state); // evaluates action based on a given state 
+
+    /**
+     * The most book levels a side evaluate reads, the container only keeps that many. All of them by default.
+     */
+    default int topLevels(){
+        return Integer.MAX_VALUE;
+    }
 }
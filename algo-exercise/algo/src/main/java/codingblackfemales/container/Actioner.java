@@ -2,6 +2,7 @@ package codingblackfemales.container;
 
 import codingblackfemales.action.Action;
 import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.metrics.LatencyStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,12 +12,22 @@ public class Actioner {
 
     private final Sequencer sequencer;
 
+    private LatencyStage processActionLatency;
+
     public Actioner(Sequencer sequencer) {
         this.sequencer = sequencer;
     }
 
     public void processAction(final Action action){
+        final long start = processActionLatency != null ? System.nanoTime() : 0;
         logger.info("[ALGO] Actioner, sending action:" + action);
         action.apply(sequencer);
+        if(processActionLatency != null){
+            processActionLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public void setProcessActionLatency(final LatencyStage processActionLatency){
+        this.processActionLatency = processActionLatency;
     }
 }
@@ -2,6 +2,8 @@ package codingblackfemales.container;
 
 import codingblackfemales.action.NoAction;
 import codingblackfemales.algo.AlgoLogic;
+import codingblackfemales.sequencer.metrics.LatencyMetrics;
+import codingblackfemales.sequencer.metrics.LatencyStage;
 import codingblackfemales.sequencer.net.Consumer;
 import codingblackfemales.service.MarketDataService;
 import codingblackfemales.service.OrderService;
@@ -9,6 +11,18 @@ import codingblackfemales.sotw.SimpleAlgoState;
 import codingblackfemales.sotw.SimpleAlgoStateImpl;
 import org.agrona.DirectBuffer;
 
+/**
+ * Runs the logic when market data or order state has changed.
+ *
+ * By default the logic is evaluated on the first frame after a change. With {@link #setConflate(boolean)} it is
+ * evaluated once per drain instead, after the network has handed over every frame it had waiting, so a burst of
+ * updates costs one evaluation on the latest books however fast it arrives. The services still apply every frame,
+ * only the evaluations on books a later frame in the drain changed again are saved.
+ *
+ * Containers sharing a service also share its run trigger, so a container scoped to one instrument doesn't use
+ * it: it runs when its own instrument's book or the child orders changed since it last evaluated, and leaves the
+ * trigger alone for the other containers.
+ */
 public class AlgoContainer implements Consumer {
 
     private final MarketDataService marketDataService;
@@ -19,6 +33,17 @@ public class AlgoContainer implements Consumer {
     private AlgoLogic logic;
 
     private final SimpleAlgoState state;
+    private final boolean scoped;
+    private final long instrumentId;
+
+    private LatencyStage evaluateLatency;
+
+    private boolean conflate = false;
+    private long evaluations = 0;
+    private long conflatedUpdates = 0;
+    private long triggersEvaluated = 0;
+    private long bookChangesEvaluated = 0;
+    private long orderChangesEvaluated = 0;
 
     public AlgoContainer(final MarketDataService marketDataService,
                          final OrderService orderService,
@@ -29,6 +54,26 @@ public class AlgoContainer implements Consumer {
         this.runTrigger = runTrigger;
         this.actioner = actioner;
         this.state = new SimpleAlgoStateImpl(marketDataService, orderService);
+        this.scoped = false;
+        this.instrumentId = 0;
+    }
+
+    /**
+     * A container whose logic only sees the book of one instrument, so containers for many instruments can share
+     * a market data service.
+     */
+    public AlgoContainer(final MarketDataService marketDataService,
+                         final OrderService orderService,
+                         final RunTrigger runTrigger,
+                         final Actioner actioner,
+                         final long instrumentId) {
+        this.marketDataService = marketDataService;
+        this.orderService = orderService;
+        this.runTrigger = runTrigger;
+        this.actioner = actioner;
+        this.state = new SimpleAlgoStateImpl(marketDataService, orderService, instrumentId);
+        this.scoped = true;
+        this.instrumentId = instrumentId;
     }
 
     public MarketDataService getMarketDataService(){
@@ -39,13 +84,61 @@ public class AlgoContainer implements Consumer {
         return orderService;
     }
 
+    /**
+     * Also tells the market data service how many levels the logic reads, for its own instrument if the container
+     * is scoped to one, so a shared service keeps enough for every container on it.
+     */
     public void setLogic(AlgoLogic logic){
         this.logic = logic;
+        if(scoped){
+            marketDataService.requestTopLevels(instrumentId, logic.topLevels());
+        }else {
+            marketDataService.requestTopLevels(logic.topLevels());
+        }
+    }
+
+    /**
+     * Records how long the logic takes to evaluate and the actioner takes to send what it decided, as the
+     * {@link LatencyMetrics#ALGO_EVALUATE} and {@link LatencyMetrics#ACTIONER_PROCESS_ACTION} stages.
+     */
+    public void setLatencyMetrics(final LatencyMetrics metrics){
+        this.evaluateLatency = metrics.stage(LatencyMetrics.ALGO_EVALUATE);
+        this.actioner.setProcessActionLatency(metrics.stage(LatencyMetrics.ACTIONER_PROCESS_ACTION));
+    }
+
+    public void setConflate(final boolean conflate){
+        this.conflate = conflate;
+    }
+
+    public boolean isConflate(){
+        return conflate;
+    }
+
+    /**
+     * @return how many times the logic has been evaluated
+     */
+    public long getEvaluations(){
+        return evaluations;
+    }
+
+    /**
+     * @return changes that asked for a run but were covered by a single evaluation along with later ones
+     */
+    public long getConflatedUpdates(){
+        return conflatedUpdates;
+    }
+
+    private boolean shouldRun(){
+        if(scoped){
+            return marketDataService.getBookChanges(instrumentId) != bookChangesEvaluated
+                    || orderService.getChanges() != orderChangesEvaluated;
+        }
+        return runTrigger.shouldRun();
     }
 
     @Override
     public void onMessage(DirectBuffer buffer){
-        if(runTrigger.shouldRun()){
+        if(shouldRun() && !conflate){
             runAlgoLogic();
 
         }else {
@@ -53,10 +146,37 @@ public class AlgoContainer implements Consumer {
         }
     }
 
+    @Override
+    public void onDrained(){
+        if(shouldRun() && conflate){
+            runAlgoLogic();
+        }
+    }
+
     private void runAlgoLogic(){
+        if(scoped){
+            final long bookChanges = marketDataService.getBookChanges(instrumentId);
+            final long orderChanges = orderService.getChanges();
+            //the counts start again when a snapshot replaces the books, hence the max
+            conflatedUpdates += Math.max(0, bookChanges - bookChangesEvaluated + orderChanges - orderChangesEvaluated - 1);
+            bookChangesEvaluated = bookChanges;
+            orderChangesEvaluated = orderChanges;
+        }else {
+            final long triggers = runTrigger.getTriggerCount();
+            conflatedUpdates += Math.max(0, triggers - triggersEvaluated - 1);
+            triggersEvaluated = triggers;
+        }
+        evaluations++;
+
+        final long start = evaluateLatency != null ? System.nanoTime() : 0;
         final var action = logic.evaluate(state);
+        if(evaluateLatency != null){
+            evaluateLatency.record(System.nanoTime() - start);
+        }
 
-        runTrigger.hasRun();
+        if(!scoped){
+            runTrigger.hasRun();
+        }
 
         if(action !=null && (!action.equals(NoAction.NoAction))){
             actioner.processAction(action);
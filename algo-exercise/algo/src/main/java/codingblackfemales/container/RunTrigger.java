@@ -3,9 +3,11 @@ package codingblackfemales.container;
 public class RunTrigger {
 
     private boolean shouldRun = false;
+    private long triggers = 0;
 
     public void triggerRun(){
         shouldRun = true;
+        triggers++;
     }
 
     public boolean shouldRun(){
@@ -16,4 +18,11 @@ public class RunTrigger {
         this.shouldRun = false;
     }
 
+    /**
+     * @return how many times a run has been asked for, including ones made while a run was already pending
+     */
+    public long getTriggerCount(){
+        return triggers;
+    }
+
 }
@@ -2,146 +2,402 @@ package codingblackfemales.service;
 
 import codingblackfemales.container.RunTrigger;
 import codingblackfemales.sequencer.event.MarketDataEventListener;
+import codingblackfemales.sequencer.snapshot.Snapshottable;
 import codingblackfemales.sotw.marketdata.AskLevel;
 import codingblackfemales.sotw.marketdata.BidLevel;
+import codingblackfemales.sotw.marketdata.BookSide;
+import codingblackfemales.sotw.marketdata.InstrumentBook;
 import messages.marketdata.AskBookUpdateDecoder;
 import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookRefreshDecoder;
 import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.LevelAction;
+import messages.marketdata.LevelSide;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.collections.Long2ObjectHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class MarketDataService extends MarketDataEventListener { // updates marketdata when new market data is published? but how?
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a book for every instrument it sees, looked up by instrumentId in a primitive keyed map. The getters without
+ * an instrumentId read the book of the instrument updated last, for algos trading a single instrument.
+ *
+ * Levels are held in primitive arrays that grow to the deepest book seen and are then overwritten in place, so ticks
+ * make no garbage once every instrument has been seen. A level handed out by getBidLevel/getAskLevel is only good
+ * until the next update, copy the price and quantity to keep them.
+ *
+ * How many levels are kept can be capped per instrument with {@link #setDepth(long, int)}, and by what its consumers
+ * read with {@link #requestTopLevels(int)} and {@link #requestTopLevels(long, int)}. Requests from consumers sharing
+ * the service are combined, an instrument keeps the most levels any consumer reading it asked for. Levels past the
+ * cap are skipped without being copied.
+ *
+ * Book deltas change just the levels they carry, found by price. A capped book only keeps the levels that fit, so it
+ * is short of levels after deletes near the top until the next full book or refresh. When deltas are missed the
+ * instrument's book is emptied until a refresh arrives.
+ */
+public class MarketDataService extends MarketDataEventListener implements Snapshottable { // updates marketdata when new market data is published? but how?
 
     private static final Logger logger = LoggerFactory.getLogger(MarketDataService.class);
 
-    private int bidLength = 0;
-    private int askLength = 0;
+    public static final int ALL_LEVELS = Integer.MAX_VALUE;
 
-    private long instrumentId;
-    private final BidLevel[] bidBook = new BidLevel[15];
-    private final AskLevel[] askBook = new AskLevel[15];
+    //bump whenever writeSnapshot changes what it writes, so a snapshot in an older layout is refused
+    public static final int SNAPSHOT_LAYOUT = 3;
+
+    private final Long2ObjectHashMap<InstrumentBook> books = new Long2ObjectHashMap<>();
+    private final List<InstrumentBook> bookList = new ArrayList<>();
+    private InstrumentBook current = new InstrumentBook(0);
     private final RunTrigger runTrigger;
 
+    private final Long2LongHashMap depths = new Long2LongHashMap(-1);
+    private int defaultDepth = ALL_LEVELS;
+    //0 until a consumer asks, then the most levels any consumer reading every instrument asked for
+    private int topLevels = 0;
+    private final Long2LongHashMap instrumentTopLevels = new Long2LongHashMap(0);
+
     public MarketDataService(RunTrigger runTrigger) {
         this.runTrigger = runTrigger;
+        //each update replaces the book, so within a batch only the latest one per instrument matters
+        setSkipSuperseded(true);
     }
 
+    /**
+     * @return the level, or null past the depth of the current book
+     */
     public BidLevel getBidLevel(int i){
-        return bidBook[i];
+        return current.getBidLevel(i);
     }
 
+    /**
+     * @return the level, or null past the depth of the current book
+     */
     public AskLevel getAskLevel(int i){
-        return askBook[i];
+        return current.getAskLevel(i);
     }
 
     public int getBidLength(){
-        return bidLength;
+        return current.getBidLength();
     }
 
     public int getAskLength(){
-        return askLength;
+        return current.getAskLength();
     }
 
-    public long getInstrumentId(){return instrumentId;}
+    public long getInstrumentId(){return current.getInstrumentId();}
 
-    private static void empty(BidLevel[] levels){
-        for (int i=0; i<levels.length; i++) {
-            levels[i] = null;
-        }
+    /**
+     * @return the book of the instrument, or null if there has been no update for it
+     */
+    public InstrumentBook getBook(final long instrumentId){
+        return books.get(instrumentId);
     }
 
-    private static void empty(AskLevel[] levels){
-        for (int i=0; i<levels.length; i++) {
-            levels[i] = null;
-        }
+    /**
+     * @return how many times the instrument's book has changed, 0 if it hasn't been seen
+     */
+    public long getBookChanges(final long instrumentId){
+        final InstrumentBook book = books.get(instrumentId);
+        return book == null ? 0 : book.getChanges();
     }
 
-    @Override
-    public void onBookUpdate(BookUpdateDecoder bookUpdate) {
+    public int getInstrumentCount(){
+        return bookList.size();
+    }
 
-        int bookLevel = 0;
+    /**
+     * Caps the levels kept per side for instruments without a depth of their own.
+     */
+    public void setDefaultDepth(final int depth){
+        this.defaultDepth = checkDepth(depth);
+    }
 
-        instrumentId = bookUpdate.instrumentId();
+    /**
+     * Caps the levels kept per side for one instrument.
+     */
+    public void setDepth(final long instrumentId, final int depth){
+        depths.put(instrumentId, checkDepth(depth));
+    }
 
-        empty(bidBook);
+    /**
+     * The most levels a consumer that reads any instrument's book looks at, e.g. 1 for an algo that only looks at
+     * the touch. Only ever widens what earlier requests asked for, so one consumer can't cut another's books short.
+     */
+    public void requestTopLevels(final int topLevels){
+        this.topLevels = Math.max(this.topLevels, checkDepth(topLevels));
+    }
 
-        for(BookUpdateDecoder.BidBookDecoder decoder : bookUpdate.bidBook()){
-            final long price = decoder.price();
-            final long quantity = decoder.size();
-            bidBook[bookLevel] = new BidLevel();
-            bidBook[bookLevel].setPrice(price);
-            bidBook[bookLevel].setQuantity(quantity);
-            logger.debug("[ALGO] BID: price:" + price + " quantity:" + quantity);
+    /**
+     * The most levels a consumer that only reads one instrument's book looks at. Only ever widens what earlier
+     * requests for the instrument asked for.
+     */
+    public void requestTopLevels(final long instrumentId, final int topLevels){
+        instrumentTopLevels.put(instrumentId, Math.max(instrumentTopLevels.get(instrumentId), checkDepth(topLevels)));
+    }
+
+    /**
+     * @return the number of levels kept per side for the instrument
+     */
+    public int getDepth(final long instrumentId){
+        final long depth = depths.get(instrumentId);
+        final int configured = depth == -1 ? defaultDepth : (int) depth;
+        final int requested = (int) Math.max(topLevels, instrumentTopLevels.get(instrumentId));
+        return requested == 0 ? configured : Math.min(configured, requested);
+    }
+
+    private static int checkDepth(final int depth){
+        if(depth < 1){
+            throw new IllegalArgumentException(String.format("Depth must be at least one level depth=[%s]", depth));
+        }
+        return depth;
+    }
+
+    private void changed(final InstrumentBook book){
+        book.changed();
+        runTrigger.triggerRun();
+    }
 
-            bookLevel+= 1;
+    /**
+     * Makes the instrument's book the current one, creating it the first time the instrument is seen.
+     */
+    private InstrumentBook book(final long instrumentId){
+        InstrumentBook book = books.get(instrumentId);
+        if(book == null){
+            book = new InstrumentBook(instrumentId);
+            books.put(instrumentId, book);
+            bookList.add(book);
         }
-        bidLength = bookLevel;
+        current = book;
+        return book;
+    }
 
-        empty(askBook);
+    @Override
+    public void onBookUpdate(BookUpdateDecoder bookUpdate) {
 
-        bookLevel = 0;
+        final long instrumentId = bookUpdate.instrumentId();
+        final InstrumentBook book = book(instrumentId);
+        final int depth = getDepth(instrumentId);
 
-        for(BookUpdateDecoder.AskBookDecoder decoder : bookUpdate.askBook()){
-            final long price = decoder.price();
-            final long quantity = decoder.size();
+        final BookSide<BidLevel> bidBook = book.bids();
+        bidBook.clear();
 
-            askBook[bookLevel] = new AskLevel();
-            askBook[bookLevel].setPrice(price);
-            askBook[bookLevel].setQuantity(quantity);
+        //every entry of the bid group has to be stepped over to get to the ask group, even past the depth
+        for(BookUpdateDecoder.BidBookDecoder decoder : bookUpdate.bidBook()){
+            if(bidBook.length() < depth){
+                final long price = decoder.price();
+                final long quantity = decoder.size();
+                bidBook.add(price, quantity);
+                if(logger.isDebugEnabled()){
+                    logger.debug("[ALGO] BID: price:" + price + " quantity:" + quantity);
+                }
+            }
+        }
 
-            logger.debug("[ALGO] ASK: price:" + price + " quantity:" + quantity);
+        final BookSide<AskLevel> askBook = book.asks();
+        askBook.clear();
 
-            bookLevel+= 1;
+        for(BookUpdateDecoder.AskBookDecoder decoder : bookUpdate.askBook()){
+            if(askBook.length() < depth){
+                final long price = decoder.price();
+                final long quantity = decoder.size();
+                askBook.add(price, quantity);
+                if(logger.isDebugEnabled()){
+                    logger.debug("[ALGO] ASK: price:" + price + " quantity:" + quantity);
+                }
+            }
         }
-        askLength = bookLevel;
-        runTrigger.triggerRun();
+        changed(book);
     }
 
     @Override
     public void onAskBook(AskBookUpdateDecoder askBookDec){
 
-        instrumentId = askBookDec.instrumentId();
+        final long instrumentId = askBookDec.instrumentId();
+        final InstrumentBook book = book(instrumentId);
+        final BookSide<AskLevel> askBook = book.asks();
+        final int depth = getDepth(instrumentId);
 
-        empty(askBook);
-
-        int bookLevel = 0;
+        askBook.clear();
 
         for(AskBookUpdateDecoder.AskBookDecoder decoder : askBookDec.askBook()){
+            if(askBook.length() == depth){
+                break;
+            }
             final long price = decoder.price();
             final long quantity = decoder.size();
-            askBook[bookLevel] = new AskLevel();
-            askBook[bookLevel].setPrice(price);
-            askBook[bookLevel].setQuantity(quantity);
-            logger.debug("[ALGO] ASK: price:" + price + " quantity:" + quantity);
-
-            bookLevel+= 1;
-
+            askBook.add(price, quantity);
+            if(logger.isDebugEnabled()){
+                logger.debug("[ALGO] ASK: price:" + price + " quantity:" + quantity);
+            }
         }
 
-        askLength = bookLevel;
-        runTrigger.triggerRun();
+        changed(book);
     }
 
     @Override
     public void onBidBook(BidBookUpdateDecoder bidBookDec) {
-        int bookLevel = 0;
 
-        empty(bidBook);
+        final long instrumentId = bidBookDec.instrumentId();
+        final InstrumentBook book = book(instrumentId);
+        final BookSide<BidLevel> bidBook = book.bids();
+        final int depth = getDepth(instrumentId);
 
-        instrumentId = bidBookDec.instrumentId();
+        bidBook.clear();
 
         for(BidBookUpdateDecoder.BidBookDecoder decoder : bidBookDec.bidBook()){
+            if(bidBook.length() == depth){
+                break;
+            }
             final long price = decoder.price();
             final long quantity = decoder.size();
-            bidBook[bookLevel] = new BidLevel();
-            bidBook[bookLevel].setPrice(price);
-            bidBook[bookLevel].setQuantity(quantity);
-            logger.debug("[ALGO] BID: price:" + price + " quantity:" + quantity);
+            bidBook.add(price, quantity);
+            if(logger.isDebugEnabled()){
+                logger.debug("[ALGO] BID: price:" + price + " quantity:" + quantity);
+            }
+        }
+
+        changed(book);
+    }
+
+    @Override
+    public void onBookDelta(BookDeltaDecoder bookDelta) {
+
+        final long instrumentId = bookDelta.instrumentId();
+        final InstrumentBook book = book(instrumentId);
+        final int depth = getDepth(instrumentId);
+
+        for(BookDeltaDecoder.LevelsDecoder decoder : bookDelta.levels()){
+            final BookSide<?> side = decoder.side() == LevelSide.BID ? book.bids() : book.asks();
+            final long price = decoder.price();
+            final long quantity = decoder.size();
+            if(decoder.action() == LevelAction.DELETE || quantity == 0){
+                side.remove(price);
+            }else {
+                side.set(price, quantity, depth);
+            }
+            if(logger.isDebugEnabled()){
+                logger.debug("[ALGO] " + decoder.side() + " " + decoder.action() + ": price:" + price + " quantity:" + quantity);
+            }
+        }
+        changed(book);
+    }
+
+    @Override
+    public void onBookRefresh(BookRefreshDecoder bookRefresh) {
+
+        final long instrumentId = bookRefresh.instrumentId();
+        final InstrumentBook book = book(instrumentId);
+        final int depth = getDepth(instrumentId);
+
+        final BookSide<BidLevel> bidBook = book.bids();
+        bidBook.clear();
 
-            bookLevel+= 1;
+        for(BookRefreshDecoder.BidBookDecoder decoder : bookRefresh.bidBook()){
+            if(bidBook.length() < depth){
+                bidBook.add(decoder.price(), decoder.size());
+            }
         }
 
-        bidLength = bookLevel;
+        final BookSide<AskLevel> askBook = book.asks();
+        askBook.clear();
+
+        for(BookRefreshDecoder.AskBookDecoder decoder : bookRefresh.askBook()){
+            if(askBook.length() < depth){
+                askBook.add(decoder.price(), decoder.size());
+            }
+        }
+        changed(book);
+    }
+
+    /**
+     * Empties the book until a refresh, rather than let algos trade on levels that may be gone.
+     */
+    @Override
+    protected void onBookGap(final long instrumentId, final long expectedSequence, final long receivedSequence) {
+        final InstrumentBook book = books.get(instrumentId);
+        if(book != null){
+            book.bids().clear();
+            book.asks().clear();
+            book.changed();
+        }
+        logger.warn("[ALGO] Missed book deltas instrumentId=[{}] expected=[{}] received=[{}]", instrumentId, expectedSequence, receivedSequence);
+        super.onBookGap(instrumentId, expectedSequence, receivedSequence);
         runTrigger.triggerRun();
     }
+
+    /**
+     * The current instrumentId, the number of books and the layout version, then for each book its instrumentId, bid and ask lengths,
+     * update sequence and whether it is waiting for a refresh, and price and quantity for each bid level followed by
+     * each ask level.
+     */
+    @Override
+    public int writeSnapshot(final MutableDirectBuffer buffer, final int offset) {
+        int position = offset;
+        buffer.putLong(position, current.getInstrumentId());
+        buffer.putInt(position + 8, bookList.size());
+        buffer.putInt(position + 12, SNAPSHOT_LAYOUT);
+        position += 16;
+        for (InstrumentBook book : bookList) {
+            final BookSide<BidLevel> bidBook = book.bids();
+            final BookSide<AskLevel> askBook = book.asks();
+            buffer.putLong(position, book.getInstrumentId());
+            buffer.putInt(position + 8, bidBook.length());
+            buffer.putInt(position + 12, askBook.length());
+            buffer.putLong(position + 16, getUpdateSequence(book.getInstrumentId()));
+            buffer.putInt(position + 24, isBookStale(book.getInstrumentId()) ? 1 : 0);
+            position += 32;
+            for (int i = 0; i < bidBook.length(); i++) {
+                buffer.putLong(position, bidBook.price(i));
+                buffer.putLong(position + 8, bidBook.quantity(i));
+                position += 16;
+            }
+            for (int i = 0; i < askBook.length(); i++) {
+                buffer.putLong(position, askBook.price(i));
+                buffer.putLong(position + 8, askBook.quantity(i));
+                position += 16;
+            }
+        }
+        return position - offset;
+    }
+
+    @Override
+    public void loadSnapshot(final DirectBuffer buffer, final int offset, final int length) {
+        int position = offset;
+        final long currentInstrumentId = buffer.getLong(position);
+        final int bookCount = buffer.getInt(position + 8);
+        final int layout = buffer.getInt(position + 12);
+        if(layout != SNAPSHOT_LAYOUT){
+            throw new IllegalStateException(String.format("Market data snapshot in an unknown layout expected=[%s] actual=[%s]", SNAPSHOT_LAYOUT, layout));
+        }
+        position += 16;
+
+        books.clear();
+        bookList.clear();
+        updateSequences().clear();
+
+        for (int b = 0; b < bookCount; b++) {
+            final InstrumentBook book = book(buffer.getLong(position));
+            final int bidLength = buffer.getInt(position + 8);
+            final int askLength = buffer.getInt(position + 12);
+            updateSequences().restore(book.getInstrumentId(), buffer.getLong(position + 16), buffer.getInt(position + 24) == 1);
+            position += 32;
+
+            for (int i = 0; i < bidLength; i++) {
+                book.bids().add(buffer.getLong(position), buffer.getLong(position + 8));
+                position += 16;
+            }
+            for (int i = 0; i < askLength; i++) {
+                book.asks().add(buffer.getLong(position), buffer.getLong(position + 8));
+                position += 16;
+            }
+        }
+
+        final InstrumentBook currentBook = books.get(currentInstrumentId);
+        current = currentBook != null ? currentBook : new InstrumentBook(currentInstrumentId);
+    }
 }
@@ -2,18 +2,23 @@ package codingblackfemales.service;
 
 import codingblackfemales.container.RunTrigger;
 import codingblackfemales.sequencer.event.OrderEventListener;
+import codingblackfemales.sequencer.snapshot.Snapshottable;
+import codingblackfemales.sotw.ChildFill;
 import codingblackfemales.sotw.ChildOrder;
 import codingblackfemales.sotw.OrderState;
 import messages.order.*;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
 
 import java.util.LinkedList;
 import java.util.List;
 
-public class OrderService extends OrderEventListener {
+public class OrderService extends OrderEventListener implements Snapshottable {
 
     private final RunTrigger runTrigger;
 
     private List<ChildOrder> children = new LinkedList<>();
+    private long changes = 0;
 
     public OrderService(RunTrigger runTrigger) {
         this.runTrigger = runTrigger;
@@ -21,9 +26,17 @@ public class OrderService extends OrderEventListener {
 
 
     private void triggerRun(){
+        changes++;
         runTrigger.triggerRun();
     }
 
+    /**
+     * @return how many times the child orders have changed
+     */
+    public long getChanges(){
+        return changes;
+    }
+
     private ChildOrder createChildOrder(final CreateOrderDecoder create){
         return new ChildOrder(create.side(), create.orderId(), create.quantity(), create.price(), OrderState.PENDING);
     }
@@ -85,4 +98,48 @@ public class OrderService extends OrderEventListener {
         addChildFill(find(fill.orderId()), fill.quantity(), fill.price());
         triggerRun();
     }
+
+    /**
+     * Child count, then for each child: side, orderId, quantity, price, state, fill count and each fill's quantity and price.
+     */
+    @Override
+    public int writeSnapshot(final MutableDirectBuffer buffer, final int offset) {
+        int position = offset;
+        buffer.putInt(position, children.size());
+        position += 4;
+        for (ChildOrder child : children) {
+            buffer.putByte(position, child.getSide().value());
+            buffer.putLong(position + 1, child.getOrderId());
+            buffer.putLong(position + 9, child.getQuantity());
+            buffer.putLong(position + 17, child.getPrice());
+            buffer.putInt(position + 25, child.getState());
+            buffer.putInt(position + 29, child.getFills().size());
+            position += 33;
+            for (ChildFill fill : child.getFills()) {
+                buffer.putLong(position, fill.getQuantity());
+                buffer.putLong(position + 8, fill.getPrice());
+                position += 16;
+            }
+        }
+        return position - offset;
+    }
+
+    @Override
+    public void loadSnapshot(final DirectBuffer buffer, final int offset, final int length) {
+        children.clear();
+        int position = offset;
+        final int count = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < count; i++) {
+            final ChildOrder child = new ChildOrder(Side.get(buffer.getByte(position)), buffer.getLong(position + 1),
+                    buffer.getLong(position + 9), buffer.getLong(position + 17), buffer.getInt(position + 25));
+            final int fills = buffer.getInt(position + 29);
+            position += 33;
+            for (int j = 0; j < fills; j++) {
+                child.addFill(buffer.getLong(position), buffer.getLong(position + 8));
+                position += 16;
+            }
+            children.add(child);
+        }
+    }
 }
@@ -52,6 +52,10 @@ public class ChildOrder {
         this.state = state;
     }
 
+    public List<ChildFill> getFills() {
+        return fills;
+    }
+
     public void addFill(long filledQuantity, long filledPrice) {
         this.fills.add(new ChildFill(filledQuantity, filledPrice));
     }
@@ -4,23 +4,41 @@ import codingblackfemales.service.MarketDataService;
 import codingblackfemales.service.OrderService;
 import codingblackfemales.sotw.marketdata.AskLevel;
 import codingblackfemales.sotw.marketdata.BidLevel;
+import codingblackfemales.sotw.marketdata.InstrumentBook;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Market data is either that of the instrument updated last, or, for a state scoped to one instrument, always that
+ * instrument's book, found with an O(1) lookup.
+ */
 public class SimpleAlgoStateImpl implements SimpleAlgoState {
 
     public final MarketDataService marketDataService;
     public final OrderService orderService;
 
+    private final boolean scoped;
+    private final long instrumentId;
+
     public SimpleAlgoStateImpl(final MarketDataService marketDataService, final OrderService orderService) {
+        this(marketDataService, orderService, false, 0);
+    }
+
+    public SimpleAlgoStateImpl(final MarketDataService marketDataService, final OrderService orderService, final long instrumentId) {
+        this(marketDataService, orderService, true, instrumentId);
+    }
+
+    private SimpleAlgoStateImpl(final MarketDataService marketDataService, final OrderService orderService, final boolean scoped, final long instrumentId) {
         this.marketDataService = marketDataService;
         this.orderService = orderService;
+        this.scoped = scoped;
+        this.instrumentId = instrumentId;
     }
 
     @Override
     public long getInstrumentId() {
-        return marketDataService.getInstrumentId();
+        return scoped ? instrumentId : marketDataService.getInstrumentId();
     }
 
     @Override
@@ -30,21 +48,37 @@ public class SimpleAlgoStateImpl implements SimpleAlgoState {
 
     @Override
     public int getBidLevels() {
+        if(scoped){
+            final InstrumentBook book = marketDataService.getBook(instrumentId);
+            return book != null ? book.getBidLength() : 0;
+        }
         return marketDataService.getBidLength();
     }
 
     @Override
     public int getAskLevels() {
+        if(scoped){
+            final InstrumentBook book = marketDataService.getBook(instrumentId);
+            return book != null ? book.getAskLength() : 0;
+        }
         return marketDataService.getAskLength(); // returns how many sell orders there ar ein the order book
     }
 
     @Override
     public BidLevel getBidAt(int index) {
+        if(scoped){
+            final InstrumentBook book = marketDataService.getBook(instrumentId);
+            return book != null ? book.getBidLevel(index) : null;
+        }
         return marketDataService.getBidLevel(index);
     }
 
     @Override
     public AskLevel getAskAt(int index) {
+        if(scoped){
+            final InstrumentBook book = marketDataService.getBook(instrumentId);
+            return book != null ? book.getAskLevel(index) : null;
+        }
         return marketDataService.getAskLevel(index);
     }
 
@@ -0,0 +1,147 @@
+package codingblackfemales.sotw.marketdata;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * One side of a book, prices and quantities held in primitive arrays best level first: highest price first for
+ * bids, lowest first for asks.
+ *
+ * The arrays grow to the deepest book seen and are then reused, so updates only allocate while the book is getting
+ * deeper than it has been. Levels handed out by {@link #level(int)} are pooled too: the same object for an index
+ * every time, refreshed from the arrays when asked for.
+ */
+public class BookSide<L extends AbstractLevel> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Supplier<L> levelFactory;
+    private final boolean ascending;
+
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private long[] quantities = new long[INITIAL_CAPACITY];
+    private AbstractLevel[] levels = new AbstractLevel[0];
+    private int length;
+
+    public BookSide(final Supplier<L> levelFactory, final boolean ascending) {
+        this.levelFactory = levelFactory;
+        this.ascending = ascending;
+    }
+
+    public void clear(){
+        length = 0;
+    }
+
+    /**
+     * Adds a level below the ones already there, for building a side from a full book.
+     */
+    public void add(final long price, final long quantity){
+        ensureCapacity(length + 1);
+        prices[length] = price;
+        quantities[length] = quantity;
+        length++;
+    }
+
+    /**
+     * Sets the quantity at a price, inserting the level in price order if there isn't one. Only the first depth
+     * levels are kept, so a level that would land below them is ignored and one inserted above them pushes the last
+     * one out.
+     */
+    public void set(final long price, final long quantity, final int depth){
+        final int index = search(price);
+        if(index >= 0){
+            quantities[index] = quantity;
+            return;
+        }
+        final int insertAt = -(index + 1);
+        if(insertAt >= depth){
+            return;
+        }
+        ensureCapacity(length + 1);
+        System.arraycopy(prices, insertAt, prices, insertAt + 1, length - insertAt);
+        System.arraycopy(quantities, insertAt, quantities, insertAt + 1, length - insertAt);
+        prices[insertAt] = price;
+        quantities[insertAt] = quantity;
+        length = Math.min(length + 1, depth);
+    }
+
+    /**
+     * Removes the level at a price, if there is one.
+     */
+    public void remove(final long price){
+        final int index = search(price);
+        if(index < 0){
+            return;
+        }
+        System.arraycopy(prices, index + 1, prices, index, length - index - 1);
+        System.arraycopy(quantities, index + 1, quantities, index, length - index - 1);
+        length--;
+    }
+
+    /**
+     * Binary search in price order, best first.
+     *
+     * @return the index of the price, or -(insertion point + 1) if it isn't in the book
+     */
+    private int search(final long price){
+        int low = 0;
+        int high = length - 1;
+        while(low <= high){
+            final int mid = (low + high) >>> 1;
+            final long midPrice = prices[mid];
+            if(midPrice == price){
+                return mid;
+            }else if(ascending ? midPrice < price : midPrice > price){
+                low = mid + 1;
+            }else {
+                high = mid - 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void ensureCapacity(final int capacity){
+        if(capacity > prices.length){
+            final int grown = Math.max(capacity, prices.length * 2);
+            prices = Arrays.copyOf(prices, grown);
+            quantities = Arrays.copyOf(quantities, grown);
+        }
+    }
+
+    public int length(){
+        return length;
+    }
+
+    public int capacity(){
+        return prices.length;
+    }
+
+    public long price(final int index){
+        return prices[index];
+    }
+
+    public long quantity(final int index){
+        return quantities[index];
+    }
+
+    /**
+     * @return the level at index, or null past the depth of the book
+     */
+    @SuppressWarnings("unchecked")
+    public L level(final int index){
+        if(index < 0 || index >= length){
+            return null;
+        }
+        if(index >= levels.length){
+            final int pooled = levels.length;
+            levels = Arrays.copyOf(levels, prices.length);
+            for (int i = pooled; i < levels.length; i++) {
+                levels[i] = levelFactory.get();
+            }
+        }
+        final L level = (L) levels[index];
+        level.setPrice(prices[index]);
+        level.setQuantity(quantities[index]);
+        return level;
+    }
+}
@@ -0,0 +1,61 @@
+package codingblackfemales.sotw.marketdata;
+
+/**
+ * The bid and ask sides of the book for one instrument.
+ */
+public class InstrumentBook {
+
+    private final long instrumentId;
+    private final BookSide<BidLevel> bids = new BookSide<>(BidLevel::new, false);
+    private final BookSide<AskLevel> asks = new BookSide<>(AskLevel::new, true);
+    private long changes = 0;
+
+    public InstrumentBook(final long instrumentId) {
+        this.instrumentId = instrumentId;
+    }
+
+    public long getInstrumentId(){
+        return instrumentId;
+    }
+
+    public void changed(){
+        changes++;
+    }
+
+    /**
+     * @return how many times the book has changed, to tell whether it has since it was last looked at
+     */
+    public long getChanges(){
+        return changes;
+    }
+
+    public BookSide<BidLevel> bids(){
+        return bids;
+    }
+
+    public BookSide<AskLevel> asks(){
+        return asks;
+    }
+
+    /**
+     * @return the level, or null past the depth of the book
+     */
+    public BidLevel getBidLevel(final int index){
+        return bids.level(index);
+    }
+
+    /**
+     * @return the level, or null past the depth of the book
+     */
+    public AskLevel getAskLevel(final int index){
+        return asks.level(index);
+    }
+
+    public int getBidLength(){
+        return bids.length();
+    }
+
+    public int getAskLength(){
+        return asks.length();
+    }
+}
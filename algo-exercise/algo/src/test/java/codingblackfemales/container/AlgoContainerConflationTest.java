@@ -0,0 +1,110 @@
+package codingblackfemales.container;
+
+import codingblackfemales.action.NoAction;
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.FrameBatchBuilder;
+import codingblackfemales.sequencer.net.RingBufferConsumerAgent;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.service.MarketDataService;
+import codingblackfemales.service.OrderService;
+import messages.marketdata.*;
+import org.agrona.concurrent.NoOpIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AlgoContainerConflationTest {
+
+    private static final int UPDATES = 1_000;
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+    private final List<Long> bidsSeen = new ArrayList<>();
+
+    private int bookUpdate(final long bidPrice){
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON).instrumentId(1L).source(Source.STREAM);
+        encoder.bidBookCount(1).next().price(bidPrice).size(100L);
+        encoder.askBookCount(1).next().price(bidPrice + 1).size(100L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        return MessageHeaderEncoder.ENCODED_LENGTH + encoder.encodedLength();
+    }
+
+    private AlgoContainer container(final TestNetwork network, final boolean conflate){
+        final RunTrigger runTrigger = new RunTrigger();
+        final MarketDataService marketDataService = new MarketDataService(runTrigger);
+        //every update reaches the service, so the saving is the container's alone
+        marketDataService.setSkipSuperseded(false);
+        final AlgoContainer container = new AlgoContainer(marketDataService, new OrderService(runTrigger), runTrigger,
+                new Actioner(new DefaultSequencer(network)));
+        container.setLogic(state -> {
+            bidsSeen.add(state.getBidAt(0).getPrice());
+            return NoAction.NoAction;
+        });
+        container.setConflate(conflate);
+        return container;
+    }
+
+    @Test
+    public void testEvaluatesOncePerBatchOnTheLatestBook() {
+        final TestNetwork network = new TestNetwork();
+        final AlgoContainer container = container(network, true);
+        network.addConsumer(container.getMarketDataService());
+        network.addConsumer(container.getOrderService());
+        network.addConsumer(container);
+
+        final FrameBatchBuilder builder = new FrameBatchBuilder();
+        for (int i = 1; i <= UPDATES; i++) {
+            builder.append(buffer, 0, bookUpdate(i));
+        }
+        network.dispatchBatch(builder.batch());
+
+        assertEquals(1, container.getEvaluations());
+        assertEquals(UPDATES - 1, container.getConflatedUpdates());
+        assertEquals(List.of((long) UPDATES), bidsSeen);
+    }
+
+    @Test
+    public void testEvaluatesOncePerRingBufferRead() {
+        final int readLimit = 64;
+        final RingBufferConsumerAgent agent = new RingBufferConsumerAgent("algo", new NoOpIdleStrategy(), 1 << 20, false, readLimit);
+        final AlgoContainer container = container(new TestNetwork(), true);
+        agent.addConsumer(container.getMarketDataService());
+        agent.addConsumer(container.getOrderService());
+        agent.addConsumer(container);
+
+        for (int i = 1; i <= UPDATES; i++) {
+            agent.ringBuffer().write(1, buffer, 0, bookUpdate(i));
+        }
+        while(agent.doWork() > 0){
+        }
+
+        final int reads = (UPDATES + readLimit - 1) / readLimit;
+        assertEquals(reads, container.getEvaluations());
+        assertEquals(UPDATES - reads, container.getConflatedUpdates());
+        assertEquals(UPDATES, (long) bidsSeen.get(bidsSeen.size() - 1));
+    }
+
+    @Test
+    public void testEvaluatesEveryUpdateWithoutConflation() {
+        final TestNetwork network = new TestNetwork();
+        final AlgoContainer container = container(network, false);
+        network.addConsumer(container.getMarketDataService());
+        network.addConsumer(container.getOrderService());
+        network.addConsumer(container);
+
+        for (int i = 1; i <= 10; i++) {
+            bookUpdate(i);
+            network.dispatch(buffer);
+        }
+
+        assertEquals(10, container.getEvaluations());
+        assertEquals(0, container.getConflatedUpdates());
+    }
+}
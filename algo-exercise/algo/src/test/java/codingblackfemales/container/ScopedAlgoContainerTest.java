@@ -0,0 +1,94 @@
+package codingblackfemales.container;
+
+import codingblackfemales.action.NoAction;
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.FrameBatchBuilder;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.service.MarketDataService;
+import codingblackfemales.service.OrderService;
+import messages.marketdata.*;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScopedAlgoContainerTest {
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+    private final TestNetwork network = new TestNetwork();
+    private final RunTrigger runTrigger = new RunTrigger();
+    private final MarketDataService marketDataService = new MarketDataService(runTrigger);
+    private final OrderService orderService = new OrderService(runTrigger);
+    private final List<String> evaluated = new ArrayList<>();
+
+    private int bookUpdate(final long instrumentId, final long bidPrice){
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON).instrumentId(instrumentId).source(Source.STREAM);
+        encoder.bidBookCount(1).next().price(bidPrice).size(100L);
+        encoder.askBookCount(1).next().price(bidPrice + 1).size(100L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        return MessageHeaderEncoder.ENCODED_LENGTH + encoder.encodedLength();
+    }
+
+    private AlgoContainer container(final long instrumentId, final boolean conflate){
+        final AlgoContainer container = new AlgoContainer(marketDataService, orderService, runTrigger,
+                new Actioner(new DefaultSequencer(network)), instrumentId);
+        container.setLogic(state -> {
+            evaluated.add(state.getInstrumentId() + "@" + state.getBidAt(0).getPrice());
+            return NoAction.NoAction;
+        });
+        container.setConflate(conflate);
+        return container;
+    }
+
+    @Test
+    public void testContainersSharingAServiceEachRunOnTheirOwnInstrument() {
+        final AlgoContainer first = container(1L, false);
+        final AlgoContainer second = container(2L, false);
+        network.addConsumer(marketDataService);
+        network.addConsumer(orderService);
+        network.addConsumer(first);
+        network.addConsumer(second);
+
+        bookUpdate(2L, 200L);
+        network.dispatch(buffer);
+        bookUpdate(1L, 100L);
+        network.dispatch(buffer);
+        bookUpdate(2L, 201L);
+        network.dispatch(buffer);
+
+        assertEquals(List.of("2@200", "1@100", "2@201"), evaluated);
+        assertEquals(1, first.getEvaluations());
+        assertEquals(2, second.getEvaluations());
+    }
+
+    @Test
+    public void testConflatedContainersEachRunOncePerBatchOnTheirOwnInstrument() {
+        final AlgoContainer first = container(1L, true);
+        final AlgoContainer second = container(2L, true);
+        final AlgoContainer untouched = container(3L, true);
+        network.addConsumer(marketDataService);
+        network.addConsumer(orderService);
+        network.addConsumer(first);
+        network.addConsumer(second);
+        network.addConsumer(untouched);
+        marketDataService.setSkipSuperseded(false);
+
+        final FrameBatchBuilder builder = new FrameBatchBuilder();
+        builder.append(buffer, 0, bookUpdate(1L, 100L));
+        builder.append(buffer, 0, bookUpdate(2L, 200L));
+        builder.append(buffer, 0, bookUpdate(1L, 101L));
+        network.dispatchBatch(builder.batch());
+
+        assertEquals(List.of("1@101", "2@200"), evaluated);
+        assertEquals(1, first.getConflatedUpdates());
+        assertEquals(0, second.getConflatedUpdates());
+        assertEquals(0, untouched.getEvaluations());
+    }
+}
@@ -0,0 +1,185 @@
+package codingblackfemales.service;
+
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.sotw.marketdata.InstrumentBook;
+import messages.marketdata.*;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class BookDeltaTest {
+
+    private static final long INSTRUMENT = 42L;
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(4096));
+
+    private UnsafeBuffer bookUpdate(final int levels){
+        encodeBookUpdate(levels);
+        return buffer;
+    }
+
+    private BookUpdateEncoder encodeBookUpdate(final int levels){
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON).instrumentId(INSTRUMENT).source(Source.STREAM);
+        final BookUpdateEncoder.BidBookEncoder bids = encoder.bidBookCount(levels);
+        for (int i = 0; i < levels; i++) {
+            bids.next().price(100L - i).size(100L);
+        }
+        final BookUpdateEncoder.AskBookEncoder asks = encoder.askBookCount(levels);
+        for (int i = 0; i < levels; i++) {
+            asks.next().price(101L + i).size(100L);
+        }
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        return encoder;
+    }
+
+    private UnsafeBuffer delta(final long updateSequence, final LevelSide side, final LevelAction action, final long price, final long size){
+        new BookDeltaEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .instrumentId(INSTRUMENT).venue(Venue.XLON).updateSequence(updateSequence)
+                .levelsCount(1).next().action(action).side(side).price(price).size(size);
+        return buffer;
+    }
+
+    private UnsafeBuffer refresh(final long updateSequence, final long bidPrice){
+        final BookRefreshEncoder encoder = new BookRefreshEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .instrumentId(INSTRUMENT).venue(Venue.XLON).updateSequence(updateSequence);
+        encoder.bidBookCount(2).next().price(bidPrice).size(10L).next().price(bidPrice - 1).size(20L);
+        encoder.askBookCount(1).next().price(bidPrice + 1).size(30L);
+        return buffer;
+    }
+
+    private static long[] bidPrices(final InstrumentBook book){
+        final long[] prices = new long[book.getBidLength()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = book.bids().price(i);
+        }
+        return prices;
+    }
+
+    @Test
+    public void testDeltasChangeOnlyTheLevelsTheyCarry() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        service.onMessage(bookUpdate(3));
+
+        service.onMessage(delta(1L, LevelSide.BID, LevelAction.CHANGE, 99L, 500L));
+        service.onMessage(delta(2L, LevelSide.BID, LevelAction.NEW, 101L, 5L));
+        service.onMessage(delta(3L, LevelSide.ASK, LevelAction.DELETE, 101L, 0L));
+        service.onMessage(delta(4L, LevelSide.BID, LevelAction.NEW, 97L, 7L));
+
+        final InstrumentBook book = service.getBook(INSTRUMENT);
+        assertArrayEquals(new long[]{101L, 100L, 99L, 98L, 97L}, bidPrices(book));
+        assertEquals(500L, book.getBidLevel(2).getQuantity());
+        assertEquals(2, book.getAskLength());
+        assertEquals(102L, book.getAskLevel(0).getPrice());
+        assertEquals(4L, service.getUpdateSequence(INSTRUMENT));
+    }
+
+    @Test
+    public void testDeltasKeepToTheDepth() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        service.setDepth(INSTRUMENT, 2);
+        service.onMessage(bookUpdate(3));
+
+        service.onMessage(delta(1L, LevelSide.BID, LevelAction.NEW, 98L, 5L));
+        service.onMessage(delta(2L, LevelSide.BID, LevelAction.NEW, 101L, 5L));
+
+        assertArrayEquals(new long[]{101L, 100L}, bidPrices(service.getBook(INSTRUMENT)));
+    }
+
+    @Test
+    public void testGapEmptiesTheBookUntilRefreshed() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        service.setGapHandler((instrumentId, expected, received) -> service.onMessage(refresh(received, 200L)));
+        service.onMessage(bookUpdate(3));
+        service.onMessage(delta(1L, LevelSide.BID, LevelAction.CHANGE, 100L, 1L));
+
+        service.onMessage(delta(3L, LevelSide.BID, LevelAction.CHANGE, 100L, 3L));
+
+        assertEquals(1L, service.getGaps());
+        assertFalse(service.isBookStale(INSTRUMENT));
+        assertArrayEquals(new long[]{200L, 199L}, bidPrices(service.getBook(INSTRUMENT)));
+
+        service.onMessage(delta(4L, LevelSide.ASK, LevelAction.CHANGE, 201L, 31L));
+        assertEquals(31L, service.getBook(INSTRUMENT).getAskLevel(0).getQuantity());
+    }
+
+    @Test
+    public void testSnapshotKeepsUpdateSequenceAndStaleness() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        service.onMessage(bookUpdate(3));
+        service.onMessage(delta(1L, LevelSide.BID, LevelAction.CHANGE, 100L, 1L));
+        service.onMessage(delta(5L, LevelSide.BID, LevelAction.CHANGE, 100L, 5L));
+        assertTrue(service.isBookStale(INSTRUMENT));
+        assertEquals(0, service.getBook(INSTRUMENT).getBidLength());
+
+        final ExpandableArrayBuffer snapshot = new ExpandableArrayBuffer(64);
+        final int length = service.writeSnapshot(snapshot, 0);
+        final MarketDataService restored = new MarketDataService(new RunTrigger());
+        restored.loadSnapshot(snapshot, 0, length);
+
+        assertTrue(restored.isBookStale(INSTRUMENT));
+        assertEquals(1L, restored.getUpdateSequence(INSTRUMENT));
+        restored.onMessage(delta(6L, LevelSide.BID, LevelAction.CHANGE, 100L, 6L));
+        assertEquals(0, restored.getBook(INSTRUMENT).getBidLength());
+
+        restored.onMessage(refresh(6L, 300L));
+        assertFalse(restored.isBookStale(INSTRUMENT));
+        assertEquals(300L, restored.getBidLevel(0).getPrice());
+    }
+
+    @Test
+    public void testDeltaIsAFractionOfAFullBook() {
+        final int fullBook = encodeBookUpdate(50).encodedLength();
+
+        final BookDeltaEncoder delta = new BookDeltaEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .instrumentId(INSTRUMENT).venue(Venue.XLON).updateSequence(1L);
+        delta.levelsCount(1).next().action(LevelAction.CHANGE).side(LevelSide.BID).price(100L).size(5L);
+        final int oneLevel = delta.encodedLength();
+
+        assertTrue(String.format("delta=[%s] full=[%s]", oneLevel, fullBook), oneLevel * 20 < fullBook);
+    }
+
+    @Test
+    public void testDeltasAndRefreshesSurviveSequencing() {
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        network.addConsumer(service);
+
+        final BookRefreshEncoder refresh = new BookRefreshEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .instrumentId(INSTRUMENT).venue(Venue.XLON).updateSequence(0L);
+        final BookRefreshEncoder.BidBookEncoder bids = refresh.bidBookCount(5);
+        for (int i = 0; i < 5; i++) {
+            bids.next().price(100L - i).size(10L + i);
+        }
+        final BookRefreshEncoder.AskBookEncoder asks = refresh.askBookCount(5);
+        for (int i = 0; i < 5; i++) {
+            asks.next().price(101L + i).size(20L + i);
+        }
+        sequencer.onCommand(buffer);
+
+        final BookDeltaEncoder delta = new BookDeltaEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .instrumentId(INSTRUMENT).venue(Venue.XLON).updateSequence(1L);
+        delta.levelsCount(3)
+                .next().action(LevelAction.DELETE).side(LevelSide.BID).price(100L).size(0L)
+                .next().action(LevelAction.CHANGE).side(LevelSide.ASK).price(103L).size(99L)
+                .next().action(LevelAction.NEW).side(LevelSide.ASK).price(106L).size(7L);
+        sequencer.onCommand(buffer);
+
+        final InstrumentBook book = service.getBook(INSTRUMENT);
+        assertArrayEquals(new long[]{99L, 98L, 97L, 96L}, bidPrices(book));
+        assertEquals(14L, book.getBidLevel(3).getQuantity());
+        assertEquals(6, book.getAskLength());
+        assertEquals(99L, book.getAskLevel(2).getQuantity());
+        assertEquals(106L, book.getAskLevel(5).getPrice());
+        assertEquals(7L, book.getAskLevel(5).getQuantity());
+        assertEquals(1L, service.getUpdateSequence(INSTRUMENT));
+    }
+}
@@ -0,0 +1,183 @@
+package codingblackfemales.service;
+
+import codingblackfemales.action.Action;
+import codingblackfemales.action.NoAction;
+import codingblackfemales.algo.AlgoLogic;
+import codingblackfemales.container.Actioner;
+import codingblackfemales.container.AlgoContainer;
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.sotw.SimpleAlgoState;
+import messages.marketdata.*;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MarketDataDepthTest {
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+
+    private UnsafeBuffer bookUpdate(final long instrumentId, final int levels){
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(4096));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON).instrumentId(instrumentId).source(Source.STREAM);
+        final BookUpdateEncoder.BidBookEncoder bids = encoder.bidBookCount(levels);
+        for (int i = 0; i < levels; i++) {
+            bids.next().price(1_000L - i).size(100L + i);
+        }
+        final BookUpdateEncoder.AskBookEncoder asks = encoder.askBookCount(levels);
+        for (int i = 0; i < levels; i++) {
+            asks.next().price(1_001L + i).size(200L + i);
+        }
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        return buffer;
+    }
+
+    private UnsafeBuffer askUpdate(final long instrumentId, final int levels){
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(4096));
+        final AskBookUpdateEncoder.AskBookEncoder asks = new AskBookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .venue(Venue.XLON).instrumentId(instrumentId).askBookCount(levels);
+        for (int i = 0; i < levels; i++) {
+            asks.next().price(2_001L + i).size(300L + i);
+        }
+        return buffer;
+    }
+
+    @Test
+    public void testKeepsBooksDeeperThanFifteenLevels() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+
+        service.onMessage(bookUpdate(1L, 40));
+        assertEquals(40, service.getBidLength());
+        assertEquals(40, service.getAskLength());
+        assertEquals(1_000L - 39, service.getBidLevel(39).getPrice());
+        assertEquals(1_001L + 39, service.getAskLevel(39).getPrice());
+        assertEquals(239L, service.getAskLevel(39).getQuantity());
+        assertNull(service.getBidLevel(40));
+
+        service.onMessage(bookUpdate(1L, 3));
+        assertEquals(3, service.getBidLength());
+        assertNull(service.getBidLevel(3));
+
+        final ExpandableArrayBuffer snapshot = new ExpandableArrayBuffer(16);
+        service.onMessage(bookUpdate(1L, 40));
+        final int length = service.writeSnapshot(snapshot, 0);
+        final MarketDataService restored = new MarketDataService(new RunTrigger());
+        restored.loadSnapshot(snapshot, 0, length);
+        assertEquals(40, restored.getAskLength());
+        assertEquals(1_001L + 39, restored.getAskLevel(39).getPrice());
+    }
+
+    @Test
+    public void testDepthIsCappedPerInstrument() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        service.setDefaultDepth(10);
+        service.setDepth(2L, 3);
+
+        service.onMessage(bookUpdate(1L, 40));
+        assertEquals(10, service.getBidLength());
+        assertEquals(10, service.getAskLength());
+        //the ask group is still read right after skipping bids past the depth
+        assertEquals(1_001L, service.getAskLevel(0).getPrice());
+        assertEquals(1_010L, service.getAskLevel(9).getPrice());
+
+        service.onMessage(bookUpdate(2L, 40));
+        assertEquals(3, service.getBidLength());
+        assertEquals(3, service.getAskLength());
+        assertEquals(998L, service.getBidLevel(2).getPrice());
+
+        service.onMessage(askUpdate(2L, 40));
+        assertEquals(3, service.getAskLength());
+        assertEquals(2_003L, service.getAskLevel(2).getPrice());
+
+        assertEquals(10, service.getDepth(1L));
+        assertEquals(3, service.getDepth(2L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsAnEmptyDepth() {
+        new MarketDataService(new RunTrigger()).setDepth(1L, 0);
+    }
+
+    @Test
+    public void testAlgoGetsOnlyTheTopLevelsItAsksFor() {
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network, 4096, DefaultSequencer.DEFAULT_DISPATCH_DEPTH);
+        final RunTrigger runTrigger = new RunTrigger();
+        final AlgoContainer container = new AlgoContainer(new MarketDataService(runTrigger), new OrderService(runTrigger), runTrigger, new Actioner(sequencer));
+
+        final int[] seenLevels = new int[2];
+        container.setLogic(new AlgoLogic() {
+            @Override
+            public Action evaluate(final SimpleAlgoState state) {
+                seenLevels[0] = state.getBidLevels();
+                seenLevels[1] = state.getAskLevels();
+                return NoAction.NoAction;
+            }
+
+            @Override
+            public int topLevels() {
+                return 2;
+            }
+        });
+
+        network.addConsumer(container.getMarketDataService());
+        network.addConsumer(container.getOrderService());
+        network.addConsumer(container);
+
+        sequencer.onCommand(bookUpdate(1L, 40));
+
+        assertEquals(2, seenLevels[0]);
+        assertEquals(2, seenLevels[1]);
+        assertEquals(1_002L, container.getState().getAskAt(1).getPrice());
+        assertNull(container.getState().getAskAt(2));
+    }
+
+    private static AlgoLogic readingTopLevels(final int levels){
+        return new AlgoLogic() {
+            @Override
+            public Action evaluate(final SimpleAlgoState state) {
+                return NoAction.NoAction;
+            }
+
+            @Override
+            public int topLevels() {
+                return levels;
+            }
+        };
+    }
+
+    @Test
+    public void testContainersSharingAServiceKeepTheirOwnDepth() {
+        final RunTrigger runTrigger = new RunTrigger();
+        final MarketDataService service = new MarketDataService(runTrigger);
+        final OrderService orderService = new OrderService(runTrigger);
+        final Actioner actioner = new Actioner(new DefaultSequencer(new TestNetwork()));
+
+        final AlgoContainer deep = new AlgoContainer(service, orderService, runTrigger, actioner, 2L);
+        deep.setLogic(readingTopLevels(MarketDataService.ALL_LEVELS));
+        final AlgoContainer touchOnly = new AlgoContainer(service, orderService, runTrigger, actioner, 1L);
+        touchOnly.setLogic(readingTopLevels(1));
+
+        service.onMessage(bookUpdate(1L, 20));
+        service.onMessage(bookUpdate(2L, 20));
+
+        assertEquals(1, touchOnly.getState().getBidLevels());
+        assertEquals(20, deep.getState().getBidLevels());
+        assertEquals(20, deep.getState().getAskLevels());
+
+        //containers reading every instrument are combined, the deepest one wins whichever is set last
+        final MarketDataService shared = new MarketDataService(runTrigger);
+        new AlgoContainer(shared, orderService, runTrigger, actioner).setLogic(readingTopLevels(5));
+        new AlgoContainer(shared, orderService, runTrigger, actioner).setLogic(readingTopLevels(1));
+        shared.onMessage(bookUpdate(3L, 20));
+        assertEquals(5, shared.getBidLength());
+        assertEquals(5, shared.getDepth(3L));
+    }
+}
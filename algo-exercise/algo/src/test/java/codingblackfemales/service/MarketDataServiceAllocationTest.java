@@ -0,0 +1,136 @@
+package codingblackfemales.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.sotw.SimpleAlgoState;
+import codingblackfemales.sotw.SimpleAlgoStateImpl;
+import codingblackfemales.sotw.marketdata.AskLevel;
+import codingblackfemales.sotw.marketdata.BidLevel;
+import messages.marketdata.*;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MarketDataServiceAllocationTest {
+
+    private static final int WARM_UP = 20_000;
+    private static final int TICKS = 100_000;
+    private static final int LEVELS = 15;
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+
+    private UnsafeBuffer bookUpdate(final int levels, final long offset){
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON).instrumentId(123L).source(Source.STREAM);
+        final BookUpdateEncoder.BidBookEncoder bids = encoder.bidBookCount(levels);
+        for (int i = 0; i < levels; i++) {
+            bids.next().price(98L - i + offset).size(100L + i);
+        }
+        final BookUpdateEncoder.AskBookEncoder asks = encoder.askBookCount(levels);
+        for (int i = 0; i < levels; i++) {
+            asks.next().price(100L + i + offset).size(200L + i);
+        }
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        return buffer;
+    }
+
+    private UnsafeBuffer bidUpdate(){
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        new BidBookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .venue(Venue.XLON).instrumentId(123L).bidBookCount(1).next().price(97L).size(50L);
+        return buffer;
+    }
+
+    private UnsafeBuffer askUpdate(){
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        new AskBookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .venue(Venue.XLON).instrumentId(123L).askBookCount(3).next().price(101L).size(60L)
+                .next().price(102L).size(70L).next().price(103L).size(80L);
+        return buffer;
+    }
+
+    private static long allocatedBytes(){
+        final var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    @Test
+    public void testTicksDoNotAllocate() {
+        //with no logback.xml on the test classpath everything logs at debug, and the per level debug lines allocate
+        final Logger logger = (Logger) LoggerFactory.getLogger(MarketDataService.class);
+        final Level level = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        try {
+            assertTicksDoNotAllocate();
+        } finally {
+            logger.setLevel(level);
+        }
+    }
+
+    private void assertTicksDoNotAllocate() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        final SimpleAlgoState state = new SimpleAlgoStateImpl(service, new OrderService(new RunTrigger()));
+
+        final UnsafeBuffer[] ticks = {bookUpdate(LEVELS, 0), bidUpdate(), askUpdate(), bookUpdate(5, 1)};
+        long checksum = 0;
+
+        for (int i = 0; i < WARM_UP; i++) {
+            service.onMessage(ticks[i % ticks.length]);
+            checksum += state.getBidAt(0).getPrice() + state.getAskAt(state.getAskLevels() - 1).getQuantity();
+        }
+
+        final long allocatedBefore = allocatedBytes();
+
+        for (int i = 0; i < TICKS; i++) {
+            service.onMessage(ticks[i % ticks.length]);
+            checksum += state.getBidAt(0).getPrice() + state.getAskAt(state.getAskLevels() - 1).getQuantity();
+        }
+
+        final long allocated = allocatedBytes() - allocatedBefore;
+        assertTrue("allocated " + allocated + " bytes for " + TICKS + " ticks", allocated < TICKS);
+        assertTrue(checksum > 0);
+    }
+
+    @Test
+    public void testLevelsAreOverwrittenInPlace() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        final SimpleAlgoState state = new SimpleAlgoStateImpl(service, new OrderService(new RunTrigger()));
+
+        service.onMessage(bookUpdate(LEVELS, 0));
+        final BidLevel bestBid = state.getBidAt(0);
+        final AskLevel bestAsk = state.getAskAt(0);
+        assertEquals(LEVELS, state.getBidLevels());
+        assertEquals(98L - 14, state.getBidAt(14).getPrice());
+
+        service.onMessage(bidUpdate());
+        assertEquals(1, state.getBidLevels());
+        assertSame(bestBid, state.getBidAt(0));
+        assertEquals(97L, bestBid.getPrice());
+        assertEquals(50L, bestBid.getQuantity());
+        assertNull(state.getBidAt(1));
+        assertEquals(LEVELS, state.getAskLevels());
+
+        service.onMessage(askUpdate());
+        assertEquals(3, state.getAskLevels());
+        assertSame(bestAsk, state.getAskAt(0));
+        assertEquals(103L, state.getAskAt(2).getPrice());
+        assertNull(state.getAskAt(3));
+
+        service.onMessage(bookUpdate(5, 1));
+        assertEquals(5, state.getBidLevels());
+        assertEquals(5, state.getAskLevels());
+        assertEquals(99L, state.getBidAt(0).getPrice());
+        assertEquals(105L, state.getAskAt(4).getPrice());
+        assertNull(state.getAskAt(5));
+    }
+}
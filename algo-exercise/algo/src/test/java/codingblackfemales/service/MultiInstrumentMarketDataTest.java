@@ -0,0 +1,113 @@
+package codingblackfemales.service;
+
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.sotw.SimpleAlgoState;
+import codingblackfemales.sotw.SimpleAlgoStateImpl;
+import codingblackfemales.sotw.marketdata.InstrumentBook;
+import messages.marketdata.*;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MultiInstrumentMarketDataTest {
+
+    private static final int INSTRUMENTS = 2_000;
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+    private UnsafeBuffer bookUpdate(final long instrumentId, final long bidPrice){
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON).instrumentId(instrumentId).source(Source.STREAM);
+        encoder.bidBookCount(2).next().price(bidPrice).size(100L).next().price(bidPrice - 1).size(200L);
+        encoder.askBookCount(1).next().price(bidPrice + 2).size(300L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        return buffer;
+    }
+
+    private UnsafeBuffer bidUpdate(final long instrumentId, final long bidPrice){
+        new BidBookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .venue(Venue.XLON).instrumentId(instrumentId).bidBookCount(1).next().price(bidPrice).size(50L);
+        return buffer;
+    }
+
+    @Test
+    public void testUpdatesForOneInstrumentLeaveTheOthersAlone() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        final SimpleAlgoState first = new SimpleAlgoStateImpl(service, new OrderService(new RunTrigger()), 1L);
+        final SimpleAlgoState second = new SimpleAlgoStateImpl(service, new OrderService(new RunTrigger()), 2L);
+        final SimpleAlgoState latest = new SimpleAlgoStateImpl(service, new OrderService(new RunTrigger()));
+
+        service.onMessage(bookUpdate(1L, 100L));
+        service.onMessage(bookUpdate(2L, 500L));
+
+        assertEquals(1L, first.getInstrumentId());
+        assertEquals(2, first.getBidLevels());
+        assertEquals(100L, first.getBidAt(0).getPrice());
+        assertEquals(102L, first.getAskAt(0).getPrice());
+        assertEquals(500L, second.getBidAt(0).getPrice());
+        assertEquals(2L, latest.getInstrumentId());
+        assertEquals(500L, latest.getBidAt(0).getPrice());
+
+        service.onMessage(bidUpdate(1L, 101L));
+        assertEquals(1, first.getBidLevels());
+        assertEquals(101L, first.getBidAt(0).getPrice());
+        assertEquals(102L, first.getAskAt(0).getPrice());
+        assertEquals(2, second.getBidLevels());
+        assertEquals(1L, latest.getInstrumentId());
+
+        final SimpleAlgoState unseen = new SimpleAlgoStateImpl(service, new OrderService(new RunTrigger()), 3L);
+        assertEquals(0, unseen.getBidLevels());
+        assertEquals(0, unseen.getAskLevels());
+        assertNull(unseen.getBidAt(0));
+        assertNull(service.getBook(3L));
+        assertEquals(2, service.getInstrumentCount());
+    }
+
+    @Test
+    public void testHoldsThousandsOfInstruments() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        for (int round = 0; round < 3; round++) {
+            for (long instrumentId = 0; instrumentId < INSTRUMENTS; instrumentId++) {
+                service.onMessage(bookUpdate(instrumentId, 1_000L * instrumentId + round));
+            }
+        }
+
+        assertEquals(INSTRUMENTS, service.getInstrumentCount());
+        for (long instrumentId = 0; instrumentId < INSTRUMENTS; instrumentId++) {
+            final InstrumentBook book = service.getBook(instrumentId);
+            assertEquals(instrumentId, book.getInstrumentId());
+            assertEquals(1_000L * instrumentId + 2, book.getBidLevel(0).getPrice());
+            assertEquals(1_000L * instrumentId + 4, book.getAskLevel(0).getPrice());
+        }
+    }
+
+    @Test
+    public void testSnapshotKeepsEveryBook() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        service.onMessage(bookUpdate(7L, 70L));
+        service.onMessage(bookUpdate(8L, 80L));
+        service.onMessage(bidUpdate(7L, 71L));
+
+        final ExpandableArrayBuffer snapshot = new ExpandableArrayBuffer(16);
+        final int length = service.writeSnapshot(snapshot, 0);
+
+        final MarketDataService restored = new MarketDataService(new RunTrigger());
+        restored.onMessage(bookUpdate(9L, 90L));
+        restored.loadSnapshot(snapshot, 0, length);
+
+        assertEquals(2, restored.getInstrumentCount());
+        assertNull(restored.getBook(9L));
+        assertEquals(7L, restored.getInstrumentId());
+        assertEquals(1, restored.getBidLength());
+        assertEquals(71L, restored.getBidLevel(0).getPrice());
+        assertEquals(72L, restored.getAskLevel(0).getPrice());
+        assertEquals(2, restored.getBook(8L).getBidLength());
+        assertEquals(79L, restored.getBook(8L).getBidLevel(1).getPrice());
+    }
+}
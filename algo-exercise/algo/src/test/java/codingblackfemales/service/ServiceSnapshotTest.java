@@ -0,0 +1,98 @@
+package codingblackfemales.service;
+
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.sotw.ChildOrder;
+import codingblackfemales.sotw.OrderState;
+import messages.marketdata.*;
+import messages.order.CreateOrderDecoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.FillOrderDecoder;
+import messages.order.FillOrderEncoder;
+import messages.order.Side;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public class ServiceSnapshotTest {
+
+    @Test
+    public void testMarketDataServiceRoundTrip() {
+
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder();
+        encoder.wrapAndApplyHeader(directBuffer, 0, new MessageHeaderEncoder());
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(42L);
+        encoder.source(Source.STREAM);
+        encoder.bidBookCount(2)
+                .next().price(98L).size(100L)
+                .next().price(95L).size(200L);
+        encoder.askBookCount(1).next().price(100L).size(101L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+
+        final MessageHeaderDecoder header = new MessageHeaderDecoder().wrap(directBuffer, 0);
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        service.onBookUpdate(new BookUpdateDecoder().wrap(directBuffer, header.encodedLength(), header.blockLength(), header.version()));
+
+        final ExpandableArrayBuffer snapshot = new ExpandableArrayBuffer(16);
+        final int length = service.writeSnapshot(snapshot, 0);
+
+        final MarketDataService restored = new MarketDataService(new RunTrigger());
+        restored.loadSnapshot(snapshot, 0, length);
+
+        assertEquals(42L, restored.getInstrumentId());
+        assertEquals(2, restored.getBidLength());
+        assertEquals(1, restored.getAskLength());
+        assertEquals(95L, restored.getBidLevel(1).getPrice());
+        assertEquals(200L, restored.getBidLevel(1).getQuantity());
+        assertEquals(101L, restored.getAskLevel(0).getQuantity());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMarketDataServiceRefusesAnOlderLayout() {
+        final MarketDataService service = new MarketDataService(new RunTrigger());
+        final ExpandableArrayBuffer snapshot = new ExpandableArrayBuffer(16);
+        final int length = service.writeSnapshot(snapshot, 0);
+        snapshot.putInt(12, MarketDataService.SNAPSHOT_LAYOUT - 1);
+
+        new MarketDataService(new RunTrigger()).loadSnapshot(snapshot, 0, length);
+    }
+
+    @Test
+    public void testOrderServiceRoundTrip() {
+
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final messages.order.MessageHeaderEncoder headerEncoder = new messages.order.MessageHeaderEncoder();
+        final messages.order.MessageHeaderDecoder header = new messages.order.MessageHeaderDecoder();
+        final OrderService service = new OrderService(new RunTrigger());
+
+        new CreateOrderEncoder().wrapAndApplyHeader(directBuffer, 0, headerEncoder)
+                .instrumentId(1L).price(100L).quantity(300L).side(Side.SELL).orderId(5L);
+        header.wrap(directBuffer, 0);
+        service.onCreateOrder(new CreateOrderDecoder().wrap(directBuffer, header.encodedLength(), header.blockLength(), header.version()));
+
+        new FillOrderEncoder().wrapAndApplyHeader(directBuffer, 0, headerEncoder).orderId(5L).price(101L).quantity(120L);
+        header.wrap(directBuffer, 0);
+        service.onFill(new FillOrderDecoder().wrap(directBuffer, header.encodedLength(), header.blockLength(), header.version()));
+
+        final ExpandableArrayBuffer snapshot = new ExpandableArrayBuffer(16);
+        final int length = service.writeSnapshot(snapshot, 0);
+
+        final OrderService restored = new OrderService(new RunTrigger());
+        restored.loadSnapshot(snapshot, 0, length);
+
+        assertEquals(1, restored.children().size());
+        final ChildOrder child = restored.children().get(0);
+        assertEquals(Side.SELL, child.getSide());
+        assertEquals(5L, child.getOrderId());
+        assertEquals(300L, child.getQuantity());
+        assertEquals(100L, child.getPrice());
+        assertEquals(OrderState.PENDING, child.getState());
+        assertEquals(120L, child.getFilledQuantity());
+        assertEquals(101L, child.getFills().get(0).getPrice());
+    }
+}
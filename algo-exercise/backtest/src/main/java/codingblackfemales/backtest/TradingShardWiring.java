@@ -0,0 +1,64 @@
+package codingblackfemales.backtest;
+
+import codingblackfemales.algo.AlgoLogic;
+import codingblackfemales.container.Actioner;
+import codingblackfemales.container.AlgoContainer;
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.orderbook.OrderBook;
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.consumer.OrderBookInboundOrderConsumer;
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.sequencer.shard.ShardWiring;
+import codingblackfemales.service.MarketDataService;
+import codingblackfemales.service.OrderService;
+
+import java.util.function.Supplier;
+
+/**
+ * Wires a full trading loop onto each shard of a {@link codingblackfemales.sequencer.shard.ShardedSequencer}:
+ * its own order book, market data and order services, and an algo container running a fresh instance of the
+ * logic. The consumers go on in the same order as a single sequencer backtest.
+ */
+public class TradingShardWiring implements ShardWiring {
+
+    private final Supplier<AlgoLogic> logicFactory;
+    private final OrderBook[] books;
+    private final AlgoContainer[] containers;
+
+    public TradingShardWiring(final int shards, final Supplier<AlgoLogic> logicFactory) {
+        this.logicFactory = logicFactory;
+        this.books = new OrderBook[shards];
+        this.containers = new AlgoContainer[shards];
+    }
+
+    @Override
+    public void wire(final int shard, final Sequencer sequencer, final TestNetwork network) {
+        final RunTrigger runTrigger = new RunTrigger();
+        final Actioner actioner = new Actioner(sequencer);
+
+        final OrderBook book = new OrderBook(new MarketDataChannel(sequencer), new OrderChannel(sequencer));
+        final OrderBookInboundOrderConsumer orderConsumer = new OrderBookInboundOrderConsumer(book);
+
+        final AlgoContainer container = new AlgoContainer(new MarketDataService(runTrigger), new OrderService(runTrigger), runTrigger, actioner);
+        container.setLogic(logicFactory.get());
+
+        network.addConsumer(book);
+        network.addConsumer(container.getMarketDataService());
+        network.addConsumer(container.getOrderService());
+        network.addConsumer(orderConsumer);
+        network.addConsumer(container);
+
+        books[shard] = book;
+        containers[shard] = container;
+    }
+
+    public OrderBook getBook(final int shard){
+        return books[shard];
+    }
+
+    public AlgoContainer getContainer(final int shard){
+        return containers[shard];
+    }
+}
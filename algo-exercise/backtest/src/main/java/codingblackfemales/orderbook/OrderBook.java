@@ -7,16 +7,22 @@ import codingblackfemales.orderbook.order.LimitOrderFlyweight;
 import codingblackfemales.orderbook.order.MarketDataOrderFlyweight;
 import codingblackfemales.orderbook.visitor.*;
 import codingblackfemales.sequencer.event.MarketDataEventListener;
+import codingblackfemales.sequencer.snapshot.Snapshottable;
 import messages.marketdata.AskBookUpdateDecoder;
 import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookRefreshDecoder;
 import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.LevelAction;
+import messages.marketdata.LevelSide;
 import messages.marketdata.Source;
 import messages.order.Side;
+import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class OrderBook extends MarketDataEventListener {
+public class OrderBook extends MarketDataEventListener implements Snapshottable {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderBook.class);
 
@@ -33,6 +39,9 @@ public class OrderBook extends MarketDataEventListener {
     private AskBookSide askBookSide = new AskBookSide();
     private BidBookSide bidBookSide = new BidBookSide();
 
+    private static final byte MARKET_DATA_ORDER = 0;
+    private static final byte LIMIT_ORDER = 1;
+
     public AskBookSide getAskBookSide() {
         return askBookSide;
     }
@@ -134,6 +143,49 @@ public class OrderBook extends MarketDataEventListener {
         addOrMatchBidMarketDataOrders(bidBook);
     }
 
+    /**
+     * Swaps the market data orders at each changed price for one with the new size, limit orders stay where they are.
+     */
+    @Override
+    public void onBookDelta(BookDeltaDecoder bookDelta) {
+        logger.info("[ORDERBOOK] Processing Mkt Data Delta");
+        for(BookDeltaDecoder.LevelsDecoder decoder : bookDelta.levels()) {
+            final long price = decoder.price();
+            final long quantity = decoder.size();
+            final boolean delete = decoder.action() == LevelAction.DELETE || quantity == 0;
+            final boolean bid = decoder.side() == LevelSide.BID;
+            final OrderBookSide bookSide = bid ? getBidBookSide() : getAskBookSide();
+
+            bookSide.removeMarketDataOrders(price, delete);
+            if(!delete){
+                addOrMatchMarketDataOrder(new MarketDataOrderFlyweight(bid ? Side.BUY : Side.SELL, price, quantity), bookSide);
+            }
+        }
+    }
+
+    @Override
+    public void onBookRefresh(BookRefreshDecoder bookRefresh) {
+        logger.info("[ORDERBOOK] Processing Mkt Data Refresh");
+        getBidBookSide().removeMarketDataOrders();
+        for(BookRefreshDecoder.BidBookDecoder decoder : bookRefresh.bidBook()) {
+            addOrMatchMarketDataOrder(new MarketDataOrderFlyweight(Side.BUY, decoder.price(), decoder.size()), getBidBookSide());
+        }
+
+        getAskBookSide().removeMarketDataOrders();
+        for(BookRefreshDecoder.AskBookDecoder decoder : bookRefresh.askBook()) {
+            addOrMatchMarketDataOrder(new MarketDataOrderFlyweight(Side.SELL, decoder.price(), decoder.size()), getAskBookSide());
+        }
+    }
+
+    private void addOrMatchMarketDataOrder(final MarketDataOrderFlyweight marketOrder, final OrderBookSide bookSide){
+        logger.debug("[ORDERBOOK] Adding order" + marketOrder);
+        if(canMatch(marketOrder.getSide(), marketOrder.getPrice())){
+            matchMarketDataOrder(marketOrder);
+        }else{
+            bookSide.addMarketDataOrder(marketOrder);
+        }
+    }
+
     public void matchOrder(final LimitOrderFlyweight limit) {
         final MutatingMatchOneOrderVisitor visitor = new MutatingMatchOneOrderVisitor(limit, orderChannel);
         if(limit.getSide().equals(Side.BUY)){
@@ -193,6 +245,83 @@ public class OrderBook extends MarketDataEventListener {
         return mktDataVisitor.end();
     }
 
+    /**
+     * Bid side then ask side, each as a level count followed by every level best first (price, quantity, order count)
+     * and the level's orders in queue order (type, side, price, quantity, orderId).
+     */
+    @Override
+    public int writeSnapshot(final MutableDirectBuffer buffer, final int offset) {
+        int position = writeSide(bidBookSide, buffer, offset);
+        position = writeSide(askBookSide, buffer, position);
+        return position - offset;
+    }
+
+    private int writeSide(final OrderBookSide side, final MutableDirectBuffer buffer, final int offset){
+        int position = offset + 4;
+        int levels = 0;
+        for (OrderBookLevel level = side.getFirstLevel(); level != null; level = level.next()) {
+            final int levelOffset = position;
+            position += 20;
+            int orders = 0;
+            for (DefaultOrderFlyweight order = level.getFirstOrder(); order != null; order = order.next()) {
+                final boolean isLimit = order instanceof LimitOrderFlyweight;
+                buffer.putByte(position, isLimit ? LIMIT_ORDER : MARKET_DATA_ORDER);
+                buffer.putByte(position + 1, order.getSide().value());
+                buffer.putLong(position + 2, order.getPrice());
+                buffer.putLong(position + 10, order.getQuantity());
+                buffer.putLong(position + 18, isLimit ? ((LimitOrderFlyweight) order).getOrderId() : 0);
+                position += 26;
+                orders++;
+            }
+            buffer.putLong(levelOffset, level.getPrice());
+            buffer.putLong(levelOffset + 8, level.getQuantity());
+            buffer.putInt(levelOffset + 16, orders);
+            levels++;
+        }
+        buffer.putInt(offset, levels);
+        return position;
+    }
+
+    @Override
+    public void loadSnapshot(final DirectBuffer buffer, final int offset, final int length) {
+        bidBookSide = new BidBookSide();
+        askBookSide = new AskBookSide();
+        final int position = readSide(bidBookSide, buffer, offset);
+        readSide(askBookSide, buffer, position);
+    }
+
+    private int readSide(final OrderBookSide side, final DirectBuffer buffer, final int offset){
+        final int levels = buffer.getInt(offset);
+        int position = offset + 4;
+        for (int i = 0; i < levels; i++) {
+            final OrderBookLevel level = new OrderBookLevel();
+            level.setPrice(buffer.getLong(position));
+            level.setQuantity(buffer.getLong(position + 8));
+            final int orders = buffer.getInt(position + 16);
+            position += 20;
+            for (int j = 0; j < orders; j++) {
+                final Side orderSide = Side.get(buffer.getByte(position + 1));
+                final long price = buffer.getLong(position + 2);
+                final long quantity = buffer.getLong(position + 10);
+                final DefaultOrderFlyweight order = buffer.getByte(position) == LIMIT_ORDER
+                        ? new LimitOrderFlyweight(orderSide, price, quantity, buffer.getLong(position + 18))
+                        : new MarketDataOrderFlyweight(orderSide, price, quantity);
+                if(level.getFirstOrder() == null){
+                    level.setFirstOrder(order);
+                }else{
+                    level.getFirstOrder().add(order);
+                }
+                position += 26;
+            }
+            if(side.getFirstLevel() == null){
+                side.setFirstLevel(level);
+            }else{
+                side.getFirstLevel().add(level);
+            }
+        }
+        return position;
+    }
+
 //    private void printOrderBook() {
 //        askBookSide.accept(new OrderBookVisitor() {
 //            @Override
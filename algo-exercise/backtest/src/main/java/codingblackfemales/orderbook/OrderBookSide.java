@@ -5,12 +5,14 @@ import codingblackfemales.orderbook.order.MarketDataOrderFlyweight;
 import codingblackfemales.orderbook.visitor.FilteringOrderBookVisitor;
 import codingblackfemales.orderbook.visitor.MutatingAddOrderVisitor;
 import codingblackfemales.orderbook.visitor.MutatingRemoveAllMarketDataOrdersVisitor;
+import codingblackfemales.orderbook.visitor.MutatingRemoveMarketDataOrdersAtPriceVisitor;
 import codingblackfemales.orderbook.visitor.OrderBookVisitor;
 
 public abstract class OrderBookSide {
     private OrderBookLevel firstLevel;
 
     private final MutatingRemoveAllMarketDataOrdersVisitor removeMarketDataOrderVisitor = new MutatingRemoveAllMarketDataOrdersVisitor();
+    private final MutatingRemoveMarketDataOrdersAtPriceVisitor removeMarketDataOrdersAtPriceVisitor = new MutatingRemoveMarketDataOrdersAtPriceVisitor();
 
     public boolean canMatch(OrderBookSide side, long quantity, long price){
         return false;
@@ -81,6 +83,11 @@ public abstract class OrderBookSide {
         this.accept(removeMarketDataOrderVisitor);
     }
 
+    void removeMarketDataOrders(final long price, final boolean removeEmptyLevel){
+        removeMarketDataOrdersAtPriceVisitor.setPrice(price, removeEmptyLevel);
+        this.accept(removeMarketDataOrdersAtPriceVisitor);
+    }
+
     void addMarketDataOrder(MarketDataOrderFlyweight order){
         this.getAddOrderVisitor().setOrderToAdd(order);
         this.accept(this.getAddOrderVisitor());
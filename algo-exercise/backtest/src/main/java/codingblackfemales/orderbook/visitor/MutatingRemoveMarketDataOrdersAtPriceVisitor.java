@@ -0,0 +1,59 @@
+package codingblackfemales.orderbook.visitor;
+
+import codingblackfemales.orderbook.OrderBookLevel;
+import codingblackfemales.orderbook.OrderBookSide;
+import codingblackfemales.orderbook.order.DefaultOrderFlyweight;
+import codingblackfemales.orderbook.order.MarketDataOrderFlyweight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes the market data orders at one price, leaving limit orders and other levels alone. The level goes too once
+ * it has no orders left, unless it is about to be given a new market data order.
+ */
+public class MutatingRemoveMarketDataOrdersAtPriceVisitor implements OrderBookVisitor{
+
+    private static final Logger logger = LoggerFactory.getLogger(MutatingRemoveMarketDataOrdersAtPriceVisitor.class);
+
+    private long price;
+    private boolean removeEmptyLevel;
+
+    public void setPrice(final long price, final boolean removeEmptyLevel) {
+        this.price = price;
+        this.removeEmptyLevel = removeEmptyLevel;
+    }
+
+    @Override
+    public void visitSide(OrderBookSide side) {}
+
+    @Override
+    public void visitLevel(OrderBookSide side, OrderBookLevel level) {}
+
+    @Override
+    public void visitOrder(DefaultOrderFlyweight order, OrderBookSide side, OrderBookLevel level, boolean isLast) {
+        if(order instanceof MarketDataOrderFlyweight && level.getPrice() == price){
+            logger.info("[ORDERBOOK] Removing market data order:" + order);
+            level.setFirstOrder(order.remove());
+            level.setQuantity(level.getQuantity() - order.getQuantity());
+            if(level.getFirstOrder() == null && removeEmptyLevel){
+                logger.info("[ORDERBOOK] Removing level:" + level.getPrice());
+                side.setFirstLevel(level.remove());
+            }
+        }
+    }
+
+    @Override
+    public OrderBookLevel missingBookLevel(OrderBookLevel previous, OrderBookLevel next, long price) {
+        return null;
+    }
+
+    @Override
+    public OrderBookLevel onNoFirstLevel() {
+        return null;
+    }
+
+    @Override
+    public DefaultOrderFlyweight onNoFirstOrder() {
+        return null;
+    }
+}
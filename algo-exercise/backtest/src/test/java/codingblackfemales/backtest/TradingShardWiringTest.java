@@ -0,0 +1,63 @@
+package codingblackfemales.backtest;
+
+import codingblackfemales.algo.PassiveAlgoLogic;
+import codingblackfemales.sequencer.shard.ShardedSequencer;
+import messages.marketdata.*;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public class TradingShardWiringTest {
+
+    private UnsafeBuffer createTick(final long instrumentId){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder();
+
+        encoder.wrapAndApplyHeader(directBuffer, 0, new MessageHeaderEncoder());
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(instrumentId);
+        encoder.source(Source.STREAM);
+        encoder.bidBookCount(2)
+                .next().price(98L).size(100L)
+                .next().price(95L).size(200L);
+        encoder.askBookCount(2)
+                .next().price(100L).size(101L)
+                .next().price(110L).size(200L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+
+        return directBuffer;
+    }
+
+    @Test
+    public void testEachShardRunsItsOwnTradingLoop() throws Exception {
+
+        final TradingShardWiring wiring = new TradingShardWiring(2, PassiveAlgoLogic::new);
+
+        final ShardedSequencer sequencer = new ShardedSequencer(2, wiring);
+        try {
+            sequencer.start();
+
+            //one instrument per shard
+            sequencer.onCommand(createTick(1L));
+            sequencer.onCommand(createTick(2L));
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while((sequencer.getShard(0).commands() < 1 || sequencer.getShard(1).commands() < 1) && System.currentTimeMillis() < deadline){
+                Thread.sleep(1);
+            }
+        } finally {
+            sequencer.close();
+        }
+
+        for (int shard = 0; shard < 2; shard++) {
+            //the passive algo builds up to 3 child orders against its own shard's book
+            assertEquals(3, wiring.getContainer(shard).getState().getChildOrders().size());
+            assertEquals(98L, wiring.getBook(shard).getBidBookSide().getFirstLevel().getPrice());
+        }
+        assertEquals(1L, sequencer.getShard(0).commands());
+        assertEquals(1L, sequencer.getShard(1).commands());
+    }
+}
@@ -0,0 +1,67 @@
+package codingblackfemales.orderbook;
+
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.LimitOrderFlyweight;
+import messages.marketdata.*;
+import messages.order.Side;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class OrderBookDeltaTest {
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+
+    private UnsafeBuffer refresh(){
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final BookRefreshEncoder encoder = new BookRefreshEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .instrumentId(123L).venue(Venue.XLON).updateSequence(0L);
+        encoder.bidBookCount(2)
+                .next().price(98L).size(100L)
+                .next().price(95L).size(200L);
+        encoder.askBookCount(3)
+                .next().price(100L).size(101L)
+                .next().price(110L).size(200L)
+                .next().price(115L).size(5000L);
+        return buffer;
+    }
+
+    private UnsafeBuffer delta(final long updateSequence, final LevelSide side, final LevelAction action, final long price, final long size){
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        new BookDeltaEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .instrumentId(123L).venue(Venue.XLON).updateSequence(updateSequence)
+                .levelsCount(1).next().action(action).side(side).price(price).size(size);
+        return buffer;
+    }
+
+    @Test
+    public void testDeltaReplacesMarketDataAtOnePrice() {
+        final OrderBook orderBook = new OrderBook(Mockito.mock(MarketDataChannel.class), Mockito.mock(OrderChannel.class));
+        orderBook.onMessage(refresh());
+        orderBook.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 110L, 50L, 1L));
+
+        orderBook.onMessage(delta(1L, LevelSide.ASK, LevelAction.CHANGE, 110L, 300L));
+        orderBook.onMessage(delta(2L, LevelSide.ASK, LevelAction.DELETE, 115L, 0L));
+        orderBook.onMessage(delta(3L, LevelSide.BID, LevelAction.CHANGE, 98L, 40L));
+
+        final OrderBookLevel firstAsk = orderBook.getAskBookSide().getFirstLevel();
+        assertEquals(100L, firstAsk.getPrice());
+        assertEquals(101L, firstAsk.getQuantity());
+
+        final OrderBookLevel secondAsk = firstAsk.next();
+        assertEquals(110L, secondAsk.getPrice());
+        assertEquals(350L, secondAsk.getQuantity());
+        assertTrue(secondAsk.getFirstOrder() instanceof LimitOrderFlyweight);
+        assertEquals(300L, secondAsk.getFirstOrder().next().getQuantity());
+        assertNull(secondAsk.next());
+
+        assertEquals(98L, orderBook.getBidBookSide().getFirstLevel().getPrice());
+        assertEquals(40L, orderBook.getBidBookSide().getFirstLevel().getQuantity());
+        assertEquals(95L, orderBook.getBidBookSide().getFirstLevel().next().getPrice());
+    }
+}
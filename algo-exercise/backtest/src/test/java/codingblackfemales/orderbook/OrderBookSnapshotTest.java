@@ -0,0 +1,120 @@
+package codingblackfemales.orderbook;
+
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.DefaultOrderFlyweight;
+import codingblackfemales.orderbook.order.LimitOrderFlyweight;
+import messages.marketdata.*;
+import messages.order.Side;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class OrderBookSnapshotTest {
+
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final BookUpdateDecoder bookUpdateDecoder = new BookUpdateDecoder();
+
+    private BookUpdateDecoder createBookUpdate(){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder();
+
+        encoder.wrapAndApplyHeader(directBuffer, 0, new MessageHeaderEncoder());
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(123L);
+        encoder.source(Source.STREAM);
+        encoder.askBookCount(3)
+                .next().price(100L).size(101L)
+                .next().price(110L).size(200L)
+                .next().price(115L).size(5000L);
+        encoder.bidBookCount(3)
+                .next().price(98L).size(100L)
+                .next().price(95L).size(200L)
+                .next().price(91L).size(300L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+
+        headerDecoder.wrap(directBuffer, 0);
+        return bookUpdateDecoder.wrap(directBuffer, headerDecoder.encodedLength(), headerDecoder.blockLength(), headerDecoder.version());
+    }
+
+    private OrderBook newOrderBook(){
+        return new OrderBook(Mockito.mock(MarketDataChannel.class), Mockito.mock(OrderChannel.class));
+    }
+
+    private static void assertSameSide(final OrderBookSide expected, final OrderBookSide actual){
+        OrderBookLevel expectedLevel = expected.getFirstLevel();
+        OrderBookLevel actualLevel = actual.getFirstLevel();
+        while(expectedLevel != null){
+            assertNotNull(actualLevel);
+            assertEquals(expectedLevel.getPrice(), actualLevel.getPrice());
+            assertEquals(expectedLevel.getQuantity(), actualLevel.getQuantity());
+
+            DefaultOrderFlyweight expectedOrder = expectedLevel.getFirstOrder();
+            DefaultOrderFlyweight actualOrder = actualLevel.getFirstOrder();
+            while(expectedOrder != null){
+                assertNotNull(actualOrder);
+                assertEquals(expectedOrder.getClass(), actualOrder.getClass());
+                assertEquals(expectedOrder.getSide(), actualOrder.getSide());
+                assertEquals(expectedOrder.getPrice(), actualOrder.getPrice());
+                assertEquals(expectedOrder.getQuantity(), actualOrder.getQuantity());
+                expectedOrder = expectedOrder.next();
+                actualOrder = actualOrder.next();
+            }
+            assertNull(actualOrder);
+
+            expectedLevel = expectedLevel.next();
+            actualLevel = actualLevel.next();
+        }
+        assertNull(actualLevel);
+    }
+
+    private static OrderBookLevel findLevel(final OrderBookSide side, final long price){
+        for (OrderBookLevel level = side.getFirstLevel(); level != null; level = level.next()) {
+            if(level.getPrice() == price){
+                return level;
+            }
+        }
+        throw new AssertionError("No level at " + price);
+    }
+
+    @Test
+    public void testSnapshotRestoresLevelsAndOrderQueues() {
+
+        final OrderBook orderBook = newOrderBook();
+        orderBook.onBookUpdate(createBookUpdate());
+        //queue our orders behind the market data at an existing level and at a new one
+        orderBook.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 110L, 50L, 7L));
+        orderBook.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 112L, 60L, 8L));
+
+        final ExpandableArrayBuffer snapshot = new ExpandableArrayBuffer(64);
+        final int length = orderBook.writeSnapshot(snapshot, 8);
+
+        final OrderBook restored = newOrderBook();
+        restored.loadSnapshot(snapshot, 8, length);
+
+        assertSameSide(orderBook.getBidBookSide(), restored.getBidBookSide());
+        assertSameSide(orderBook.getAskBookSide(), restored.getAskBookSide());
+
+        final OrderBookLevel level = findLevel(restored.getAskBookSide(), 110L);
+        assertEquals(7L, ((LimitOrderFlyweight) level.getFirstOrder().last()).getOrderId());
+        final long levelQuantity = level.getQuantity();
+
+        final MutableDirectBuffer expectedBook = orderBook.getBookUpdateMessage();
+        final byte[] expected = new byte[expectedBook.capacity()];
+        expectedBook.getBytes(0, expected);
+        final MutableDirectBuffer actualBook = restored.getBookUpdateMessage();
+        final byte[] actual = new byte[actualBook.capacity()];
+        actualBook.getBytes(0, actual);
+        assertArrayEquals(expected, actual);
+
+        //the restored book carries on matching against the restored queue
+        restored.onCancelOrder(7L);
+        assertEquals(levelQuantity - 50L, findLevel(restored.getAskBookSide(), 110L).getQuantity());
+    }
+}
@@ -11,6 +11,8 @@ import codingblackfemales.orderbook.consumer.OrderBookInboundOrderConsumer;
 import codingblackfemales.sequencer.DefaultSequencer;
 import codingblackfemales.sequencer.Sequencer;
 import codingblackfemales.sequencer.consumer.LoggingConsumer;
+import codingblackfemales.sequencer.journal.JournalReplayer;
+import codingblackfemales.sequencer.metrics.LatencyMetrics;
 import codingblackfemales.sequencer.marketdata.SequencerTestCase;
 import codingblackfemales.sequencer.net.TestNetwork;
 import codingblackfemales.service.MarketDataService;
@@ -18,17 +20,23 @@ import codingblackfemales.service.OrderService;
 import messages.marketdata.*;
 import org.agrona.concurrent.UnsafeBuffer;
 
+import java.io.File;
 import java.nio.ByteBuffer;
 
 public abstract class AbstractAlgoBackTest extends SequencerTestCase {
 
 
     protected AlgoContainer container;
+    protected TestNetwork network;
+    protected LatencyMetrics latencyMetrics;
 
     @Override
     public Sequencer getSequencer() {
-        final TestNetwork network = new TestNetwork();
-        final Sequencer sequencer = new DefaultSequencer(network);
+        network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+
+        latencyMetrics = new LatencyMetrics();
+        sequencer.setSequencingLatency(latencyMetrics.stage(LatencyMetrics.SEQUENCING));
 
         final RunTrigger runTrigger = new RunTrigger();
         final Actioner actioner = new Actioner(sequencer);
@@ -42,19 +50,31 @@ public abstract class AbstractAlgoBackTest extends SequencerTestCase {
         container = new AlgoContainer(new MarketDataService(runTrigger), new OrderService(runTrigger), runTrigger, actioner);
         //set my algo logic
         container.setLogic(createAlgoLogic());
+        container.setLatencyMetrics(latencyMetrics);
 
-        network.addConsumer(new LoggingConsumer());
-        network.addConsumer(book);
-        network.addConsumer(container.getMarketDataService());
-        network.addConsumer(container.getOrderService());
-        network.addConsumer(orderConsumer);
-        network.addConsumer(container);
+        network.addConsumer(latencyMetrics.timed("LoggingConsumer", new LoggingConsumer()));
+        network.addConsumer(latencyMetrics.timed("OrderBook", book));
+        network.addConsumer(latencyMetrics.timed("MarketDataService", container.getMarketDataService()));
+        network.addConsumer(latencyMetrics.timed("OrderService", container.getOrderService()));
+        network.addConsumer(latencyMetrics.timed("OrderBookInboundOrderConsumer", orderConsumer));
+        network.addConsumer(latencyMetrics.timed("AlgoContainer", container));
 
         return sequencer;
     }
 
     public abstract AlgoLogic createAlgoLogic();
 
+    /**
+     * Replays the market data in a recorded journal through the book and the algo, for regression runs that are
+     * too large to build tick by tick. Orders in the recording are skipped, the algo under test sends its own.
+     */
+    protected long replay(final File journalDirectory, final JournalReplayer.Pacing pacing){
+        return new JournalReplayer(journalDirectory)
+                .pacing(pacing)
+                .schemaId(MessageHeaderDecoder.SCHEMA_ID)
+                .replay(network);
+    }
+
     protected UnsafeBuffer createTick(){
         final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
         final BookUpdateEncoder encoder = new BookUpdateEncoder();
@@ -1,9 +1,23 @@
 package codingblackfemales.sequencer;
 
+import codingblackfemales.sequencer.net.MessageRouter;
+import org.agrona.collections.LongHashSet;
+
+/**
+ * Keeps the set of (schemaId, templateId) a component requires, a component that hasn't required anything
+ * is handed every message.
+ */
 public class AbstractSequencerComponent implements SequencerComponent {
 
+    private final LongHashSet requiredMessages = new LongHashSet();
+
     @Override
     public void requireMessage(int schemaId, int templateId) {
+        requiredMessages.add(MessageRouter.routeKey(schemaId, templateId));
+    }
 
+    @Override
+    public boolean isMessageRequired(int schemaId, int templateId) {
+        return requiredMessages.isEmpty() || requiredMessages.contains(MessageRouter.routeKey(schemaId, templateId));
     }
 }
@@ -1,94 +1,315 @@
 package codingblackfemales.sequencer;
 
+import codingblackfemales.sequencer.metrics.LatencyStage;
+import codingblackfemales.sequencer.net.FrameBatch;
+import codingblackfemales.sequencer.net.FrameBatchBuilder;
 import codingblackfemales.sequencer.net.Network;
+import codingblackfemales.sequencer.orderid.OrderIdGenerator;
+import codingblackfemales.sequencer.orderid.SequentialOrderIdGenerator;
+import codingblackfemales.sequencer.snapshot.SnapshotWriter;
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
 import messages.marketdata.MessageHeaderDecoder;
 import messages.marketdata.MessageHeaderEncoder;
-import messages.order.CreateOrderDecoder;
 import messages.order.CreateOrderEncoder;
 import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.EpochNanoClock;
+import org.agrona.concurrent.OffsetEpochNanoClock;
 import org.agrona.concurrent.UnsafeBuffer;
 
 import java.nio.ByteBuffer;
-
+import java.util.Arrays;
+
+import static java.lang.String.format;
+
+/**
+ * Stamps a sequence number onto every command and dispatches it to the network.
+ *
+ * Each frame is copied into a pre-allocated buffer before it is stamped, so sequencing does not allocate
+ * and never mutates the caller's buffer. Consumers can call back into the sequencer while handling a message
+ * (the order book publishing fills, the algo sending orders), so there is one buffer per level of nesting.
+ *
+ * A CreateOrder gets its orderId written in place on the copy, every other field is passed through as sent.
+ *
+ * Every frame is stamped with the epoch nanos it was sequenced at. A command sent while a frame is being
+ * dispatched (an order the algo sends on a tick, a fill the book publishes for an order) is caused by that
+ * frame, so it gets the frame's sequence number as its correlationId and inherits its ingressTimestamp.
+ * A command from outside keeps the ingressTimestamp it arrived with, or gets the sequencing time if it has none.
+ * Tick to order latency is then an order's sequencedTimestamp - ingressTimestamp, without any lookups.
+ *
+ * A block of commands can be sequenced as one batch with {@link #onCommandBatch}, which is dispatched to the
+ * network in a single call so consumers can act on the burst as a whole.
+ *
+ * Lifetime: the buffer handed to {@link codingblackfemales.sequencer.net.Consumer#onMessage} is only valid
+ * until that call returns. It is re-used for the next message sequenced at the same nesting depth, so a
+ * consumer that wants to keep a frame must copy it.
+ */
 public class DefaultSequencer implements Sequencer {
 
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024;
+    public static final int DEFAULT_DISPATCH_DEPTH = 8;
+
     private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
     private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final MessageLengthDecoder lengthDecoder = new MessageLengthDecoder();
 
-    private ByteBuffer byteBuffer;//= ByteBuffer.allocateDirect(1024);
-    private UnsafeBuffer mutableBuffer;// = new UnsafeBuffer(byteBuffer);
+    private final int maxFrameLength;
+    private ByteBuffer[] sequencedByteBuffers;
+    private UnsafeBuffer[] sequencedBuffers;
+    private long[] dispatchingSequenceNumbers;
+    private long[] dispatchingIngressTimestamps;
+    private int dispatchDepth = 0;
 
-    private final CreateOrderDecoder createOrderDecoder = new CreateOrderDecoder();
-    private final CreateOrderEncoder createOrderEncoder = new CreateOrderEncoder();
+    private final FrameBatchBuilder sequencedBatch = new FrameBatchBuilder();
+    private final FrameBatchBuilder deferredCommands = new FrameBatchBuilder(4 * 1024);
+    private boolean dispatchingBatch = false;
 
-    private final messages.order.MessageHeaderEncoder businessHeaderEncoder = new messages.order.MessageHeaderEncoder();
+    private final EpochNanoClock clock;
 
-    private final ByteBuffer businessByteBuffer = ByteBuffer.allocateDirect(1024);
-    private final UnsafeBuffer businessMutableBuffer = new UnsafeBuffer(businessByteBuffer);
+    private final CreateOrderEncoder createOrderEncoder = new CreateOrderEncoder();
+    private OrderIdGenerator orderIdGenerator = new SequentialOrderIdGenerator(1);
 
     long sequencerNumber = 0L;
 
     private final Network network;
 
+    private LatencyStage sequencingLatency;
+    private SnapshotWriter snapshotWriter;
+
     public DefaultSequencer(Network network) {
+        this(network, DEFAULT_MAX_FRAME_LENGTH, DEFAULT_DISPATCH_DEPTH);
+    }
+
+    public DefaultSequencer(Network network, int maxFrameLength, int initialDispatchDepth) {
+        this(network, maxFrameLength, initialDispatchDepth, new OffsetEpochNanoClock());
+    }
+
+    public DefaultSequencer(Network network, int maxFrameLength, int initialDispatchDepth, EpochNanoClock clock) {
         this.network = network;
+        this.maxFrameLength = maxFrameLength;
+        this.clock = clock;
+        this.sequencedByteBuffers = new ByteBuffer[0];
+        this.sequencedBuffers = new UnsafeBuffer[0];
+        this.dispatchingSequenceNumbers = new long[0];
+        this.dispatchingIngressTimestamps = new long[0];
+        ensureDispatchDepth(initialDispatchDepth);
     }
 
     @Override
     public void onCommand(DirectBuffer bb) {
+        sequenceAndDispatchMessage(bb);
+    }
+
+    /**
+     * @param orderIdGenerator issues the orderId stamped onto every CreateOrder, use a
+     *                         {@link codingblackfemales.sequencer.orderid.MappedOrderIdGenerator} for ids that carry on across restarts
+     */
+    public void setOrderIdGenerator(final OrderIdGenerator orderIdGenerator){
+        this.orderIdGenerator = orderIdGenerator;
+    }
 
-        headerDecoder.wrap(bb, 0);
+    public long newOrderId(){
+        return orderIdGenerator.nextOrderId();
+    }
 
-        int schemaId = headerDecoder.schemaId();
-        int templateId = headerDecoder.templateId();
+    public void sequenceAndDispatchMessage(final DirectBuffer bb){
 
-        if(isModelMessage(schemaId, templateId)){
-            DirectBuffer mutatedBuffer = processModelCommand(bb, schemaId, headerDecoder);
-            sequenceAndDispatchMessage(mutatedBuffer);
+        if(dispatchingBatch){
+            //sequenced once every consumer has seen the whole batch, see onCommandBatch
+            deferredCommands.append(bb, 0, checkLength(bb));
+            return;
         }
-        else{
-            sequenceAndDispatchMessage(bb);
+
+        final long start = sequencingLatency != null ? System.nanoTime() : 0;
+
+        final int length = checkLength(bb);
+
+        ensureDispatchDepth(dispatchDepth + 1);
+
+        final UnsafeBuffer sequencedBuffer = sequencedBuffers[dispatchDepth];
+        sequencedBuffer.wrap(sequencedByteBuffers[dispatchDepth], 0, length);
+        sequencedBuffer.putBytes(0, bb, 0, length);
+
+        final long ingressTimestamp = stamp(sequencedBuffer, 0);
+        dispatchingSequenceNumbers[dispatchDepth] = sequencerNumber;
+        dispatchingIngressTimestamps[dispatchDepth] = ingressTimestamp;
+
+        if(sequencingLatency != null){
+            sequencingLatency.record(headerDecoder.schemaId(), headerDecoder.templateId(), System.nanoTime() - start);
+        }
+
+        dispatchDepth += 1;
+        try {
+            dispatchToNetwork(sequencedBuffer);
+        } finally {
+            dispatchDepth -= 1;
         }
 
+        //consumers are only consistent with each other once the outermost frame has been fully dispatched
+        if(dispatchDepth == 0 && snapshotWriter != null){
+            snapshotWriter.onSequenced(sequencerNumber);
+        }
     }
 
-    public DirectBuffer processModelCommand(final DirectBuffer byteBuffer, final int schemaId, final MessageHeaderDecoder header){
+    /**
+     * Sequences a block of commands from outside and dispatches them to the network as one batch.
+     *
+     * Every consumer sees the whole batch before anything it sends while handling it is sequenced, so a consumer
+     * never sees a reaction to a frame ahead of frames that were sequenced before it. Commands sent while the
+     * batch is dispatched are held back and sequenced afterwards, in the order they were sent, as if caused by
+     * the last frame of the batch. A batch sent while handling a single frame is sequenced one frame at a time.
+     */
+    @Override
+    public void onCommandBatch(final FrameBatch commands){
 
-        final int actingBlockLength = header.blockLength();
-        final int actingVersion = header.version();
-        final int bufferOffset = header.encodedLength();
+        if(dispatchingBatch || dispatchDepth > 0){
+            Sequencer.super.onCommandBatch(commands);
+            return;
+        }
 
-        createOrderDecoder.wrap(byteBuffer, bufferOffset, actingBlockLength, actingVersion);
+        final long start = sequencingLatency != null ? System.nanoTime() : 0;
 
+        sequencedBatch.reset();
+        deferredCommands.reset();
+        long lastIngressTimestamp = 0;
+        commands.reset();
+        while(commands.next()){
+            final DirectBuffer command = commands.frame();
+            final int offset = sequencedBatch.append(command, 0, checkLength(command));
+            lastIngressTimestamp = stamp(sequencedBatch.buffer(), offset);
+        }
 
-        createOrderEncoder.wrapAndApplyHeader(businessMutableBuffer, 0, businessHeaderEncoder);
-        createOrderEncoder.price(createOrderDecoder.price());
-        createOrderEncoder.quantity(createOrderDecoder.quantity());
-        createOrderEncoder.side(createOrderDecoder.side());
-        createOrderEncoder.orderId(newOrderId());
-        return businessMutableBuffer;
-    }
+        if(sequencedBatch.isEmpty()){
+            return;
+        }
 
-    private long orderId = 1;
+        if(sequencingLatency != null){
+            sequencingLatency.record(System.nanoTime() - start);
+        }
 
-    public long newOrderId(){
-        return orderId +=1;
+        final long lastSequenceNumber = sequencerNumber;
+
+        dispatchingBatch = true;
+        try {
+            network.dispatchBatch(sequencedBatch.batch());
+        } finally {
+            dispatchingBatch = false;
+        }
+
+        if(!deferredCommands.isEmpty()){
+            sequenceDeferred(lastSequenceNumber, lastIngressTimestamp);
+        }
+
+        if(snapshotWriter != null){
+            snapshotWriter.onSequenced(sequencerNumber);
+        }
     }
 
-    public void sequenceAndDispatchMessage(final DirectBuffer bb){
+    private void sequenceDeferred(final long causeSequenceNumber, final long causeIngressTimestamp){
+        //dispatch the held back commands one level down, as if they were sent while the last frame was dispatched
+        ensureDispatchDepth(2);
+        dispatchingSequenceNumbers[0] = causeSequenceNumber;
+        dispatchingIngressTimestamps[0] = causeIngressTimestamp;
+        dispatchDepth = 1;
+        try {
+            final FrameBatch deferred = deferredCommands.batch();
+            while(deferred.next()){
+                sequenceAndDispatchMessage(deferred.frame());
+            }
+        } finally {
+            dispatchDepth = 0;
+            deferredCommands.reset();
+        }
+    }
+
+    private int checkLength(final DirectBuffer bb){
+        final int length = lengthDecoder.decodeLength(bb, 0);
 
-        byteBuffer = ByteBuffer.allocateDirect(1024);
-        mutableBuffer = new UnsafeBuffer(byteBuffer);
+        if(length > maxFrameLength){
+            throw new IllegalStateException(format("Frame too large to sequence length=[%s] maxFrameLength=[%s]", length, maxFrameLength));
+        }
+        return length;
+    }
 
-        mutableBuffer.wrap(bb);
+    /**
+     * Numbers and timestamps the copy of a command at offset, and stamps an orderId onto a CreateOrder.
+     *
+     * @return the ingressTimestamp the frame was given
+     */
+    private long stamp(final MutableDirectBuffer sequenced, final int offset){
 
-        headerEncoder.wrap(mutableBuffer, 0);
+        headerEncoder.wrap(sequenced, offset);
+        headerDecoder.wrap(sequenced, offset);
 
         sequencerNumber += 1;
 
+        final long sequencedTimestamp = clock.nanoTime();
+        final long ingressTimestamp;
+        final long correlationId;
+        if(dispatchDepth > 0){
+            ingressTimestamp = dispatchingIngressTimestamps[dispatchDepth - 1];
+            correlationId = dispatchingSequenceNumbers[dispatchDepth - 1];
+        }else {
+            ingressTimestamp = headerDecoder.ingressTimestamp() != 0 ? headerDecoder.ingressTimestamp() : sequencedTimestamp;
+            correlationId = headerDecoder.correlationId();
+        }
+
         headerEncoder.sequencerNumber(sequencerNumber);
+        headerEncoder.sequencedTimestamp(sequencedTimestamp);
+        headerEncoder.ingressTimestamp(ingressTimestamp);
+        headerEncoder.correlationId(correlationId);
+
+        if(isModelMessage(headerDecoder.schemaId(), headerDecoder.templateId())){
+            //stamp the id straight onto the copy, the rest of the order goes through untouched
+            createOrderEncoder.wrap(sequenced, offset + headerDecoder.encodedLength()).orderId(newOrderId());
+        }
 
-        dispatchToNetwork(mutableBuffer);
+        return ingressTimestamp;
+    }
+
+    private void ensureDispatchDepth(final int depth){
+        final int currentDepth = sequencedBuffers.length;
+        if(depth <= currentDepth){
+            return;
+        }
+
+        sequencedByteBuffers = Arrays.copyOf(sequencedByteBuffers, depth);
+        sequencedBuffers = Arrays.copyOf(sequencedBuffers, depth);
+        dispatchingSequenceNumbers = Arrays.copyOf(dispatchingSequenceNumbers, depth);
+        dispatchingIngressTimestamps = Arrays.copyOf(dispatchingIngressTimestamps, depth);
+
+        for(int i = currentDepth; i < depth; i++){
+            sequencedByteBuffers[i] = ByteBuffer.allocateDirect(maxFrameLength);
+            sequencedBuffers[i] = new UnsafeBuffer(sequencedByteBuffers[i]);
+        }
+    }
+
+    /**
+     * @param sequencingLatency records the time to copy and stamp each frame, not including the dispatch
+     */
+    public void setSequencingLatency(final LatencyStage sequencingLatency){
+        this.sequencingLatency = sequencingLatency;
+    }
+
+    /**
+     * @param snapshotWriter offered the sequence number after each outermost dispatch, so snapshots are taken between frames
+     */
+    public void setSnapshotWriter(final SnapshotWriter snapshotWriter){
+        this.snapshotWriter = snapshotWriter;
+    }
+
+    public long getSequencerNumber(){
+        return sequencerNumber;
+    }
+
+    /**
+     * Carries on numbering after a restart, the next frame sequenced gets lastSequenceNumber + 1.
+     */
+    public void resumeFrom(final long lastSequenceNumber){
+        if(dispatchDepth != 0 || dispatchingBatch){
+            throw new IllegalStateException(format("Cannot resume while dispatching dispatchDepth=[%s]", dispatchDepth));
+        }
+        this.sequencerNumber = lastSequenceNumber;
     }
 
     public void dispatchToNetwork(DirectBuffer sequencedBuffer){
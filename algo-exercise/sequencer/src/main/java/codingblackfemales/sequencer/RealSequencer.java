@@ -1,35 +1,156 @@
 package codingblackfemales.sequencer;
 
-import codingblackfemales.sequencer.util.ByteBufferUtil;
+import codingblackfemales.sequencer.net.Network;
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
 import messages.marketdata.MessageHeaderEncoder;
+import messages.marketdata.MessageHeaderDecoder;
 import org.agrona.DirectBuffer;
+import org.agrona.concurrent.EpochNanoClock;
+import org.agrona.concurrent.OffsetEpochNanoClock;
 import org.agrona.concurrent.UnsafeBuffer;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
-public class RealSequencer {
+import static java.lang.String.format;
 
-    final ByteBuffer sequenced = ByteBuffer.allocateDirect(1024);
-    final UnsafeBuffer directBuffer = new UnsafeBuffer();
-    final MessageHeaderEncoder encoder = new MessageHeaderEncoder();
+/**
+ * Single writer sequencer. Every command is cloned into a reusable region, stamped with the next sequence
+ * number and dispatched to the network, the caller's buffer is never touched.
+ *
+ * Frames are laid out one after another in the region and it wraps back to the start when the next frame
+ * doesn't fit, so a dispatched frame stays valid until the region comes round again rather than only until
+ * the next message. Nested commands (a consumer sequencing while it handles a message) land after the frame
+ * being handled, the region has to be big enough for the deepest nesting.
+ *
+ * Frames are stamped with their sequencing time, ingress time and correlationId the same way as
+ * {@link DefaultSequencer} does.
+ *
+ * Sequence numbers are strictly increasing from the initial sequence number, with no gaps. Only the thread
+ * that sequenced the first command may sequence after it, other threads have to hand their commands over
+ * (e.g. through a many to one ring buffer) rather than call in, that is what keeps the numbering safe.
+ */
+public class RealSequencer implements Sequencer {
 
-    final long sequenceNumber = 0L;
+    public static final int DEFAULT_REGION_LENGTH = 64 * 1024;
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024;
 
-    public void processMessage(DirectBuffer buffer){
+    private final Network network;
+    private final int maxFrameLength;
 
-        ByteBufferUtil.cloneInto(buffer.byteBuffer(), sequenced);
+    private final ByteBuffer sequenced;
+    private final UnsafeBuffer region;
+    private final MessageHeaderEncoder encoder = new MessageHeaderEncoder();
+    private final MessageHeaderDecoder decoder = new MessageHeaderDecoder();
+    private final EpochNanoClock clock;
+    private final MessageLengthDecoder lengthDecoder = new MessageLengthDecoder();
 
-        directBuffer.wrap(sequenced);
+    //nested commands are dispatched before the frame that caused them returns, so one view per level of nesting
+    private UnsafeBuffer[] views = new UnsafeBuffer[0];
+    private long[] dispatchingSequenceNumbers = new long[0];
+    private long[] dispatchingIngressTimestamps = new long[0];
+    private int depth = 0;
+
+    private Thread writer;
+    private int position = 0;
+    private long sequenceNumber;
+
+    public RealSequencer(final Network network) {
+        this(network, DEFAULT_REGION_LENGTH, DEFAULT_MAX_FRAME_LENGTH, 0L);
+    }
+
+    public RealSequencer(final Network network, final int regionLength, final int maxFrameLength, final long initialSequenceNumber) {
+        this(network, regionLength, maxFrameLength, initialSequenceNumber, new OffsetEpochNanoClock());
+    }
+
+    public RealSequencer(final Network network, final int regionLength, final int maxFrameLength, final long initialSequenceNumber, final EpochNanoClock clock) {
+        if(maxFrameLength > regionLength){
+            throw new IllegalArgumentException(format("Region too small regionLength=[%s] maxFrameLength=[%s]", regionLength, maxFrameLength));
+        }
+        this.network = network;
+        this.maxFrameLength = maxFrameLength;
+        this.sequenceNumber = initialSequenceNumber;
+        this.clock = clock;
+        this.sequenced = ByteBuffer.allocateDirect(regionLength);
+        this.region = new UnsafeBuffer(sequenced);
+    }
+
+    @Override
+    public void onCommand(final DirectBuffer buffer) {
+        processMessage(buffer);
+    }
+
+    public void processMessage(final DirectBuffer buffer){
+
+        checkWriter();
+
+        final int length = lengthDecoder.decodeLength(buffer, 0);
+
+        if(length > maxFrameLength){
+            throw new IllegalStateException(format("Frame too large to sequence length=[%s] maxFrameLength=[%s]", length, maxFrameLength));
+        }
+
+        if(position + length > region.capacity()){
+            position = 0;
+        }
+
+        if(depth == views.length){
+            views = Arrays.copyOf(views, depth + 1);
+            views[depth] = new UnsafeBuffer(0, 0);
+            dispatchingSequenceNumbers = Arrays.copyOf(dispatchingSequenceNumbers, depth + 1);
+            dispatchingIngressTimestamps = Arrays.copyOf(dispatchingIngressTimestamps, depth + 1);
+        }
+
+        final UnsafeBuffer directBuffer = views[depth];
+        region.putBytes(position, buffer, 0, length);
+        directBuffer.wrap(region, position, length);
+        position += length;
 
         encoder.wrap(directBuffer, 0);
+        decoder.wrap(directBuffer, 0);
+
+        sequenceNumber += 1;
+
+        final long sequencedTimestamp = clock.nanoTime();
+        final long ingressTimestamp;
+        final long correlationId;
+        if(depth > 0){
+            ingressTimestamp = dispatchingIngressTimestamps[depth - 1];
+            correlationId = dispatchingSequenceNumbers[depth - 1];
+        }else {
+            ingressTimestamp = decoder.ingressTimestamp() != 0 ? decoder.ingressTimestamp() : sequencedTimestamp;
+            correlationId = decoder.correlationId();
+        }
 
         encoder.sequencerNumber(sequenceNumber);
+        encoder.sequencedTimestamp(sequencedTimestamp);
+        encoder.ingressTimestamp(ingressTimestamp);
+        encoder.correlationId(correlationId);
+        dispatchingSequenceNumbers[depth] = sequenceNumber;
+        dispatchingIngressTimestamps[depth] = ingressTimestamp;
 
-        dispatch(directBuffer);
+        depth += 1;
+        try {
+            dispatch(directBuffer);
+        } finally {
+            depth -= 1;
+        }
     }
 
-    public void dispatch(UnsafeBuffer buffer){
-        //TODO: Implement
+    public void dispatch(final UnsafeBuffer buffer){
+        network.dispatch(buffer);
     }
 
+    public long getSequenceNumber(){
+        return sequenceNumber;
+    }
+
+    private void checkWriter(){
+        final Thread current = Thread.currentThread();
+        if(writer == null){
+            writer = current;
+        }else if(writer != current){
+            throw new IllegalStateException(format("Sequencer is single writer, owned by [%s] called from [%s]", writer.getName(), current.getName()));
+        }
+    }
 }
@@ -1,7 +1,19 @@
 package codingblackfemales.sequencer;
 
+import codingblackfemales.sequencer.net.FrameBatch;
 import org.agrona.DirectBuffer;
 
 public interface Sequencer {
     public void onCommand(final DirectBuffer byteBuffer);
+
+    /**
+     * Sequences a block of commands, e.g. a burst of market data read in one go. Sequencers that can dispatch
+     * the block as one batch override this, the default sequences the commands one at a time.
+     */
+    public default void onCommandBatch(final FrameBatch commands){
+        commands.reset();
+        while(commands.next()){
+            onCommand(commands.frame());
+        }
+    }
 }
@@ -3,4 +3,10 @@ package codingblackfemales.sequencer;
 public interface SequencerComponent {
     public void requireMessage(int schemaId, int templateId);
 
+    /**
+     * @return true if the component wants frames of this schema and template, networks use this to build
+     *         their routing tables so a component is only handed the messages it asked for.
+     */
+    public boolean isMessageRequired(int schemaId, int templateId);
+
 }
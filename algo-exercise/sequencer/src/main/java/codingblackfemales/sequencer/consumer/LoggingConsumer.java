@@ -1,5 +1,6 @@
 package codingblackfemales.sequencer.consumer;
 
+import codingblackfemales.sequencer.AbstractSequencerComponent;
 import codingblackfemales.sequencer.net.Consumer;
 import messages.marketdata.BookUpdateDecoder;
 import messages.marketdata.MessageHeaderDecoder;
@@ -13,21 +14,32 @@ import org.slf4j.LoggerFactory;
 
 import static codingblackfemales.sequencer.util.MessageUtil.bookUpdateToString;
 
-public class LoggingConsumer implements Consumer {
+public class LoggingConsumer extends AbstractSequencerComponent implements Consumer {
 
     private static final Logger logger = LoggerFactory.getLogger(LoggingConsumer.class);
 
-    private final MessageHeaderDecoder decoder = new MessageHeaderDecoder();
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
     private final BookUpdateDecoder bookUpdateDecoder = new BookUpdateDecoder();
     private final CreateOrderDecoder createOrderDecoder = new CreateOrderDecoder();
     private final FillOrderDecoder fillDecoder = new FillOrderDecoder();
 
     private final CancelOrderDecoder cancelDecoder = new CancelOrderDecoder();
 
+    public LoggingConsumer() {
+        requireMessage(BookUpdateDecoder.SCHEMA_ID, BookUpdateDecoder.TEMPLATE_ID);
+        requireMessage(CreateOrderDecoder.SCHEMA_ID, CreateOrderDecoder.TEMPLATE_ID);
+        requireMessage(FillOrderDecoder.SCHEMA_ID, FillOrderDecoder.TEMPLATE_ID);
+        requireMessage(CancelOrderDecoder.SCHEMA_ID, CancelOrderDecoder.TEMPLATE_ID);
+    }
+
     @Override
     public void onMessage(final DirectBuffer buffer) {
+        header.wrap(buffer, 0);
+        onMessage(buffer, header);
+    }
 
-        decoder.wrap(buffer, 0);
+    @Override
+    public void onMessage(final DirectBuffer buffer, final MessageHeaderDecoder decoder) {
 
         if (decoder.schemaId() == BookUpdateDecoder.SCHEMA_ID && decoder.templateId() == BookUpdateDecoder.TEMPLATE_ID) {
             final int actingBlockLength = decoder.blockLength();
@@ -0,0 +1,85 @@
+package codingblackfemales.sequencer.consumer;
+
+import codingblackfemales.sequencer.net.Consumer;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks the sequence numbers a consumer is handed are contiguous, counting and logging the missing ones
+ * and any duplicates. Frames are passed on to the delegate, apart from duplicates which are dropped.
+ *
+ * Only meaningful where frames arrive in sequence order, i.e. across a thread or process boundary (ring
+ * buffer, journal, shared memory). On a network that dispatches re-entrantly on the sequencer's thread a
+ * consumer placed after one that sequences can legitimately see a later number before an earlier one.
+ */
+public class SequenceGapDetector implements Consumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceGapDetector.class);
+
+    private final Consumer delegate;
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+
+    private long lastSequenceNumber;
+    private long gaps = 0;
+    private long missing = 0;
+    private long duplicates = 0;
+
+    public SequenceGapDetector() {
+        this(buffer -> {});
+    }
+
+    public SequenceGapDetector(final Consumer delegate) {
+        this(delegate, 0L);
+    }
+
+    public SequenceGapDetector(final Consumer delegate, final long lastSequenceNumber) {
+        this.delegate = delegate;
+        this.lastSequenceNumber = lastSequenceNumber;
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer) {
+        header.wrap(buffer, 0);
+        onMessage(buffer, header);
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+
+        final long sequenceNumber = header.sequencerNumber();
+        final long expected = lastSequenceNumber + 1;
+
+        if(sequenceNumber < expected){
+            duplicates += 1;
+            logger.warn("[SEQUENCE] Duplicate sequence number " + sequenceNumber + " expected " + expected);
+            return;
+        }
+
+        if(sequenceNumber > expected){
+            gaps += 1;
+            missing += sequenceNumber - expected;
+            logger.warn("[SEQUENCE] Gap, missing " + expected + " to " + (sequenceNumber - 1));
+        }
+
+        lastSequenceNumber = sequenceNumber;
+        delegate.onMessage(buffer, header);
+    }
+
+    public long getLastSequenceNumber() {
+        return lastSequenceNumber;
+    }
+
+    public long getGaps() {
+        return gaps;
+    }
+
+    public long getMissing() {
+        return missing;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+}
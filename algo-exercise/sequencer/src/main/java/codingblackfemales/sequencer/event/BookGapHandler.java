@@ -0,0 +1,11 @@
+package codingblackfemales.sequencer.event;
+
+/**
+ * Told when book deltas for an instrument were missed, typically to ask the publisher for a refresh.
+ */
+@FunctionalInterface
+public interface BookGapHandler {
+
+    void onGap(long instrumentId, long expectedSequence, long receivedSequence);
+
+}
@@ -0,0 +1,85 @@
+package codingblackfemales.sequencer.event;
+
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.collections.LongHashSet;
+
+/**
+ * Follows the update sequence of book deltas per instrument.
+ *
+ * The first delta for an instrument is sequence 1 and every delta after that is one more than the last. A delta
+ * that skips ahead means one was missed: the instrument goes stale and its deltas are dropped until a refresh, a
+ * full book as at some update sequence, brings it back in step. Deltas at or before the refresh are then dropped
+ * as already included in it.
+ */
+public class BookSequenceTracker {
+
+    public static final int APPLY = 0;
+    public static final int DUPLICATE = 1;
+    public static final int GAP = 2;
+    public static final int STALE = 3;
+
+    private static final long NONE = -1;
+
+    private final Long2LongHashMap sequences = new Long2LongHashMap(NONE);
+    private final LongHashSet staleInstruments = new LongHashSet();
+
+    /**
+     * @return APPLY if the delta is the next one, DUPLICATE if it is already applied, GAP if one was missed (the
+     * instrument is stale from now on) or STALE if the instrument is waiting for a refresh
+     */
+    public int onDelta(final long instrumentId, final long updateSequence){
+        if(staleInstruments.contains(instrumentId)){
+            return STALE;
+        }
+        final long last = updateSequence(instrumentId);
+        if(updateSequence == last + 1){
+            sequences.put(instrumentId, updateSequence);
+            return APPLY;
+        }else if(updateSequence <= last){
+            return DUPLICATE;
+        }
+        staleInstruments.add(instrumentId);
+        return GAP;
+    }
+
+    /**
+     * @return false if the refresh is older than the deltas already applied, so should be ignored
+     */
+    public boolean onRefresh(final long instrumentId, final long updateSequence){
+        if(!staleInstruments.contains(instrumentId) && updateSequence < updateSequence(instrumentId)){
+            return false;
+        }
+        staleInstruments.remove(instrumentId);
+        sequences.put(instrumentId, updateSequence);
+        return true;
+    }
+
+    /**
+     * @return the sequence of the last delta or refresh applied for the instrument, 0 if none
+     */
+    public long updateSequence(final long instrumentId){
+        final long sequence = sequences.get(instrumentId);
+        return sequence == NONE ? 0 : sequence;
+    }
+
+    public boolean isStale(final long instrumentId){
+        return staleInstruments.contains(instrumentId);
+    }
+
+    /**
+     * Puts back the state of an instrument, e.g. from a snapshot.
+     */
+    public void restore(final long instrumentId, final long updateSequence, final boolean stale){
+        sequences.put(instrumentId, updateSequence);
+        if(stale){
+            staleInstruments.add(instrumentId);
+        }else {
+            staleInstruments.remove(instrumentId);
+        }
+    }
+
+    public void clear(){
+        sequences.clear();
+        staleInstruments.clear();
+    }
+}
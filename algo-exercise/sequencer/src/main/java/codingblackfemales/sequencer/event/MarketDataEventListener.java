@@ -1,22 +1,80 @@
 package codingblackfemales.sequencer.event;
 
+import codingblackfemales.sequencer.AbstractSequencerComponent;
 import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.net.FrameBatch;
+import codingblackfemales.sequencer.util.InstrumentIdDecoder;
 import messages.marketdata.AskBookUpdateDecoder;
 import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookRefreshDecoder;
 import messages.marketdata.BookUpdateDecoder;
 import messages.marketdata.MessageHeaderDecoder;
 import org.agrona.DirectBuffer;
+import org.agrona.collections.LongHashSet;
 
-public abstract class MarketDataEventListener implements Consumer {
+import java.util.Arrays;
+
+/**
+ * Decodes book updates and hands them to the callbacks.
+ *
+ * When a network hands over a batch and skipping superseded updates is on, an update is dropped if a later one
+ * in the same batch replaces it: a book update by a later book update for the instrument, one side of the book
+ * by a later update of that side or of the whole book. Only the latest state of each instrument in the batch
+ * reaches the callbacks, still in sequence order. Leave it off for listeners that act on every tick, not just
+ * on the latest book.
+ *
+ * Book deltas are checked against the instrument's update sequence first, see {@link BookSequenceTracker}. Only
+ * the next delta in sequence reaches {@link #onBookDelta}. When one is missed the instrument's deltas are dropped
+ * and {@link #onBookGap} is called, until a refresh brings it back in step. Deltas and refreshes are never
+ * skipped as superseded.
+ */
+public abstract class MarketDataEventListener extends AbstractSequencerComponent implements Consumer {
 
     private final MessageHeaderDecoder header = new MessageHeaderDecoder();
     private final BookUpdateDecoder book = new BookUpdateDecoder();
     private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
     private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+    private final BookDeltaDecoder delta = new BookDeltaDecoder();
+    private final BookRefreshDecoder refresh = new BookRefreshDecoder();
+
+    private final BookSequenceTracker updateSequences = new BookSequenceTracker();
+    private BookGapHandler gapHandler;
+    private long gaps = 0;
+    private long droppedDeltas = 0;
+
+    private final InstrumentIdDecoder instrumentIdDecoder = new InstrumentIdDecoder();
+    private final LongHashSet laterBooks = new LongHashSet();
+    private final LongHashSet laterBids = new LongHashSet();
+    private final LongHashSet laterAsks = new LongHashSet();
+    private long[] batchInstruments = new long[64];
+    private int[] batchTemplates = new int[64];
+    private boolean[] superseded = new boolean[64];
+
+    private boolean skipSuperseded = false;
+    private long skippedUpdates = 0;
+
+    public MarketDataEventListener() {
+        requireMessage(BookUpdateDecoder.SCHEMA_ID, BookUpdateDecoder.TEMPLATE_ID);
+        requireMessage(AskBookUpdateDecoder.SCHEMA_ID, AskBookUpdateDecoder.TEMPLATE_ID);
+        requireMessage(BidBookUpdateDecoder.SCHEMA_ID, BidBookUpdateDecoder.TEMPLATE_ID);
+        requireMessage(BookDeltaDecoder.SCHEMA_ID, BookDeltaDecoder.TEMPLATE_ID);
+        requireMessage(BookRefreshDecoder.SCHEMA_ID, BookRefreshDecoder.TEMPLATE_ID);
+    }
 
     @Override
     public void onMessage(final DirectBuffer buffer) {
         header.wrap(buffer, 0);
+        onMessage(buffer, header);
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+
+        //template ids are only unique within a schema, e.g. a partial fill has the same template id as a bid book
+        if(header.schemaId() != BookUpdateDecoder.SCHEMA_ID){
+            return;
+        }
 
         final int actingBlockLength = header.blockLength();
         final int actingVersion = header.version();
@@ -31,9 +89,171 @@ public abstract class MarketDataEventListener implements Consumer {
         }else if(header.templateId() == BidBookUpdateDecoder.TEMPLATE_ID){
             bid.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
             onBidBook(bid);
+        }else if(header.templateId() == BookDeltaDecoder.TEMPLATE_ID){
+            delta.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+            onDeltaMessage(delta);
+        }else if(header.templateId() == BookRefreshDecoder.TEMPLATE_ID){
+            refresh.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+            if(updateSequences.onRefresh(refresh.instrumentId(), refresh.updateSequence())){
+                onBookRefresh(refresh);
+            }
+        }
+    }
+
+    private void onDeltaMessage(final BookDeltaDecoder delta){
+        final long instrumentId = delta.instrumentId();
+        final long updateSequence = delta.updateSequence();
+        final long expectedSequence = updateSequences.updateSequence(instrumentId) + 1;
+
+        switch (updateSequences.onDelta(instrumentId, updateSequence)){
+            case BookSequenceTracker.APPLY:
+                onBookDelta(delta);
+                break;
+            case BookSequenceTracker.GAP:
+                gaps++;
+                droppedDeltas++;
+                onBookGap(instrumentId, expectedSequence, updateSequence);
+                break;
+            default:
+                droppedDeltas++;
+        }
+    }
+
+    @Override
+    public void onBatch(final FrameBatch batch) {
+        if(skipSuperseded){
+            markSuperseded(batch);
+            batch.reset();
+        }
+        while(batch.next()){
+            if(skipSuperseded && superseded[batch.index()]){
+                skippedUpdates++;
+                continue;
+            }
+            onMessage(batch.frame(), batch.header());
+        }
+        onBatchEnd();
+    }
+
+    /**
+     * Called once the frames of a batch have been handed to the callbacks, e.g. to act once on the latest book.
+     */
+    protected void onBatchEnd(){
+    }
+
+    public void setSkipSuperseded(final boolean skipSuperseded){
+        this.skipSuperseded = skipSuperseded;
+    }
+
+    public boolean isSkipSuperseded(){
+        return skipSuperseded;
+    }
+
+    /**
+     * @return updates dropped from batches because a later update in the same batch replaced them
+     */
+    public long getSkippedUpdates(){
+        return skippedUpdates;
+    }
+
+    private void markSuperseded(final FrameBatch batch){
+        int count = 0;
+        while(batch.next()){
+            ensureBatchCapacity(count + 1);
+            final MessageHeaderDecoder frameHeader = batch.header();
+            final boolean marketData = frameHeader.schemaId() == BookUpdateDecoder.SCHEMA_ID;
+            batchTemplates[count] = marketData ? frameHeader.templateId() : -1;
+            batchInstruments[count] = marketData ? instrumentIdDecoder.decodeInstrumentId(batch.frame(), 0) : InstrumentIdDecoder.NO_INSTRUMENT;
+            count++;
+        }
+
+        laterBooks.clear();
+        laterBids.clear();
+        laterAsks.clear();
+
+        //walk back from the end, so each update is checked against everything sequenced after it
+        for (int i = count - 1; i >= 0; i--) {
+            final long instrumentId = batchInstruments[i];
+            final int templateId = batchTemplates[i];
+            if(templateId == BookUpdateDecoder.TEMPLATE_ID){
+                superseded[i] = !laterBooks.add(instrumentId);
+            }else if(templateId == BidBookUpdateDecoder.TEMPLATE_ID){
+                superseded[i] = laterBooks.contains(instrumentId) | !laterBids.add(instrumentId);
+            }else if(templateId == AskBookUpdateDecoder.TEMPLATE_ID){
+                superseded[i] = laterBooks.contains(instrumentId) | !laterAsks.add(instrumentId);
+            }else {
+                superseded[i] = false;
+            }
+        }
+    }
+
+    private void ensureBatchCapacity(final int capacity){
+        if(capacity > superseded.length){
+            final int grown = Math.max(capacity, superseded.length * 2);
+            batchInstruments = Arrays.copyOf(batchInstruments, grown);
+            batchTemplates = Arrays.copyOf(batchTemplates, grown);
+            superseded = Arrays.copyOf(superseded, grown);
+        }
+    }
+
+    public void setGapHandler(final BookGapHandler gapHandler){
+        this.gapHandler = gapHandler;
+    }
+
+    /**
+     * @return the number of times deltas for an instrument were found missing
+     */
+    public long getGaps(){
+        return gaps;
+    }
+
+    /**
+     * @return deltas not applied, because they were already applied or arrived while waiting for a refresh
+     */
+    public long getDroppedDeltas(){
+        return droppedDeltas;
+    }
+
+    /**
+     * @return the sequence of the last delta or refresh applied for the instrument, 0 if none
+     */
+    public long getUpdateSequence(final long instrumentId){
+        return updateSequences.updateSequence(instrumentId);
+    }
+
+    /**
+     * @return true if deltas for the instrument were missed and no refresh has arrived since
+     */
+    public boolean isBookStale(final long instrumentId){
+        return updateSequences.isStale(instrumentId);
+    }
+
+    protected BookSequenceTracker updateSequences(){
+        return updateSequences;
+    }
+
+    /**
+     * Called when deltas for the instrument were missed, from then on its deltas are dropped until a refresh.
+     * Passes the gap on to the gap handler, override to also e.g. clear the now out of date book.
+     */
+    protected void onBookGap(final long instrumentId, final long expectedSequence, final long receivedSequence){
+        if(gapHandler != null){
+            gapHandler.onGap(instrumentId, expectedSequence, receivedSequence);
         }
     }
 
+    /**
+     * The next delta in sequence for its instrument.
+     */
+    public void onBookDelta(BookDeltaDecoder bookDelta){
+    }
+
+    /**
+     * A full book, as at the update sequence it carries. Replaces the book like a book update.
+     */
+    public void onBookRefresh(BookRefreshDecoder bookRefresh){
+    }
+
     public abstract void onBookUpdate(BookUpdateDecoder bookUpdate);
     public abstract void onAskBook(AskBookUpdateDecoder askBook);
     public abstract void onBidBook(BidBookUpdateDecoder bidBook);
@@ -1,11 +1,13 @@
 package codingblackfemales.sequencer.event;
 
+import codingblackfemales.sequencer.AbstractSequencerComponent;
 import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.net.FrameBatch;
 import messages.marketdata.MessageHeaderDecoder;
 import messages.order.*;
 import org.agrona.DirectBuffer;
 
-public abstract class OrderEventListener implements Consumer {
+public abstract class OrderEventListener extends AbstractSequencerComponent implements Consumer {
 
     private final MessageHeaderDecoder header = new MessageHeaderDecoder();
 
@@ -17,10 +19,24 @@ public abstract class OrderEventListener implements Consumer {
     private final PartialFillOrderDecoder partialFillOrderDecoder = new PartialFillOrderDecoder();
     private final FillOrderDecoder fillOrderDecoder = new FillOrderDecoder();
 
+    public OrderEventListener() {
+        requireMessage(CreateOrderDecoder.SCHEMA_ID, CreateOrderDecoder.TEMPLATE_ID);
+        requireMessage(CancelOrderDecoder.SCHEMA_ID, CancelOrderDecoder.TEMPLATE_ID);
+        requireMessage(AckedOrderDecoder.SCHEMA_ID, AckedOrderDecoder.TEMPLATE_ID);
+        requireMessage(CancelAckedOrderDecoder.SCHEMA_ID, CancelAckedOrderDecoder.TEMPLATE_ID);
+        requireMessage(PendingOrderDecoder.SCHEMA_ID, PendingOrderDecoder.TEMPLATE_ID);
+        requireMessage(PartialFillOrderDecoder.SCHEMA_ID, PartialFillOrderDecoder.TEMPLATE_ID);
+        requireMessage(FillOrderDecoder.SCHEMA_ID, FillOrderDecoder.TEMPLATE_ID);
+    }
+
     @Override
     public void onMessage(DirectBuffer buffer){
-
         header.wrap(buffer, 0);
+        onMessage(buffer, header);
+    }
+
+    @Override
+    public void onMessage(DirectBuffer buffer, MessageHeaderDecoder header){
 
         final int actingBlockLength = header.blockLength();
         final int actingVersion = header.version();
@@ -53,6 +69,24 @@ public abstract class OrderEventListener implements Consumer {
         }
     }
 
+    /**
+     * Order events are never superseded, so every frame of a batch is handed to the callbacks in sequence order,
+     * with the header the batch has already decoded. {@link #onBatchEnd()} is called after the last one.
+     */
+    @Override
+    public void onBatch(final FrameBatch batch) {
+        while(batch.next()){
+            onMessage(batch.frame(), batch.header());
+        }
+        onBatchEnd();
+    }
+
+    /**
+     * Called once the frames of a batch have been handed to the callbacks.
+     */
+    protected void onBatchEnd(){
+    }
+
     public abstract void onCreateOrder(final CreateOrderDecoder create);
 
     public abstract void onCancelOrder(final CancelOrderDecoder cancel);
@@ -0,0 +1,127 @@
+package codingblackfemales.sequencer.export;
+
+import codingblackfemales.sequencer.journal.JournalReader;
+import codingblackfemales.sequencer.util.InstrumentIdDecoder;
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookRefreshDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.collections.LongHashSet;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Works out which book updates in a journal segment are superseded, for compaction.
+ *
+ * Time is cut into windows of windowNanos by capture time. Within a window a book update is superseded by a later
+ * book update for the same instrument, and one side of the book by a later update of that side or of the whole
+ * book, the same rule {@link codingblackfemales.sequencer.event.MarketDataEventListener} uses within a batch. What
+ * is kept rebuilds the same book at the end of every window. Orders and fills are never superseded.
+ *
+ * A book refresh replaces the whole book like a book update, and is only superseded by a later refresh, since it
+ * also resets the instrument's update sequence. Deltas are superseded by a later refresh for the instrument, the
+ * refresh already includes them, and kept otherwise, since each one builds on the last.
+ *
+ * Windows are not carried across segments, so a window split by a roll keeps a little more than it needs to.
+ * Holds its own flyweights, so use one instance per thread.
+ */
+public class BookConflation {
+
+    private final long windowNanos;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final InstrumentIdDecoder instrumentIdDecoder = new InstrumentIdDecoder();
+    private final LongHashSet laterBooks = new LongHashSet();
+    private final LongHashSet laterBids = new LongHashSet();
+    private final LongHashSet laterAsks = new LongHashSet();
+    private final LongHashSet laterRefreshes = new LongHashSet();
+
+    private long[] instruments = new long[1024];
+    private long[] windows = new long[1024];
+    private int[] templates = new int[1024];
+    private boolean[] superseded = new boolean[1024];
+    private int count;
+
+    /**
+     * @param windowNanos length of a window, 0 to keep every update
+     */
+    public BookConflation(final long windowNanos) {
+        this.windowNanos = windowNanos;
+    }
+
+    /**
+     * Reads the segment through and marks every record in it, by its position in the segment.
+     *
+     * @return the number of superseded book updates
+     */
+    public int mark(final JournalReader reader, final File segment){
+        count = 0;
+        reader.readSegment(segment, (frame, timestampNanos) -> {
+            ensureCapacity(count + 1);
+            header.wrap(frame, 0);
+            final boolean marketData = header.schemaId() == BookUpdateDecoder.SCHEMA_ID;
+            templates[count] = marketData ? header.templateId() : -1;
+            instruments[count] = marketData ? instrumentIdDecoder.decodeInstrumentId(frame, 0) : InstrumentIdDecoder.NO_INSTRUMENT;
+            windows[count] = windowNanos > 0 ? timestampNanos / windowNanos : timestampNanos;
+            count++;
+        });
+
+        int supersededCount = 0;
+        long window = Long.MIN_VALUE;
+        for (int i = count - 1; i >= 0; i--) {
+            if(windows[i] != window || windowNanos <= 0){
+                laterBooks.clear();
+                laterBids.clear();
+                laterAsks.clear();
+                laterRefreshes.clear();
+                window = windows[i];
+            }
+            final long instrumentId = instruments[i];
+            final int templateId = templates[i];
+            if(windowNanos <= 0){
+                superseded[i] = false;
+            }else if(templateId == BookUpdateDecoder.TEMPLATE_ID){
+                superseded[i] = !laterBooks.add(instrumentId);
+            }else if(templateId == BidBookUpdateDecoder.TEMPLATE_ID){
+                superseded[i] = laterBooks.contains(instrumentId) | !laterBids.add(instrumentId);
+            }else if(templateId == AskBookUpdateDecoder.TEMPLATE_ID){
+                superseded[i] = laterBooks.contains(instrumentId) | !laterAsks.add(instrumentId);
+            }else if(templateId == BookRefreshDecoder.TEMPLATE_ID){
+                superseded[i] = !laterRefreshes.add(instrumentId);
+                laterBooks.add(instrumentId);
+            }else if(templateId == BookDeltaDecoder.TEMPLATE_ID){
+                superseded[i] = laterRefreshes.contains(instrumentId);
+            }else {
+                superseded[i] = false;
+            }
+            if(superseded[i]){
+                supersededCount++;
+            }
+        }
+        return supersededCount;
+    }
+
+    /**
+     * @param ordinal position of the record in the segment last marked, counting from 0
+     */
+    public boolean isSuperseded(final int ordinal){
+        return superseded[ordinal];
+    }
+
+    public int recordCount(){
+        return count;
+    }
+
+    private void ensureCapacity(final int capacity){
+        if(capacity > superseded.length){
+            final int grown = Math.max(capacity, superseded.length * 2);
+            instruments = Arrays.copyOf(instruments, grown);
+            windows = Arrays.copyOf(windows, grown);
+            templates = Arrays.copyOf(templates, grown);
+            superseded = Arrays.copyOf(superseded, grown);
+        }
+    }
+}
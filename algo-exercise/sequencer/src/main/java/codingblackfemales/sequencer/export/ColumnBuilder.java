@@ -0,0 +1,109 @@
+package codingblackfemales.sequencer.export;
+
+import org.agrona.MutableDirectBuffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static codingblackfemales.sequencer.export.ColumnarDescriptor.*;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Collects the values of one column as longs and writes them out in the layout of {@link ColumnarDescriptor}.
+ * The value array only grows, so a builder re-used across segments stops allocating once it has seen the
+ * largest one.
+ */
+public class ColumnBuilder {
+
+    private final String name;
+    private final byte type;
+    private final byte encoding;
+
+    private long[] values = new long[1024];
+    private int size = 0;
+
+    public ColumnBuilder(final String name, final byte type, final byte encoding) {
+        this.name = name;
+        this.type = type;
+        this.encoding = encoding;
+        typeWidth(type);
+    }
+
+    public void add(final long value){
+        if(size == values.length){
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public void reset(){
+        size = 0;
+    }
+
+    /**
+     * @return the offset just past the column
+     */
+    public int encode(final MutableDirectBuffer out, final int offset){
+        int position = putName(out, offset, name);
+        out.putByte(position, type);
+        out.putByte(position + 1, encoding);
+        final int lengthOffset = position + 2;
+        final int dataOffset = lengthOffset + 4;
+
+        position = encoding == ENCODING_DELTA ? encodeDelta(out, dataOffset) : encodePlain(out, dataOffset);
+
+        out.putInt(lengthOffset, position - dataOffset, LITTLE_ENDIAN);
+        return position;
+    }
+
+    private int encodePlain(final MutableDirectBuffer out, int position){
+        for (int i = 0; i < size; i++) {
+            final long value = values[i];
+            switch (type){
+                case TYPE_INT8:
+                    out.putByte(position, (byte) value);
+                    break;
+                case TYPE_INT16:
+                    out.putShort(position, (short) value, LITTLE_ENDIAN);
+                    break;
+                case TYPE_INT32:
+                    out.putInt(position, (int) value, LITTLE_ENDIAN);
+                    break;
+                default:
+                    out.putLong(position, value, LITTLE_ENDIAN);
+            }
+            position += typeWidth(type);
+        }
+        return position;
+    }
+
+    private int encodeDelta(final MutableDirectBuffer out, int position){
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            final long delta = values[i] - previous;
+            previous = values[i];
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while((zigzag & ~0x7FL) != 0){
+                out.putByte(position++, (byte) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            out.putByte(position++, (byte) zigzag);
+        }
+        return position;
+    }
+
+    static int putName(final MutableDirectBuffer out, final int offset, final String name){
+        final byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        out.putInt(offset, bytes.length, LITTLE_ENDIAN);
+        out.putBytes(offset + 4, bytes);
+        return offset + 4 + bytes.length;
+    }
+}
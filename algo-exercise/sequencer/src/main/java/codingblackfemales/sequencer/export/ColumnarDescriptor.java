@@ -0,0 +1,61 @@
+package codingblackfemales.sequencer.export;
+
+import java.io.File;
+
+import static java.lang.String.format;
+
+/**
+ * Layout of a columnar export file, one per journal segment, everything little endian.
+ *
+ * A file is a header (magic, version, the base sequence number of the segment it came from, table count)
+ * followed by the tables. A table is its name, row count and column count followed by its columns. A column is
+ * its name, value type, encoding and the length of its data, followed by the data:
+ *
+ * - PLAIN is one fixed width value per row, the width given by the type.
+ * - DELTA is the difference from the previous row (the first row from 0), zigzag encoded as a varint, so
+ *   sequence numbers, timestamps and prices that move in small steps take a byte or two a row.
+ *
+ * Names are length prefixed ASCII, so a reader needs nothing but this description to load a file.
+ */
+public class ColumnarDescriptor {
+
+    public static final int MAGIC = 0x434f4c53;
+    public static final int VERSION = 2;
+
+    public static final byte TYPE_INT8 = 1;
+    public static final byte TYPE_INT16 = 2;
+    public static final byte TYPE_INT32 = 3;
+    public static final byte TYPE_INT64 = 4;
+
+    public static final byte ENCODING_PLAIN = 0;
+    public static final byte ENCODING_DELTA = 1;
+
+    public static final String BOOK_LEVELS = "book_levels";
+    public static final String ORDER_EVENTS = "order_events";
+
+    public static final String EXPORT_SUFFIX = ".columns";
+
+    public static int typeWidth(final byte type){
+        switch (type){
+            case TYPE_INT8:
+                return 1;
+            case TYPE_INT16:
+                return 2;
+            case TYPE_INT32:
+                return 4;
+            case TYPE_INT64:
+                return 8;
+            default:
+                throw new IllegalArgumentException(format("Unknown column type type=[%s]", type));
+        }
+    }
+
+    public static String exportFileName(final long baseSequenceNumber){
+        return format("%020d%s", baseSequenceNumber, EXPORT_SUFFIX);
+    }
+
+    public static long baseSequenceNumber(final File export){
+        final String name = export.getName();
+        return Long.parseLong(name.substring(0, name.length() - EXPORT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,321 @@
+package codingblackfemales.sequencer.export;
+
+import codingblackfemales.sequencer.journal.JournalDescriptor;
+import codingblackfemales.sequencer.journal.JournalReader;
+import codingblackfemales.sequencer.journal.JournalRecordHandler;
+import codingblackfemales.sequencer.util.OrderIdDecoder;
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookRefreshDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.order.*;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.IoUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static codingblackfemales.sequencer.export.ColumnarDescriptor.*;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Converts a captured journal (see {@link codingblackfemales.sequencer.journal.JournalRecorder}) into columnar
+ * files for offline analysis, one per segment, in the layout of {@link ColumnarDescriptor}.
+ *
+ * Market data goes to a book_levels table with a row per price level, order messages (creates, cancels, acks and
+ * fills) to an order_events table with a row per message. Sequence numbers, capture timestamps and prices are
+ * delta encoded. Fields a message doesn't have are -1 (instrumentId, side) or 0 (price, quantity).
+ *
+ * A book delta has a row per changed level, with its action (the raw LevelAction) and the delta's update sequence
+ * and a level of -1, since where the price sits in the book isn't in the message. Rows of whole books and sides
+ * have an action of -1, and an update sequence of -1 unless they come from a refresh.
+ *
+ * Segments are exported in parallel. With a compaction window set, superseded book updates are left out, see
+ * {@link BookConflation}. Files are written to a temporary name and renamed, so a half written export is never
+ * picked up.
+ *
+ * Run from the command line with: journalDirectory outputDirectory [threads] [compactionWindowNanos]
+ */
+public class ColumnarExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarExporter.class);
+
+    public static final byte SIDE_BID = 0;
+    public static final byte SIDE_ASK = 1;
+
+    private final File journalDirectory;
+    private final File outputDirectory;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long compactionWindowNanos = 0;
+
+    private final AtomicLong framesRead = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public ColumnarExporter(final File journalDirectory, final File outputDirectory) {
+        this.journalDirectory = journalDirectory;
+        this.outputDirectory = outputDirectory;
+    }
+
+    public ColumnarExporter threads(final int threads){
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param compactionWindowNanos drop book updates superseded within windows of this length, 0 keeps them all
+     */
+    public ColumnarExporter compact(final long compactionWindowNanos){
+        this.compactionWindowNanos = compactionWindowNanos;
+        return this;
+    }
+
+    /**
+     * @return the number of frames exported
+     */
+    public long export(){
+        IoUtil.ensureDirectoryExists(outputDirectory, "columnar export");
+        final long start = System.nanoTime();
+
+        final long exported = ParallelSegments.run("columnar-exporter", JournalDescriptor.segmentFiles(journalDirectory), threads,
+                segment -> new SegmentExport().export(segment));
+
+        logger.info("[EXPORT] Exported " + exported + " of " + framesRead.get() + " frames, " + bytesWritten.get() + " bytes in "
+                + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return exported;
+    }
+
+    public long getFramesRead(){
+        return framesRead.get();
+    }
+
+    public long getFramesDropped(){
+        return framesDropped.get();
+    }
+
+    public long getBytesWritten(){
+        return bytesWritten.get();
+    }
+
+    /**
+     * Everything one segment needs, so segments on different threads share nothing.
+     */
+    private class SegmentExport implements JournalRecordHandler {
+
+        private final JournalReader reader = new JournalReader(journalDirectory);
+        private final BookConflation conflation = new BookConflation(compactionWindowNanos);
+        private final ExpandableArrayBuffer out = new ExpandableArrayBuffer(64 * 1024);
+
+        private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+        private final BookUpdateDecoder book = new BookUpdateDecoder();
+        private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+        private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
+        private final BookDeltaDecoder delta = new BookDeltaDecoder();
+        private final BookRefreshDecoder refresh = new BookRefreshDecoder();
+        private final CreateOrderDecoder create = new CreateOrderDecoder();
+        private final PendingOrderDecoder pending = new PendingOrderDecoder();
+        private final PartialFillOrderDecoder partialFill = new PartialFillOrderDecoder();
+        private final FillOrderDecoder fill = new FillOrderDecoder();
+        private final OrderIdDecoder orderIdDecoder = new OrderIdDecoder();
+
+        private final ColumnarTable levels = new ColumnarTable(BOOK_LEVELS,
+                new ColumnBuilder("sequenceNumber", TYPE_INT64, ENCODING_DELTA),
+                new ColumnBuilder("timestamp", TYPE_INT64, ENCODING_DELTA),
+                new ColumnBuilder("instrumentId", TYPE_INT64, ENCODING_PLAIN),
+                new ColumnBuilder("templateId", TYPE_INT8, ENCODING_PLAIN),
+                new ColumnBuilder("side", TYPE_INT8, ENCODING_PLAIN),
+                new ColumnBuilder("level", TYPE_INT16, ENCODING_PLAIN),
+                new ColumnBuilder("price", TYPE_INT64, ENCODING_DELTA),
+                new ColumnBuilder("size", TYPE_INT64, ENCODING_PLAIN),
+                new ColumnBuilder("action", TYPE_INT8, ENCODING_PLAIN),
+                new ColumnBuilder("updateSequence", TYPE_INT64, ENCODING_DELTA));
+
+        private final ColumnarTable orders = new ColumnarTable(ORDER_EVENTS,
+                new ColumnBuilder("sequenceNumber", TYPE_INT64, ENCODING_DELTA),
+                new ColumnBuilder("timestamp", TYPE_INT64, ENCODING_DELTA),
+                new ColumnBuilder("templateId", TYPE_INT8, ENCODING_PLAIN),
+                new ColumnBuilder("orderId", TYPE_INT64, ENCODING_PLAIN),
+                new ColumnBuilder("instrumentId", TYPE_INT64, ENCODING_PLAIN),
+                new ColumnBuilder("side", TYPE_INT8, ENCODING_PLAIN),
+                new ColumnBuilder("price", TYPE_INT64, ENCODING_DELTA),
+                new ColumnBuilder("quantity", TYPE_INT64, ENCODING_PLAIN));
+
+        private int ordinal;
+        private long exported;
+        private long timestampNanos;
+
+        private long export(final File segment){
+            final int dropped = conflation.mark(reader, segment);
+
+            ordinal = 0;
+            exported = 0;
+            reader.readSegment(segment, this);
+
+            final long baseSequenceNumber = JournalDescriptor.baseSequenceNumber(segment);
+            out.putInt(0, MAGIC, LITTLE_ENDIAN);
+            out.putInt(4, VERSION, LITTLE_ENDIAN);
+            out.putLong(8, baseSequenceNumber, LITTLE_ENDIAN);
+            out.putInt(16, 2, LITTLE_ENDIAN);
+            int position = levels.encode(out, 20);
+            position = orders.encode(out, position);
+
+            write(new File(outputDirectory, exportFileName(baseSequenceNumber)), position);
+
+            framesRead.addAndGet(ordinal);
+            framesDropped.addAndGet(dropped);
+            bytesWritten.addAndGet(position);
+            return exported;
+        }
+
+        @Override
+        public void onRecord(final DirectBuffer frame, final long timestampNanos) {
+            if(conflation.isSuperseded(ordinal++)){
+                return;
+            }
+            this.timestampNanos = timestampNanos;
+            header.wrap(frame, 0);
+
+            final int bodyOffset = header.encodedLength();
+            final int blockLength = header.blockLength();
+            final int version = header.version();
+            final int templateId = header.templateId();
+
+            if(header.schemaId() == BookUpdateDecoder.SCHEMA_ID){
+                if(templateId == BookUpdateDecoder.TEMPLATE_ID){
+                    book.wrap(frame, bodyOffset, blockLength, version);
+                    final long instrumentId = book.instrumentId();
+                    int level = 0;
+                    for (BookUpdateDecoder.BidBookDecoder level0 : book.bidBook()) {
+                        addLevel(instrumentId, templateId, SIDE_BID, level++, level0.price(), level0.size());
+                    }
+                    level = 0;
+                    for (BookUpdateDecoder.AskBookDecoder level0 : book.askBook()) {
+                        addLevel(instrumentId, templateId, SIDE_ASK, level++, level0.price(), level0.size());
+                    }
+                }else if(templateId == BidBookUpdateDecoder.TEMPLATE_ID){
+                    bid.wrap(frame, bodyOffset, blockLength, version);
+                    final long instrumentId = bid.instrumentId();
+                    int level = 0;
+                    for (BidBookUpdateDecoder.BidBookDecoder level0 : bid.bidBook()) {
+                        addLevel(instrumentId, templateId, SIDE_BID, level++, level0.price(), level0.size());
+                    }
+                }else if(templateId == AskBookUpdateDecoder.TEMPLATE_ID){
+                    ask.wrap(frame, bodyOffset, blockLength, version);
+                    final long instrumentId = ask.instrumentId();
+                    int level = 0;
+                    for (AskBookUpdateDecoder.AskBookDecoder level0 : ask.askBook()) {
+                        addLevel(instrumentId, templateId, SIDE_ASK, level++, level0.price(), level0.size());
+                    }
+                }else if(templateId == BookDeltaDecoder.TEMPLATE_ID){
+                    delta.wrap(frame, bodyOffset, blockLength, version);
+                    final long instrumentId = delta.instrumentId();
+                    final long updateSequence = delta.updateSequence();
+                    for (BookDeltaDecoder.LevelsDecoder level0 : delta.levels()) {
+                        addLevel(instrumentId, templateId, (byte) level0.sideRaw(), -1, level0.price(), level0.size(),
+                                level0.actionRaw(), updateSequence);
+                    }
+                }else if(templateId == BookRefreshDecoder.TEMPLATE_ID){
+                    refresh.wrap(frame, bodyOffset, blockLength, version);
+                    final long instrumentId = refresh.instrumentId();
+                    final long updateSequence = refresh.updateSequence();
+                    int level = 0;
+                    for (BookRefreshDecoder.BidBookDecoder level0 : refresh.bidBook()) {
+                        addLevel(instrumentId, templateId, SIDE_BID, level++, level0.price(), level0.size(), -1, updateSequence);
+                    }
+                    level = 0;
+                    for (BookRefreshDecoder.AskBookDecoder level0 : refresh.askBook()) {
+                        addLevel(instrumentId, templateId, SIDE_ASK, level++, level0.price(), level0.size(), -1, updateSequence);
+                    }
+                }else {
+                    return;
+                }
+                exported++;
+            }else if(header.schemaId() == CreateOrderDecoder.SCHEMA_ID){
+                final long orderId = orderIdDecoder.decodeOrderId(frame, 0);
+                if(templateId == CreateOrderDecoder.TEMPLATE_ID){
+                    create.wrap(frame, bodyOffset, blockLength, version);
+                    addOrderEvent(templateId, orderId, create.instrumentId(), create.sideRaw(), create.price(), create.quantity());
+                }else if(templateId == PendingOrderDecoder.TEMPLATE_ID){
+                    pending.wrap(frame, bodyOffset, blockLength, version);
+                    addOrderEvent(templateId, orderId, pending.instrumentId(), pending.sideRaw(), pending.price(), pending.quantity());
+                }else if(templateId == PartialFillOrderDecoder.TEMPLATE_ID){
+                    partialFill.wrap(frame, bodyOffset, blockLength, version);
+                    addOrderEvent(templateId, orderId, -1, -1, partialFill.price(), partialFill.quantity());
+                }else if(templateId == FillOrderDecoder.TEMPLATE_ID){
+                    fill.wrap(frame, bodyOffset, blockLength, version);
+                    addOrderEvent(templateId, orderId, -1, -1, fill.price(), fill.quantity());
+                }else {
+                    addOrderEvent(templateId, orderId, -1, -1, 0, 0);
+                }
+                exported++;
+            }
+        }
+
+        private void addLevel(final long instrumentId, final int templateId, final byte side, final int level, final long price, final long size){
+            addLevel(instrumentId, templateId, side, level, price, size, -1, -1);
+        }
+
+        private void addLevel(final long instrumentId, final int templateId, final byte side, final int level, final long price, final long size,
+                              final int action, final long updateSequence){
+            levels.column(0).add(header.sequencerNumber());
+            levels.column(1).add(timestampNanos);
+            levels.column(2).add(instrumentId);
+            levels.column(3).add(templateId);
+            levels.column(4).add(side);
+            levels.column(5).add(level);
+            levels.column(6).add(price);
+            levels.column(7).add(size);
+            levels.column(8).add(action);
+            levels.column(9).add(updateSequence);
+        }
+
+        private void addOrderEvent(final int templateId, final long orderId, final long instrumentId, final int side, final long price, final long quantity){
+            orders.column(0).add(header.sequencerNumber());
+            orders.column(1).add(timestampNanos);
+            orders.column(2).add(templateId);
+            orders.column(3).add(orderId);
+            orders.column(4).add(instrumentId);
+            orders.column(5).add(side);
+            orders.column(6).add(price);
+            orders.column(7).add(quantity);
+        }
+
+        private void write(final File file, final int length){
+            final File temp = new File(file.getPath() + ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    final ByteBuffer bytes = ByteBuffer.wrap(out.byteArray(), 0, length);
+                    while(bytes.hasRemaining()){
+                        channel.write(bytes);
+                    }
+                }
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write columnar export " + file, e);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        final ColumnarExporter exporter = new ColumnarExporter(new File(args[0]), new File(args[1]));
+        if(args.length > 2){
+            exporter.threads(Integer.parseInt(args[2]));
+        }
+        if(args.length > 3){
+            exporter.compact(Long.parseLong(args[3]));
+        }
+        exporter.export();
+    }
+}
@@ -0,0 +1,152 @@
+package codingblackfemales.sequencer.export;
+
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static codingblackfemales.sequencer.export.ColumnarDescriptor.*;
+import static java.lang.String.format;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Loads a columnar export back into memory, every column decoded to a long[]. Mostly for tests and tools
+ * written in Java, anything else can read the files from {@link ColumnarDescriptor}.
+ */
+public class ColumnarFile {
+
+    private final long baseSequenceNumber;
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+
+    public static class Table {
+        private final String name;
+        private final int rowCount;
+        private final Map<String, long[]> columns = new LinkedHashMap<>();
+
+        private Table(final String name, final int rowCount) {
+            this.name = name;
+            this.rowCount = rowCount;
+        }
+
+        public String getName(){
+            return name;
+        }
+
+        public int rowCount(){
+            return rowCount;
+        }
+
+        public Set<String> columnNames(){
+            return columns.keySet();
+        }
+
+        public long[] column(final String columnName){
+            final long[] values = columns.get(columnName);
+            if(values == null){
+                throw new IllegalArgumentException(format("No such column table=[%s] column=[%s]", name, columnName));
+            }
+            return values;
+        }
+    }
+
+    public static ColumnarFile read(final File file){
+        try {
+            return new ColumnarFile(new UnsafeBuffer(Files.readAllBytes(file.toPath())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read columnar export " + file, e);
+        }
+    }
+
+    private ColumnarFile(final UnsafeBuffer buffer) {
+        if(buffer.getInt(0, LITTLE_ENDIAN) != MAGIC || buffer.getInt(4, LITTLE_ENDIAN) != VERSION){
+            throw new IllegalStateException(format("Not a columnar export version=[%s]", buffer.getInt(4, LITTLE_ENDIAN)));
+        }
+        this.baseSequenceNumber = buffer.getLong(8, LITTLE_ENDIAN);
+        final int tableCount = buffer.getInt(16, LITTLE_ENDIAN);
+
+        int position = 20;
+        for (int t = 0; t < tableCount; t++) {
+            final String tableName = getName(buffer, position);
+            position += 4 + tableName.length();
+            final Table table = new Table(tableName, buffer.getInt(position, LITTLE_ENDIAN));
+            final int columnCount = buffer.getInt(position + 4, LITTLE_ENDIAN);
+            position += 8;
+
+            for (int c = 0; c < columnCount; c++) {
+                final String columnName = getName(buffer, position);
+                position += 4 + columnName.length();
+                final byte type = buffer.getByte(position);
+                final byte encoding = buffer.getByte(position + 1);
+                final int dataLength = buffer.getInt(position + 2, LITTLE_ENDIAN);
+                position += 6;
+
+                table.columns.put(columnName, decode(buffer, position, table.rowCount, type, encoding));
+                position += dataLength;
+            }
+            tables.put(tableName, table);
+        }
+    }
+
+    public long getBaseSequenceNumber(){
+        return baseSequenceNumber;
+    }
+
+    public Table table(final String name){
+        final Table table = tables.get(name);
+        if(table == null){
+            throw new IllegalArgumentException(format("No such table table=[%s]", name));
+        }
+        return table;
+    }
+
+    public Set<String> tableNames(){
+        return tables.keySet();
+    }
+
+    private static String getName(final UnsafeBuffer buffer, final int offset){
+        final byte[] bytes = new byte[buffer.getInt(offset, LITTLE_ENDIAN)];
+        buffer.getBytes(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static long[] decode(final UnsafeBuffer buffer, int position, final int rowCount, final byte type, final byte encoding){
+        final long[] values = new long[rowCount];
+        long previous = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if(encoding == ENCODING_DELTA){
+                long zigzag = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = buffer.getByte(position++);
+                    zigzag |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while((b & 0x80) != 0);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                values[i] = previous;
+            }else {
+                switch (type){
+                    case TYPE_INT8:
+                        values[i] = buffer.getByte(position);
+                        break;
+                    case TYPE_INT16:
+                        values[i] = buffer.getShort(position, LITTLE_ENDIAN);
+                        break;
+                    case TYPE_INT32:
+                        values[i] = buffer.getInt(position, LITTLE_ENDIAN);
+                        break;
+                    default:
+                        values[i] = buffer.getLong(position, LITTLE_ENDIAN);
+                }
+                position += typeWidth(type);
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,59 @@
+package codingblackfemales.sequencer.export;
+
+import org.agrona.MutableDirectBuffer;
+
+import static java.lang.String.format;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * A named set of columns filled a row at a time, every column has to be given a value for every row.
+ */
+public class ColumnarTable {
+
+    private final String name;
+    private final ColumnBuilder[] columns;
+
+    public ColumnarTable(final String name, final ColumnBuilder... columns) {
+        this.name = name;
+        this.columns = columns;
+    }
+
+    public ColumnBuilder column(final int index){
+        return columns[index];
+    }
+
+    public int rowCount(){
+        return columns.length == 0 ? 0 : columns[0].size();
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public void reset(){
+        for (ColumnBuilder column : columns) {
+            column.reset();
+        }
+    }
+
+    /**
+     * @return the offset just past the table
+     */
+    public int encode(final MutableDirectBuffer out, final int offset){
+        final int rowCount = rowCount();
+        for (ColumnBuilder column : columns) {
+            if(column.size() != rowCount){
+                throw new IllegalStateException(format("Ragged column table=[%s] column=[%s] size=[%s] rowCount=[%s]", name, column.getName(), column.size(), rowCount));
+            }
+        }
+
+        int position = ColumnBuilder.putName(out, offset, name);
+        out.putInt(position, rowCount, LITTLE_ENDIAN);
+        out.putInt(position + 4, columns.length, LITTLE_ENDIAN);
+        position += 8;
+        for (ColumnBuilder column : columns) {
+            position = column.encode(out, position);
+        }
+        return position;
+    }
+}
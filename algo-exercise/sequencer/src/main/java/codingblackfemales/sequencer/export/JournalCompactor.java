@@ -0,0 +1,86 @@
+package codingblackfemales.sequencer.export;
+
+import codingblackfemales.sequencer.journal.JournalDescriptor;
+import codingblackfemales.sequencer.journal.JournalReader;
+import codingblackfemales.sequencer.journal.JournalWriter;
+import org.agrona.IoUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Copies a journal to a new directory without the book updates that were superseded, see {@link BookConflation}.
+ *
+ * Segments are compacted in parallel, each into a segment of its own named after the first frame it kept. Frames
+ * keep their sequence numbers and capture times, so the compacted journal replays and indexes like the original,
+ * with gaps where updates were dropped.
+ */
+public class JournalCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalCompactor.class);
+
+    private final File journalDirectory;
+    private final File outputDirectory;
+    private final long windowNanos;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private final AtomicLong framesRead = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+
+    public JournalCompactor(final File journalDirectory, final File outputDirectory, final long windowNanos) {
+        if(journalDirectory.getAbsoluteFile().equals(outputDirectory.getAbsoluteFile())){
+            throw new IllegalArgumentException(format("Compact into a different directory journalDirectory=[%s]", journalDirectory));
+        }
+        this.journalDirectory = journalDirectory;
+        this.outputDirectory = outputDirectory;
+        this.windowNanos = windowNanos;
+    }
+
+    public JournalCompactor threads(final int threads){
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @return the number of frames written to the compacted journal
+     */
+    public long compact(){
+        IoUtil.ensureDirectoryExists(outputDirectory, "compacted journal");
+        final long start = System.nanoTime();
+
+        final long written = ParallelSegments.run("journal-compactor", JournalDescriptor.segmentFiles(journalDirectory), threads, this::compactSegment);
+
+        logger.info("[JOURNAL] Compacted " + framesRead.get() + " frames to " + written + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return written;
+    }
+
+    private long compactSegment(final File segment){
+        final JournalReader reader = new JournalReader(journalDirectory);
+        final BookConflation conflation = new BookConflation(windowNanos);
+        final int dropped = conflation.mark(reader, segment);
+
+        final int[] ordinal = {0};
+        try (JournalWriter writer = new JournalWriter(outputDirectory, (int) segment.length())) {
+            reader.readSegment(segment, (frame, timestampNanos) -> {
+                if(!conflation.isSuperseded(ordinal[0]++)){
+                    writer.append(frame, 0, frame.capacity(), timestampNanos);
+                }
+            });
+            framesRead.addAndGet(ordinal[0]);
+            framesDropped.addAndGet(dropped);
+            return writer.appended();
+        }
+    }
+
+    public long getFramesRead(){
+        return framesRead.get();
+    }
+
+    public long getFramesDropped(){
+        return framesDropped.get();
+    }
+}
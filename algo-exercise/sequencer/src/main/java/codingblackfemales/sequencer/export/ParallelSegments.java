@@ -0,0 +1,49 @@
+package codingblackfemales.sequencer.export;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs a task per journal segment on a fixed pool of threads. Segments are independent, so each task works on its
+ * own segment with its own flyweights and output.
+ */
+class ParallelSegments {
+
+    static long run(final String name, final File[] segments, final int threads, final ToLongFunction<File> task){
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, segments.length)), runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            final List<Future<Long>> results = new ArrayList<>(segments.length);
+            for (File segment : segments) {
+                results.add(executor.submit(() -> task.applyAsLong(segment)));
+            }
+
+            long total = 0;
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    total += results.get(i).get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Failed on segment " + segments[i], e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted on segment " + segments[i], e);
+                }
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package codingblackfemales.sequencer.gateway;
+
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * One publisher connected to a {@link MarketDataGateway}, with the buffer its bytes are read into. Bytes are
+ * read after whatever is left over from the last read (a partial frame), and the consumed frames are compacted
+ * out once they have been sequenced.
+ */
+class GatewayConnection implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer receiveByteBuffer;
+    private final UnsafeBuffer receiveBuffer;
+    private final UnsafeBuffer frame = new UnsafeBuffer(0, 0);
+    private final String name;
+
+    private SelectionKey key;
+
+    GatewayConnection(final SocketChannel channel, final int receiveBufferLength) throws IOException {
+        this.channel = channel;
+        this.receiveByteBuffer = ByteBuffer.allocateDirect(receiveBufferLength);
+        this.receiveBuffer = new UnsafeBuffer(receiveByteBuffer);
+        this.name = String.valueOf(channel.getRemoteAddress());
+    }
+
+    void key(final SelectionKey key){
+        this.key = key;
+    }
+
+    int read() throws IOException {
+        return channel.read(receiveByteBuffer);
+    }
+
+    /**
+     * @return the number of bytes in the buffer that have not been consumed
+     */
+    int limit(){
+        return receiveByteBuffer.position();
+    }
+
+    UnsafeBuffer buffer(){
+        return receiveBuffer;
+    }
+
+    UnsafeBuffer frame(final int offset, final int length){
+        frame.wrap(receiveBuffer, offset, length);
+        return frame;
+    }
+
+    void compact(final int consumed){
+        if(consumed == 0){
+            return;
+        }
+        final int remaining = receiveByteBuffer.position() - consumed;
+        if(remaining > 0){
+            receiveBuffer.putBytes(0, receiveBuffer, consumed, remaining);
+        }
+        receiveByteBuffer.position(remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(key != null){
+            key.cancel();
+        }
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,251 @@
+package codingblackfemales.sequencer.gateway;
+
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookRefreshDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.Agent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Accepts market data from any number of local publishers over TCP and feeds it into a sequencer.
+ *
+ * Publishers send SBE BookUpdate, BidBookUpdate or AskBookUpdate frames, each preceded by its length as a
+ * little endian int (see {@link #LENGTH_PREFIX_LENGTH}). Everything runs on the agent's thread: a non-blocking
+ * selector accepts connections and reads whatever has arrived into each connection's receive buffer, then every
+ * complete frame is handed to the sequencer as a view over that buffer, without being copied. The sequencer
+ * copies it when it stamps it, so the receive buffer can be compacted as soon as onCommand returns.
+ *
+ * Frames of any other type are counted and skipped. A length prefix that can't be right (too small, bigger than
+ * the receive buffer, or shorter than the SBE frame inside it) means the stream has lost its framing, so the
+ * connection is closed.
+ *
+ * The agent's thread is the thread that calls the sequencer, so it must be the sequencer's only caller, or the
+ * sequencer must be thread safe (e.g. a {@link codingblackfemales.sequencer.shard.ShardedSequencer}).
+ */
+public class MarketDataGateway implements Agent {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataGateway.class);
+
+    public static final int LENGTH_PREFIX_LENGTH = 4;
+    public static final int DEFAULT_RECEIVE_BUFFER_LENGTH = 64 * 1024;
+
+    private final Sequencer sequencer;
+    private final int receiveBufferLength;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final List<GatewayConnection> connections = new ArrayList<>();
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final MessageLengthDecoder lengthDecoder = new MessageLengthDecoder();
+
+    private volatile long framesReceived = 0;
+    private volatile long framesRejected = 0;
+    private volatile long bytesReceived = 0;
+    private volatile long connectionsAccepted = 0;
+    private volatile long connectionsClosed = 0;
+
+    public MarketDataGateway(final SocketAddress address, final Sequencer sequencer) {
+        this(address, sequencer, DEFAULT_RECEIVE_BUFFER_LENGTH);
+    }
+
+    public MarketDataGateway(final SocketAddress address, final Sequencer sequencer, final int receiveBufferLength) {
+        this.sequencer = sequencer;
+        this.receiveBufferLength = receiveBufferLength;
+        try {
+            this.selector = Selector.open();
+            this.serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("Could not bind gateway address=[%s]", address), e);
+        }
+    }
+
+    /**
+     * @return the address the gateway is listening on, with the real port if it was bound to port 0
+     */
+    public InetSocketAddress localAddress(){
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int doWork() throws IOException {
+        if(selector.selectNow() == 0){
+            return 0;
+        }
+
+        int workCount = 0;
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while(keys.hasNext()){
+            final SelectionKey key = keys.next();
+            keys.remove();
+
+            if(!key.isValid()){
+                continue;
+            }
+
+            if(key.isAcceptable()){
+                accept();
+                workCount += 1;
+            }else if(key.isReadable()){
+                workCount += read((GatewayConnection) key.attachment());
+            }
+        }
+        return workCount;
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = serverChannel.accept();
+        if(channel == null){
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        final GatewayConnection connection = new GatewayConnection(channel, receiveBufferLength);
+        connection.key(channel.register(selector, SelectionKey.OP_READ, connection));
+        connections.add(connection);
+        connectionsAccepted += 1;
+        logger.info("[GATEWAY] Accepted publisher " + channel.getRemoteAddress());
+    }
+
+    private int read(final GatewayConnection connection){
+        final int bytesRead;
+        try {
+            bytesRead = connection.read();
+        } catch (IOException e) {
+            logger.warn("[GATEWAY] Read failed, closing publisher " + connection, e);
+            close(connection);
+            return 0;
+        }
+
+        if(bytesRead < 0){
+            close(connection);
+            return 0;
+        }
+
+        int frames = 0;
+        int rejected = 0;
+        int position = 0;
+        final int limit = connection.limit();
+        while(position + LENGTH_PREFIX_LENGTH <= limit){
+            final int length = connection.buffer().getInt(position, ByteOrder.LITTLE_ENDIAN);
+
+            if(length < header.encodedLength() || length > receiveBufferLength - LENGTH_PREFIX_LENGTH){
+                logger.error(format("[GATEWAY] Bad frame length, closing publisher %s length=[%s]", connection, length));
+                close(connection);
+                return frames;
+            }
+
+            if(position + LENGTH_PREFIX_LENGTH + length > limit){
+                break;
+            }
+
+            final int frameOffset = position + LENGTH_PREFIX_LENGTH;
+            if(isMarketData(connection, frameOffset)){
+                if(lengthDecoder.decodeLength(connection.buffer(), frameOffset) > length){
+                    logger.error(format("[GATEWAY] Frame longer than its length prefix, closing publisher %s length=[%s]", connection, length));
+                    close(connection);
+                    return frames;
+                }
+                sequencer.onCommand(connection.frame(frameOffset, length));
+                frames += 1;
+            }else{
+                rejected += 1;
+            }
+
+            position = frameOffset + length;
+        }
+
+        connection.compact(position);
+
+        framesReceived += frames;
+        if(rejected > 0){
+            framesRejected += rejected;
+        }
+        bytesReceived += bytesRead;
+        return frames;
+    }
+
+    private boolean isMarketData(final GatewayConnection connection, final int frameOffset){
+        header.wrap(connection.buffer(), frameOffset);
+        if(header.schemaId() != BookUpdateDecoder.SCHEMA_ID){
+            return false;
+        }
+        final int templateId = header.templateId();
+        return templateId == BookUpdateDecoder.TEMPLATE_ID
+                || templateId == BidBookUpdateDecoder.TEMPLATE_ID
+                || templateId == AskBookUpdateDecoder.TEMPLATE_ID
+                || templateId == BookDeltaDecoder.TEMPLATE_ID
+                || templateId == BookRefreshDecoder.TEMPLATE_ID;
+    }
+
+    private void close(final GatewayConnection connection){
+        connections.remove(connection);
+        CloseHelper.quietClose(connection);
+        connectionsClosed += 1;
+        logger.info("[GATEWAY] Closed publisher " + connection);
+    }
+
+    public long getFramesReceived(){
+        return framesReceived;
+    }
+
+    public long getFramesRejected(){
+        return framesRejected;
+    }
+
+    public long getBytesReceived(){
+        return bytesReceived;
+    }
+
+    public long getConnectionsAccepted(){
+        return connectionsAccepted;
+    }
+
+    public long getConnectionsClosed(){
+        return connectionsClosed;
+    }
+
+    @Override
+    public void onClose() {
+        for (GatewayConnection connection : connections) {
+            CloseHelper.quietClose(connection);
+        }
+        connections.clear();
+        CloseHelper.quietClose(serverChannel);
+        CloseHelper.quietClose(selector);
+    }
+
+    @Override
+    public String roleName() {
+        return "market-data-gateway";
+    }
+}
@@ -0,0 +1,46 @@
+package codingblackfemales.sequencer.gateway;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Runs a gateway in front of a sequencer with nothing but a counter on its network, and logs throughput once a
+ * second. Point a {@link MarketDataLoadGenerator} (or any other publisher process) at it.
+ *
+ * Run from the command line with: port
+ */
+public class MarketDataGatewayMain {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataGatewayMain.class);
+
+    public static void main(String[] args) throws Exception {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 9000;
+
+        final TestNetwork network = new TestNetwork();
+        final long[] sequenced = new long[1];
+        network.addConsumer(buffer -> sequenced[0]++);
+
+        final MarketDataGateway gateway = new MarketDataGateway(new InetSocketAddress("localhost", port), new DefaultSequencer(network));
+        final AgentRunner runner = new AgentRunner(new BusySpinIdleStrategy(),
+                throwable -> logger.error("[GATEWAY] Failed", throwable), null, gateway);
+        AgentRunner.startOnThread(runner);
+        Runtime.getRuntime().addShutdownHook(new Thread(runner::close));
+
+        logger.info("[GATEWAY] Listening on " + gateway.localAddress());
+
+        long lastFrames = 0;
+        while(true){
+            Thread.sleep(1000);
+            final long frames = gateway.getFramesReceived();
+            logger.info("[GATEWAY] " + (frames - lastFrames) + " frames/sec, " + frames + " total, "
+                    + gateway.getFramesRejected() + " rejected, " + gateway.getConnectionsAccepted() + " publishers");
+            lastFrames = frames;
+        }
+    }
+}
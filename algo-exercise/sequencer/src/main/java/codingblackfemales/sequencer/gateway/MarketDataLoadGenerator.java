@@ -0,0 +1,138 @@
+package codingblackfemales.sequencer.gateway;
+
+import messages.marketdata.*;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loopback load generator for a {@link MarketDataGateway}: N publisher threads, each with its own connection,
+ * writing length-prefixed BookUpdate frames as fast as the socket takes them. Each publisher ticks its own
+ * instrument (instrumentId = publisher index) with a rising price, frames are batched into one write per
+ * socket buffer.
+ *
+ * Run from the command line with: host port publishers framesPerPublisher
+ */
+public class MarketDataLoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataLoadGenerator.class);
+
+    public static final int DEFAULT_BATCH_LENGTH = 32 * 1024;
+
+    private final InetSocketAddress address;
+    private final int publishers;
+    private final long framesPerPublisher;
+
+    private long elapsedNanos;
+
+    public MarketDataLoadGenerator(final InetSocketAddress address, final int publishers, final long framesPerPublisher) {
+        this.address = address;
+        this.publishers = publishers;
+        this.framesPerPublisher = framesPerPublisher;
+    }
+
+    /**
+     * Writes a length-prefixed BookUpdate into buffer at offset.
+     *
+     * @return the number of bytes written, prefix included
+     */
+    public static int encodeTick(final UnsafeBuffer buffer, final int offset, final MessageHeaderEncoder headerEncoder,
+                                 final BookUpdateEncoder encoder, final long instrumentId, final long price){
+        encoder.wrapAndApplyHeader(buffer, offset + MarketDataGateway.LENGTH_PREFIX_LENGTH, headerEncoder);
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(instrumentId);
+        encoder.source(Source.STREAM);
+        encoder.bidBookCount(2)
+                .next().price(price).size(100L)
+                .next().price(price - 1).size(200L);
+        encoder.askBookCount(2)
+                .next().price(price + 1).size(100L)
+                .next().price(price + 2).size(200L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+
+        final int length = headerEncoder.encodedLength() + encoder.encodedLength();
+        buffer.putInt(offset, length, ByteOrder.LITTLE_ENDIAN);
+        return MarketDataGateway.LENGTH_PREFIX_LENGTH + length;
+    }
+
+    /**
+     * Runs every publisher to completion.
+     *
+     * @return the total number of frames written
+     */
+    public long run() throws InterruptedException {
+        final List<Thread> threads = new ArrayList<>();
+        final long start = System.nanoTime();
+        for (int i = 0; i < publishers; i++) {
+            final long instrumentId = i;
+            final Thread thread = new Thread(() -> publish(instrumentId), "load-publisher-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        final long frames = publishers * framesPerPublisher;
+        logger.info("[GATEWAY] Published " + frames + " frames from " + publishers + " publishers in "
+                + elapsedNanos / 1_000_000 + "ms (" + (long) getFramesPerSecond() + " frames/sec)");
+        return frames;
+    }
+
+    private void publish(final long instrumentId){
+        final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(DEFAULT_BATCH_LENGTH);
+        final UnsafeBuffer buffer = new UnsafeBuffer(byteBuffer);
+        final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+        final BookUpdateEncoder encoder = new BookUpdateEncoder();
+        //a frame is well under 1k, leave room for one more before sending the batch
+        final int batchLimit = DEFAULT_BATCH_LENGTH - 1024;
+
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            int position = 0;
+            for (long sent = 0; sent < framesPerPublisher; sent++) {
+                position += encodeTick(buffer, position, headerEncoder, encoder, instrumentId, 100 + sent);
+                if(position >= batchLimit){
+                    write(channel, byteBuffer, position);
+                    position = 0;
+                }
+            }
+            write(channel, byteBuffer, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(final SocketChannel channel, final ByteBuffer byteBuffer, final int length) throws IOException {
+        byteBuffer.clear().limit(length);
+        while(byteBuffer.hasRemaining()){
+            channel.write(byteBuffer);
+        }
+    }
+
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    public double getFramesPerSecond(){
+        return elapsedNanos == 0 ? 0 : publishers * framesPerPublisher * 1_000_000_000d / elapsedNanos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String host = args.length > 0 ? args[0] : "localhost";
+        final int port = args.length > 1 ? Integer.parseInt(args[1]) : 9000;
+        final int publishers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        final long frames = args.length > 3 ? Long.parseLong(args[3]) : 1_000_000;
+
+        new MarketDataLoadGenerator(new InetSocketAddress(host, port), publishers, frames).run();
+    }
+}
@@ -0,0 +1,108 @@
+package codingblackfemales.sequencer.ipc;
+
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.net.MessageRouter;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import static codingblackfemales.sequencer.ipc.SharedMemoryRingDescriptor.PADDING;
+import static codingblackfemales.sequencer.ipc.SharedMemoryRingDescriptor.RECORD_HEADER_LENGTH;
+import static codingblackfemales.sequencer.ipc.SharedMemoryRingDescriptor.recordLength;
+import static java.lang.String.format;
+
+/**
+ * Reads a {@link SharedMemoryRing} from one reader slot and hands each frame to its consumers in order.
+ *
+ * Every reader has its own cursor, so readers go at their own pace and one process's consumers never wait on
+ * another's. A reader starts at the publisher's current position, it does not see frames published before it
+ * joined. Frames are routed as views over the shared memory, with the same lifetime rule as any other network:
+ * valid until onMessage returns. The cursor is moved on after each batch, which is what lets the publisher
+ * reuse the space.
+ */
+public class SharedMemoryConsumerAgent implements Agent {
+
+    private final String name;
+    private final SharedMemoryRing ring;
+    private final int readerId;
+    private final int readLimit;
+    private final UnsafeBuffer data;
+    private final int mask;
+    private final MessageRouter router = new MessageRouter();
+    private final UnsafeBuffer frame = new UnsafeBuffer(0, 0);
+
+    private long cursor;
+    private volatile long consumed = 0;
+
+    public SharedMemoryConsumerAgent(final String name, final SharedMemoryRing ring, final int readerId, final int readLimit) {
+        if(readerId < 0 || readerId >= ring.maxReaders()){
+            throw new IllegalArgumentException(format("No such reader slot readerId=[%s] maxReaders=[%s]", readerId, ring.maxReaders()));
+        }
+        if(ring.isReaderActive(readerId)){
+            throw new IllegalStateException(format("Reader slot already in use readerId=[%s] file=[%s]", readerId, ring.file()));
+        }
+
+        this.name = name;
+        this.ring = ring;
+        this.readerId = readerId;
+        this.readLimit = readLimit;
+        this.data = ring.data();
+        this.mask = ring.capacity() - 1;
+
+        //hold the publisher back from where we are joining, then join wherever it has got to since
+        ring.readerCursorOrdered(readerId, ring.publisherPosition());
+        ring.readerActive(readerId, true);
+        this.cursor = ring.publisherPosition();
+        ring.readerCursorOrdered(readerId, cursor);
+    }
+
+    public void addConsumer(final Consumer consumer){
+        router.addConsumer(consumer);
+    }
+
+    @Override
+    public int doWork() {
+        final long publisherPosition = ring.publisherPosition();
+        final long startCursor = cursor;
+        int frames = 0;
+
+        while(cursor < publisherPosition && frames < readLimit){
+            final int index = (int) (cursor & mask);
+            final int length = data.getInt(index);
+
+            if(length == PADDING){
+                cursor += ring.capacity() - index;
+                continue;
+            }
+
+            frame.wrap(data, index + RECORD_HEADER_LENGTH, length);
+            router.route(frame);
+            cursor += recordLength(length);
+            frames += 1;
+        }
+
+        if(cursor != startCursor){
+            ring.readerCursorOrdered(readerId, cursor);
+            consumed += frames;
+            router.drained();
+        }
+        return frames;
+    }
+
+    public long consumed(){
+        return consumed;
+    }
+
+    public long lag(){
+        return ring.publisherPosition() - cursor;
+    }
+
+    @Override
+    public void onClose() {
+        ring.readerActive(readerId, false);
+    }
+
+    @Override
+    public String roleName() {
+        return name;
+    }
+}
@@ -0,0 +1,117 @@
+package codingblackfemales.sequencer.ipc;
+
+import codingblackfemales.sequencer.net.Network;
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+
+import static codingblackfemales.sequencer.ipc.SharedMemoryRingDescriptor.PADDING;
+import static codingblackfemales.sequencer.ipc.SharedMemoryRingDescriptor.RECORD_HEADER_LENGTH;
+import static codingblackfemales.sequencer.ipc.SharedMemoryRingDescriptor.recordLength;
+import static java.lang.String.format;
+
+/**
+ * Publishes sequenced frames into a {@link SharedMemoryRing} for consumers in other processes, so a sequencer in
+ * one JVM can drive the book in one process and the algo in another.
+ *
+ * Dispatch copies the frame into the ring and then moves the publisher position on with an ordered write, which
+ * is all a reader polling the position needs to see it, there are no system calls. The ring is shared by every
+ * reader, the publisher only overwrites what the slowest active reader has consumed, and waits on its idle
+ * strategy while the ring is full. A reader that dies without closing holds the publisher up.
+ *
+ * One publisher per ring, not thread safe. For the other direction (the algo's orders going back to the
+ * sequencer) use a second ring, with the remote side publishing its commands and the sequencer's process
+ * reading them into {@link codingblackfemales.sequencer.Sequencer#onCommand}.
+ */
+public class SharedMemoryNetwork implements Network, AutoCloseable {
+
+    private final SharedMemoryRing ring;
+    private final UnsafeBuffer data;
+    private final int capacity;
+    private final int mask;
+    private final IdleStrategy idleStrategy;
+    private final MessageLengthDecoder lengthDecoder = new MessageLengthDecoder();
+
+    private long position;
+    private long cachedMinReaderCursor;
+    private long backPressured = 0;
+
+    public SharedMemoryNetwork(final SharedMemoryRing ring) {
+        this(ring, new YieldingIdleStrategy());
+    }
+
+    public SharedMemoryNetwork(final SharedMemoryRing ring, final IdleStrategy idleStrategy) {
+        this.ring = ring;
+        this.data = ring.data();
+        this.capacity = ring.capacity();
+        this.mask = capacity - 1;
+        this.idleStrategy = idleStrategy;
+        this.position = ring.publisherPosition();
+        this.cachedMinReaderCursor = ring.minReaderCursor();
+    }
+
+    @Override
+    public void dispatch(final DirectBuffer buffer) {
+        final int length = lengthDecoder.decodeLength(buffer, 0);
+        final int recordLength = recordLength(length);
+
+        if(recordLength > capacity){
+            throw new IllegalStateException(format("Frame too large for shared memory ring length=[%s] capacity=[%s]", length, capacity));
+        }
+
+        int index = (int) (position & mask);
+        final int toEnd = capacity - index;
+        final int required = toEnd < recordLength ? toEnd + recordLength : recordLength;
+
+        awaitCapacity(required);
+
+        if(toEnd < recordLength){
+            data.putInt(index, PADDING);
+            position += toEnd;
+            index = 0;
+        }
+
+        data.putBytes(index + RECORD_HEADER_LENGTH, buffer, 0, length);
+        data.putInt(index, length);
+        position += recordLength;
+
+        ring.publisherPositionOrdered(position);
+    }
+
+    private void awaitCapacity(final int required){
+        //the cached cursor is never ahead of the real one, so only look again when it says we're full
+        if(position + required - cachedMinReaderCursor <= capacity){
+            return;
+        }
+
+        cachedMinReaderCursor = ring.minReaderCursor();
+        if(position + required - cachedMinReaderCursor <= capacity){
+            return;
+        }
+
+        backPressured += 1;
+        idleStrategy.reset();
+        while(position + required - cachedMinReaderCursor > capacity){
+            idleStrategy.idle();
+            cachedMinReaderCursor = ring.minReaderCursor();
+        }
+    }
+
+    public long position(){
+        return position;
+    }
+
+    /**
+     * @return how many frames had to wait for a reader to make room
+     */
+    public long getBackPressured(){
+        return backPressured;
+    }
+
+    @Override
+    public void close() {
+        ring.close();
+    }
+}
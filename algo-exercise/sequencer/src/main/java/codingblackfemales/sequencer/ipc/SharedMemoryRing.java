@@ -0,0 +1,138 @@
+package codingblackfemales.sequencer.ipc;
+
+import org.agrona.BitUtil;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static codingblackfemales.sequencer.ipc.SharedMemoryRingDescriptor.*;
+import static java.lang.String.format;
+
+/**
+ * A ring of frames in a memory mapped file, shared between one publishing process and up to maxReaders reading
+ * processes on the same host, see {@link SharedMemoryRingDescriptor} for the layout.
+ *
+ * This is only the mapping and the counters, {@link SharedMemoryNetwork} publishes into it and
+ * {@link SharedMemoryConsumerAgent} reads from it.
+ */
+public class SharedMemoryRing implements AutoCloseable {
+
+    private final File file;
+    private final MappedByteBuffer mapped;
+    private final UnsafeBuffer metadata;
+    private final UnsafeBuffer data;
+    private final int capacity;
+    private final int maxReaders;
+
+    private SharedMemoryRing(final File file, final MappedByteBuffer mapped) {
+        this.file = file;
+        this.mapped = mapped;
+        final UnsafeBuffer buffer = new UnsafeBuffer(mapped);
+
+        if(buffer.capacity() < READER_SLOTS_OFFSET || buffer.getIntVolatile(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION){
+            IoUtil.unmap(mapped);
+            throw new IllegalStateException(format("Not a shared memory ring file=[%s]", file));
+        }
+
+        this.capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.maxReaders = buffer.getInt(MAX_READERS_OFFSET);
+        this.metadata = new UnsafeBuffer(buffer, 0, dataOffset(maxReaders));
+        this.data = new UnsafeBuffer(buffer, dataOffset(maxReaders), capacity);
+    }
+
+    /**
+     * Creates (or replaces) the ring file, done by the publisher before any reader opens it.
+     *
+     * @param capacity size of the data section, a power of two
+     */
+    public static SharedMemoryRing create(final File file, final int capacity, final int maxReaders){
+        if(!BitUtil.isPowerOfTwo(capacity)){
+            throw new IllegalArgumentException(format("Capacity must be a power of two capacity=[%s]", capacity));
+        }
+        if(maxReaders < 1){
+            throw new IllegalArgumentException(format("Need at least one reader slot maxReaders=[%s]", maxReaders));
+        }
+
+        IoUtil.deleteIfExists(file);
+        final MappedByteBuffer mapped = IoUtil.mapNewFile(file, fileLength(capacity, maxReaders), true);
+        final UnsafeBuffer buffer = new UnsafeBuffer(mapped);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(MAX_READERS_OFFSET, maxReaders);
+        //magic goes last, a reader that sees it sees the rest
+        buffer.putIntVolatile(MAGIC_OFFSET, MAGIC);
+
+        return new SharedMemoryRing(file, mapped);
+    }
+
+    /**
+     * Maps a ring a publisher has already created.
+     */
+    public static SharedMemoryRing open(final File file){
+        if(!file.exists()){
+            throw new IllegalStateException(format("No shared memory ring file=[%s]", file));
+        }
+        return new SharedMemoryRing(file, IoUtil.mapExistingFile(file, FileChannel.MapMode.READ_WRITE, "shared memory ring"));
+    }
+
+    public File file(){
+        return file;
+    }
+
+    public int capacity(){
+        return capacity;
+    }
+
+    public int maxReaders(){
+        return maxReaders;
+    }
+
+    UnsafeBuffer data(){
+        return data;
+    }
+
+    public long publisherPosition(){
+        return metadata.getLongVolatile(PUBLISHER_POSITION_OFFSET);
+    }
+
+    void publisherPositionOrdered(final long position){
+        metadata.putLongOrdered(PUBLISHER_POSITION_OFFSET, position);
+    }
+
+    public long readerCursor(final int readerId){
+        return metadata.getLongVolatile(readerSlotOffset(readerId) + READER_CURSOR_OFFSET);
+    }
+
+    void readerCursorOrdered(final int readerId, final long cursor){
+        metadata.putLongOrdered(readerSlotOffset(readerId) + READER_CURSOR_OFFSET, cursor);
+    }
+
+    public boolean isReaderActive(final int readerId){
+        return metadata.getIntVolatile(readerSlotOffset(readerId) + READER_ACTIVE_OFFSET) != 0;
+    }
+
+    void readerActive(final int readerId, final boolean active){
+        metadata.putIntVolatile(readerSlotOffset(readerId) + READER_ACTIVE_OFFSET, active ? 1 : 0);
+    }
+
+    /**
+     * @return the lowest cursor of the active readers, or the publisher position when there are none
+     */
+    public long minReaderCursor(){
+        long min = publisherPosition();
+        for (int i = 0; i < maxReaders; i++) {
+            if(isReaderActive(i)){
+                min = Math.min(min, readerCursor(i));
+            }
+        }
+        return min;
+    }
+
+    @Override
+    public void close() {
+        IoUtil.unmap(mapped);
+    }
+}
@@ -0,0 +1,54 @@
+package codingblackfemales.sequencer.ipc;
+
+import static codingblackfemales.sequencer.journal.JournalDescriptor.align;
+
+/**
+ * Layout of the memory mapped file behind a {@link SharedMemoryRing}.
+ *
+ * A metadata section (magic, version, capacity, reader slots) is followed by the publisher position and one
+ * slot per reader (cursor and active flag), each on its own cache line so the publisher and readers never write
+ * to the same line. Then comes the data section, capacity bytes used as a ring.
+ *
+ * Positions are byte counts since the ring was created and only ever go up, the index in the data section is
+ * position & (capacity - 1). Each record is a length followed by the SBE frame as it was dispatched, padded to
+ * RECORD_ALIGNMENT. A record never wraps, if it won't fit before the end of the data section a PADDING length
+ * marks the rest as unused and the record starts again at index 0.
+ */
+public class SharedMemoryRingDescriptor {
+
+    public static final int MAGIC = 0x52494e47;
+    public static final int VERSION = 1;
+
+    public static final int CACHE_LINE_LENGTH = 64;
+    //two lines, so adjacent line prefetching doesn't pull a neighbour's counter in
+    public static final int SLOT_LENGTH = 2 * CACHE_LINE_LENGTH;
+
+    public static final int MAGIC_OFFSET = 0;
+    public static final int VERSION_OFFSET = 4;
+    public static final int CAPACITY_OFFSET = 8;
+    public static final int MAX_READERS_OFFSET = 12;
+    public static final int PUBLISHER_POSITION_OFFSET = SLOT_LENGTH;
+    public static final int READER_SLOTS_OFFSET = 2 * SLOT_LENGTH;
+    public static final int READER_CURSOR_OFFSET = 0;
+    public static final int READER_ACTIVE_OFFSET = 8;
+
+    public static final int RECORD_HEADER_LENGTH = 8;
+    public static final int RECORD_ALIGNMENT = 8;
+    public static final int PADDING = -1;
+
+    public static int readerSlotOffset(final int readerId){
+        return READER_SLOTS_OFFSET + readerId * SLOT_LENGTH;
+    }
+
+    public static int dataOffset(final int maxReaders){
+        return readerSlotOffset(maxReaders);
+    }
+
+    public static int fileLength(final int capacity, final int maxReaders){
+        return dataOffset(maxReaders) + capacity;
+    }
+
+    public static int recordLength(final int frameLength){
+        return align(RECORD_HEADER_LENGTH + frameLength, RECORD_ALIGNMENT);
+    }
+}
@@ -0,0 +1,50 @@
+package codingblackfemales.sequencer.journal;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static java.lang.String.format;
+
+/**
+ * Layout of a journal on disk.
+ *
+ * A journal is a directory of fixed size segment files, each named after the sequence number of the first
+ * frame in it. A segment is a run of records, each one a record header followed by the sequenced frame
+ * (header + body), padded out to RECORD_ALIGNMENT. The record header is the frame length and the epoch nanos
+ * the frame was captured at. A zero length marks the end of the written part of a segment.
+ */
+public class JournalDescriptor {
+
+    public static final int LENGTH_OFFSET = 0;
+    public static final int TIMESTAMP_OFFSET = 8;
+    public static final int RECORD_HEADER_LENGTH = 16;
+    public static final int RECORD_ALIGNMENT = 8;
+    public static final String SEGMENT_SUFFIX = ".journal";
+    public static final int DEFAULT_SEGMENT_LENGTH = 64 * 1024 * 1024;
+
+    public static int recordLength(final int frameLength){
+        return align(RECORD_HEADER_LENGTH + frameLength, RECORD_ALIGNMENT);
+    }
+
+    public static int align(final int value, final int alignment){
+        return (value + (alignment - 1)) & ~(alignment - 1);
+    }
+
+    public static String segmentFileName(final long baseSequenceNumber){
+        return format("%020d%s", baseSequenceNumber, SEGMENT_SUFFIX);
+    }
+
+    public static long baseSequenceNumber(final File segment){
+        final String name = segment.getName();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    public static File[] segmentFiles(final File directory){
+        final File[] segments = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if(segments == null){
+            return new File[0];
+        }
+        Arrays.sort(segments, (a, b) -> Long.compare(baseSequenceNumber(a), baseSequenceNumber(b)));
+        return segments;
+    }
+}
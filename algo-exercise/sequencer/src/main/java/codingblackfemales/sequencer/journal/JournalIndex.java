@@ -0,0 +1,355 @@
+package codingblackfemales.sequencer.journal;
+
+import codingblackfemales.sequencer.util.InstrumentIdDecoder;
+import codingblackfemales.sequencer.util.OrderIdDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.IoUtil;
+import org.agrona.collections.Hashing;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static codingblackfemales.sequencer.journal.JournalDescriptor.LENGTH_OFFSET;
+import static codingblackfemales.sequencer.journal.JournalDescriptor.RECORD_HEADER_LENGTH;
+import static codingblackfemales.sequencer.journal.JournalDescriptor.TIMESTAMP_OFFSET;
+import static codingblackfemales.sequencer.journal.JournalDescriptor.recordLength;
+import static codingblackfemales.sequencer.journal.JournalIndexDescriptor.*;
+import static java.lang.String.format;
+
+/**
+ * Answers questions about a journal from its sidecar index, see {@link JournalIndexDescriptor}.
+ *
+ * The journal segments and their index files are mapped read only when it is opened. A lookup by orderId,
+ * instrumentId or message type is a hash probe per segment followed by the chain of frames for the key, a range
+ * of sequence numbers is a binary search of the frame table and a range of time starts from the first frame
+ * of its time bucket, so nothing is read that isn't part of the answer. Frames after the last indexed one in a
+ * segment (a segment written without an index, or one whose index filled up) are scanned.
+ *
+ * Frames are handed out in sequence order as a view over the mapped segment, with the same lifetime rules as
+ * {@link JournalReader}. Capture timestamps are taken to only go forward. Frames appended to the segments after
+ * opening are found too, segments rolled after opening are not. Not thread safe.
+ */
+public class JournalIndex implements AutoCloseable {
+
+    private static final int ANY_KEY = 0;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final UnsafeBuffer frame = new UnsafeBuffer(0, 0);
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final InstrumentIdDecoder instrumentIdDecoder = new InstrumentIdDecoder();
+    private final OrderIdDecoder orderIdDecoder = new OrderIdDecoder();
+
+    private int[] matches = new int[1024];
+
+    public JournalIndex(final File directory) {
+        try {
+            for (File segmentFile : JournalDescriptor.segmentFiles(directory)) {
+                segments.add(new Segment(segmentFile));
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public long forOrder(final long orderId, final JournalRecordHandler handler){
+        return forKey(KEY_ORDER, orderId, 0, Long.MAX_VALUE, handler);
+    }
+
+    public long forInstrument(final long instrumentId, final long fromSequenceNumber, final long toSequenceNumber, final JournalRecordHandler handler){
+        return forKey(KEY_INSTRUMENT, instrumentId, fromSequenceNumber, toSequenceNumber, handler);
+    }
+
+    public long forMessageType(final int schemaId, final int templateId, final long fromSequenceNumber, final long toSequenceNumber, final JournalRecordHandler handler){
+        return forKey(KEY_MESSAGE_TYPE, messageType(schemaId, templateId), fromSequenceNumber, toSequenceNumber, handler);
+    }
+
+    /**
+     * @return the number of frames handed to the handler, both ends of the range are included
+     */
+    public long forSequenceRange(final long fromSequenceNumber, final long toSequenceNumber, final JournalRecordHandler handler){
+        long count = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if(!overlaps(i, fromSequenceNumber, toSequenceNumber)){
+                continue;
+            }
+            final Segment segment = segments.get(i);
+            final int frameCount = segment.frameCount();
+
+            for (int f = segment.firstFrameFrom(fromSequenceNumber, frameCount); f < frameCount; f++) {
+                if(segment.sequenceNumber(f) > toSequenceNumber){
+                    break;
+                }
+                deliver(segment, f, handler);
+                count++;
+            }
+
+            count += scanUnindexed(segment, frameCount, ANY_KEY, 0, fromSequenceNumber, toSequenceNumber, Long.MIN_VALUE, Long.MAX_VALUE, handler);
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of frames captured between the two epoch nanos handed to the handler, both ends included
+     */
+    public long forTimeRange(final long fromNanos, final long toNanos, final JournalRecordHandler handler){
+        long count = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            final Segment segment = segments.get(i);
+            final int frameCount = segment.frameCount();
+
+            if(frameCount > 0 && toNanos >= segment.timestamp(0) && fromNanos <= segment.timestamp(frameCount - 1)){
+                final int start = segment.firstFrameInBuckets(Math.max(fromNanos, segment.timestamp(0)), Math.min(toNanos, segment.timestamp(frameCount - 1)), frameCount);
+                for (int f = start; f >= 0 && f < frameCount; f++) {
+                    final long timestamp = segment.timestamp(f);
+                    if(timestamp > toNanos){
+                        break;
+                    }
+                    if(timestamp >= fromNanos){
+                        deliver(segment, f, handler);
+                        count++;
+                    }
+                }
+            }
+
+            count += scanUnindexed(segment, frameCount, ANY_KEY, 0, 0, Long.MAX_VALUE, fromNanos, toNanos, handler);
+        }
+        return count;
+    }
+
+    public int segmentCount(){
+        return segments.size();
+    }
+
+    private long forKey(final int keyType, final long value, final long fromSequenceNumber, final long toSequenceNumber, final JournalRecordHandler handler){
+        final long key = key(keyType, value);
+        long count = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if(!overlaps(i, fromSequenceNumber, toSequenceNumber)){
+                continue;
+            }
+            final Segment segment = segments.get(i);
+            final int frameCount = segment.frameCount();
+
+            //the chain runs newest first, collect the frames in range and hand them out oldest first
+            int found = 0;
+            int posting = frameCount > 0 ? segment.head(key) : 0;
+            while(posting != 0){
+                final int f = segment.postingFrame(posting);
+                posting = segment.previousPosting(posting);
+                if(f >= frameCount){
+                    continue;
+                }
+                final long sequenceNumber = segment.sequenceNumber(f);
+                if(sequenceNumber < fromSequenceNumber){
+                    break;
+                }
+                if(sequenceNumber <= toSequenceNumber){
+                    if(found == matches.length){
+                        matches = Arrays.copyOf(matches, found * 2);
+                    }
+                    matches[found++] = f;
+                }
+            }
+            for (int m = found - 1; m >= 0; m--) {
+                deliver(segment, matches[m], handler);
+            }
+            count += found;
+
+            count += scanUnindexed(segment, frameCount, keyType, value, fromSequenceNumber, toSequenceNumber, Long.MIN_VALUE, Long.MAX_VALUE, handler);
+        }
+        return count;
+    }
+
+    private boolean overlaps(final int segmentIndex, final long fromSequenceNumber, final long toSequenceNumber){
+        final long base = segments.get(segmentIndex).baseSequenceNumber;
+        final boolean startsAfterRange = base > toSequenceNumber;
+        final boolean endsBeforeRange = segmentIndex + 1 < segments.size() && segments.get(segmentIndex + 1).baseSequenceNumber <= fromSequenceNumber;
+        return !startsAfterRange && !endsBeforeRange;
+    }
+
+    private void deliver(final Segment segment, final int f, final JournalRecordHandler handler){
+        frame.wrap(segment.journal, segment.position(f) + RECORD_HEADER_LENGTH, segment.length(f));
+        handler.onRecord(frame, segment.timestamp(f));
+    }
+
+    private long scanUnindexed(final Segment segment, final int frameCount, final int keyType, final long value,
+                               final long fromSequenceNumber, final long toSequenceNumber,
+                               final long fromNanos, final long toNanos, final JournalRecordHandler handler){
+        final UnsafeBuffer journal = segment.journal;
+        int position = frameCount > 0 ? segment.position(frameCount - 1) + recordLength(segment.length(frameCount - 1)) : 0;
+        long count = 0;
+        while(position + RECORD_HEADER_LENGTH <= journal.capacity()){
+            final int length = journal.getIntVolatile(position + LENGTH_OFFSET);
+            if(length <= 0){
+                break;
+            }
+            frame.wrap(journal, position + RECORD_HEADER_LENGTH, length);
+            final long timestamp = journal.getLong(position + TIMESTAMP_OFFSET);
+            header.wrap(frame, 0);
+            final long sequenceNumber = header.sequencerNumber();
+            if(sequenceNumber >= fromSequenceNumber && sequenceNumber <= toSequenceNumber
+                    && timestamp >= fromNanos && timestamp <= toNanos && matches(keyType, value)){
+                handler.onRecord(frame, timestamp);
+                count++;
+            }
+            position += recordLength(length);
+        }
+        return count;
+    }
+
+    private boolean matches(final int keyType, final long value){
+        switch (keyType){
+            case KEY_ORDER:
+                return orderIdDecoder.decodeOrderId(frame, 0) == value;
+            case KEY_INSTRUMENT:
+                return instrumentIdDecoder.decodeInstrumentId(frame, 0) == value;
+            case KEY_MESSAGE_TYPE:
+                return messageType(header.schemaId(), header.templateId()) == value;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+        frame.wrap(0, 0);
+    }
+
+    private static class Segment {
+
+        private final long baseSequenceNumber;
+        private final MappedByteBuffer mappedJournal;
+        private final UnsafeBuffer journal;
+        private final MappedByteBuffer mappedIndex;
+        private final UnsafeBuffer index;
+
+        private final int slotCount;
+        private final int framesOffset;
+        private final int postingsOffset;
+        private final long bucketNanos;
+
+        private Segment(final File segmentFile) {
+            this.baseSequenceNumber = JournalDescriptor.baseSequenceNumber(segmentFile);
+            this.mappedJournal = IoUtil.mapExistingFile(segmentFile, FileChannel.MapMode.READ_ONLY, "journal segment");
+            this.journal = new UnsafeBuffer(mappedJournal);
+
+            final File indexFile = indexFile(segmentFile);
+            if(indexFile.exists()){
+                this.mappedIndex = IoUtil.mapExistingFile(indexFile, FileChannel.MapMode.READ_ONLY, "journal index");
+                this.index = new UnsafeBuffer(mappedIndex);
+                final int version = index.getInt(VERSION_OFFSET);
+                if(index.getInt(MAGIC_OFFSET) != MAGIC || version != VERSION){
+                    close();
+                    throw new IllegalStateException(format("Not a journal index file=[%s] version=[%s]", indexFile, version));
+                }
+                this.slotCount = index.getInt(SLOT_COUNT_OFFSET);
+                this.framesOffset = framesOffset(slotCount);
+                this.postingsOffset = postingsOffset(slotCount, index.getInt(FRAME_CAPACITY_OFFSET));
+                this.bucketNanos = index.getLong(BUCKET_NANOS_OFFSET);
+            }else {
+                this.mappedIndex = null;
+                this.index = null;
+                this.slotCount = 0;
+                this.framesOffset = 0;
+                this.postingsOffset = 0;
+                this.bucketNanos = DEFAULT_BUCKET_NANOS;
+            }
+        }
+
+        private int frameCount(){
+            return index == null ? 0 : index.getIntVolatile(FRAME_COUNT_OFFSET);
+        }
+
+        private long sequenceNumber(final int f){
+            return index.getLong(framesOffset + f * FRAME_ENTRY_LENGTH + FRAME_SEQUENCE_NUMBER_OFFSET);
+        }
+
+        private long timestamp(final int f){
+            return index.getLong(framesOffset + f * FRAME_ENTRY_LENGTH + FRAME_TIMESTAMP_OFFSET);
+        }
+
+        private int position(final int f){
+            return index.getInt(framesOffset + f * FRAME_ENTRY_LENGTH + FRAME_POSITION_OFFSET);
+        }
+
+        private int length(final int f){
+            return index.getInt(framesOffset + f * FRAME_ENTRY_LENGTH + FRAME_LENGTH_OFFSET);
+        }
+
+        private int head(final long key){
+            final int mask = slotCount - 1;
+            int slot = Hashing.hash(key, mask);
+            while(true){
+                final int slotOffset = HEADER_LENGTH + slot * SLOT_LENGTH;
+                final long slotKey = index.getLong(slotOffset + SLOT_KEY_OFFSET);
+                if(slotKey == key){
+                    return index.getInt(slotOffset + SLOT_HEAD_OFFSET);
+                }
+                if(slotKey == 0){
+                    return 0;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private int postingFrame(final int posting){
+            return index.getInt(postingsOffset + (posting - 1) * POSTING_LENGTH + POSTING_FRAME_OFFSET);
+        }
+
+        private int previousPosting(final int posting){
+            return index.getInt(postingsOffset + (posting - 1) * POSTING_LENGTH + POSTING_PREVIOUS_OFFSET);
+        }
+
+        private int firstFrameFrom(final long sequenceNumber, final int frameCount){
+            int low = 0;
+            int high = frameCount;
+            while(low < high){
+                final int mid = (low + high) >>> 1;
+                if(sequenceNumber(mid) < sequenceNumber){
+                    low = mid + 1;
+                }else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the first indexed frame of the earliest bucket between the two times that has any, or -1
+         */
+        private int firstFrameInBuckets(final long fromNanos, final long toNanos, final int frameCount){
+            for (long bucket = fromNanos / bucketNanos; bucket <= toNanos / bucketNanos; bucket++) {
+                int posting = head(key(KEY_TIME_BUCKET, bucket));
+                int first = -1;
+                while(posting != 0){
+                    final int f = postingFrame(posting);
+                    if(f < frameCount){
+                        first = f;
+                    }
+                    posting = previousPosting(posting);
+                }
+                if(first >= 0){
+                    return first;
+                }
+            }
+            return -1;
+        }
+
+        private void close(){
+            IoUtil.unmap(mappedJournal);
+            if(mappedIndex != null){
+                IoUtil.unmap(mappedIndex);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package codingblackfemales.sequencer.journal;
+
+import org.agrona.BitUtil;
+
+import java.io.File;
+
+import static java.lang.String.format;
+
+/**
+ * Layout of the sidecar index kept next to each journal segment.
+ *
+ * An index file has the same name as its segment with an INDEX_SUFFIX. It is a header, a hash table of keys,
+ * a frame table and a posting area, all fixed size so the file can be mapped once and written in place:
+ *
+ * - the frame table has one entry per indexed frame in the order they were written (sequence number,
+ *   capture epoch nanos, record position in the segment, frame length, schemaId and templateId), so it is
+ *   sorted by sequence number.
+ * - a key is a key type and a value (an orderId, an instrumentId, a time bucket or a message type). Its slot in
+ *   the hash table holds the key, the number of frames posted to it and the most recent posting.
+ * - a posting is a frame table index and the previous posting for the same key, so each key is a chain that
+ *   runs back from the most recent frame.
+ *
+ * Time buckets are only posted for the first frame in each bucket. The header records how many frames have
+ * been indexed, anything in the segment after the last indexed frame has to be scanned. The frame count is
+ * written last, so a reader mapping a live index ignores anything beyond it.
+ *
+ * Empty slots and the end of a chain are 0, slots and postings are stored as index + 1.
+ */
+public class JournalIndexDescriptor {
+
+    public static final int MAGIC = 0x4a494458;
+    public static final int VERSION = 1;
+
+    public static final int MAGIC_OFFSET = 0;
+    public static final int VERSION_OFFSET = 4;
+    public static final int SLOT_COUNT_OFFSET = 8;
+    public static final int FRAME_CAPACITY_OFFSET = 12;
+    public static final int POSTING_CAPACITY_OFFSET = 16;
+    public static final int FRAME_COUNT_OFFSET = 20;
+    public static final int BUCKET_NANOS_OFFSET = 24;
+    public static final int BASE_SEQUENCE_NUMBER_OFFSET = 32;
+    public static final int HEADER_LENGTH = 64;
+
+    public static final int SLOT_KEY_OFFSET = 0;
+    public static final int SLOT_HEAD_OFFSET = 8;
+    public static final int SLOT_POSTINGS_OFFSET = 12;
+    public static final int SLOT_LENGTH = 16;
+
+    public static final int FRAME_SEQUENCE_NUMBER_OFFSET = 0;
+    public static final int FRAME_TIMESTAMP_OFFSET = 8;
+    public static final int FRAME_POSITION_OFFSET = 16;
+    public static final int FRAME_LENGTH_OFFSET = 20;
+    public static final int FRAME_SCHEMA_ID_OFFSET = 24;
+    public static final int FRAME_TEMPLATE_ID_OFFSET = 26;
+    public static final int FRAME_ENTRY_LENGTH = 32;
+
+    public static final int POSTING_FRAME_OFFSET = 0;
+    public static final int POSTING_PREVIOUS_OFFSET = 4;
+    public static final int POSTING_LENGTH = 8;
+
+    public static final int KEY_ORDER = 1;
+    public static final int KEY_INSTRUMENT = 2;
+    public static final int KEY_TIME_BUCKET = 3;
+    public static final int KEY_MESSAGE_TYPE = 4;
+    public static final int MAX_POSTINGS_PER_FRAME = 4;
+
+    public static final long DEFAULT_BUCKET_NANOS = 1_000_000_000L;
+    //no sequenced frame is smaller than a header plus a small body, so this covers a segment of the smallest frames
+    public static final int MIN_RECORD_LENGTH = 64;
+
+    public static final String INDEX_SUFFIX = ".index";
+
+    private static final long KEY_VALUE_MASK = 0x00FF_FFFF_FFFF_FFFFL;
+
+    public static long key(final int keyType, final long value){
+        return ((long) keyType << 56) | (value & KEY_VALUE_MASK);
+    }
+
+    public static long messageType(final int schemaId, final int templateId){
+        return ((long) schemaId << 16) | (templateId & 0xFFFF);
+    }
+
+    public static int frameCapacity(final int segmentLength){
+        return segmentLength / MIN_RECORD_LENGTH;
+    }
+
+    public static int slotCount(final int frameCapacity){
+        return BitUtil.findNextPositivePowerOfTwo(frameCapacity) * 2;
+    }
+
+    public static int postingCapacity(final int frameCapacity){
+        return frameCapacity * MAX_POSTINGS_PER_FRAME;
+    }
+
+    public static int slotsOffset(){
+        return HEADER_LENGTH;
+    }
+
+    public static int framesOffset(final int slotCount){
+        return HEADER_LENGTH + slotCount * SLOT_LENGTH;
+    }
+
+    public static int postingsOffset(final int slotCount, final int frameCapacity){
+        return framesOffset(slotCount) + frameCapacity * FRAME_ENTRY_LENGTH;
+    }
+
+    public static long indexLength(final int slotCount, final int frameCapacity, final int postingCapacity){
+        return (long) postingsOffset(slotCount, frameCapacity) + (long) postingCapacity * POSTING_LENGTH;
+    }
+
+    public static File indexFile(final File segment){
+        final String name = segment.getName();
+        return new File(segment.getParentFile(), name.substring(0, name.length() - JournalDescriptor.SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    public static String indexFileName(final long baseSequenceNumber){
+        return format("%020d%s", baseSequenceNumber, INDEX_SUFFIX);
+    }
+}
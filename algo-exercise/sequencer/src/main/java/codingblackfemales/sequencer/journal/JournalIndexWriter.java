@@ -0,0 +1,228 @@
+package codingblackfemales.sequencer.journal;
+
+import codingblackfemales.sequencer.util.InstrumentIdDecoder;
+import codingblackfemales.sequencer.util.OrderIdDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.IoUtil;
+import org.agrona.collections.Hashing;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+import static codingblackfemales.sequencer.journal.JournalIndexDescriptor.*;
+import static java.lang.String.format;
+
+/**
+ * Builds the sidecar index of a journal as frames are appended, see {@link JournalIndexDescriptor} for the layout.
+ *
+ * Set it on a {@link JournalWriter} and every append is indexed by its message type, instrumentId, orderId and
+ * time bucket, with a few plain writes into the mapped index and no allocation. The index is sized for the
+ * smallest possible frames, so it is sparse on disk. If it fills up anyway the rest of the segment is left
+ * unindexed, and {@link JournalIndex} scans that part instead.
+ *
+ * Single writer, not thread safe.
+ */
+public class JournalIndexWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalIndexWriter.class);
+
+    private final File directory;
+    private final int frameCapacity;
+    private final int slotCount;
+    private final int postingCapacity;
+    private final long bucketNanos;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final InstrumentIdDecoder instrumentIdDecoder = new InstrumentIdDecoder();
+    private final OrderIdDecoder orderIdDecoder = new OrderIdDecoder();
+    private final UnsafeBuffer index = new UnsafeBuffer(0, 0);
+
+    private MappedByteBuffer mappedIndex;
+    private int frameCount;
+    private int postingCount;
+    private int usedSlots;
+    private long lastBucket;
+    private boolean full;
+
+    private long framesIndexed = 0;
+    private long framesUnindexed = 0;
+
+    public JournalIndexWriter(final File directory, final int segmentLength) {
+        this(directory, frameCapacity(segmentLength), DEFAULT_BUCKET_NANOS);
+    }
+
+    public JournalIndexWriter(final File directory, final int frameCapacity, final long bucketNanos) {
+        this.directory = directory;
+        this.frameCapacity = frameCapacity;
+        this.slotCount = slotCount(frameCapacity);
+        this.postingCapacity = postingCapacity(frameCapacity);
+        this.bucketNanos = bucketNanos;
+
+        final long indexLength = indexLength(slotCount, frameCapacity, postingCapacity);
+        if(indexLength > Integer.MAX_VALUE){
+            throw new IllegalArgumentException(format("Index too large to map frameCapacity=[%s] indexLength=[%s]", frameCapacity, indexLength));
+        }
+        IoUtil.ensureDirectoryExists(directory, "journal");
+    }
+
+    /**
+     * Starts the index for a new segment, called by the journal writer when it rolls.
+     */
+    public void roll(final long baseSequenceNumber){
+        unmapIndex();
+
+        final File indexFile = new File(directory, indexFileName(baseSequenceNumber));
+        IoUtil.deleteIfExists(indexFile);
+        mappedIndex = IoUtil.mapNewFile(indexFile, indexLength(slotCount, frameCapacity, postingCapacity), false);
+        index.wrap(mappedIndex);
+
+        index.putInt(MAGIC_OFFSET, MAGIC);
+        index.putInt(VERSION_OFFSET, VERSION);
+        index.putInt(SLOT_COUNT_OFFSET, slotCount);
+        index.putInt(FRAME_CAPACITY_OFFSET, frameCapacity);
+        index.putInt(POSTING_CAPACITY_OFFSET, postingCapacity);
+        index.putLong(BUCKET_NANOS_OFFSET, bucketNanos);
+        index.putLong(BASE_SEQUENCE_NUMBER_OFFSET, baseSequenceNumber);
+        index.putIntOrdered(FRAME_COUNT_OFFSET, 0);
+
+        frameCount = 0;
+        postingCount = 0;
+        usedSlots = 0;
+        lastBucket = Long.MIN_VALUE;
+        full = false;
+    }
+
+    /**
+     * @param position where the record starts in the current segment
+     */
+    public void index(final DirectBuffer buffer, final int offset, final int length, final int position, final long timestampNanos){
+
+        if(mappedIndex == null){
+            return;
+        }
+
+        //every key of a frame could be new, stop at the first frame that might not fit so the indexed part stays whole
+        if(full || frameCount == frameCapacity || postingCount + MAX_POSTINGS_PER_FRAME > postingCapacity
+                || usedSlots + MAX_POSTINGS_PER_FRAME > slotCount / 2){
+            if(!full){
+                logger.warn("[JOURNAL] Index full, the rest of the segment is not indexed frames=[" + frameCount + "]");
+                full = true;
+            }
+            framesUnindexed += 1;
+            return;
+        }
+
+        header.wrap(buffer, offset);
+
+        final int frame = frameCount;
+        final int frameOffset = framesOffset(slotCount) + frame * FRAME_ENTRY_LENGTH;
+        index.putLong(frameOffset + FRAME_SEQUENCE_NUMBER_OFFSET, header.sequencerNumber());
+        index.putLong(frameOffset + FRAME_TIMESTAMP_OFFSET, timestampNanos);
+        index.putInt(frameOffset + FRAME_POSITION_OFFSET, position);
+        index.putInt(frameOffset + FRAME_LENGTH_OFFSET, length);
+        index.putShort(frameOffset + FRAME_SCHEMA_ID_OFFSET, (short) header.schemaId());
+        index.putShort(frameOffset + FRAME_TEMPLATE_ID_OFFSET, (short) header.templateId());
+
+        post(key(KEY_MESSAGE_TYPE, messageType(header.schemaId(), header.templateId())), frame);
+
+        final long instrumentId = instrumentIdDecoder.decodeInstrumentId(buffer, offset);
+        if(instrumentId != InstrumentIdDecoder.NO_INSTRUMENT){
+            post(key(KEY_INSTRUMENT, instrumentId), frame);
+        }
+
+        final long orderId = orderIdDecoder.decodeOrderId(buffer, offset);
+        if(orderId != OrderIdDecoder.NO_ORDER){
+            post(key(KEY_ORDER, orderId), frame);
+        }
+
+        final long bucket = timestampNanos / bucketNanos;
+        if(bucket != lastBucket){
+            post(key(KEY_TIME_BUCKET, bucket), frame);
+            lastBucket = bucket;
+        }
+
+        frameCount += 1;
+        index.putIntOrdered(FRAME_COUNT_OFFSET, frameCount);
+        framesIndexed += 1;
+    }
+
+    private void post(final long key, final int frame){
+        final int mask = slotCount - 1;
+        int slot = Hashing.hash(key, mask);
+        int slotOffset;
+        while(true){
+            slotOffset = slotsOffset() + slot * SLOT_LENGTH;
+            final long slotKey = index.getLong(slotOffset + SLOT_KEY_OFFSET);
+            if(slotKey == key){
+                break;
+            }
+            if(slotKey == 0){
+                index.putLong(slotOffset + SLOT_KEY_OFFSET, key);
+                usedSlots += 1;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        final int posting = postingCount;
+        final int postingOffset = postingsOffset(slotCount, frameCapacity) + posting * POSTING_LENGTH;
+        index.putInt(postingOffset + POSTING_FRAME_OFFSET, frame);
+        index.putInt(postingOffset + POSTING_PREVIOUS_OFFSET, index.getInt(slotOffset + SLOT_HEAD_OFFSET));
+        postingCount += 1;
+
+        index.putInt(slotOffset + SLOT_HEAD_OFFSET, posting + 1);
+        index.putInt(slotOffset + SLOT_POSTINGS_OFFSET, index.getInt(slotOffset + SLOT_POSTINGS_OFFSET) + 1);
+    }
+
+    /**
+     * Indexes a journal that was written without an index, or rebuilds one, replacing any index files already there.
+     *
+     * @return the number of frames read
+     */
+    public static long rebuild(final File directory, final int segmentLength){
+        final JournalReader reader = new JournalReader(directory);
+        long count = 0;
+        try (JournalIndexWriter writer = new JournalIndexWriter(directory, segmentLength)) {
+            for (File segment : JournalDescriptor.segmentFiles(directory)) {
+                writer.roll(JournalDescriptor.baseSequenceNumber(segment));
+                count += reader.readSegment(segment, (frame, timestampNanos) ->
+                        writer.index(frame, 0, frame.capacity(), reader.recordPosition(), timestampNanos));
+            }
+        }
+        return count;
+    }
+
+    public long getFramesIndexed(){
+        return framesIndexed;
+    }
+
+    /**
+     * @return frames left to be scanned because the index of their segment was full
+     */
+    public long getFramesUnindexed(){
+        return framesUnindexed;
+    }
+
+    public void force(){
+        if(mappedIndex != null){
+            mappedIndex.force();
+        }
+    }
+
+    private void unmapIndex(){
+        if(mappedIndex != null){
+            IoUtil.unmap(mappedIndex);
+            mappedIndex = null;
+            index.wrap(0, 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        unmapIndex();
+    }
+}
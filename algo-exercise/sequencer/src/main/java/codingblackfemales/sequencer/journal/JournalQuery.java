@@ -0,0 +1,96 @@
+package codingblackfemales.sequencer.journal;
+
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+
+import java.io.File;
+import java.io.PrintStream;
+
+/**
+ * Command line front end to {@link JournalIndex}, prints one line per frame found and how long the lookup took.
+ *
+ * Run from the command line with: journalDirectory followed by one of
+ *   order orderId
+ *   instrument instrumentId [fromSeq toSeq]
+ *   type schemaId templateId [fromSeq toSeq]
+ *   seq fromSeq toSeq
+ *   time fromEpochNanos toEpochNanos
+ *   rebuild [segmentLength]
+ */
+public class JournalQuery implements JournalRecordHandler {
+
+    private final PrintStream out;
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+
+    public JournalQuery(final PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void onRecord(final DirectBuffer frame, final long timestampNanos) {
+        header.wrap(frame, 0);
+        out.println("seq=" + header.sequencerNumber()
+                + " capturedAt=" + timestampNanos
+                + " schemaId=" + header.schemaId()
+                + " templateId=" + header.templateId()
+                + " correlationId=" + header.correlationId()
+                + " length=" + frame.capacity());
+    }
+
+    /**
+     * @return the number of frames found, or of frames indexed for rebuild
+     */
+    public long run(final String... args){
+        if(args.length < 2){
+            throw new IllegalArgumentException("Usage: journalDirectory order|instrument|type|seq|time|rebuild ...");
+        }
+
+        final File directory = new File(args[0]);
+        final String command = args[1];
+
+        if("rebuild".equals(command)){
+            final int segmentLength = args.length > 2 ? Integer.parseInt(args[2]) : JournalDescriptor.DEFAULT_SEGMENT_LENGTH;
+            final long indexed = JournalIndexWriter.rebuild(directory, segmentLength);
+            out.println("indexed " + indexed + " frames");
+            return indexed;
+        }
+
+        try (JournalIndex index = new JournalIndex(directory)) {
+            final long start = System.nanoTime();
+            final long found;
+            switch (command){
+                case "order":
+                    found = index.forOrder(Long.parseLong(args[2]), this);
+                    break;
+                case "instrument":
+                    found = index.forInstrument(Long.parseLong(args[2]), from(args, 3), to(args, 4), this);
+                    break;
+                case "type":
+                    found = index.forMessageType(Integer.parseInt(args[2]), Integer.parseInt(args[3]), from(args, 4), to(args, 5), this);
+                    break;
+                case "seq":
+                    found = index.forSequenceRange(Long.parseLong(args[2]), Long.parseLong(args[3]), this);
+                    break;
+                case "time":
+                    found = index.forTimeRange(Long.parseLong(args[2]), Long.parseLong(args[3]), this);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown query command=[" + command + "]");
+            }
+            out.println(found + " frames in " + (System.nanoTime() - start) / 1000 + "us");
+            return found;
+        }
+    }
+
+    private static long from(final String[] args, final int i){
+        return args.length > i ? Long.parseLong(args[i]) : 0;
+    }
+
+    private static long to(final String[] args, final int i){
+        return args.length > i ? Long.parseLong(args[i]) : Long.MAX_VALUE;
+    }
+
+    public static void main(String[] args) {
+        new JournalQuery(System.out).run(args);
+    }
+}
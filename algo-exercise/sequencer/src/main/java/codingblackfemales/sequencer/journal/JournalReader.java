@@ -0,0 +1,75 @@
+package codingblackfemales.sequencer.journal;
+
+import codingblackfemales.sequencer.net.Consumer;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static codingblackfemales.sequencer.journal.JournalDescriptor.LENGTH_OFFSET;
+import static codingblackfemales.sequencer.journal.JournalDescriptor.RECORD_HEADER_LENGTH;
+import static codingblackfemales.sequencer.journal.JournalDescriptor.TIMESTAMP_OFFSET;
+import static codingblackfemales.sequencer.journal.JournalDescriptor.recordLength;
+
+/**
+ * Reads the frames of a journal back in the order they were written, by mapping each segment read only.
+ * Frames are handed out as a view over the mapped segment, so the same lifetime rules as a network apply.
+ */
+public class JournalReader {
+
+    private final File directory;
+
+    private final UnsafeBuffer segment = new UnsafeBuffer(0, 0);
+    private final UnsafeBuffer frame = new UnsafeBuffer(0, 0);
+    private int recordPosition;
+
+    public JournalReader(final File directory) {
+        this.directory = directory;
+    }
+
+    public long read(final Consumer consumer){
+        return read((frame, timestampNanos) -> consumer.onMessage(frame));
+    }
+
+    public long read(final JournalRecordHandler handler){
+        long count = 0;
+        for (File segmentFile : JournalDescriptor.segmentFiles(directory)) {
+            count += readSegment(segmentFile, handler);
+        }
+        return count;
+    }
+
+    /**
+     * @return where the record being handed out starts in its segment
+     */
+    public int recordPosition(){
+        return recordPosition;
+    }
+
+    public long readSegment(final File segmentFile, final JournalRecordHandler handler){
+        final MappedByteBuffer mapped = IoUtil.mapExistingFile(segmentFile, FileChannel.MapMode.READ_ONLY, "journal segment");
+        try {
+            segment.wrap(mapped);
+            long count = 0;
+            int position = 0;
+            while(position + RECORD_HEADER_LENGTH <= segment.capacity()){
+                final int length = segment.getIntVolatile(position + LENGTH_OFFSET);
+                if(length <= 0){
+                    break;
+                }
+                frame.wrap(segment, position + RECORD_HEADER_LENGTH, length);
+                recordPosition = position;
+                handler.onRecord(frame, segment.getLong(position + TIMESTAMP_OFFSET));
+                position += recordLength(length);
+                count += 1;
+            }
+            return count;
+        } finally {
+            segment.wrap(0, 0);
+            frame.wrap(0, 0);
+            IoUtil.unmap(mapped);
+        }
+    }
+}
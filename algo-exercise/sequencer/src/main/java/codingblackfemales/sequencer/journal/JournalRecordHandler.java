@@ -0,0 +1,7 @@
+package codingblackfemales.sequencer.journal;
+
+import org.agrona.DirectBuffer;
+
+public interface JournalRecordHandler {
+    public void onRecord(final DirectBuffer frame, final long timestampNanos);
+}
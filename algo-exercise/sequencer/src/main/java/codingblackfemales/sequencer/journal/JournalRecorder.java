@@ -0,0 +1,33 @@
+package codingblackfemales.sequencer.journal;
+
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import org.agrona.DirectBuffer;
+
+/**
+ * Consumer that records every frame it is handed into a journal, add it to a network to capture a session
+ * for later replay with {@link JournalReplayer}.
+ */
+public class JournalRecorder implements Consumer, AutoCloseable {
+
+    private final JournalWriter writer;
+    private final MessageLengthDecoder lengthDecoder = new MessageLengthDecoder();
+
+    public JournalRecorder(final JournalWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer) {
+        writer.append(buffer, 0, lengthDecoder.decodeLength(buffer, 0));
+    }
+
+    public JournalWriter getWriter(){
+        return writer;
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+}
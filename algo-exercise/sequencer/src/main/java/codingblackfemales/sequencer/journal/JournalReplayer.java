@@ -0,0 +1,129 @@
+package codingblackfemales.sequencer.journal;
+
+import codingblackfemales.sequencer.net.Network;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * Replays a journal into a network, frames are dispatched as they were recorded (sequence numbers included)
+ * rather than being sequenced again.
+ *
+ * MAX_SPEED pushes frames as fast as the consumers take them, WALL_CLOCK keeps the gaps between frames the same
+ * as they were when recorded. Replay can start from any sequence number, whole segments before it are skipped
+ * without being mapped, and can be limited to a single schema (e.g. market data only, so the orders an algo
+ * sent in the recording are not replayed on top of the ones it sends now).
+ */
+public class JournalReplayer implements JournalRecordHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalReplayer.class);
+
+    public static final int ALL_SCHEMAS = -1;
+
+    public enum Pacing {
+        MAX_SPEED,
+        WALL_CLOCK
+    }
+
+    private final File directory;
+    private final JournalReader reader;
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+
+    private Pacing pacing = Pacing.MAX_SPEED;
+    private long fromSequenceNumber = 0;
+    private int schemaId = ALL_SCHEMAS;
+
+    private Network network;
+    private long firstTimestampNanos;
+    private long startNanos;
+    private long messagesReplayed;
+    private long elapsedNanos;
+
+    public JournalReplayer(final File directory) {
+        this.directory = directory;
+        this.reader = new JournalReader(directory);
+    }
+
+    public JournalReplayer pacing(final Pacing pacing){
+        this.pacing = pacing;
+        return this;
+    }
+
+    public JournalReplayer fromSequenceNumber(final long fromSequenceNumber){
+        this.fromSequenceNumber = fromSequenceNumber;
+        return this;
+    }
+
+    public JournalReplayer schemaId(final int schemaId){
+        this.schemaId = schemaId;
+        return this;
+    }
+
+    public long replay(final Network network){
+        this.network = network;
+        this.firstTimestampNanos = Long.MIN_VALUE;
+        this.messagesReplayed = 0;
+        this.startNanos = System.nanoTime();
+
+        final File[] segments = JournalDescriptor.segmentFiles(directory);
+        for (int i = 0; i < segments.length; i++) {
+            if(i + 1 < segments.length && JournalDescriptor.baseSequenceNumber(segments[i + 1]) <= fromSequenceNumber){
+                continue;
+            }
+            reader.readSegment(segments[i], this);
+        }
+
+        this.elapsedNanos = System.nanoTime() - startNanos;
+        this.network = null;
+
+        logger.info("[JOURNAL] Replayed " + messagesReplayed + " messages in " + elapsedNanos / 1_000_000 + "ms (" + (long) getMessagesPerSecond() + " msgs/sec)");
+
+        return messagesReplayed;
+    }
+
+    @Override
+    public void onRecord(final DirectBuffer frame, final long timestampNanos) {
+        header.wrap(frame, 0);
+
+        if(header.sequencerNumber() < fromSequenceNumber){
+            return;
+        }
+
+        if(schemaId != ALL_SCHEMAS && header.schemaId() != schemaId){
+            return;
+        }
+
+        if(pacing == Pacing.WALL_CLOCK){
+            awaitRecordedTime(timestampNanos);
+        }
+
+        network.dispatch(frame);
+        messagesReplayed += 1;
+    }
+
+    private void awaitRecordedTime(final long timestampNanos){
+        if(firstTimestampNanos == Long.MIN_VALUE){
+            firstTimestampNanos = timestampNanos;
+            return;
+        }
+        final long dueNanos = startNanos + (timestampNanos - firstTimestampNanos);
+        while(System.nanoTime() < dueNanos){
+            Thread.onSpinWait();
+        }
+    }
+
+    public long getMessagesReplayed(){
+        return messagesReplayed;
+    }
+
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    public double getMessagesPerSecond(){
+        return elapsedNanos == 0 ? 0 : messagesReplayed * 1_000_000_000d / elapsedNanos;
+    }
+}
@@ -0,0 +1,158 @@
+package codingblackfemales.sequencer.journal;
+
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.EpochNanoClock;
+import org.agrona.concurrent.SystemEpochNanoClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+import static codingblackfemales.sequencer.journal.JournalDescriptor.LENGTH_OFFSET;
+import static codingblackfemales.sequencer.journal.JournalDescriptor.RECORD_HEADER_LENGTH;
+import static codingblackfemales.sequencer.journal.JournalDescriptor.TIMESTAMP_OFFSET;
+import static codingblackfemales.sequencer.journal.JournalDescriptor.recordLength;
+import static codingblackfemales.sequencer.journal.JournalDescriptor.segmentFileName;
+import static java.lang.String.format;
+
+/**
+ * Appends sequenced frames to memory mapped journal segments, see {@link JournalDescriptor} for the layout.
+ *
+ * An append is one copy from the frame into the mapped segment, there are no system calls apart from mapping
+ * a new segment when the current one is full. The frame is written before its length, so a reader mapping
+ * the same file never sees a half written record. Writes land in the page cache, so they survive the process
+ * dying, call {@link #force()} (off the hot path) to make them survive the machine dying too.
+ *
+ * With a {@link JournalIndexWriter} set, each append is also indexed into a sidecar file next to its segment.
+ *
+ * Single writer, not thread safe.
+ */
+public class JournalWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalWriter.class);
+
+    private final File directory;
+    private final int segmentLength;
+    private final EpochNanoClock clock;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final UnsafeBuffer segment = new UnsafeBuffer(0, 0);
+
+    private MappedByteBuffer mappedSegment;
+    private File segmentFile;
+    private int position;
+    private long appended = 0;
+    private JournalIndexWriter indexWriter;
+
+    public JournalWriter(final File directory) {
+        this(directory, JournalDescriptor.DEFAULT_SEGMENT_LENGTH);
+    }
+
+    public JournalWriter(final File directory, final int segmentLength) {
+        this(directory, segmentLength, new SystemEpochNanoClock());
+    }
+
+    public JournalWriter(final File directory, final int segmentLength, final EpochNanoClock clock) {
+        this.directory = directory;
+        this.segmentLength = segmentLength;
+        this.clock = clock;
+        IoUtil.ensureDirectoryExists(directory, "journal");
+    }
+
+    public void append(final DirectBuffer buffer, final int offset, final int length){
+        append(buffer, offset, length, clock.nanoTime());
+    }
+
+    public void append(final DirectBuffer buffer, final int offset, final int length, final long timestampNanos){
+
+        final int recordLength = recordLength(length);
+
+        if(recordLength > segmentLength){
+            throw new IllegalStateException(format("Frame too large for journal segment length=[%s] segmentLength=[%s]", length, segmentLength));
+        }
+
+        if(mappedSegment == null || position + recordLength > segmentLength){
+            header.wrap(buffer, offset);
+            roll(header.sequencerNumber());
+        }
+
+        segment.putBytes(position + RECORD_HEADER_LENGTH, buffer, offset, length);
+        segment.putLong(position + TIMESTAMP_OFFSET, timestampNanos);
+        segment.putIntOrdered(position + LENGTH_OFFSET, length);
+
+        if(indexWriter != null){
+            indexWriter.index(buffer, offset, length, position, timestampNanos);
+        }
+
+        position += recordLength;
+        appended += 1;
+    }
+
+    /**
+     * @param indexWriter indexes every frame appended from the next segment on, set it before the first append
+     *                    to have the whole journal indexed
+     */
+    public void setIndexWriter(final JournalIndexWriter indexWriter){
+        this.indexWriter = indexWriter;
+    }
+
+    public JournalIndexWriter getIndexWriter(){
+        return indexWriter;
+    }
+
+    public long appended(){
+        return appended;
+    }
+
+    public File currentSegment(){
+        return segmentFile;
+    }
+
+    public int position(){
+        return position;
+    }
+
+    public void force(){
+        if(mappedSegment != null){
+            mappedSegment.force();
+        }
+        if(indexWriter != null){
+            indexWriter.force();
+        }
+    }
+
+    private void roll(final long baseSequenceNumber){
+        unmapSegment();
+
+        segmentFile = new File(directory, segmentFileName(baseSequenceNumber));
+        mappedSegment = IoUtil.mapNewFile(segmentFile, segmentLength, false);
+        segment.wrap(mappedSegment);
+        position = 0;
+
+        if(indexWriter != null){
+            indexWriter.roll(baseSequenceNumber);
+        }
+
+        logger.info("[JOURNAL] Rolled to segment " + segmentFile);
+    }
+
+    private void unmapSegment(){
+        if(mappedSegment != null){
+            IoUtil.unmap(mappedSegment);
+            mappedSegment = null;
+            segment.wrap(0, 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        unmapSegment();
+        if(indexWriter != null){
+            indexWriter.close();
+        }
+    }
+}
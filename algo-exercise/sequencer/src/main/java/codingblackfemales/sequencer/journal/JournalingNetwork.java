@@ -0,0 +1,46 @@
+package codingblackfemales.sequencer.journal;
+
+import codingblackfemales.sequencer.net.FrameBatch;
+import codingblackfemales.sequencer.net.Network;
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import org.agrona.DirectBuffer;
+
+/**
+ * Decorates a network so every sequenced frame is appended to a journal before it is dispatched. A batch is
+ * journaled in full before any of it is dispatched.
+ */
+public class JournalingNetwork implements Network, AutoCloseable {
+
+    private final Network network;
+    private final JournalWriter writer;
+    private final MessageLengthDecoder lengthDecoder = new MessageLengthDecoder();
+
+    public JournalingNetwork(final Network network, final JournalWriter writer) {
+        this.network = network;
+        this.writer = writer;
+    }
+
+    @Override
+    public void dispatch(final DirectBuffer buffer) {
+        writer.append(buffer, 0, lengthDecoder.decodeLength(buffer, 0));
+        network.dispatch(buffer);
+    }
+
+    @Override
+    public void dispatchBatch(final FrameBatch batch) {
+        batch.reset();
+        while(batch.next()){
+            writer.append(batch.frame(), 0, batch.frame().capacity());
+        }
+        network.dispatchBatch(batch);
+    }
+
+    public JournalWriter getWriter(){
+        return writer;
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+}
@@ -0,0 +1,112 @@
+package codingblackfemales.sequencer.metrics;
+
+import java.util.Arrays;
+
+import static java.lang.String.format;
+
+/**
+ * Fixed size, log linear histogram of nanosecond latencies, in the style of HdrHistogram.
+ *
+ * Values below 128 are counted exactly, above that each power of two is split into 64 buckets, so a recorded
+ * value is out by at most 1/64 (~1.6%) of itself. The counts array covers every positive long up front, so
+ * recording never allocates or resizes.
+ *
+ * Single writer. Reading from another thread (periodic dumps) gives an approximate view, call {@link #copyInto}
+ * from the writer's thread if an exact snapshot is needed.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    private static final int COUNTS_LENGTH = indexFor(Long.MAX_VALUE) + 1;
+
+    private final long[] counts = new long[COUNTS_LENGTH];
+    private long totalCount = 0;
+    private long totalValue = 0;
+    private long minValue = Long.MAX_VALUE;
+    private long maxValue = 0;
+
+    static int indexFor(final long value){
+        if(value < SUB_BUCKET_COUNT){
+            return (int) value;
+        }
+        final int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        return (shift * SUB_BUCKET_HALF_COUNT) + (int) (value >>> shift);
+    }
+
+    static long highestValueAt(final int index){
+        if(index < SUB_BUCKET_COUNT){
+            return index;
+        }
+        final int shift = (index / SUB_BUCKET_HALF_COUNT) - 1;
+        final long mantissa = index - ((long) shift * SUB_BUCKET_HALF_COUNT);
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public void record(final long valueNanos){
+        final long value = Math.max(0, valueNanos);
+        counts[indexFor(value)]++;
+        totalCount++;
+        totalValue += value;
+        minValue = Math.min(minValue, value);
+        maxValue = Math.max(maxValue, value);
+    }
+
+    /**
+     * @param percentile 0 to 100, e.g. 99.9
+     * @return the highest value the bucket holding that percentile can contain, 0 when nothing is recorded
+     */
+    public long valueAtPercentile(final double percentile){
+        if(totalCount == 0){
+            return 0;
+        }
+        final long countAtPercentile = Math.max(1, (long) Math.ceil((Math.min(percentile, 100.0) / 100.0) * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= countAtPercentile){
+                return Math.min(highestValueAt(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    public long getTotalCount(){
+        return totalCount;
+    }
+
+    public long getMinValue(){
+        return totalCount == 0 ? 0 : minValue;
+    }
+
+    public long getMaxValue(){
+        return maxValue;
+    }
+
+    public double getMean(){
+        return totalCount == 0 ? 0 : (double) totalValue / totalCount;
+    }
+
+    public void copyInto(final LatencyHistogram target){
+        System.arraycopy(counts, 0, target.counts, 0, counts.length);
+        target.totalCount = totalCount;
+        target.totalValue = totalValue;
+        target.minValue = minValue;
+        target.maxValue = maxValue;
+    }
+
+    public void reset(){
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        totalValue = 0;
+        minValue = Long.MAX_VALUE;
+        maxValue = 0;
+    }
+
+    @Override
+    public String toString() {
+        return format("count=%d min=%d p50=%d p99=%d p99.9=%d max=%d mean=%.1f (ns)",
+                totalCount, getMinValue(), valueAtPercentile(50), valueAtPercentile(99), valueAtPercentile(99.9), maxValue, getMean());
+    }
+}
@@ -0,0 +1,69 @@
+package codingblackfemales.sequencer.metrics;
+
+import codingblackfemales.sequencer.net.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the latency stages of one pipeline, with a text report that can be logged periodically.
+ *
+ * Stages are created when the pipeline is wired up, recording into them is allocation free.
+ */
+public class LatencyMetrics implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyMetrics.class);
+
+    public static final String SEQUENCING = "sequencing";
+    public static final String ALGO_EVALUATE = "algo.evaluate";
+    public static final String ACTIONER_PROCESS_ACTION = "actioner.processAction";
+
+    private final Map<String, LatencyStage> stages = new LinkedHashMap<>();
+    private ScheduledExecutorService reporter;
+
+    public synchronized LatencyStage stage(final String name){
+        return stages.computeIfAbsent(name, LatencyStage::new);
+    }
+
+    public TimedConsumer timed(final String name, final Consumer consumer){
+        return new TimedConsumer(consumer, stage(name));
+    }
+
+    public synchronized Collection<LatencyStage> getStages(){
+        return stages.values();
+    }
+
+    public synchronized String report(){
+        final StringBuilder report = new StringBuilder();
+        for (LatencyStage stage : stages.values()) {
+            report.append(stage.getName()).append(' ').append(stage.getHistogram()).append('\n');
+            stage.forEachMessage((key, histogram) -> report.append("    schema=").append(key >>> 32)
+                    .append(" template=").append(key & 0xFFFF_FFFFL)
+                    .append(' ').append(histogram).append('\n'));
+        }
+        return report.toString();
+    }
+
+    public void startReporting(final long period, final TimeUnit unit){
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "latency-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> logger.info("[LATENCY]\n" + report()), period, period, unit);
+    }
+
+    @Override
+    public void close() {
+        if(reporter != null){
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package codingblackfemales.sequencer.metrics;
+
+import codingblackfemales.sequencer.net.MessageRouter;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongObjConsumer;
+
+/**
+ * Latencies for one stage of the pipeline (sequencing, a consumer, the algo), overall and per message type.
+ * The histogram for a message type is created the first time it is recorded, after that recording does not
+ * allocate.
+ *
+ * The map of message types is copied on write and published whole, so a reporter on another thread can walk it
+ * while the recording thread adds a type it hasn't seen before.
+ */
+public class LatencyStage {
+
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private volatile Long2ObjectHashMap<LatencyHistogram> byMessage = new Long2ObjectHashMap<>();
+
+    public LatencyStage(final String name) {
+        this.name = name;
+    }
+
+    public void record(final long nanos){
+        histogram.record(nanos);
+    }
+
+    public void record(final int schemaId, final int templateId, final long nanos){
+        histogram.record(nanos);
+        final long key = MessageRouter.routeKey(schemaId, templateId);
+        LatencyHistogram messageHistogram = byMessage.get(key);
+        if(messageHistogram == null){
+            messageHistogram = addMessage(key);
+        }
+        messageHistogram.record(nanos);
+    }
+
+    private synchronized LatencyHistogram addMessage(final long key){
+        final LatencyHistogram existing = byMessage.get(key);
+        if(existing != null){
+            return existing;
+        }
+        final Long2ObjectHashMap<LatencyHistogram> copy = new Long2ObjectHashMap<>(byMessage);
+        final LatencyHistogram messageHistogram = new LatencyHistogram();
+        copy.put(key, messageHistogram);
+        byMessage = copy;
+        return messageHistogram;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public LatencyHistogram getHistogram(){
+        return histogram;
+    }
+
+    /**
+     * @return the histogram for one message type, null if none of that type have been recorded
+     */
+    public LatencyHistogram getHistogram(final int schemaId, final int templateId){
+        return byMessage.get(MessageRouter.routeKey(schemaId, templateId));
+    }
+
+    /**
+     * @param action called with the schemaId and templateId packed by {@link MessageRouter#routeKey} and the histogram
+     */
+    public void forEachMessage(final LongObjConsumer<LatencyHistogram> action){
+        byMessage.longForEach(action);
+    }
+
+    public void reset(){
+        histogram.reset();
+        byMessage.values().forEach(LatencyHistogram::reset);
+    }
+}
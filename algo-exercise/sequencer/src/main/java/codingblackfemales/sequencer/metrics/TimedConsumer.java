@@ -0,0 +1,75 @@
+package codingblackfemales.sequencer.metrics;
+
+import codingblackfemales.sequencer.SequencerComponent;
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.net.FrameBatch;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+
+/**
+ * Times a consumer's onMessage per message type. The time includes anything the consumer sequences while it
+ * handles the message, since that is dispatched before its onMessage returns.
+ *
+ * A batch is timed as a whole, against the stage rather than a message type.
+ *
+ * Passes the consumer's message requirements through, so wrapping a component doesn't change its routing.
+ */
+public class TimedConsumer implements Consumer, SequencerComponent {
+
+    private final Consumer consumer;
+    private final LatencyStage stage;
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+
+    public TimedConsumer(final Consumer consumer, final LatencyStage stage) {
+        this.consumer = consumer;
+        this.stage = stage;
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer) {
+        header.wrap(buffer, 0);
+        onMessage(buffer, header);
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+        //read before the call, a nested dispatch can move the header on
+        final int schemaId = header.schemaId();
+        final int templateId = header.templateId();
+        final long start = System.nanoTime();
+        consumer.onMessage(buffer, header);
+        stage.record(schemaId, templateId, System.nanoTime() - start);
+    }
+
+    @Override
+    public void onBatch(final FrameBatch batch) {
+        final long start = System.nanoTime();
+        consumer.onBatch(batch);
+        stage.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void onDrained() {
+        consumer.onDrained();
+    }
+
+    @Override
+    public void requireMessage(final int schemaId, final int templateId) {
+        if(consumer instanceof SequencerComponent){
+            ((SequencerComponent) consumer).requireMessage(schemaId, templateId);
+        }
+    }
+
+    @Override
+    public boolean isMessageRequired(final int schemaId, final int templateId) {
+        return !(consumer instanceof SequencerComponent) || ((SequencerComponent) consumer).isMessageRequired(schemaId, templateId);
+    }
+
+    public Consumer getConsumer(){
+        return consumer;
+    }
+
+    public LatencyStage getStage(){
+        return stage;
+    }
+}
@@ -0,0 +1,21 @@
+package codingblackfemales.sequencer.net;
+
+/**
+ * What a {@link RingBufferNetwork} does when a consumer thread has fallen a full buffer behind.
+ */
+public enum BackPressurePolicy {
+    /**
+     * The publisher waits for the consumer, nothing is lost. For consumers the trading loop depends on.
+     */
+    BLOCK,
+    /**
+     * The oldest frame the consumer has not started on is dropped to make room.
+     */
+    DROP_OLDEST,
+    /**
+     * A book update replaces the consumer's last pending book update for the same instrument when it covers it, a
+     * full book any book and a side the same side, so it only ever sees the latest book and never an older one after
+     * a newer one. Anything else is queued, and dropped oldest first if the consumer is still full.
+     */
+    CONFLATE
+}
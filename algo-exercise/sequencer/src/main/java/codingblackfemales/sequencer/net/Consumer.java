@@ -1,7 +1,42 @@
 package codingblackfemales.sequencer.net;
 
+import messages.marketdata.MessageHeaderDecoder;
 import org.agrona.DirectBuffer;
 
 public interface Consumer {
+
+    /**
+     * @param buffer a sequenced frame, only valid until this call returns. The sequencer re-uses the
+     *               underlying memory for later messages, so copy it if it needs to outlive the call.
+     */
     public void onMessage(final DirectBuffer buffer);
+
+    /**
+     * Called by networks that have already decoded the header to route the frame, override it to skip
+     * decoding the header again.
+     *
+     * @param header the header of the frame, already wrapped at offset 0 of the buffer
+     */
+    public default void onMessage(final DirectBuffer buffer, final MessageHeaderDecoder header){
+        onMessage(buffer);
+    }
+
+    /**
+     * Called by networks that dispatch a block of frames at once, with the batch positioned before its first
+     * frame. Override it to look at the whole block before acting on it, e.g. to skip updates a later frame
+     * in the same batch replaces. The default hands the frames to {@link #onMessage(DirectBuffer, MessageHeaderDecoder)}
+     * one at a time.
+     */
+    public default void onBatch(final FrameBatch batch){
+        while(batch.next()){
+            onMessage(batch.frame(), batch.header());
+        }
+    }
+
+    /**
+     * Called once the network has handed over every frame it had waiting, e.g. after a ring buffer read or a
+     * batch, so a consumer can act once on the state the whole drain left behind rather than on every frame.
+     */
+    public default void onDrained(){
+    }
 }
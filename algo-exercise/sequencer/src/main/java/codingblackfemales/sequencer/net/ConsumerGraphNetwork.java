@@ -0,0 +1,143 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * A network where consumers are arranged as a graph of stages over one shared ring of sequenced frames,
+ * disruptor style. The frame is copied onto the ring once and every stage reads it in place on its own thread.
+ *
+ * Stages with no dependencies (logging, UI publishing, market data) run in parallel with each other, a stage
+ * declared {@link ConsumerStage#after} others only sees a frame once they have all finished with it, e.g.
+ *
+ *   marketData = network.addStage("market-data", idle, marketDataService);
+ *   orders = network.addStage("orders", idle, orderService);
+ *   algo = network.addStage("algo", idle, container).after(marketData, orders);
+ *   marketData.boundedBy(algo, 1); orders.boundedBy(algo, 1);
+ *
+ * Single publisher, dispatch must only be called from the sequencer's thread. A stage that calls back into the
+ * sequencer needs it to be safe to call from that stage's thread. The publisher waits with the publish idle
+ * strategy when the slowest stage is a whole ring behind.
+ */
+public class ConsumerGraphNetwork implements Network, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerGraphNetwork.class);
+
+    public static final int DEFAULT_SLOTS = 4096;
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024;
+
+    private final int mask;
+    private final int maxFrameLength;
+    private final UnsafeBuffer ring;
+    private final int[] lengths;
+    private final IdleStrategy publishIdleStrategy;
+    private final MessageLengthDecoder lengthDecoder = new MessageLengthDecoder();
+
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private long cachedGatingSequence = -1;
+
+    private final List<ConsumerStage> stages = new ArrayList<>();
+    private final List<AgentRunner> runners = new ArrayList<>();
+
+    public ConsumerGraphNetwork() {
+        this(DEFAULT_SLOTS, DEFAULT_MAX_FRAME_LENGTH, new YieldingIdleStrategy());
+    }
+
+    public ConsumerGraphNetwork(final int slots, final int maxFrameLength, final IdleStrategy publishIdleStrategy) {
+        if(!BitUtil.isPowerOfTwo(slots)){
+            throw new IllegalArgumentException(format("Slots must be a power of two slots=[%s]", slots));
+        }
+        this.mask = slots - 1;
+        this.maxFrameLength = maxFrameLength;
+        this.ring = new UnsafeBuffer(ByteBuffer.allocateDirect(slots * maxFrameLength));
+        this.lengths = new int[slots];
+        this.publishIdleStrategy = publishIdleStrategy;
+    }
+
+    public ConsumerStage addStage(final String name, final IdleStrategy idleStrategy, final Consumer... consumers){
+        final ConsumerStage stage = new ConsumerStage(name, idleStrategy, this);
+        for (Consumer consumer : consumers) {
+            stage.addConsumer(consumer);
+        }
+        stages.add(stage);
+        return stage;
+    }
+
+    public List<ConsumerStage> getStages(){
+        return stages;
+    }
+
+    public void start(){
+        for (ConsumerStage stage : stages) {
+            final AgentRunner runner = new AgentRunner(stage.idleStrategy(),
+                    throwable -> logger.error("[NETWORK] Stage " + stage.roleName() + " failed", throwable),
+                    null, stage);
+            runners.add(runner);
+            AgentRunner.startOnThread(runner);
+        }
+    }
+
+    @Override
+    public void dispatch(final DirectBuffer buffer) {
+        final int length = lengthDecoder.decodeLength(buffer, 0);
+
+        if(length > maxFrameLength){
+            throw new IllegalStateException(format("Frame too large for ring slot length=[%s] maxFrameLength=[%s]", length, maxFrameLength));
+        }
+
+        final long next = cursor.get() + 1;
+        final long wrapPoint = next - lengths.length;
+
+        if(wrapPoint > cachedGatingSequence){
+            publishIdleStrategy.reset();
+            while(wrapPoint > (cachedGatingSequence = minimumStageSequence())){
+                publishIdleStrategy.idle();
+            }
+        }
+
+        final int slot = (int) (next & mask);
+        ring.putBytes(slot * maxFrameLength, buffer, 0, length);
+        lengths[slot] = length;
+
+        cursor.lazySet(next);
+    }
+
+    long cursor(){
+        return cursor.get();
+    }
+
+    void wrapFrame(final UnsafeBuffer frame, final long sequence){
+        final int slot = (int) (sequence & mask);
+        frame.wrap(ring, slot * maxFrameLength, lengths[slot]);
+    }
+
+    private long minimumStageSequence(){
+        long minimum = cursor.get();
+        for (int i = 0; i < stages.size(); i++) {
+            minimum = Math.min(minimum, stages.get(i).sequence());
+        }
+        return minimum;
+    }
+
+    @Override
+    public void close() {
+        for (AgentRunner runner : runners) {
+            runner.close();
+        }
+        runners.clear();
+    }
+}
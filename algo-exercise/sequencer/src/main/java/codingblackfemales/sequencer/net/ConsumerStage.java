@@ -0,0 +1,110 @@
+package codingblackfemales.sequencer.net;
+
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One stage of a {@link ConsumerGraphNetwork}, a thread that hands each frame on the shared ring to its
+ * consumers and then publishes how far it has got.
+ *
+ * A stage only reads frames every stage it runs {@link #after} has finished with, and can be held to at most
+ * window frames ahead of a downstream stage with {@link #boundedBy}, for stages that mutate state a later stage
+ * reads (the later stage has to be done with frame N before the state moves on to N + 1).
+ */
+public class ConsumerStage implements Agent {
+
+    private final String name;
+    private final IdleStrategy idleStrategy;
+    private final ConsumerGraphNetwork network;
+    private final MessageRouter router = new MessageRouter();
+    private final UnsafeBuffer frame = new UnsafeBuffer(0, 0);
+
+    private final AtomicLong sequence = new AtomicLong(-1);
+
+    private ConsumerStage[] dependencies = new ConsumerStage[0];
+    private ConsumerStage[] boundStages = new ConsumerStage[0];
+    private long[] boundWindows = new long[0];
+
+    ConsumerStage(final String name, final IdleStrategy idleStrategy, final ConsumerGraphNetwork network) {
+        this.name = name;
+        this.idleStrategy = idleStrategy;
+        this.network = network;
+    }
+
+    public ConsumerStage addConsumer(final Consumer consumer){
+        router.addConsumer(consumer);
+        return this;
+    }
+
+    public ConsumerStage after(final ConsumerStage... upstream){
+        final int existing = dependencies.length;
+        dependencies = Arrays.copyOf(dependencies, existing + upstream.length);
+        System.arraycopy(upstream, 0, dependencies, existing, upstream.length);
+        return this;
+    }
+
+    public ConsumerStage boundedBy(final ConsumerStage downstream, final long window){
+        boundStages = Arrays.copyOf(boundStages, boundStages.length + 1);
+        boundWindows = Arrays.copyOf(boundWindows, boundWindows.length + 1);
+        boundStages[boundStages.length - 1] = downstream;
+        boundWindows[boundWindows.length - 1] = window;
+        return this;
+    }
+
+    /**
+     * @return the ring sequence of the last frame this stage has finished with, -1 before the first
+     */
+    public long sequence(){
+        return sequence.get();
+    }
+
+    public IdleStrategy idleStrategy(){
+        return idleStrategy;
+    }
+
+    private long availableSequence(){
+        long available;
+        if(dependencies.length == 0){
+            available = network.cursor();
+        }else {
+            available = Long.MAX_VALUE;
+            for (int i = 0; i < dependencies.length; i++) {
+                available = Math.min(available, dependencies[i].sequence());
+            }
+        }
+        for (int i = 0; i < boundStages.length; i++) {
+            available = Math.min(available, boundStages[i].sequence() + boundWindows[i]);
+        }
+        return available;
+    }
+
+    @Override
+    public int doWork() {
+        final long available = availableSequence();
+        long next = sequence.get() + 1;
+        int work = 0;
+
+        while(next <= available){
+            network.wrapFrame(frame, next);
+            router.route(frame);
+            //publish per frame rather than per batch, so downstream stages start on it straight away
+            sequence.lazySet(next);
+            next++;
+            work++;
+        }
+        if(work > 0){
+            router.drained();
+        }
+
+        return work;
+    }
+
+    @Override
+    public String roleName() {
+        return name;
+    }
+}
@@ -0,0 +1,132 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.SequencerComponent;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import static java.lang.String.format;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Flyweight over a contiguous block of frames, so a burst can be handed over in one call instead of one call
+ * per frame.
+ *
+ * Each record is a little endian frame length, padding, then the frame (header + body), padded out to
+ * RECORD_ALIGNMENT so every frame starts 8 byte aligned. {@link FrameBatchBuilder} writes the layout.
+ *
+ * Iterate with {@link #next()}, the current frame is a view at offset 0 and its header is already decoded.
+ * The same lifetime rules as a single frame apply: the views are only valid until the call the batch was
+ * handed to returns. {@link #reset()} goes back to the first frame, so several consumers can walk the same
+ * batch in turn, but not at the same time.
+ */
+public class FrameBatch {
+
+    public static final int LENGTH_OFFSET = 0;
+    public static final int RECORD_HEADER_LENGTH = 8;
+    public static final int RECORD_ALIGNMENT = 8;
+
+    private final UnsafeBuffer frame = new UnsafeBuffer(0, 0);
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+
+    private DirectBuffer buffer;
+    private int offset;
+    private int length;
+    private int frameCount;
+
+    private int position;
+    private int index;
+    private SequencerComponent filter;
+
+    public static int recordLength(final int frameLength){
+        return (RECORD_HEADER_LENGTH + frameLength + (RECORD_ALIGNMENT - 1)) & ~(RECORD_ALIGNMENT - 1);
+    }
+
+    public FrameBatch wrap(final DirectBuffer buffer, final int offset, final int length){
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.frameCount = countFrames();
+        this.filter = null;
+        return reset();
+    }
+
+    /**
+     * Goes back to before the first frame, keeping any filter.
+     */
+    public FrameBatch reset(){
+        position = offset;
+        index = -1;
+        return this;
+    }
+
+    /**
+     * Only frames the component requires are visited until the filter is cleared with null, networks use this to
+     * hand each consumer the part of the batch it asked for, as they do for single frames.
+     */
+    public FrameBatch filter(final SequencerComponent filter){
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * @return true if there is another frame, which is then available from {@link #frame()} and {@link #header()}
+     */
+    public boolean next(){
+        final int limit = offset + length;
+        while(position + RECORD_HEADER_LENGTH <= limit){
+            final int frameLength = buffer.getInt(position + LENGTH_OFFSET, LITTLE_ENDIAN);
+            frame.wrap(buffer, position + RECORD_HEADER_LENGTH, frameLength);
+            position += recordLength(frameLength);
+            header.wrap(frame, 0);
+            if(filter == null || filter.isMessageRequired(header.schemaId(), header.templateId())){
+                index++;
+                return true;
+            }
+        }
+        frame.wrap(0, 0);
+        return false;
+    }
+
+    public DirectBuffer frame(){
+        return frame;
+    }
+
+    public MessageHeaderDecoder header(){
+        return header;
+    }
+
+    /**
+     * @return the position of the current frame among the frames visited since the last reset, with the same
+     *         filter this is stable from one walk to the next
+     */
+    public int index(){
+        return index;
+    }
+
+    /**
+     * @return every frame in the batch, whatever the filter
+     */
+    public int frameCount(){
+        return frameCount;
+    }
+
+    public boolean isEmpty(){
+        return frameCount == 0;
+    }
+
+    private int countFrames(){
+        final int limit = offset + length;
+        int count = 0;
+        int cursor = offset;
+        while(cursor + RECORD_HEADER_LENGTH <= limit){
+            final int frameLength = buffer.getInt(cursor + LENGTH_OFFSET, LITTLE_ENDIAN);
+            if(frameLength <= 0 || cursor + RECORD_HEADER_LENGTH + frameLength > limit){
+                throw new IllegalArgumentException(format("Bad frame in batch frameLength=[%s] offset=[%s]", frameLength, cursor - offset));
+            }
+            cursor += recordLength(frameLength);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,73 @@
+package codingblackfemales.sequencer.net;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+
+import static codingblackfemales.sequencer.net.FrameBatch.LENGTH_OFFSET;
+import static codingblackfemales.sequencer.net.FrameBatch.RECORD_HEADER_LENGTH;
+import static codingblackfemales.sequencer.net.FrameBatch.recordLength;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Copies frames one after another into a re-usable buffer in the {@link FrameBatch} layout. The buffer only
+ * grows, so once it has reached the size of the largest burst building a batch does not allocate.
+ *
+ * Single writer, not thread safe.
+ */
+public class FrameBatchBuilder {
+
+    private final ExpandableDirectByteBuffer buffer;
+    private final FrameBatch batch = new FrameBatch();
+
+    private int position = 0;
+    private int frameCount = 0;
+
+    public FrameBatchBuilder() {
+        this(64 * 1024);
+    }
+
+    public FrameBatchBuilder(final int initialCapacity) {
+        this.buffer = new ExpandableDirectByteBuffer(initialCapacity);
+    }
+
+    /**
+     * @return the offset of the copy in {@link #buffer()}, so it can be changed in place before the batch is handed on
+     */
+    public int append(final DirectBuffer frame, final int offset, final int length){
+        final int recordLength = recordLength(length);
+        buffer.checkLimit(position + recordLength);
+
+        final int frameOffset = position + RECORD_HEADER_LENGTH;
+        buffer.putInt(position + LENGTH_OFFSET, length, LITTLE_ENDIAN);
+        buffer.putBytes(frameOffset, frame, offset, length);
+
+        position += recordLength;
+        frameCount++;
+        return frameOffset;
+    }
+
+    public MutableDirectBuffer buffer(){
+        return buffer;
+    }
+
+    /**
+     * @return a flyweight over the frames appended since the last reset
+     */
+    public FrameBatch batch(){
+        return batch.wrap(buffer, 0, position);
+    }
+
+    public int frameCount(){
+        return frameCount;
+    }
+
+    public boolean isEmpty(){
+        return frameCount == 0;
+    }
+
+    public void reset(){
+        position = 0;
+        frameCount = 0;
+    }
+}
@@ -0,0 +1,132 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.SequencerComponent;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hands frames to the consumers that want them. The header is decoded once per frame, and the consumers for
+ * each (schemaId, templateId) are looked up in a table built from {@link SequencerComponent#isMessageRequired},
+ * so a consumer that doesn't want a message costs nothing for it. Consumers that aren't components get
+ * every message.
+ *
+ * The route for a message type is built the first time it is seen, adding a consumer throws the table away.
+ *
+ * A batch goes to every consumer in turn, filtered down to the frames that consumer requires, so a consumer
+ * walks its part of the batch in one call.
+ *
+ * {@link #drained()} tells every consumer the frames waiting have all been routed. It is ignored from inside a
+ * route, where a consumer sequencing a message of its own is not the end of the drain.
+ */
+public class MessageRouter {
+
+    private static final Consumer[] NO_CONSUMERS = new Consumer[0];
+
+    private final List<Consumer> consumers = new ArrayList<>();
+    private final Long2ObjectHashMap<Consumer[]> routes = new Long2ObjectHashMap<>();
+
+    //consumers can sequence messages of their own, which are routed before the outer call returns, so each
+    //level of nesting gets its own header
+    private MessageHeaderDecoder[] headers = { new MessageHeaderDecoder() };
+    private int depth = 0;
+    private boolean draining = false;
+    private boolean drainAgain = false;
+
+    public static long routeKey(final int schemaId, final int templateId){
+        return ((long) schemaId << 32) | (templateId & 0xFFFF_FFFFL);
+    }
+
+    public void addConsumer(final Consumer consumer){
+        consumers.add(consumer);
+        routes.clear();
+    }
+
+    public void route(final DirectBuffer buffer){
+        if(depth == headers.length){
+            growHeaders();
+        }
+        final MessageHeaderDecoder header = headers[depth];
+        header.wrap(buffer, 0);
+
+        final int schemaId = header.schemaId();
+        final int templateId = header.templateId();
+
+        Consumer[] route = routes.get(routeKey(schemaId, templateId));
+        if(route == null){
+            route = buildRoute(schemaId, templateId);
+        }
+
+        depth++;
+        try {
+            for (int i = 0; i < route.length; i++) {
+                route[i].onMessage(buffer, header);
+            }
+        } finally {
+            depth--;
+        }
+    }
+
+    public void routeBatch(final FrameBatch batch){
+        depth++;
+        try {
+            for (int i = 0; i < consumers.size(); i++) {
+                final Consumer consumer = consumers.get(i);
+                batch.filter(consumer instanceof SequencerComponent ? (SequencerComponent) consumer : null).reset();
+                try {
+                    consumer.onBatch(batch);
+                } finally {
+                    batch.filter(null);
+                }
+            }
+        } finally {
+            depth--;
+        }
+    }
+
+    public void drained(){
+        if(depth > 0){
+            return;
+        }
+        if(draining){
+            //a consumer sequenced something from its onDrained, go round again once this pass is done
+            drainAgain = true;
+            return;
+        }
+        draining = true;
+        try {
+            do {
+                drainAgain = false;
+                for (int i = 0; i < consumers.size(); i++) {
+                    consumers.get(i).onDrained();
+                }
+            } while(drainAgain);
+        } finally {
+            draining = false;
+        }
+    }
+
+    private void growHeaders(){
+        final MessageHeaderDecoder[] grown = Arrays.copyOf(headers, headers.length * 2);
+        for (int i = headers.length; i < grown.length; i++) {
+            grown[i] = new MessageHeaderDecoder();
+        }
+        headers = grown;
+    }
+
+    private Consumer[] buildRoute(final int schemaId, final int templateId){
+        final List<Consumer> route = new ArrayList<>();
+        for (Consumer consumer : consumers) {
+            if(!(consumer instanceof SequencerComponent) || ((SequencerComponent) consumer).isMessageRequired(schemaId, templateId)){
+                route.add(consumer);
+            }
+        }
+        final Consumer[] routeArray = route.toArray(NO_CONSUMERS);
+        routes.put(routeKey(schemaId, templateId), routeArray);
+        return routeArray;
+    }
+}
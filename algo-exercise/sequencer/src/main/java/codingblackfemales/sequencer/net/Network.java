@@ -4,4 +4,15 @@ import org.agrona.DirectBuffer;
 
 public interface Network {
     public void dispatch(final DirectBuffer buffer);
+
+    /**
+     * Dispatches a block of sequenced frames in one call. Networks that can hand the whole block to their
+     * consumers override this, the default dispatches the frames one at a time.
+     */
+    public default void dispatchBatch(final FrameBatch batch){
+        batch.reset();
+        while(batch.next()){
+            dispatch(batch.frame());
+        }
+    }
 }
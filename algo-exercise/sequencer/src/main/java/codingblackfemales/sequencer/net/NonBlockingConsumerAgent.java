@@ -0,0 +1,262 @@
+package codingblackfemales.sequencer.net;
+
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * A consumer thread of a {@link RingBufferNetwork} that can never hold the publisher up, see {@link BackPressurePolicy}.
+ *
+ * Frames are copied into a fixed ring of slots. The consumer takes a frame by moving the head on with a CAS and
+ * then copying the slot out, the publisher drops the oldest frame the same way, so whichever gets there first
+ * wins and the other counts it. Each slot carries a version that is odd while the publisher writes it, and the
+ * position it holds, so a copy that raced with a write is retried and one that was lapped is counted as dropped.
+ *
+ * Conflated book updates are written in place over the instrument's last pending book frame, if they replace it:
+ * a full book replaces any book frame, one side replaces the same side. Only the last pending frame for the
+ * instrument is ever replaced, so its books still arrive in the order they were published. Otherwise the update
+ * is queued and becomes the last pending frame. An update written in place keeps that slot's place in the queue,
+ * so it can overtake frames for other instruments queued after it. If the consumer took the slot while it was
+ * being replaced, the update is queued again as well: the latest book can arrive twice, but is never lost.
+ *
+ * Publishing is safe from any number of threads, they only contend with each other, never with the consumer.
+ */
+public class NonBlockingConsumerAgent implements Agent {
+
+    private static final int VERSION_OFFSET = 0;
+    private static final int POSITION_OFFSET = 8;
+    private static final int LENGTH_OFFSET = 16;
+    private static final int FRAME_OFFSET = 24;
+    private static final long NOT_PENDING = -1;
+
+    private final String name;
+    private final IdleStrategy idleStrategy;
+    private final BackPressurePolicy policy;
+    private final int slots;
+    private final int mask;
+    private final int maxFrameLength;
+    private final int slotLength;
+    private final int readLimit;
+
+    private final UnsafeBuffer ring;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final MessageRouter router = new MessageRouter();
+
+    //publisher side, guarded by this
+    private final MessageHeaderDecoder publishHeader = new MessageHeaderDecoder();
+    private final BookUpdateDecoder book = new BookUpdateDecoder();
+    private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
+    private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+    //the last book frame queued for each instrument and its template
+    private final Long2LongHashMap pendingPositions = new Long2LongHashMap(NOT_PENDING);
+    private final Long2LongHashMap pendingTemplates = new Long2LongHashMap(NOT_PENDING);
+    private long publishPosition = 0;
+
+    //consumer side
+    private final UnsafeBuffer scratch;
+    private final UnsafeBuffer frame = new UnsafeBuffer(0, 0);
+
+    private volatile long delivered = 0;
+    private volatile long publisherDropped = 0;
+    private volatile long consumerDropped = 0;
+    private volatile long conflated = 0;
+
+    public NonBlockingConsumerAgent(final String name, final IdleStrategy idleStrategy, final BackPressurePolicy policy,
+                                    final int slots, final int maxFrameLength, final int readLimit) {
+        if(policy == BackPressurePolicy.BLOCK){
+            throw new IllegalArgumentException(format("A non blocking consumer can't block policy=[%s]", policy));
+        }
+        if(!BitUtil.isPowerOfTwo(slots)){
+            throw new IllegalArgumentException(format("Slots must be a power of two slots=[%s]", slots));
+        }
+        this.name = name;
+        this.idleStrategy = idleStrategy;
+        this.policy = policy;
+        this.slots = slots;
+        this.mask = slots - 1;
+        this.maxFrameLength = maxFrameLength;
+        this.slotLength = BitUtil.align(FRAME_OFFSET + maxFrameLength, BitUtil.CACHE_LINE_LENGTH);
+        this.readLimit = readLimit;
+        this.ring = new UnsafeBuffer(ByteBuffer.allocateDirect(slots * slotLength));
+        this.scratch = new UnsafeBuffer(ByteBuffer.allocateDirect(maxFrameLength));
+        for (int i = 0; i < slots; i++) {
+            ring.putLong(i * slotLength + POSITION_OFFSET, NOT_PENDING);
+        }
+    }
+
+    public void addConsumer(final Consumer consumer){
+        router.addConsumer(consumer);
+    }
+
+    public IdleStrategy idleStrategy(){
+        return idleStrategy;
+    }
+
+    public BackPressurePolicy policy(){
+        return policy;
+    }
+
+    public synchronized void offer(final DirectBuffer buffer, final int length){
+        if(length > maxFrameLength){
+            throw new IllegalStateException(format("Frame too large for consumer length=[%s] maxFrameLength=[%s]", length, maxFrameLength));
+        }
+
+        long instrumentId = NOT_PENDING;
+        int templateId = 0;
+        if(policy == BackPressurePolicy.CONFLATE){
+            instrumentId = conflationKey(buffer);
+            templateId = publishHeader.templateId();
+            if(instrumentId != NOT_PENDING){
+                final long pending = pendingPositions.get(instrumentId);
+                if(pending != NOT_PENDING && pending >= head.get() && replaces(templateId, pendingTemplates.get(instrumentId))){
+                    writeSlot(pending, buffer, length);
+                    pendingTemplates.put(instrumentId, templateId);
+                    conflated += 1;
+                    if(pending >= head.get()){
+                        return;
+                    }
+                    //taken while we were writing it, it may have gone out with the old book so queue the new one too
+                }
+            }
+        }
+
+        while(publishPosition - head.get() >= slots){
+            final long oldest = head.get();
+            if(publishPosition - oldest >= slots && head.compareAndSet(oldest, oldest + 1)){
+                publisherDropped += 1;
+            }
+        }
+
+        writeSlot(publishPosition, buffer, length);
+        if(instrumentId != NOT_PENDING){
+            pendingPositions.put(instrumentId, publishPosition);
+            pendingTemplates.put(instrumentId, templateId);
+        }
+        publishPosition += 1;
+        tail.lazySet(publishPosition);
+    }
+
+    /**
+     * A full book replaces a full book or either side, a side only replaces the same side.
+     */
+    private static boolean replaces(final int templateId, final long pendingTemplateId){
+        return templateId == BookUpdateDecoder.TEMPLATE_ID || templateId == pendingTemplateId;
+    }
+
+    /**
+     * @return the instrumentId of a book frame, NOT_PENDING for anything else
+     */
+    private long conflationKey(final DirectBuffer buffer){
+        publishHeader.wrap(buffer, 0);
+        if(publishHeader.schemaId() != BookUpdateDecoder.SCHEMA_ID){
+            return NOT_PENDING;
+        }
+        final int templateId = publishHeader.templateId();
+        final int offset = publishHeader.encodedLength();
+        final long instrumentId;
+        if(templateId == BookUpdateDecoder.TEMPLATE_ID){
+            instrumentId = book.wrap(buffer, offset, publishHeader.blockLength(), publishHeader.version()).instrumentId();
+        }else if(templateId == BidBookUpdateDecoder.TEMPLATE_ID){
+            instrumentId = bid.wrap(buffer, offset, publishHeader.blockLength(), publishHeader.version()).instrumentId();
+        }else if(templateId == AskBookUpdateDecoder.TEMPLATE_ID){
+            instrumentId = ask.wrap(buffer, offset, publishHeader.blockLength(), publishHeader.version()).instrumentId();
+        }else{
+            return NOT_PENDING;
+        }
+        return instrumentId;
+    }
+
+    private void writeSlot(final long position, final DirectBuffer buffer, final int length){
+        final int offset = (int) (position & mask) * slotLength;
+        final long version = ring.getLong(offset + VERSION_OFFSET);
+        ring.putLongOrdered(offset + VERSION_OFFSET, version + 1);
+        VarHandle.storeStoreFence();
+        ring.putLong(offset + POSITION_OFFSET, position);
+        ring.putInt(offset + LENGTH_OFFSET, length);
+        ring.putBytes(offset + FRAME_OFFSET, buffer, 0, length);
+        ring.putLongOrdered(offset + VERSION_OFFSET, version + 2);
+    }
+
+    @Override
+    public int doWork() {
+        int workCount = 0;
+        while(workCount < readLimit){
+            final long position = head.get();
+            if(position >= tail.get()){
+                break;
+            }
+            if(!head.compareAndSet(position, position + 1)){
+                //the publisher dropped it
+                continue;
+            }
+            if(copySlot(position)){
+                router.route(frame);
+                delivered += 1;
+            }else{
+                consumerDropped += 1;
+            }
+            workCount += 1;
+        }
+        if(workCount > 0){
+            router.drained();
+        }
+        return workCount;
+    }
+
+    private boolean copySlot(final long position){
+        final int offset = (int) (position & mask) * slotLength;
+        while(true){
+            final long version = ring.getLongVolatile(offset + VERSION_OFFSET);
+            if((version & 1) != 0){
+                Thread.onSpinWait();
+                continue;
+            }
+            if(ring.getLong(offset + POSITION_OFFSET) != position){
+                //lapped, the publisher has already reused the slot
+                return false;
+            }
+            final int length = ring.getInt(offset + LENGTH_OFFSET);
+            scratch.putBytes(0, ring, offset + FRAME_OFFSET, length);
+            VarHandle.loadLoadFence();
+            if(ring.getLongVolatile(offset + VERSION_OFFSET) == version){
+                frame.wrap(scratch, 0, length);
+                return true;
+            }
+        }
+    }
+
+    public long delivered(){
+        return delivered;
+    }
+
+    public long dropped(){
+        return publisherDropped + consumerDropped;
+    }
+
+    public long conflated(){
+        return conflated;
+    }
+
+    public long lag(){
+        return Math.max(0, tail.get() - head.get());
+    }
+
+    @Override
+    public String roleName() {
+        return name;
+    }
+}
@@ -0,0 +1,80 @@
+package codingblackfemales.sequencer.net;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One consumer thread of a {@link RingBufferNetwork}. Owns a ring buffer that publishers write sequenced
+ * frames into, and hands each frame to its consumers in order when the agent is run.
+ */
+public class RingBufferConsumerAgent implements Agent, MessageHandler {
+
+    private final String name;
+    private final IdleStrategy idleStrategy;
+    private final RingBuffer ringBuffer;
+    private final int readLimit;
+    private final MessageRouter router = new MessageRouter();
+
+    private final UnsafeBuffer frame = new UnsafeBuffer(0, 0);
+
+    private volatile long consumed = 0;
+
+    public RingBufferConsumerAgent(final String name, final IdleStrategy idleStrategy, final int capacity, final boolean manyToOne, final int readLimit) {
+        this.name = name;
+        this.idleStrategy = idleStrategy;
+        this.readLimit = readLimit;
+
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(capacity + RingBufferDescriptor.TRAILER_LENGTH));
+        this.ringBuffer = manyToOne ? new ManyToOneRingBuffer(buffer) : new OneToOneRingBuffer(buffer);
+    }
+
+    public void addConsumer(final Consumer consumer){
+        router.addConsumer(consumer);
+    }
+
+    public RingBuffer ringBuffer(){
+        return ringBuffer;
+    }
+
+    public IdleStrategy idleStrategy(){
+        return idleStrategy;
+    }
+
+    public long consumed(){
+        return consumed;
+    }
+
+    public long lag(){
+        return ringBuffer.size();
+    }
+
+    @Override
+    public int doWork() {
+        final int read = ringBuffer.read(this, readLimit);
+        if(read > 0){
+            router.drained();
+        }
+        return read;
+    }
+
+    @Override
+    public void onMessage(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length) {
+        frame.wrap(buffer, index, length);
+        router.route(frame);
+        consumed += 1;
+    }
+
+    @Override
+    public String roleName() {
+        return name;
+    }
+}
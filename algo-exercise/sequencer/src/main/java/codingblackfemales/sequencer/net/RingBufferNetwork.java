@@ -0,0 +1,139 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A network that hands sequenced frames to consumer threads through Agrona ring buffers instead of calling
+ * every consumer on the publisher's thread.
+ *
+ * Each consumer thread added with {@link #addConsumerThread} gets its own ring buffer, dispatch copies the
+ * frame into every one of them and returns, so a slow thread only ever lags behind, it doesn't hold up the
+ * sequencer until its ring is full. When a ring is full the publisher waits with the publish idle strategy, each
+ * publishing thread with its own one from the supplier.
+ *
+ * Consumers that don't matter to the trading loop (logging, UIs) can be given a {@link BackPressurePolicy} that
+ * drops or conflates their frames instead, so they can fall behind without ever holding the publisher up.
+ *
+ * Use manyToOne when more than one thread publishes into the network. Consumers see frames in sequence
+ * order, on their agent's thread, so a consumer that calls back into a sequencer needs that sequencer to
+ * be safe to call from that thread.
+ */
+public class RingBufferNetwork implements Network, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RingBufferNetwork.class);
+
+    public static final int FRAME_MSG_TYPE_ID = 1;
+    public static final int DEFAULT_CAPACITY = 1024 * 1024;
+    public static final int DEFAULT_READ_LIMIT = 256;
+    public static final int DEFAULT_SLOTS = 1024;
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024;
+
+    private final int capacity;
+    private final boolean manyToOne;
+    private final ThreadLocal<IdleStrategy> publishIdleStrategy;
+
+    private final List<RingBufferConsumerAgent> agents = new ArrayList<>();
+    private final List<NonBlockingConsumerAgent> nonBlockingAgents = new ArrayList<>();
+    private final List<AgentRunner> runners = new ArrayList<>();
+
+    private final ThreadLocal<MessageLengthDecoder> lengthDecoder = ThreadLocal.withInitial(MessageLengthDecoder::new);
+
+    public RingBufferNetwork() {
+        this(DEFAULT_CAPACITY, true, YieldingIdleStrategy::new);
+    }
+
+    public RingBufferNetwork(final int capacity, final boolean manyToOne, final Supplier<IdleStrategy> publishIdleStrategy) {
+        this.capacity = capacity;
+        this.manyToOne = manyToOne;
+        this.publishIdleStrategy = ThreadLocal.withInitial(publishIdleStrategy);
+    }
+
+    public RingBufferConsumerAgent addConsumerThread(final String name, final IdleStrategy idleStrategy, final Consumer... consumers){
+        final RingBufferConsumerAgent agent = new RingBufferConsumerAgent(name, idleStrategy, capacity, manyToOne, DEFAULT_READ_LIMIT);
+        for (Consumer consumer : consumers) {
+            agent.addConsumer(consumer);
+        }
+        agents.add(agent);
+        return agent;
+    }
+
+    /**
+     * @param policy what to do when the thread falls behind, BLOCK is the same as {@link #addConsumerThread(String, IdleStrategy, Consumer...)}
+     */
+    public Agent addConsumerThread(final String name, final IdleStrategy idleStrategy, final BackPressurePolicy policy, final Consumer... consumers){
+        if(policy == BackPressurePolicy.BLOCK){
+            return addConsumerThread(name, idleStrategy, consumers);
+        }
+        final NonBlockingConsumerAgent agent = new NonBlockingConsumerAgent(name, idleStrategy, policy, DEFAULT_SLOTS, DEFAULT_MAX_FRAME_LENGTH, DEFAULT_READ_LIMIT);
+        for (Consumer consumer : consumers) {
+            agent.addConsumer(consumer);
+        }
+        nonBlockingAgents.add(agent);
+        return agent;
+    }
+
+    public List<RingBufferConsumerAgent> getAgents(){
+        return agents;
+    }
+
+    public List<NonBlockingConsumerAgent> getNonBlockingAgents(){
+        return nonBlockingAgents;
+    }
+
+    public void start(){
+        for (RingBufferConsumerAgent agent : agents) {
+            final AgentRunner runner = new AgentRunner(agent.idleStrategy(),
+                    throwable -> logger.error("[NETWORK] Consumer thread " + agent.roleName() + " failed", throwable),
+                    null, agent);
+            runners.add(runner);
+            AgentRunner.startOnThread(runner);
+        }
+        for (NonBlockingConsumerAgent agent : nonBlockingAgents) {
+            final AgentRunner runner = new AgentRunner(agent.idleStrategy(),
+                    throwable -> logger.error("[NETWORK] Consumer thread " + agent.roleName() + " failed", throwable),
+                    null, agent);
+            runners.add(runner);
+            AgentRunner.startOnThread(runner);
+        }
+    }
+
+    @Override
+    public void dispatch(final DirectBuffer buffer) {
+        final int length = lengthDecoder.get().decodeLength(buffer, 0);
+        for (int i = 0; i < agents.size(); i++) {
+            publish(agents.get(i), buffer, length);
+        }
+        for (int i = 0; i < nonBlockingAgents.size(); i++) {
+            nonBlockingAgents.get(i).offer(buffer, length);
+        }
+    }
+
+    private void publish(final RingBufferConsumerAgent agent, final DirectBuffer buffer, final int length){
+        if(!agent.ringBuffer().write(FRAME_MSG_TYPE_ID, buffer, 0, length)){
+            final IdleStrategy idleStrategy = publishIdleStrategy.get();
+            idleStrategy.reset();
+            while(!agent.ringBuffer().write(FRAME_MSG_TYPE_ID, buffer, 0, length)){
+                idleStrategy.idle();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (AgentRunner runner : runners) {
+            runner.close();
+        }
+        runners.clear();
+    }
+}
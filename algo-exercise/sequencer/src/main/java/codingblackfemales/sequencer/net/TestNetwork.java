@@ -2,22 +2,24 @@ package codingblackfemales.sequencer.net;
 
 import org.agrona.DirectBuffer;
 
-import java.util.LinkedList;
-import java.util.List;
-
 public class TestNetwork implements Network{
 
-    private final List<Consumer> consumers = new LinkedList<>();
+    private final MessageRouter router = new MessageRouter();
 
     @Override
     public void dispatch(DirectBuffer buffer){
-        for (Consumer consumer: consumers) {
-            consumer.onMessage(buffer);
-        }
+        router.route(buffer);
+        router.drained();
+    }
+
+    @Override
+    public void dispatchBatch(FrameBatch batch){
+        router.routeBatch(batch);
+        router.drained();
     }
 
     public void addConsumer(Consumer consumer){
-        consumers.add(consumer);
+        router.addConsumer(consumer);
     }
 
 }
@@ -0,0 +1,135 @@
+package codingblackfemales.sequencer.net;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The queue of frames waiting for one consumer of a {@link VirtualThreadNetwork}, and the virtual thread that
+ * drains it. The thread parks when the mailbox is empty and is unparked by the next frame, so hundreds of
+ * idle consumers cost nothing but their memory.
+ *
+ * When the mailbox is full the new frame is dropped and counted, the dispatching thread never waits.
+ */
+public class VirtualThreadMailbox implements MessageHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadMailbox.class);
+
+    public static final int FRAME_MSG_TYPE_ID = 1;
+
+    private final String name;
+    private final Consumer consumer;
+    private final RingBuffer ringBuffer;
+    private final int readLimit;
+    private final UnsafeBuffer frame = new UnsafeBuffer(0, 0);
+
+    private Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean parked = false;
+
+    private volatile long delivered = 0;
+    private volatile long dropped = 0;
+    private volatile long failed = 0;
+
+    VirtualThreadMailbox(final String name, final Consumer consumer, final int capacity, final int readLimit) {
+        this.name = name;
+        this.consumer = consumer;
+        this.readLimit = readLimit;
+        this.ringBuffer = new OneToOneRingBuffer(new UnsafeBuffer(ByteBuffer.allocateDirect(capacity + RingBufferDescriptor.TRAILER_LENGTH)));
+    }
+
+    void start(){
+        thread = Thread.ofVirtual().name(name).start(this::run);
+    }
+
+    void offer(final DirectBuffer buffer, final int length){
+        if(!ringBuffer.write(FRAME_MSG_TYPE_ID, buffer, 0, length)){
+            dropped += 1;
+            return;
+        }
+        //the ring's tail is only a release store, without the fence the read of parked could move ahead of it and
+        //miss a consumer that saw the ring empty and is about to park
+        VarHandle.fullFence();
+        if(parked){
+            parked = false;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run(){
+        while(running){
+            if(ringBuffer.read(this, readLimit) > 0){
+                drained();
+            }else {
+                parked = true;
+                //a frame written before we said we were parking wouldn't have unparked us
+                if(ringBuffer.size() == 0 && running){
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length) {
+        frame.wrap(buffer, index, length);
+        try {
+            consumer.onMessage(frame);
+        } catch (RuntimeException e) {
+            //a non critical consumer failing shouldn't stop it getting the next frame
+            failed += 1;
+            logger.error("[NETWORK] Consumer " + name + " failed on a frame", e);
+        }
+        delivered += 1;
+    }
+
+    private void drained(){
+        try {
+            consumer.onDrained();
+        } catch (RuntimeException e) {
+            failed += 1;
+            logger.error("[NETWORK] Consumer " + name + " failed after a drain", e);
+        }
+    }
+
+    void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    public String name(){
+        return name;
+    }
+
+    public Thread thread(){
+        return thread;
+    }
+
+    public long delivered(){
+        return delivered;
+    }
+
+    public long dropped(){
+        return dropped;
+    }
+
+    public long failed(){
+        return failed;
+    }
+
+    public int depth(){
+        return ringBuffer.size();
+    }
+}
@@ -0,0 +1,103 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import org.agrona.DirectBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the critical path on the dispatching thread and moves auxiliary consumers (logging, UI, analytics,
+ * recorders) onto a virtual thread each.
+ *
+ * Every frame is copied into each auxiliary consumer's {@link VirtualThreadMailbox} and then dispatched to the
+ * critical network as before. Mailboxes are filled first, so frames the critical consumers cause while the frame
+ * is dispatched still reach the mailboxes after it, in sequence order. An auxiliary consumer that can't keep up
+ * loses frames rather than slowing anything down, and one that throws only loses the frame it threw on.
+ *
+ * Dispatch from one thread at a time, as with the network it wraps.
+ */
+public class VirtualThreadNetwork implements Network, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadNetwork.class);
+
+    public static final int DEFAULT_MAILBOX_CAPACITY = 256 * 1024;
+    public static final int DEFAULT_READ_LIMIT = 64;
+
+    private final Network criticalNetwork;
+    private final List<VirtualThreadMailbox> mailboxes = new ArrayList<>();
+    private final MessageLengthDecoder lengthDecoder = new MessageLengthDecoder();
+
+    private boolean started = false;
+
+    public VirtualThreadNetwork(final Network criticalNetwork) {
+        this.criticalNetwork = criticalNetwork;
+    }
+
+    public VirtualThreadMailbox addConsumer(final String name, final Consumer consumer){
+        return addConsumer(name, consumer, DEFAULT_MAILBOX_CAPACITY);
+    }
+
+    /**
+     * @param capacity mailbox size in bytes, a power of two
+     */
+    public VirtualThreadMailbox addConsumer(final String name, final Consumer consumer, final int capacity){
+        if(started){
+            throw new IllegalStateException("Add consumers before the network is started name=[" + name + "]");
+        }
+        final VirtualThreadMailbox mailbox = new VirtualThreadMailbox(name, consumer, capacity, DEFAULT_READ_LIMIT);
+        mailboxes.add(mailbox);
+        return mailbox;
+    }
+
+    public List<VirtualThreadMailbox> getMailboxes(){
+        return mailboxes;
+    }
+
+    public void start(){
+        for (VirtualThreadMailbox mailbox : mailboxes) {
+            mailbox.start();
+        }
+        started = true;
+    }
+
+    @Override
+    public void dispatch(final DirectBuffer buffer) {
+        if(started){
+            final int length = lengthDecoder.decodeLength(buffer, 0);
+            for (int i = 0; i < mailboxes.size(); i++) {
+                mailboxes.get(i).offer(buffer, length);
+            }
+        }
+        criticalNetwork.dispatch(buffer);
+    }
+
+    @Override
+    public void dispatchBatch(final FrameBatch batch) {
+        if(started){
+            batch.reset();
+            while(batch.next()){
+                final DirectBuffer frame = batch.frame();
+                for (int i = 0; i < mailboxes.size(); i++) {
+                    mailboxes.get(i).offer(frame, frame.capacity());
+                }
+            }
+        }
+        criticalNetwork.dispatchBatch(batch);
+    }
+
+    @Override
+    public void close() {
+        for (VirtualThreadMailbox mailbox : mailboxes) {
+            try {
+                mailbox.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("[NETWORK] Interrupted closing " + mailbox.name());
+                return;
+            }
+        }
+    }
+}
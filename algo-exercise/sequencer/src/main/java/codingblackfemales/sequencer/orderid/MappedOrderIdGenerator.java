@@ -0,0 +1,69 @@
+package codingblackfemales.sequencer.orderid;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Issues increasing order ids and keeps the last one issued in a memory mapped file, so a restarted process
+ * carries on from where the last one stopped instead of re-using ids.
+ *
+ * Each id is written to the page cache as it is issued, which survives the process dying, there is no
+ * system call per id. Single writer, not thread safe.
+ */
+public class MappedOrderIdGenerator implements OrderIdGenerator, AutoCloseable {
+
+    private static final int LAST_ORDER_ID_OFFSET = 0;
+    private static final int FILE_LENGTH = 8;
+
+    private final MappedByteBuffer mapped;
+    private final UnsafeBuffer buffer;
+
+    public MappedOrderIdGenerator(final File file) {
+        this(file, 1L);
+    }
+
+    /**
+     * @param initialLastOrderId the last order id when the file doesn't exist yet
+     */
+    public MappedOrderIdGenerator(final File file, final long initialLastOrderId) {
+        if(file.exists()){
+            this.mapped = IoUtil.mapExistingFile(file, FileChannel.MapMode.READ_WRITE, "order ids");
+            this.buffer = new UnsafeBuffer(mapped);
+        }else {
+            this.mapped = IoUtil.mapNewFile(file, FILE_LENGTH, false);
+            this.buffer = new UnsafeBuffer(mapped);
+            buffer.putLongVolatile(LAST_ORDER_ID_OFFSET, initialLastOrderId);
+        }
+    }
+
+    @Override
+    public long nextOrderId() {
+        final long orderId = buffer.getLong(LAST_ORDER_ID_OFFSET) + 1;
+        buffer.putLongOrdered(LAST_ORDER_ID_OFFSET, orderId);
+        return orderId;
+    }
+
+    @Override
+    public void skipPast(final long orderId) {
+        if(orderId > buffer.getLong(LAST_ORDER_ID_OFFSET)){
+            buffer.putLongOrdered(LAST_ORDER_ID_OFFSET, orderId);
+        }
+    }
+
+    public long lastOrderId(){
+        return buffer.getLongVolatile(LAST_ORDER_ID_OFFSET);
+    }
+
+    public void force(){
+        mapped.force();
+    }
+
+    @Override
+    public void close() {
+        IoUtil.unmap(mapped);
+    }
+}
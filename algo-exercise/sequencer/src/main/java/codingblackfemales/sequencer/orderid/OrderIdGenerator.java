@@ -0,0 +1,10 @@
+package codingblackfemales.sequencer.orderid;
+
+public interface OrderIdGenerator {
+    public long nextOrderId();
+
+    /**
+     * Makes sure ids issued from now on are above orderId, e.g. one already issued before a restart.
+     */
+    public void skipPast(long orderId);
+}
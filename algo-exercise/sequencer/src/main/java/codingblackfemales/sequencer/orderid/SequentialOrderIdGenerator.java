@@ -0,0 +1,43 @@
+package codingblackfemales.sequencer.orderid;
+
+import codingblackfemales.sequencer.snapshot.Snapshottable;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+
+/**
+ * Issues increasing order ids in memory, starting after lastOrderId. Include it in snapshots so ids carry on
+ * after a restart.
+ */
+public class SequentialOrderIdGenerator implements OrderIdGenerator, Snapshottable {
+
+    private long lastOrderId;
+
+    public SequentialOrderIdGenerator(final long lastOrderId) {
+        this.lastOrderId = lastOrderId;
+    }
+
+    @Override
+    public long nextOrderId() {
+        return lastOrderId += 1;
+    }
+
+    @Override
+    public void skipPast(final long orderId) {
+        lastOrderId = Math.max(lastOrderId, orderId);
+    }
+
+    public long lastOrderId(){
+        return lastOrderId;
+    }
+
+    @Override
+    public int writeSnapshot(final MutableDirectBuffer buffer, final int offset) {
+        buffer.putLong(offset, lastOrderId);
+        return Long.BYTES;
+    }
+
+    @Override
+    public void loadSnapshot(final DirectBuffer buffer, final int offset, final int length) {
+        lastOrderId = buffer.getLong(offset);
+    }
+}
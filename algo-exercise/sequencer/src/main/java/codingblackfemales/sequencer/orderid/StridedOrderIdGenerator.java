@@ -0,0 +1,55 @@
+package codingblackfemales.sequencer.orderid;
+
+import codingblackfemales.sequencer.snapshot.Snapshottable;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+
+import static java.lang.String.format;
+
+/**
+ * Issues every stride-th order id after lastOrderId, so generators started one apart with the same stride never
+ * issue the same id, e.g. one per shard of a {@link codingblackfemales.sequencer.shard.ShardedSequencer}.
+ */
+public class StridedOrderIdGenerator implements OrderIdGenerator, Snapshottable {
+
+    private final long stride;
+    private long lastOrderId;
+
+    public StridedOrderIdGenerator(final long lastOrderId, final int stride) {
+        if(stride < 1){
+            throw new IllegalArgumentException(format("Stride must be at least one stride=[%s]", stride));
+        }
+        this.lastOrderId = lastOrderId;
+        this.stride = stride;
+    }
+
+    @Override
+    public long nextOrderId() {
+        return lastOrderId += stride;
+    }
+
+    /**
+     * Moves on in whole strides, so the ids stay this generator's own.
+     */
+    @Override
+    public void skipPast(final long orderId) {
+        if(orderId > lastOrderId){
+            lastOrderId += (orderId - lastOrderId) / stride * stride;
+        }
+    }
+
+    public long lastOrderId(){
+        return lastOrderId;
+    }
+
+    @Override
+    public int writeSnapshot(final MutableDirectBuffer buffer, final int offset) {
+        buffer.putLong(offset, lastOrderId);
+        return Long.BYTES;
+    }
+
+    @Override
+    public void loadSnapshot(final DirectBuffer buffer, final int offset, final int length) {
+        lastOrderId = buffer.getLong(offset);
+    }
+}
@@ -0,0 +1,30 @@
+package codingblackfemales.sequencer.priority;
+
+import messages.marketdata.MessageHeaderDecoder;
+import messages.order.CancelOrderEncoder;
+import org.agrona.DirectBuffer;
+
+/**
+ * Priority classes for commands waiting to be sequenced, highest first.
+ *
+ * The lane is picked from the header alone: a CancelOrder pulls risk out of the market so it goes ahead of
+ * everything, every other order message goes ahead of market data. Template ids are only unique within a
+ * schema, so the schemaId is checked too.
+ */
+public enum Lane {
+    CANCEL,
+    ORDER,
+    MARKET_DATA;
+
+    public static Lane laneFor(final int schemaId, final int templateId){
+        if(schemaId == CancelOrderEncoder.SCHEMA_ID){
+            return templateId == CancelOrderEncoder.TEMPLATE_ID ? CANCEL : ORDER;
+        }
+        return MARKET_DATA;
+    }
+
+    public static Lane laneFor(final MessageHeaderDecoder header, final DirectBuffer buffer, final int offset){
+        header.wrap(buffer, offset);
+        return laneFor(header.schemaId(), header.templateId());
+    }
+}
@@ -0,0 +1,122 @@
+package codingblackfemales.sequencer.priority;
+
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.metrics.LatencyStage;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One bounded queue of a {@link PrioritySequencer}. Each command is queued with the nanoTime it was offered at,
+ * so the time it spent waiting for its turn is recorded when it is taken off and sequenced.
+ */
+public class PriorityLane implements MessageHandler {
+
+    public static final int COMMAND_MSG_TYPE_ID = 1;
+    public static final int ENQUEUED_NANOS_LENGTH = 8;
+
+    private final Lane lane;
+    private final RingBuffer ringBuffer;
+    private final Sequencer sequencer;
+    private final UnsafeBuffer frame = new UnsafeBuffer(0, 0);
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private LatencyStage waitTime;
+
+    private volatile long sequenced = 0;
+    private volatile long maxDepth = 0;
+
+    PriorityLane(final Lane lane, final int capacity, final Sequencer sequencer) {
+        this.lane = lane;
+        this.sequencer = sequencer;
+        this.waitTime = new LatencyStage(waitStageName(lane));
+        this.ringBuffer = new ManyToOneRingBuffer(new UnsafeBuffer(ByteBuffer.allocateDirect(capacity + RingBufferDescriptor.TRAILER_LENGTH)));
+    }
+
+    public static String waitStageName(final Lane lane){
+        return "lane." + lane.name().toLowerCase() + ".wait";
+    }
+
+    /**
+     * Safe to call from any thread.
+     *
+     * @return false if the lane is full
+     */
+    boolean offer(final DirectBuffer buffer, final int length){
+        final int index = ringBuffer.tryClaim(COMMAND_MSG_TYPE_ID, ENQUEUED_NANOS_LENGTH + length);
+        if(index < 0){
+            rejected.incrementAndGet();
+            return false;
+        }
+        final MutableDirectBuffer claimed = ringBuffer.buffer();
+        claimed.putLong(index, System.nanoTime());
+        claimed.putBytes(index + ENQUEUED_NANOS_LENGTH, buffer, 0, length);
+        ringBuffer.commit(index);
+        offered.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Sequences up to limit queued commands, on the sequencing thread.
+     */
+    int read(final int limit){
+        final long depth = offered.get() - sequenced;
+        if(depth > maxDepth){
+            maxDepth = depth;
+        }
+        return ringBuffer.read(this, limit);
+    }
+
+    @Override
+    public void onMessage(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length) {
+        waitTime.record(System.nanoTime() - buffer.getLong(index));
+        frame.wrap(buffer, index + ENQUEUED_NANOS_LENGTH, length - ENQUEUED_NANOS_LENGTH);
+        sequencer.onCommand(frame);
+        sequenced += 1;
+    }
+
+    void setWaitTime(final LatencyStage waitTime){
+        this.waitTime = waitTime;
+    }
+
+    public Lane lane(){
+        return lane;
+    }
+
+    /**
+     * @return commands queued and not yet sequenced
+     */
+    public long depth(){
+        return offered.get() - sequenced;
+    }
+
+    /**
+     * @return the deepest the queue has been when the sequencer came to read it
+     */
+    public long maxDepth(){
+        return maxDepth;
+    }
+
+    public long sequenced(){
+        return sequenced;
+    }
+
+    public long rejected(){
+        return rejected.get();
+    }
+
+    /**
+     * @return time from offer to being handed to the sequencer
+     */
+    public LatencyStage waitTime(){
+        return waitTime;
+    }
+}
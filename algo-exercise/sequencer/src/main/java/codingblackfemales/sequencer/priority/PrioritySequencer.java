@@ -0,0 +1,120 @@
+package codingblackfemales.sequencer.priority;
+
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.metrics.LatencyMetrics;
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.YieldingIdleStrategy;
+
+import java.util.function.Supplier;
+
+/**
+ * Queues commands from any thread into a bounded lane per {@link Lane} and feeds them to a sequencer in
+ * priority order on the agent's thread.
+ *
+ * Every waiting cancel is taken before anything else, then orders and market data one at a time, checking the
+ * higher lanes again in between. A cancel offered during a burst of ticks therefore waits for at most the one
+ * frame being sequenced, not for the ticks queued ahead of it. Order within a lane is kept, order across lanes
+ * is not, which is the point.
+ *
+ * onCommand waits on the publish idle strategy while the command's lane is full, offer returns false instead.
+ * Each publishing thread gets its own idle strategy from the supplier, as idle strategies keep state.
+ * Consumers running on the sequencing thread should keep calling the underlying sequencer directly, so the
+ * commands they send while a frame is dispatched are sequenced straight away as before.
+ */
+public class PrioritySequencer implements Sequencer, Agent {
+
+    public static final int DEFAULT_CANCEL_CAPACITY = 64 * 1024;
+    public static final int DEFAULT_ORDER_CAPACITY = 256 * 1024;
+    public static final int DEFAULT_MARKET_DATA_CAPACITY = 1024 * 1024;
+    public static final int DEFAULT_READ_LIMIT = 256;
+
+    private final PriorityLane[] lanes = new PriorityLane[Lane.values().length];
+    private final PriorityLane cancels;
+    private final PriorityLane orders;
+    private final PriorityLane marketData;
+    private final ThreadLocal<IdleStrategy> publishIdleStrategy;
+    private final int readLimit;
+
+    private final ThreadLocal<MessageHeaderDecoder> headerDecoder = ThreadLocal.withInitial(MessageHeaderDecoder::new);
+    private final ThreadLocal<MessageLengthDecoder> lengthDecoder = ThreadLocal.withInitial(MessageLengthDecoder::new);
+
+    public PrioritySequencer(final Sequencer sequencer) {
+        this(sequencer, DEFAULT_CANCEL_CAPACITY, DEFAULT_ORDER_CAPACITY, DEFAULT_MARKET_DATA_CAPACITY, YieldingIdleStrategy::new, DEFAULT_READ_LIMIT);
+    }
+
+    /**
+     * @param cancelCapacity ring capacity of each lane in bytes, a power of two
+     */
+    public PrioritySequencer(final Sequencer sequencer, final int cancelCapacity, final int orderCapacity, final int marketDataCapacity,
+                             final Supplier<IdleStrategy> publishIdleStrategy, final int readLimit) {
+        this.cancels = new PriorityLane(Lane.CANCEL, cancelCapacity, sequencer);
+        this.orders = new PriorityLane(Lane.ORDER, orderCapacity, sequencer);
+        this.marketData = new PriorityLane(Lane.MARKET_DATA, marketDataCapacity, sequencer);
+        this.lanes[Lane.CANCEL.ordinal()] = cancels;
+        this.lanes[Lane.ORDER.ordinal()] = orders;
+        this.lanes[Lane.MARKET_DATA.ordinal()] = marketData;
+        this.publishIdleStrategy = ThreadLocal.withInitial(publishIdleStrategy);
+        this.readLimit = readLimit;
+    }
+
+    /**
+     * Records each lane's wait time in a stage named by {@link PriorityLane#waitStageName}, so it is reported
+     * alongside the other stages.
+     */
+    public void setLatencyMetrics(final LatencyMetrics latencyMetrics){
+        for (PriorityLane lane : lanes) {
+            lane.setWaitTime(latencyMetrics.stage(PriorityLane.waitStageName(lane.lane())));
+        }
+    }
+
+    @Override
+    public void onCommand(final DirectBuffer buffer) {
+        if(!offer(buffer)){
+            final IdleStrategy idleStrategy = publishIdleStrategy.get();
+            idleStrategy.reset();
+            while(!offer(buffer)){
+                idleStrategy.idle();
+            }
+        }
+    }
+
+    /**
+     * @return false if the command's lane is full
+     */
+    public boolean offer(final DirectBuffer buffer){
+        final Lane lane = Lane.laneFor(headerDecoder.get(), buffer, 0);
+        return lanes[lane.ordinal()].offer(buffer, lengthDecoder.get().decodeLength(buffer, 0));
+    }
+
+    @Override
+    public int doWork() {
+        int workCount = 0;
+        while(workCount < readLimit){
+            int read = cancels.read(readLimit);
+            if(read == 0){
+                read = orders.read(1);
+            }
+            if(read == 0){
+                read = marketData.read(1);
+            }
+            if(read == 0){
+                break;
+            }
+            workCount += read;
+        }
+        return workCount;
+    }
+
+    public PriorityLane getLane(final Lane lane){
+        return lanes[lane.ordinal()];
+    }
+
+    @Override
+    public String roleName() {
+        return "priority-sequencer";
+    }
+}
@@ -0,0 +1,85 @@
+package codingblackfemales.sequencer.shard;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.sequencer.orderid.OrderIdGenerator;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One shard of a {@link ShardedSequencer}, a sequencer and network of its own, run by a single thread that
+ * takes commands off an inbound ring buffer. Everything the shard's consumers send back is sequenced
+ * synchronously on that thread, exactly as it is with a single sequencer.
+ *
+ * Shards stamp CreateOrders independently, so each needs an order id generator that no other shard shares ids with.
+ */
+public class SequencerShard implements Agent, MessageHandler {
+
+    private final String name;
+    private final IdleStrategy idleStrategy;
+    private final RingBuffer inbound;
+    private final int readLimit;
+
+    private final TestNetwork network = new TestNetwork();
+    private final DefaultSequencer sequencer = new DefaultSequencer(network);
+    private final UnsafeBuffer command = new UnsafeBuffer(0, 0);
+
+    private volatile long commands = 0;
+
+    public SequencerShard(final String name, final IdleStrategy idleStrategy, final int capacity, final int readLimit,
+                          final OrderIdGenerator orderIdGenerator) {
+        this.name = name;
+        this.sequencer.setOrderIdGenerator(orderIdGenerator);
+        this.idleStrategy = idleStrategy;
+        this.readLimit = readLimit;
+        this.inbound = new ManyToOneRingBuffer(new UnsafeBuffer(ByteBuffer.allocateDirect(capacity + RingBufferDescriptor.TRAILER_LENGTH)));
+    }
+
+    public RingBuffer inbound(){
+        return inbound;
+    }
+
+    public IdleStrategy idleStrategy(){
+        return idleStrategy;
+    }
+
+    public DefaultSequencer getSequencer(){
+        return sequencer;
+    }
+
+    public TestNetwork getNetwork(){
+        return network;
+    }
+
+    /**
+     * @return the number of inbound commands this shard has sequenced, not counting what its consumers sent
+     */
+    public long commands(){
+        return commands;
+    }
+
+    @Override
+    public int doWork() {
+        return inbound.read(this, readLimit);
+    }
+
+    @Override
+    public void onMessage(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length) {
+        command.wrap(buffer, index, length);
+        sequencer.onCommand(command);
+        commands += 1;
+    }
+
+    @Override
+    public String roleName() {
+        return name;
+    }
+}
@@ -0,0 +1,14 @@
+package codingblackfemales.sequencer.shard;
+
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.net.TestNetwork;
+
+public interface ShardWiring {
+
+    /**
+     * Adds one shard's consumers (book, services, algo container...) to its network. Anything that sends
+     * commands while it handles a message should be given the shard's own sequencer, that keeps them on the
+     * shard's thread.
+     */
+    public void wire(final int shard, final Sequencer sequencer, final TestNetwork network);
+}
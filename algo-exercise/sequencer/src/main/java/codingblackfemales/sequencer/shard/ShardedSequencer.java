@@ -0,0 +1,121 @@
+package codingblackfemales.sequencer.shard;
+
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.orderid.StridedOrderIdGenerator;
+import codingblackfemales.sequencer.util.InstrumentIdDecoder;
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * Partitions sequencing by instrument. Commands are routed by instrumentId to one of N shards, each with its
+ * own sequencer, network and thread (and whatever {@link ShardWiring} puts on it: book, services, container).
+ *
+ * Every command for an instrument goes to the same shard, so an instrument's messages keep their order. Each
+ * shard numbers its own messages, there is no order across shards. Messages that only carry an orderId can't
+ * be routed and are rejected, they are sent from inside the shard that owns the order. Shard i of N issues the
+ * order ids i + 1 + N, i + 1 + 2N and so on, so an orderId is unique across shards and tells which one owns it.
+ *
+ * onCommand is safe to call from any number of threads. Each publishing thread waits on its own idle strategy
+ * from the supplier while a shard's inbound ring is full.
+ */
+public class ShardedSequencer implements Sequencer, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedSequencer.class);
+
+    public static final int COMMAND_MSG_TYPE_ID = 1;
+    public static final int DEFAULT_CAPACITY = 1024 * 1024;
+    public static final int DEFAULT_READ_LIMIT = 256;
+
+    private final SequencerShard[] shards;
+    private final ThreadLocal<IdleStrategy> publishIdleStrategy;
+    private final List<AgentRunner> runners = new ArrayList<>();
+
+    private final ThreadLocal<MessageLengthDecoder> lengthDecoder = ThreadLocal.withInitial(MessageLengthDecoder::new);
+    private final ThreadLocal<InstrumentIdDecoder> instrumentIdDecoder = ThreadLocal.withInitial(InstrumentIdDecoder::new);
+
+    public ShardedSequencer(final int shardCount, final ShardWiring wiring) {
+        this(shardCount, wiring, DEFAULT_CAPACITY, YieldingIdleStrategy::new, YieldingIdleStrategy::new);
+    }
+
+    public ShardedSequencer(final int shardCount, final ShardWiring wiring, final int capacity,
+                            final Supplier<IdleStrategy> shardIdleStrategy, final Supplier<IdleStrategy> publishIdleStrategy) {
+        this.shards = new SequencerShard[shardCount];
+        this.publishIdleStrategy = ThreadLocal.withInitial(publishIdleStrategy);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new SequencerShard("sequencer-shard-" + i, shardIdleStrategy.get(), capacity, DEFAULT_READ_LIMIT,
+                    new StridedOrderIdGenerator(i + 1, shardCount));
+            wiring.wire(i, shards[i].getSequencer(), shards[i].getNetwork());
+        }
+    }
+
+    public void start(){
+        for (SequencerShard shard : shards) {
+            final AgentRunner runner = new AgentRunner(shard.idleStrategy(),
+                    throwable -> logger.error("[SEQUENCER] Shard " + shard.roleName() + " failed", throwable),
+                    null, shard);
+            runners.add(runner);
+            AgentRunner.startOnThread(runner);
+        }
+    }
+
+    public int shardFor(final long instrumentId){
+        return (int) Math.floorMod(instrumentId, (long) shards.length);
+    }
+
+    @Override
+    public void onCommand(final DirectBuffer buffer) {
+        final long instrumentId = instrumentIdDecoder.get().decodeInstrumentId(buffer, 0);
+
+        if(instrumentId == InstrumentIdDecoder.NO_INSTRUMENT){
+            throw new IllegalStateException("Cannot route a message without an instrumentId to a shard");
+        }
+
+        final SequencerShard shard = shards[shardFor(instrumentId)];
+        final int length = lengthDecoder.get().decodeLength(buffer, 0);
+
+        if(!shard.inbound().write(COMMAND_MSG_TYPE_ID, buffer, 0, length)){
+            final IdleStrategy idleStrategy = publishIdleStrategy.get();
+            idleStrategy.reset();
+            while(!shard.inbound().write(COMMAND_MSG_TYPE_ID, buffer, 0, length)){
+                idleStrategy.idle();
+            }
+        }
+    }
+
+    public SequencerShard getShard(final int shard){
+        if(shard < 0 || shard >= shards.length){
+            throw new IllegalArgumentException(format("No such shard shard=[%s] shards=[%s]", shard, shards.length));
+        }
+        return shards[shard];
+    }
+
+    /**
+     * @return the shard that issued the orderId
+     */
+    public int shardForOrder(final long orderId){
+        return (int) Math.floorMod(orderId - 1, (long) shards.length);
+    }
+
+    public int getShardCount(){
+        return shards.length;
+    }
+
+    @Override
+    public void close() {
+        for (AgentRunner runner : runners) {
+            runner.close();
+        }
+        runners.clear();
+    }
+}
@@ -0,0 +1,41 @@
+package codingblackfemales.sequencer.snapshot;
+
+import codingblackfemales.sequencer.Sequencer;
+import org.agrona.DirectBuffer;
+
+/**
+ * Sits between components and the live sequencer, dropping their commands while the journal tail is replayed
+ * (the journal already holds what they sent) and passing them through once recovery is done.
+ */
+public class RecoveringSequencer implements Sequencer {
+
+    private final Sequencer sequencer;
+
+    private boolean recovering = true;
+    private long dropped = 0;
+
+    public RecoveringSequencer(final Sequencer sequencer) {
+        this.sequencer = sequencer;
+    }
+
+    @Override
+    public void onCommand(final DirectBuffer buffer) {
+        if(recovering){
+            dropped += 1;
+            return;
+        }
+        sequencer.onCommand(buffer);
+    }
+
+    public void recovered(){
+        this.recovering = false;
+    }
+
+    public boolean isRecovering(){
+        return recovering;
+    }
+
+    public long getDropped(){
+        return dropped;
+    }
+}
@@ -0,0 +1,58 @@
+package codingblackfemales.sequencer.snapshot;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static java.lang.String.format;
+
+/**
+ * Layout of a snapshot on disk.
+ *
+ * A snapshot directory holds one file per snapshot, named after the sequence number of the last frame the
+ * snapshot includes. A file is a header (magic, version, sequence number, epoch nanos taken at, component count)
+ * followed by one entry per component in the order they were registered, each entry a length and the bytes
+ * the component wrote.
+ */
+public class SnapshotDescriptor {
+
+    public static final int MAGIC = 0x534e4150;
+    //2 since the market data service writes a book per instrument with its update sequence
+    public static final int VERSION = 2;
+
+    public static final int MAGIC_OFFSET = 0;
+    public static final int VERSION_OFFSET = 4;
+    public static final int SEQUENCE_NUMBER_OFFSET = 8;
+    public static final int TIMESTAMP_OFFSET = 16;
+    public static final int COMPONENT_COUNT_OFFSET = 24;
+    public static final int HEADER_LENGTH = 32;
+    public static final int COMPONENT_LENGTH_LENGTH = 4;
+
+    public static final String SNAPSHOT_SUFFIX = ".snapshot";
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    public static String snapshotFileName(final long sequenceNumber){
+        return format("%020d%s", sequenceNumber, SNAPSHOT_SUFFIX);
+    }
+
+    public static long sequenceNumber(final File snapshot){
+        final String name = snapshot.getName();
+        return Long.parseLong(name.substring(0, name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    public static File[] snapshotFiles(final File directory){
+        final File[] snapshots = directory.listFiles((dir, name) -> name.endsWith(SNAPSHOT_SUFFIX));
+        if(snapshots == null){
+            return new File[0];
+        }
+        Arrays.sort(snapshots, (a, b) -> Long.compare(sequenceNumber(a), sequenceNumber(b)));
+        return snapshots;
+    }
+
+    /**
+     * @return the snapshot with the highest sequence number, or null if there are none
+     */
+    public static File latestSnapshot(final File directory){
+        final File[] snapshots = snapshotFiles(directory);
+        return snapshots.length == 0 ? null : snapshots[snapshots.length - 1];
+    }
+}
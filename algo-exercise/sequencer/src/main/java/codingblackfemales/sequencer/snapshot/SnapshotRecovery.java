@@ -0,0 +1,149 @@
+package codingblackfemales.sequencer.snapshot;
+
+import codingblackfemales.sequencer.journal.JournalReplayer;
+import codingblackfemales.sequencer.net.Network;
+import codingblackfemales.sequencer.orderid.OrderIdGenerator;
+import codingblackfemales.sequencer.util.OrderIdDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.order.CreateOrderDecoder;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+import static codingblackfemales.sequencer.snapshot.SnapshotDescriptor.*;
+import static java.lang.String.format;
+
+/**
+ * Rebuilds components after a restart: loads the latest snapshot, then replays the journal frames sequenced after
+ * it into the network, so only the tail is replayed rather than the whole journal.
+ *
+ * The components get the same frames they saw the first time round, including everything they sent in response,
+ * so anything they send while the tail is replayed must be dropped, see {@link RecoveringSequencer}. The returned
+ * sequence number is where the live sequencer should carry on from.
+ *
+ * The order id generator in the snapshot is as it was at the snapshot, the CreateOrders in the tail were stamped
+ * after it. Hand it to {@link #orderIds} as well and it is moved past the highest orderId replayed, so the live
+ * sequencer doesn't issue an id that is already in the journal.
+ */
+public class SnapshotRecovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotRecovery.class);
+
+    private final File snapshotDirectory;
+    private final File journalDirectory;
+    private final OrderIdDecoder orderIdDecoder = new OrderIdDecoder();
+    private OrderIdGenerator orderIdGenerator;
+
+    private long snapshotSequenceNumber;
+    private long lastSequenceNumber;
+    private long tailReplayed;
+    private long lastReplayedOrderId;
+    private long elapsedNanos;
+
+    public SnapshotRecovery(final File snapshotDirectory, final File journalDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+        this.journalDirectory = journalDirectory;
+    }
+
+    /**
+     * @param orderIdGenerator the generator the live sequencer will stamp CreateOrders with
+     */
+    public SnapshotRecovery orderIds(final OrderIdGenerator orderIdGenerator){
+        this.orderIdGenerator = orderIdGenerator;
+        return this;
+    }
+
+    /**
+     * @param network the network the components are consumers of
+     * @param components in the same order they were given to the {@link SnapshotWriter}
+     * @return the sequence number of the last frame recovered, 0 if there was nothing to recover
+     */
+    public long recover(final Network network, final Snapshottable... components){
+        final long start = System.nanoTime();
+
+        final File snapshot = latestSnapshot(snapshotDirectory);
+        snapshotSequenceNumber = snapshot == null ? 0 : load(snapshot, components);
+        lastSequenceNumber = snapshotSequenceNumber;
+        lastReplayedOrderId = OrderIdDecoder.NO_ORDER;
+
+        final MessageHeaderDecoder header = new MessageHeaderDecoder();
+        tailReplayed = new JournalReplayer(journalDirectory)
+                .fromSequenceNumber(snapshotSequenceNumber + 1)
+                .replay(buffer -> {
+                    network.dispatch(buffer);
+                    lastSequenceNumber = header.wrap(buffer, 0).sequencerNumber();
+                    if(header.schemaId() == CreateOrderDecoder.SCHEMA_ID && header.templateId() == CreateOrderDecoder.TEMPLATE_ID){
+                        lastReplayedOrderId = Math.max(lastReplayedOrderId, orderIdDecoder.decodeOrderId(buffer, 0));
+                    }
+                });
+
+        if(orderIdGenerator != null && lastReplayedOrderId != OrderIdDecoder.NO_ORDER){
+            orderIdGenerator.skipPast(lastReplayedOrderId);
+        }
+
+        elapsedNanos = System.nanoTime() - start;
+
+        logger.info("[SNAPSHOT] Recovered to sequence " + lastSequenceNumber + " from snapshot " + snapshotSequenceNumber
+                + " and " + tailReplayed + " journalled frames in " + elapsedNanos / 1_000 + "us");
+
+        return lastSequenceNumber;
+    }
+
+    /**
+     * @return the sequence number the snapshot was taken at
+     */
+    public static long load(final File snapshot, final Snapshottable... components){
+        final UnsafeBuffer buffer;
+        try {
+            buffer = new UnsafeBuffer(Files.readAllBytes(snapshot.toPath()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if(buffer.capacity() < HEADER_LENGTH || buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION){
+            throw new IllegalStateException(format("Not a snapshot file=[%s]", snapshot));
+        }
+
+        final int componentCount = buffer.getInt(COMPONENT_COUNT_OFFSET);
+        if(componentCount != components.length){
+            throw new IllegalStateException(format("Snapshot has a different number of components file=[%s] expected=[%s] actual=[%s]", snapshot, components.length, componentCount));
+        }
+
+        int position = HEADER_LENGTH;
+        for (Snapshottable component : components) {
+            final int length = buffer.getInt(position);
+            component.loadSnapshot(buffer, position + COMPONENT_LENGTH_LENGTH, length);
+            position += COMPONENT_LENGTH_LENGTH + length;
+        }
+
+        return buffer.getLong(SEQUENCE_NUMBER_OFFSET);
+    }
+
+    public long getSnapshotSequenceNumber(){
+        return snapshotSequenceNumber;
+    }
+
+    public long getLastSequenceNumber(){
+        return lastSequenceNumber;
+    }
+
+    public long getTailReplayed(){
+        return tailReplayed;
+    }
+
+    /**
+     * @return the highest orderId of the CreateOrders replayed from the journal, NO_ORDER if there were none
+     */
+    public long getLastReplayedOrderId(){
+        return lastReplayedOrderId;
+    }
+
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+}
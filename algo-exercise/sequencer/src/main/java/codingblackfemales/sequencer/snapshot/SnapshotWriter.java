@@ -0,0 +1,190 @@
+package codingblackfemales.sequencer.snapshot;
+
+import codingblackfemales.sequencer.journal.JournalDescriptor;
+import codingblackfemales.sequencer.journal.JournalIndexDescriptor;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.EpochNanoClock;
+import org.agrona.concurrent.OffsetEpochNanoClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static codingblackfemales.sequencer.snapshot.SnapshotDescriptor.*;
+import static java.lang.String.format;
+
+/**
+ * Takes snapshots of a set of components every N sequenced frames.
+ *
+ * The components are only consistent between frames, so the state is captured on the sequencing thread once the
+ * outermost dispatch has returned (see {@link codingblackfemales.sequencer.DefaultSequencer#setSnapshotWriter}).
+ * Capturing is a copy into memory, the file write, fsync and rename happen on a background thread, so the
+ * sequencing thread never waits on the disk. A snapshot only becomes visible once it is complete on disk.
+ *
+ * The journal is the tail log: once a snapshot is written, journal segments that only hold frames before the
+ * oldest retained snapshot are no longer needed for a restart and can be deleted, see {@link #pruneJournal}.
+ */
+public class SnapshotWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotWriter.class);
+
+    public static final int DEFAULT_RETAINED_SNAPSHOTS = 2;
+
+    private final File directory;
+    private final long interval;
+    private final Snapshottable[] components;
+    private final EpochNanoClock clock;
+
+    private final ExpandableArrayBuffer captureBuffer = new ExpandableArrayBuffer(4096);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private File journalDirectory;
+    private int retainedSnapshots = DEFAULT_RETAINED_SNAPSHOTS;
+
+    private long lastSnapshotSequenceNumber = 0;
+    private volatile long snapshotsWritten = 0;
+    private volatile long snapshotsFailed = 0;
+
+    public SnapshotWriter(final File directory, final long interval, final Snapshottable... components) {
+        this(directory, interval, new OffsetEpochNanoClock(), components);
+    }
+
+    public SnapshotWriter(final File directory, final long interval, final EpochNanoClock clock, final Snapshottable... components) {
+        if(interval <= 0){
+            throw new IllegalArgumentException(format("Snapshot interval must be positive interval=[%s]", interval));
+        }
+        this.directory = directory;
+        this.interval = interval;
+        this.clock = clock;
+        this.components = components;
+        IoUtil.ensureDirectoryExists(directory, "snapshot");
+    }
+
+    /**
+     * @param journalDirectory journal to delete whole segments from once they are older than every retained snapshot
+     */
+    public SnapshotWriter pruneJournal(final File journalDirectory){
+        this.journalDirectory = journalDirectory;
+        return this;
+    }
+
+    public SnapshotWriter retainedSnapshots(final int retainedSnapshots){
+        if(retainedSnapshots < 1){
+            throw new IllegalArgumentException(format("Must retain at least one snapshot retainedSnapshots=[%s]", retainedSnapshots));
+        }
+        this.retainedSnapshots = retainedSnapshots;
+        return this;
+    }
+
+    /**
+     * Called on the sequencing thread between frames, takes a snapshot when interval frames have gone by since the last one.
+     */
+    public void onSequenced(final long sequenceNumber){
+        if(sequenceNumber - lastSnapshotSequenceNumber >= interval){
+            snapshot(sequenceNumber);
+        }
+    }
+
+    /**
+     * Captures the components as of sequenceNumber and queues the write, must be called on the sequencing thread.
+     */
+    public void snapshot(final long sequenceNumber){
+        captureBuffer.putInt(MAGIC_OFFSET, MAGIC);
+        captureBuffer.putInt(VERSION_OFFSET, VERSION);
+        captureBuffer.putLong(SEQUENCE_NUMBER_OFFSET, sequenceNumber);
+        captureBuffer.putLong(TIMESTAMP_OFFSET, clock.nanoTime());
+        captureBuffer.putInt(COMPONENT_COUNT_OFFSET, components.length);
+
+        int position = HEADER_LENGTH;
+        for (Snapshottable component : components) {
+            final int length = component.writeSnapshot(captureBuffer, position + COMPONENT_LENGTH_LENGTH);
+            captureBuffer.putInt(position, length);
+            position += COMPONENT_LENGTH_LENGTH + length;
+        }
+
+        final byte[] snapshot = new byte[position];
+        captureBuffer.getBytes(0, snapshot);
+        lastSnapshotSequenceNumber = sequenceNumber;
+
+        executor.execute(() -> write(sequenceNumber, snapshot));
+    }
+
+    private void write(final long sequenceNumber, final byte[] snapshot){
+        final File snapshotFile = new File(directory, snapshotFileName(sequenceNumber));
+        final File tempFile = new File(directory, snapshotFileName(sequenceNumber) + TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                final ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+                while(buffer.hasRemaining()){
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            snapshotsWritten += 1;
+            logger.info("[SNAPSHOT] Wrote " + snapshotFile + " (" + snapshot.length + " bytes)");
+            deleteExpired();
+        } catch (IOException e) {
+            snapshotsFailed += 1;
+            logger.error("[SNAPSHOT] Failed to write " + snapshotFile, e);
+        }
+    }
+
+    private void deleteExpired(){
+        final File[] snapshots = snapshotFiles(directory);
+        for (int i = 0; i < snapshots.length - retainedSnapshots; i++) {
+            IoUtil.deleteIfExists(snapshots[i]);
+        }
+
+        if(journalDirectory != null){
+            final long oldestRetained = sequenceNumber(snapshots[Math.max(0, snapshots.length - retainedSnapshots)]);
+            final File[] segments = JournalDescriptor.segmentFiles(journalDirectory);
+            //a segment is only needed while the one after it starts after the oldest tail we could replay from
+            for (int i = 0; i + 1 < segments.length && JournalDescriptor.baseSequenceNumber(segments[i + 1]) <= oldestRetained + 1; i++) {
+                IoUtil.deleteIfExists(segments[i]);
+                IoUtil.deleteIfExists(JournalIndexDescriptor.indexFile(segments[i]));
+            }
+        }
+    }
+
+    public long getLastSnapshotSequenceNumber(){
+        return lastSnapshotSequenceNumber;
+    }
+
+    public long getSnapshotsWritten(){
+        return snapshotsWritten;
+    }
+
+    public long getSnapshotsFailed(){
+        return snapshotsFailed;
+    }
+
+    /**
+     * Waits for queued snapshots to be written.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if(!executor.awaitTermination(30, TimeUnit.SECONDS)){
+                logger.warn("[SNAPSHOT] Timed out waiting for snapshots to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
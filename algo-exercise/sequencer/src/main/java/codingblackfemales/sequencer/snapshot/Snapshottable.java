@@ -0,0 +1,22 @@
+package codingblackfemales.sequencer.snapshot;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+
+/**
+ * A component whose state can be written to and rebuilt from a snapshot, see {@link SnapshotWriter}.
+ */
+public interface Snapshottable {
+
+    /**
+     * Writes the component's state, the buffer is expandable so the component does not have to size it up front.
+     *
+     * @return the number of bytes written
+     */
+    int writeSnapshot(final MutableDirectBuffer buffer, final int offset);
+
+    /**
+     * Replaces the component's state with what was written by {@link #writeSnapshot}.
+     */
+    void loadSnapshot(final DirectBuffer buffer, final int offset, final int length);
+}
@@ -0,0 +1,64 @@
+package codingblackfemales.sequencer.util;
+
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookRefreshDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.order.CreateOrderDecoder;
+import messages.order.PendingOrderDecoder;
+import org.agrona.DirectBuffer;
+
+/**
+ * Reads the instrumentId out of the messages that carry one. Holds its own flyweights, so use one instance
+ * per thread.
+ */
+public class InstrumentIdDecoder {
+
+    public static final long NO_INSTRUMENT = -1L;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder book = new BookUpdateDecoder();
+    private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
+    private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+    private final BookDeltaDecoder delta = new BookDeltaDecoder();
+    private final BookRefreshDecoder refresh = new BookRefreshDecoder();
+    private final CreateOrderDecoder create = new CreateOrderDecoder();
+    private final PendingOrderDecoder pending = new PendingOrderDecoder();
+
+    /**
+     * @return the instrumentId, or NO_INSTRUMENT for messages that only carry an orderId (cancels, acks, fills)
+     */
+    public long decodeInstrumentId(final DirectBuffer buffer, final int offset){
+
+        header.wrap(buffer, offset);
+
+        final int actingBlockLength = header.blockLength();
+        final int actingVersion = header.version();
+        final int bodyOffset = offset + header.encodedLength();
+        final int templateId = header.templateId();
+
+        if(header.schemaId() == BookUpdateDecoder.SCHEMA_ID){
+            if(templateId == BookUpdateDecoder.TEMPLATE_ID){
+                return book.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).instrumentId();
+            }else if(templateId == AskBookUpdateDecoder.TEMPLATE_ID){
+                return ask.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).instrumentId();
+            }else if(templateId == BidBookUpdateDecoder.TEMPLATE_ID){
+                return bid.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).instrumentId();
+            }else if(templateId == BookDeltaDecoder.TEMPLATE_ID){
+                return delta.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).instrumentId();
+            }else if(templateId == BookRefreshDecoder.TEMPLATE_ID){
+                return refresh.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).instrumentId();
+            }
+        }else if(header.schemaId() == CreateOrderDecoder.SCHEMA_ID){
+            if(templateId == CreateOrderDecoder.TEMPLATE_ID){
+                return create.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).instrumentId();
+            }else if(templateId == PendingOrderDecoder.TEMPLATE_ID){
+                return pending.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).instrumentId();
+            }
+        }
+
+        return NO_INSTRUMENT;
+    }
+}
@@ -0,0 +1,51 @@
+package codingblackfemales.sequencer.util;
+
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookRefreshDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+
+/**
+ * Works out the full encoded length (header + body + repeating groups) of an SBE frame sitting in a buffer.
+ *
+ * Messages with repeating groups are walked with their decoder, everything else is treated as a fixed
+ * length body of header.blockLength() bytes. Holds its own flyweights, so use one instance per thread.
+ */
+public class MessageLengthDecoder {
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder book = new BookUpdateDecoder();
+    private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
+    private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+    private final BookDeltaDecoder delta = new BookDeltaDecoder();
+    private final BookRefreshDecoder refresh = new BookRefreshDecoder();
+
+    public int decodeLength(final DirectBuffer buffer, final int offset){
+
+        header.wrap(buffer, offset);
+
+        final int actingBlockLength = header.blockLength();
+        final int actingVersion = header.version();
+        final int bodyOffset = offset + header.encodedLength();
+
+        if(header.schemaId() == BookUpdateDecoder.SCHEMA_ID){
+            if(header.templateId() == BookUpdateDecoder.TEMPLATE_ID){
+                return header.encodedLength() + book.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).sbeDecodedLength();
+            }else if(header.templateId() == AskBookUpdateDecoder.TEMPLATE_ID){
+                return header.encodedLength() + ask.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).sbeDecodedLength();
+            }else if(header.templateId() == BidBookUpdateDecoder.TEMPLATE_ID){
+                return header.encodedLength() + bid.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).sbeDecodedLength();
+            }else if(header.templateId() == BookDeltaDecoder.TEMPLATE_ID){
+                return header.encodedLength() + delta.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).sbeDecodedLength();
+            }else if(header.templateId() == BookRefreshDecoder.TEMPLATE_ID){
+                return header.encodedLength() + refresh.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).sbeDecodedLength();
+            }
+        }
+
+        return header.encodedLength() + actingBlockLength;
+    }
+
+}
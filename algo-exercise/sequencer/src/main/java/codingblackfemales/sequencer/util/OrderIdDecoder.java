@@ -0,0 +1,63 @@
+package codingblackfemales.sequencer.util;
+
+import messages.marketdata.MessageHeaderDecoder;
+import messages.order.AckedOrderDecoder;
+import messages.order.CancelAckedOrderDecoder;
+import messages.order.CancelOrderDecoder;
+import messages.order.CreateOrderDecoder;
+import messages.order.FillOrderDecoder;
+import messages.order.PartialFillOrderDecoder;
+import messages.order.PendingOrderDecoder;
+import org.agrona.DirectBuffer;
+
+/**
+ * Reads the orderId out of the order schema messages. Holds its own flyweights, so use one instance per thread.
+ */
+public class OrderIdDecoder {
+
+    public static final long NO_ORDER = -1L;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final CreateOrderDecoder create = new CreateOrderDecoder();
+    private final CancelOrderDecoder cancel = new CancelOrderDecoder();
+    private final AckedOrderDecoder acked = new AckedOrderDecoder();
+    private final CancelAckedOrderDecoder cancelAcked = new CancelAckedOrderDecoder();
+    private final PendingOrderDecoder pending = new PendingOrderDecoder();
+    private final PartialFillOrderDecoder partialFill = new PartialFillOrderDecoder();
+    private final FillOrderDecoder fill = new FillOrderDecoder();
+
+    /**
+     * @return the orderId, or NO_ORDER for messages that aren't about an order (market data)
+     */
+    public long decodeOrderId(final DirectBuffer buffer, final int offset){
+
+        header.wrap(buffer, offset);
+
+        if(header.schemaId() != CreateOrderDecoder.SCHEMA_ID){
+            return NO_ORDER;
+        }
+
+        final int actingBlockLength = header.blockLength();
+        final int actingVersion = header.version();
+        final int bodyOffset = offset + header.encodedLength();
+
+        switch (header.templateId()){
+            case CreateOrderDecoder.TEMPLATE_ID:
+                return create.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).orderId();
+            case CancelOrderDecoder.TEMPLATE_ID:
+                return cancel.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).orderId();
+            case AckedOrderDecoder.TEMPLATE_ID:
+                return acked.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).orderId();
+            case CancelAckedOrderDecoder.TEMPLATE_ID:
+                return cancelAcked.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).orderId();
+            case PendingOrderDecoder.TEMPLATE_ID:
+                return pending.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).orderId();
+            case PartialFillOrderDecoder.TEMPLATE_ID:
+                return partialFill.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).orderId();
+            case FillOrderDecoder.TEMPLATE_ID:
+                return fill.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).orderId();
+            default:
+                return NO_ORDER;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package codingblackfemales.sequencer;
+
+import codingblackfemales.sequencer.net.TestNetwork;
+import messages.marketdata.*;
+import messages.order.CreateOrderEncoder;
+import messages.order.Side;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultSequencerAllocationTest {
+
+    private static final int WARM_UP = 20_000;
+    private static final int MESSAGES = 100_000;
+
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final BookUpdateEncoder encoder = new BookUpdateEncoder();
+
+    private UnsafeBuffer createTick(){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(123L);
+        encoder.source(Source.STREAM);
+
+        encoder.bidBookCount(2)
+                .next().price(98L).size(100L)
+                .next().price(95L).size(200L);
+
+        encoder.askBookCount(2)
+                .next().price(100L).size(101L)
+                .next().price(110L).size(200L);
+
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+
+        return directBuffer;
+    }
+
+    private static BufferPoolMXBean directPool(){
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if(pool.getName().equals("direct")){
+                return pool;
+            }
+        }
+        throw new IllegalStateException("No direct buffer pool");
+    }
+
+    private static long allocatedBytes(){
+        final var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    @Test
+    public void testSequencingDoesNotAllocate() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        network.addConsumer(buffer -> {});
+
+        final UnsafeBuffer tick = createTick();
+
+        for (int i = 0; i < WARM_UP; i++) {
+            sequencer.onCommand(tick);
+        }
+
+        final BufferPoolMXBean direct = directPool();
+        final long directCountBefore = direct.getCount();
+        final long allocatedBefore = allocatedBytes();
+
+        for (int i = 0; i < MESSAGES; i++) {
+            sequencer.onCommand(tick);
+        }
+
+        final long allocated = allocatedBytes() - allocatedBefore;
+
+        assertEquals(0, direct.getCount() - directCountBefore);
+        assertTrue("allocated " + allocated + " bytes for " + MESSAGES + " messages", allocated < MESSAGES);
+        assertEquals(WARM_UP + MESSAGES, sequencer.getSequencerNumber());
+    }
+
+    @Test
+    public void testNestedDispatchDoesNotOverwriteOuterFrame() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network, 1024, 1);
+
+        final UnsafeBuffer order = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        new CreateOrderEncoder().wrapAndApplyHeader(order, 0, new messages.order.MessageHeaderEncoder())
+                .price(100L).quantity(50L).side(Side.BUY);
+
+        final long[] seenAfterNestedDispatch = new long[1];
+
+        network.addConsumer(buffer -> {
+            headerDecoder.wrap(buffer, 0);
+            if(headerDecoder.templateId() == BookUpdateEncoder.TEMPLATE_ID && headerDecoder.schemaId() == BookUpdateEncoder.SCHEMA_ID){
+                sequencer.onCommand(order);
+            }
+        });
+        network.addConsumer(buffer -> {
+            headerDecoder.wrap(buffer, 0);
+            if(headerDecoder.templateId() == BookUpdateEncoder.TEMPLATE_ID && headerDecoder.schemaId() == BookUpdateEncoder.SCHEMA_ID){
+                seenAfterNestedDispatch[0] = headerDecoder.sequencerNumber();
+            }
+        });
+
+        final DirectBuffer tick = createTick();
+        sequencer.onCommand(tick);
+
+        assertEquals(1L, seenAfterNestedDispatch[0]);
+        assertEquals(2L, sequencer.getSequencerNumber());
+
+        headerDecoder.wrap(tick, 0);
+        assertEquals(0L, headerDecoder.sequencerNumber());
+    }
+}
@@ -0,0 +1,112 @@
+package codingblackfemales.sequencer;
+
+import codingblackfemales.sequencer.net.TestNetwork;
+import messages.marketdata.*;
+import messages.order.CreateOrderDecoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.Side;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static codingblackfemales.sequencer.marketdata.TestTicks.createTick;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultSequencerTest {
+
+    private UnsafeBuffer createOrder(){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        new CreateOrderEncoder().wrapAndApplyHeader(directBuffer, 0, new messages.order.MessageHeaderEncoder())
+                .instrumentId(123L).price(98L).quantity(100L).side(Side.BUY);
+        return directBuffer;
+    }
+
+    private static class Stamp {
+        final int schemaId;
+        final long sequencerNumber;
+        final long ingressTimestamp;
+        final long sequencedTimestamp;
+        final long correlationId;
+
+        Stamp(final MessageHeaderDecoder header) {
+            this.schemaId = header.schemaId();
+            this.sequencerNumber = header.sequencerNumber();
+            this.ingressTimestamp = header.ingressTimestamp();
+            this.sequencedTimestamp = header.sequencedTimestamp();
+            this.correlationId = header.correlationId();
+        }
+    }
+
+    @Test
+    public void testCausedCommandsCarryCorrelationAndIngress() throws Exception {
+
+        final long[] clock = {1_000};
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network, 1024, 1, () -> clock[0] += 10);
+        final UnsafeBuffer order = createOrder();
+        final List<Stamp> stamps = new ArrayList<>();
+
+        //acts like the algo, sends an order for every tick
+        network.addConsumer(buffer -> {
+            final MessageHeaderDecoder header = new MessageHeaderDecoder().wrap(buffer, 0);
+            stamps.add(new Stamp(header));
+            if(header.schemaId() == BookUpdateEncoder.SCHEMA_ID){
+                sequencer.onCommand(order);
+            }
+        });
+
+        final UnsafeBuffer tick = createTick(123L);
+        new MessageHeaderEncoder().wrap(tick, 0).ingressTimestamp(500L);
+        sequencer.onCommand(tick);
+        sequencer.onCommand(createTick(123L));
+
+        assertEquals(4, stamps.size());
+
+        final Stamp firstTick = stamps.get(0);
+        final Stamp firstOrder = stamps.get(1);
+        assertEquals(500L, firstTick.ingressTimestamp);
+        assertEquals(1_010L, firstTick.sequencedTimestamp);
+        assertEquals(0L, firstTick.correlationId);
+        assertEquals(CreateOrderEncoder.SCHEMA_ID, firstOrder.schemaId);
+        assertEquals(firstTick.sequencerNumber, firstOrder.correlationId);
+        assertEquals(500L, firstOrder.ingressTimestamp);
+        assertEquals(1_020L, firstOrder.sequencedTimestamp);
+
+        final Stamp secondTick = stamps.get(2);
+        final Stamp secondOrder = stamps.get(3);
+        //no ingress time on the way in, so it entered when it was sequenced
+        assertEquals(secondTick.sequencedTimestamp, secondTick.ingressTimestamp);
+        assertEquals(secondTick.sequencerNumber, secondOrder.correlationId);
+        assertTrue(secondOrder.sequencedTimestamp - secondOrder.ingressTimestamp > 0);
+    }
+
+    @Test
+    public void testOrderIdIsStampedInPlaceKeepingEveryField() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        final List<long[]> orders = new ArrayList<>();
+
+        network.addConsumer(buffer -> {
+            final MessageHeaderDecoder header = new MessageHeaderDecoder().wrap(buffer, 0);
+            final CreateOrderDecoder create = new CreateOrderDecoder().wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            orders.add(new long[]{create.instrumentId(), create.price(), create.quantity(), create.side() == Side.BUY ? 1 : 0, create.orderId()});
+        });
+
+        final UnsafeBuffer order = createOrder();
+        sequencer.onCommand(order);
+        sequencer.onCommand(order);
+
+        assertEquals(2, orders.size());
+        assertArrayEquals(new long[]{123L, 98L, 100L, 1, 2L}, orders.get(0));
+        assertArrayEquals(new long[]{123L, 98L, 100L, 1, 3L}, orders.get(1));
+
+        //the caller's buffer is not touched
+        assertEquals(0L, new CreateOrderDecoder().wrap(order, MessageHeaderEncoder.ENCODED_LENGTH, CreateOrderEncoder.BLOCK_LENGTH, CreateOrderEncoder.SCHEMA_VERSION).orderId());
+    }
+}
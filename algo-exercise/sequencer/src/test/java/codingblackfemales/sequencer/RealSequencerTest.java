@@ -0,0 +1,94 @@
+package codingblackfemales.sequencer;
+
+import codingblackfemales.sequencer.net.TestNetwork;
+import messages.marketdata.*;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static codingblackfemales.sequencer.marketdata.TestTicks.createTick;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RealSequencerTest {
+
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final BookUpdateDecoder decoder = new BookUpdateDecoder();
+
+    @Test
+    public void testSequenceNumbersAreMonotonicAcrossRegionWraps() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        //small region so it wraps many times
+        final RealSequencer sequencer = new RealSequencer(network, 512, 256, 100L);
+        final long[] expected = {101L};
+
+        network.addConsumer(buffer -> {
+            headerDecoder.wrap(buffer, 0);
+            assertEquals(expected[0], headerDecoder.sequencerNumber());
+            decoder.wrap(buffer, headerDecoder.encodedLength(), headerDecoder.blockLength(), headerDecoder.version());
+            assertEquals(expected[0], decoder.instrumentId());
+            expected[0]++;
+        });
+
+        for (long i = 101; i <= 1_000; i++) {
+            final UnsafeBuffer tick = createTick(i);
+            sequencer.onCommand(tick);
+            headerDecoder.wrap(tick, 0);
+            assertEquals(0L, headerDecoder.sequencerNumber());
+        }
+
+        assertEquals(1_001L, expected[0]);
+        assertEquals(1_000L, sequencer.getSequenceNumber());
+    }
+
+    @Test
+    public void testNestedCommandsDoNotOverwriteOuterFrame() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final RealSequencer sequencer = new RealSequencer(network);
+        final UnsafeBuffer nested = createTick(2L);
+        final long[] outerInstrument = {0};
+
+        network.addConsumer(buffer -> {
+            headerDecoder.wrap(buffer, 0);
+            if(headerDecoder.sequencerNumber() == 1L){
+                sequencer.onCommand(nested);
+            }
+        });
+        network.addConsumer(buffer -> {
+            final MessageHeaderDecoder header = new MessageHeaderDecoder().wrap(buffer, 0);
+            if(header.sequencerNumber() == 1L){
+                outerInstrument[0] = new BookUpdateDecoder().wrap(buffer, header.encodedLength(), header.blockLength(), header.version()).instrumentId();
+            }
+        });
+
+        sequencer.onCommand(createTick(1L));
+
+        assertEquals(1L, outerInstrument[0]);
+        assertEquals(2L, sequencer.getSequenceNumber());
+    }
+
+    @Test
+    public void testRejectsSecondWriterThread() throws Exception {
+
+        final RealSequencer sequencer = new RealSequencer(new TestNetwork());
+        final UnsafeBuffer tick = createTick(1L);
+        sequencer.onCommand(tick);
+
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final Thread other = new Thread(() -> {
+            try {
+                sequencer.onCommand(tick);
+            } catch (Throwable t) {
+                error.set(t);
+            }
+        });
+        other.start();
+        other.join();
+
+        assertTrue(error.get() instanceof IllegalStateException);
+        assertEquals(1L, sequencer.getSequenceNumber());
+    }
+}
@@ -0,0 +1,37 @@
+package codingblackfemales.sequencer.consumer;
+
+import messages.marketdata.MessageHeaderEncoder;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public class SequenceGapDetectorTest {
+
+    private final UnsafeBuffer frame = new UnsafeBuffer(ByteBuffer.allocateDirect(64));
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+
+    private UnsafeBuffer frame(final long sequenceNumber){
+        headerEncoder.wrap(frame, 0).sequencerNumber(sequenceNumber);
+        return frame;
+    }
+
+    @Test
+    public void testFlagsGapsAndDropsDuplicates() throws Exception {
+
+        final long[] delivered = {0};
+        final SequenceGapDetector detector = new SequenceGapDetector(buffer -> delivered[0]++);
+
+        for (long sequenceNumber : new long[]{1, 2, 3, 6, 6, 7, 4, 10}) {
+            detector.onMessage(frame(sequenceNumber));
+        }
+
+        assertEquals(2, detector.getGaps());
+        assertEquals(4, detector.getMissing());
+        assertEquals(2, detector.getDuplicates());
+        assertEquals(10, detector.getLastSequenceNumber());
+        assertEquals(6, delivered[0]);
+    }
+}
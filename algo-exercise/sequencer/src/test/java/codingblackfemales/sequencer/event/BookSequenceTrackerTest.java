@@ -0,0 +1,96 @@
+package codingblackfemales.sequencer.event;
+
+import messages.marketdata.*;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BookSequenceTrackerTest {
+
+    @Test
+    public void testDeltasMustArriveInSequence() {
+        final BookSequenceTracker tracker = new BookSequenceTracker();
+
+        assertEquals(BookSequenceTracker.APPLY, tracker.onDelta(1L, 1L));
+        assertEquals(BookSequenceTracker.APPLY, tracker.onDelta(1L, 2L));
+        assertEquals(BookSequenceTracker.DUPLICATE, tracker.onDelta(1L, 2L));
+        assertEquals(BookSequenceTracker.APPLY, tracker.onDelta(2L, 1L));
+
+        assertEquals(BookSequenceTracker.GAP, tracker.onDelta(1L, 4L));
+        assertTrue(tracker.isStale(1L));
+        assertEquals(BookSequenceTracker.STALE, tracker.onDelta(1L, 3L));
+        assertEquals(BookSequenceTracker.STALE, tracker.onDelta(1L, 5L));
+        assertFalse(tracker.isStale(2L));
+
+        assertTrue(tracker.onRefresh(1L, 5L));
+        assertFalse(tracker.isStale(1L));
+        assertEquals(5L, tracker.updateSequence(1L));
+        assertEquals(BookSequenceTracker.DUPLICATE, tracker.onDelta(1L, 5L));
+        assertEquals(BookSequenceTracker.APPLY, tracker.onDelta(1L, 6L));
+
+        assertFalse(tracker.onRefresh(1L, 4L));
+        assertEquals(6L, tracker.updateSequence(1L));
+    }
+
+    @Test
+    public void testListenerDropsDeltasAfterAGapUntilRefreshed() {
+        final List<Long> applied = new ArrayList<>();
+        final List<String> gaps = new ArrayList<>();
+        final MarketDataEventListener listener = new MarketDataEventListener() {
+            @Override
+            public void onBookDelta(BookDeltaDecoder bookDelta) {
+                applied.add(bookDelta.updateSequence());
+            }
+            @Override
+            public void onBookRefresh(BookRefreshDecoder bookRefresh) {
+                applied.add(-bookRefresh.updateSequence());
+            }
+            @Override
+            public void onBookUpdate(BookUpdateDecoder bookUpdate) {}
+            @Override
+            public void onAskBook(AskBookUpdateDecoder askBook) {}
+            @Override
+            public void onBidBook(BidBookUpdateDecoder bidBook) {}
+        };
+        listener.setGapHandler((instrumentId, expected, received) -> gaps.add(instrumentId + ":" + expected + ":" + received));
+
+        listener.onMessage(delta(7L, 1L));
+        listener.onMessage(delta(7L, 2L));
+        listener.onMessage(delta(7L, 4L));
+        listener.onMessage(delta(7L, 5L));
+        assertTrue(listener.isBookStale(7L));
+
+        listener.onMessage(refresh(7L, 5L));
+        listener.onMessage(delta(7L, 5L));
+        listener.onMessage(delta(7L, 6L));
+
+        assertEquals(List.of(1L, 2L, -5L, 6L), applied);
+        assertEquals(List.of("7:3:4"), gaps);
+        assertEquals(1L, listener.getGaps());
+        assertEquals(3L, listener.getDroppedDeltas());
+        assertEquals(6L, listener.getUpdateSequence(7L));
+        assertFalse(listener.isBookStale(7L));
+    }
+
+    private static UnsafeBuffer delta(final long instrumentId, final long updateSequence){
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new BookDeltaEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .instrumentId(instrumentId).venue(Venue.XLON).updateSequence(updateSequence)
+                .levelsCount(1).next().action(LevelAction.CHANGE).side(LevelSide.BID).price(100L).size(10L);
+        return buffer;
+    }
+
+    private static UnsafeBuffer refresh(final long instrumentId, final long updateSequence){
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final BookRefreshEncoder encoder = new BookRefreshEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .instrumentId(instrumentId).venue(Venue.XLON).updateSequence(updateSequence);
+        encoder.bidBookCount(1).next().price(100L).size(10L);
+        encoder.askBookCount(1).next().price(101L).size(10L);
+        return buffer;
+    }
+}
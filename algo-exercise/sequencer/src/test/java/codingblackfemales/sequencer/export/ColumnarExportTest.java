@@ -0,0 +1,354 @@
+package codingblackfemales.sequencer.export;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.journal.JournalDescriptor;
+import codingblackfemales.sequencer.journal.JournalReader;
+import codingblackfemales.sequencer.journal.JournalWriter;
+import codingblackfemales.sequencer.journal.JournalingNetwork;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.sequencer.orderid.SequentialOrderIdGenerator;
+import codingblackfemales.sequencer.util.OrderIdDecoder;
+import messages.marketdata.*;
+import messages.order.CreateOrderDecoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.FillOrderDecoder;
+import messages.order.FillOrderEncoder;
+import messages.order.Side;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.EpochNanoClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnarExportTest {
+
+    private static final int MESSAGES = 10_000;
+    private static final int SEGMENT_LENGTH = 64 * 1024;
+    private static final long START_NANOS = 1_700_000_000_000_000_000L;
+    private static final long NANOS_PER_FRAME = 1_000_000L;
+    private static final long WINDOW_NANOS = 50 * NANOS_PER_FRAME;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final UnsafeBuffer command = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder book = new BookUpdateDecoder();
+    private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+    private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
+    private final OrderIdDecoder orderIdDecoder = new OrderIdDecoder();
+
+    /**
+     * Writes a CreateOrder and its Fill, a whole book, a bid side and an ask side update in turn, for two
+     * instruments with moving prices, one frame a milli.
+     */
+    private void writeJournal(final File directory){
+        final long[] now = {START_NANOS};
+        final EpochNanoClock clock = () -> now[0] += NANOS_PER_FRAME;
+
+        try (JournalingNetwork journaling = new JournalingNetwork(new TestNetwork(), new JournalWriter(directory, SEGMENT_LENGTH, clock))) {
+            final DefaultSequencer sequencer = new DefaultSequencer(journaling);
+            sequencer.setOrderIdGenerator(new SequentialOrderIdGenerator(0));
+            long orderId = 0;
+            for (int i = 0; i < MESSAGES; i++) {
+                final long instrumentId = i % 2;
+                final long price = 100 + i % 7;
+                switch (i % 5){
+                    case 0:
+                        new CreateOrderEncoder().wrapAndApplyHeader(command, 0, new messages.order.MessageHeaderEncoder())
+                                .instrumentId(instrumentId).price(price).quantity(10L).side(i % 10 == 0 ? Side.BUY : Side.SELL);
+                        orderId++;
+                        break;
+                    case 1:
+                        new FillOrderEncoder().wrapAndApplyHeader(command, 0, new messages.order.MessageHeaderEncoder())
+                                .orderId(orderId).price(price).quantity(10L);
+                        break;
+                    case 2:
+                        final BookUpdateEncoder update = new BookUpdateEncoder().wrapAndApplyHeader(command, 0, new MessageHeaderEncoder());
+                        update.venue(Venue.XLON).instrumentId(instrumentId).source(Source.STREAM);
+                        update.bidBookCount(2).next().price(price - 2).size(100L + i).next().price(price - 3).size(200L);
+                        update.askBookCount(2).next().price(price).size(101L).next().price(price + 1).size(300L + i);
+                        update.instrumentStatus(InstrumentStatus.CONTINUOUS);
+                        break;
+                    case 3:
+                        new BidBookUpdateEncoder().wrapAndApplyHeader(command, 0, new MessageHeaderEncoder())
+                                .venue(Venue.XLON).instrumentId(instrumentId).bidBookCount(1).next().price(price - 1).size(50L + i);
+                        break;
+                    default:
+                        new AskBookUpdateEncoder().wrapAndApplyHeader(command, 0, new MessageHeaderEncoder())
+                                .venue(Venue.XLON).instrumentId(instrumentId).askBookCount(1).next().price(price + 2).size(60L + i);
+                }
+                sequencer.onCommand(command);
+            }
+        }
+    }
+
+    private List<File> exports(final File directory){
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(ColumnarDescriptor.EXPORT_SUFFIX));
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    private static long[] concat(final List<ColumnarFile> files, final String table, final String column){
+        final List<Long> values = new ArrayList<>();
+        for (ColumnarFile file : files) {
+            for (long value : file.table(table).column(column)) {
+                values.add(value);
+            }
+        }
+        return values.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long[] toArray(final List<Long> values){
+        return values.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Test
+    public void testExportedColumnsMatchAScanOfTheJournal() throws Exception {
+        final File journal = folder.newFolder("journal");
+        final File output = folder.newFolder("export");
+        writeJournal(journal);
+
+        final List<Long> levelSequenceNumbers = new ArrayList<>();
+        final List<Long> levelPrices = new ArrayList<>();
+        final List<Long> levelSizes = new ArrayList<>();
+        final List<Long> levelSides = new ArrayList<>();
+        final List<Long> orderSequenceNumbers = new ArrayList<>();
+        final List<Long> orderTimestamps = new ArrayList<>();
+        final List<Long> orderIds = new ArrayList<>();
+        final List<Long> orderPrices = new ArrayList<>();
+        new JournalReader(journal).read((frame, timestampNanos) -> {
+            header.wrap(frame, 0);
+            final long sequenceNumber = header.sequencerNumber();
+            if(header.schemaId() == BookUpdateDecoder.SCHEMA_ID){
+                if(header.templateId() == BookUpdateDecoder.TEMPLATE_ID){
+                    book.wrap(frame, header.encodedLength(), header.blockLength(), header.version());
+                    for (BookUpdateDecoder.BidBookDecoder level : book.bidBook()) {
+                        levelSequenceNumbers.add(sequenceNumber); levelSides.add(0L); levelPrices.add(level.price()); levelSizes.add(level.size());
+                    }
+                    for (BookUpdateDecoder.AskBookDecoder level : book.askBook()) {
+                        levelSequenceNumbers.add(sequenceNumber); levelSides.add(1L); levelPrices.add(level.price()); levelSizes.add(level.size());
+                    }
+                }else if(header.templateId() == BidBookUpdateDecoder.TEMPLATE_ID){
+                    bid.wrap(frame, header.encodedLength(), header.blockLength(), header.version());
+                    for (BidBookUpdateDecoder.BidBookDecoder level : bid.bidBook()) {
+                        levelSequenceNumbers.add(sequenceNumber); levelSides.add(0L); levelPrices.add(level.price()); levelSizes.add(level.size());
+                    }
+                }else {
+                    ask.wrap(frame, header.encodedLength(), header.blockLength(), header.version());
+                    for (AskBookUpdateDecoder.AskBookDecoder level : ask.askBook()) {
+                        levelSequenceNumbers.add(sequenceNumber); levelSides.add(1L); levelPrices.add(level.price()); levelSizes.add(level.size());
+                    }
+                }
+            }else {
+                orderSequenceNumbers.add(sequenceNumber);
+                orderTimestamps.add(timestampNanos);
+                orderIds.add(orderIdDecoder.decodeOrderId(frame, 0));
+                if(header.templateId() == CreateOrderDecoder.TEMPLATE_ID){
+                    final CreateOrderDecoder create = new CreateOrderDecoder().wrap(frame, header.encodedLength(), header.blockLength(), header.version());
+                    orderPrices.add(create.price());
+                }else {
+                    final FillOrderDecoder fill = new FillOrderDecoder().wrap(frame, header.encodedLength(), header.blockLength(), header.version());
+                    orderPrices.add(fill.price());
+                }
+            }
+        });
+
+        final ColumnarExporter exporter = new ColumnarExporter(journal, output).threads(2);
+        assertEquals(MESSAGES, exporter.export());
+        assertEquals(MESSAGES, exporter.getFramesRead());
+        assertEquals(0L, exporter.getFramesDropped());
+
+        final List<File> exports = exports(output);
+        assertEquals(JournalDescriptor.segmentFiles(journal).length, exports.size());
+        assertTrue(exports.size() > 1);
+
+        final List<ColumnarFile> files = new ArrayList<>();
+        for (File export : exports) {
+            final ColumnarFile file = ColumnarFile.read(export);
+            assertEquals(ColumnarDescriptor.baseSequenceNumber(export), file.getBaseSequenceNumber());
+            files.add(file);
+        }
+
+        assertArrayEquals(toArray(levelSequenceNumbers), concat(files, ColumnarDescriptor.BOOK_LEVELS, "sequenceNumber"));
+        assertArrayEquals(toArray(levelSides), concat(files, ColumnarDescriptor.BOOK_LEVELS, "side"));
+        assertArrayEquals(toArray(levelPrices), concat(files, ColumnarDescriptor.BOOK_LEVELS, "price"));
+        assertArrayEquals(toArray(levelSizes), concat(files, ColumnarDescriptor.BOOK_LEVELS, "size"));
+        assertArrayEquals(toArray(orderSequenceNumbers), concat(files, ColumnarDescriptor.ORDER_EVENTS, "sequenceNumber"));
+        assertArrayEquals(toArray(orderTimestamps), concat(files, ColumnarDescriptor.ORDER_EVENTS, "timestamp"));
+        assertArrayEquals(toArray(orderIds), concat(files, ColumnarDescriptor.ORDER_EVENTS, "orderId"));
+        assertArrayEquals(toArray(orderPrices), concat(files, ColumnarDescriptor.ORDER_EVENTS, "price"));
+
+        //delta encoding keeps the sequence number, timestamp and price columns to a byte or so a row
+        final long rows = levelSequenceNumbers.size() + orderSequenceNumbers.size();
+        assertTrue(exporter.getBytesWritten() < rows * 30);
+    }
+
+    /**
+     * The book for every instrument as at the end of each window, with the number of order frames seen.
+     */
+    private Map<Long, String> booksAtWindowEnds(final File journal){
+        final Map<Long, String> windowEnds = new TreeMap<>();
+        final Map<Long, String> bids = new TreeMap<>();
+        final Map<Long, String> asks = new TreeMap<>();
+        final long[] window = {Long.MIN_VALUE};
+        final long[] orders = {0};
+        new JournalReader(journal).read((frame, timestampNanos) -> {
+            if(timestampNanos / WINDOW_NANOS != window[0] && window[0] != Long.MIN_VALUE){
+                windowEnds.put(window[0], bids + " " + asks + " " + orders[0]);
+            }
+            window[0] = timestampNanos / WINDOW_NANOS;
+            header.wrap(frame, 0);
+            if(header.schemaId() != BookUpdateDecoder.SCHEMA_ID){
+                orders[0]++;
+            }else if(header.templateId() == BookUpdateDecoder.TEMPLATE_ID){
+                book.wrap(frame, header.encodedLength(), header.blockLength(), header.version());
+                final StringBuilder bidLevels = new StringBuilder();
+                for (BookUpdateDecoder.BidBookDecoder level : book.bidBook()) {
+                    bidLevels.append(level.size()).append('@').append(level.price()).append(',');
+                }
+                final StringBuilder askLevels = new StringBuilder();
+                for (BookUpdateDecoder.AskBookDecoder level : book.askBook()) {
+                    askLevels.append(level.size()).append('@').append(level.price()).append(',');
+                }
+                bids.put(book.instrumentId(), bidLevels.toString());
+                asks.put(book.instrumentId(), askLevels.toString());
+            }else if(header.templateId() == BidBookUpdateDecoder.TEMPLATE_ID){
+                bid.wrap(frame, header.encodedLength(), header.blockLength(), header.version());
+                final StringBuilder bidLevels = new StringBuilder();
+                for (BidBookUpdateDecoder.BidBookDecoder level : bid.bidBook()) {
+                    bidLevels.append(level.size()).append('@').append(level.price()).append(',');
+                }
+                bids.put(bid.instrumentId(), bidLevels.toString());
+            }else {
+                ask.wrap(frame, header.encodedLength(), header.blockLength(), header.version());
+                final StringBuilder askLevels = new StringBuilder();
+                for (AskBookUpdateDecoder.AskBookDecoder level : ask.askBook()) {
+                    askLevels.append(level.size()).append('@').append(level.price()).append(',');
+                }
+                asks.put(ask.instrumentId(), askLevels.toString());
+            }
+        });
+        windowEnds.put(window[0], bids + " " + asks + " " + orders[0]);
+        return windowEnds;
+    }
+
+    @Test
+    public void testCompactionDropsSupersededBooksAndKeepsWindowEnds() throws Exception {
+        final File journal = folder.newFolder("journal");
+        final File compacted = folder.newFolder("compacted");
+        writeJournal(journal);
+
+        final JournalCompactor compactor = new JournalCompactor(journal, compacted, WINDOW_NANOS).threads(2);
+        final long written = compactor.compact();
+        assertEquals(MESSAGES, compactor.getFramesRead());
+        assertTrue(compactor.getFramesDropped() > MESSAGES / 2);
+        assertEquals(MESSAGES - compactor.getFramesDropped(), written);
+
+        final Map<Long, String> expected = booksAtWindowEnds(journal);
+        assertEquals(MESSAGES * NANOS_PER_FRAME / WINDOW_NANOS + 1, expected.size());
+        assertEquals(expected, booksAtWindowEnds(compacted));
+
+        //sequence numbers survive compaction, in order
+        final long[] previous = {0};
+        final Map<Long, Long> timestamps = new HashMap<>();
+        assertEquals(written, new JournalReader(compacted).read((frame, timestampNanos) -> {
+            header.wrap(frame, 0);
+            assertTrue(header.sequencerNumber() > previous[0]);
+            previous[0] = header.sequencerNumber();
+            timestamps.put(header.sequencerNumber(), timestampNanos);
+        }));
+        new JournalReader(journal).read((frame, timestampNanos) -> {
+            header.wrap(frame, 0);
+            final Long timestamp = timestamps.get(header.sequencerNumber());
+            if(timestamp != null){
+                assertEquals(timestampNanos, timestamp.longValue());
+            }
+        });
+
+        //exporting with the same window drops the same frames
+        final File output = folder.newFolder("export");
+        final ColumnarExporter exporter = new ColumnarExporter(journal, output).threads(2).compact(WINDOW_NANOS);
+        assertEquals(written, exporter.export());
+        assertEquals(compactor.getFramesDropped(), exporter.getFramesDropped());
+
+        final List<ColumnarFile> files = new ArrayList<>();
+        for (File export : exports(output)) {
+            files.add(ColumnarFile.read(export));
+        }
+        assertEquals(MESSAGES * 2 / 5, concat(files, ColumnarDescriptor.ORDER_EVENTS, "orderId").length);
+    }
+
+    private void delta(final long instrumentId, final long updateSequence, final LevelAction action, final long price, final long size){
+        new BookDeltaEncoder().wrapAndApplyHeader(command, 0, new MessageHeaderEncoder())
+                .instrumentId(instrumentId).venue(Venue.XLON).updateSequence(updateSequence)
+                .levelsCount(1).next().action(action).side(LevelSide.ASK).price(price).size(size);
+    }
+
+    private void refresh(final long instrumentId, final long updateSequence){
+        final BookRefreshEncoder encoder = new BookRefreshEncoder().wrapAndApplyHeader(command, 0, new MessageHeaderEncoder())
+                .instrumentId(instrumentId).venue(Venue.XLON).updateSequence(updateSequence);
+        encoder.bidBookCount(1).next().price(99L).size(10L);
+        encoder.askBookCount(2).next().price(101L).size(20L).next().price(102L).size(30L);
+    }
+
+    @Test
+    public void testExportsDeltasAndCompactsThemIntoALaterRefresh() throws Exception {
+        final File journal = folder.newFolder("journal");
+        final long[] now = {START_NANOS};
+        try (JournalingNetwork journaling = new JournalingNetwork(new TestNetwork(), new JournalWriter(journal, SEGMENT_LENGTH, () -> now[0] += NANOS_PER_FRAME))) {
+            final DefaultSequencer sequencer = new DefaultSequencer(journaling);
+            final BookUpdateEncoder update = new BookUpdateEncoder().wrapAndApplyHeader(command, 0, new MessageHeaderEncoder());
+            update.venue(Venue.XLON).instrumentId(1L).source(Source.STREAM);
+            update.bidBookCount(1).next().price(98L).size(100L);
+            update.askBookCount(1).next().price(100L).size(100L);
+            update.instrumentStatus(InstrumentStatus.CONTINUOUS);
+            sequencer.onCommand(command);
+            delta(1L, 1L, LevelAction.NEW, 101L, 5L);
+            sequencer.onCommand(command);
+            delta(1L, 2L, LevelAction.DELETE, 100L, 0L);
+            sequencer.onCommand(command);
+            refresh(1L, 2L);
+            sequencer.onCommand(command);
+            delta(1L, 3L, LevelAction.CHANGE, 102L, 7L);
+            sequencer.onCommand(command);
+        }
+
+        final File output = folder.newFolder("export");
+        assertEquals(5, new ColumnarExporter(journal, output).threads(1).export());
+        final List<ColumnarFile> files = List.of(ColumnarFile.read(exports(output).get(0)));
+        assertArrayEquals(new long[]{-1, -1, 0, 2, -1, -1, -1, 1}, concat(files, ColumnarDescriptor.BOOK_LEVELS, "action"));
+        assertArrayEquals(new long[]{-1, -1, 1, 2, 2, 2, 2, 3}, concat(files, ColumnarDescriptor.BOOK_LEVELS, "updateSequence"));
+        assertArrayEquals(new long[]{0, 1, 1, 1, 0, 1, 1, 1}, concat(files, ColumnarDescriptor.BOOK_LEVELS, "side"));
+        assertArrayEquals(new long[]{98, 100, 101, 100, 99, 101, 102, 102}, concat(files, ColumnarDescriptor.BOOK_LEVELS, "price"));
+
+        //the book update and both deltas are in the refresh, the delta after it is kept
+        final File compactedOutput = folder.newFolder("compacted-export");
+        final ColumnarExporter compacting = new ColumnarExporter(journal, compactedOutput).threads(1).compact(WINDOW_NANOS);
+        assertEquals(2, compacting.export());
+        assertEquals(3L, compacting.getFramesDropped());
+        final List<ColumnarFile> compacted = List.of(ColumnarFile.read(exports(compactedOutput).get(0)));
+        assertArrayEquals(new long[]{2, 2, 2, 3}, concat(compacted, ColumnarDescriptor.BOOK_LEVELS, "updateSequence"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRefusesToCompactInPlace() throws Exception {
+        final File journal = folder.newFolder("journal");
+        new JournalCompactor(journal, new File(journal.getPath()), WINDOW_NANOS);
+    }
+}
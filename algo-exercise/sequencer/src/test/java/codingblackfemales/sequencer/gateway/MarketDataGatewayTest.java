@@ -0,0 +1,122 @@
+package codingblackfemales.sequencer.gateway;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.order.CancelOrderEncoder;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+import static org.junit.Assert.assertEquals;
+
+public class MarketDataGatewayTest {
+
+    private static final int PUBLISHERS = 3;
+    private static final int FRAMES_PER_PUBLISHER = 5_000;
+
+    private static void awaitFrames(final MarketDataGateway gateway, final long frames) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while(gateway.getFramesReceived() + gateway.getFramesRejected() < frames && System.currentTimeMillis() < deadline){
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testSequencesFramesFromManyPublishersInOrder() throws Exception {
+
+        final MessageHeaderDecoder header = new MessageHeaderDecoder();
+        final BookUpdateDecoder book = new BookUpdateDecoder();
+        final long[] lastPrice = new long[PUBLISHERS];
+        final long[] outOfOrder = new long[1];
+
+        final TestNetwork network = new TestNetwork();
+        network.addConsumer(buffer -> {
+            header.wrap(buffer, 0);
+            book.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            final int publisher = (int) book.instrumentId();
+            final long price = book.bidBook().next().price();
+            if(lastPrice[publisher] != 0 && lastPrice[publisher] + 1 != price){
+                outOfOrder[0]++;
+            }
+            lastPrice[publisher] = price;
+        });
+
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        //a small receive buffer so frames are split across reads
+        final MarketDataGateway gateway = new MarketDataGateway(new InetSocketAddress("localhost", 0), sequencer, 1024);
+
+        try (AgentRunner runner = new AgentRunner(new YieldingIdleStrategy(), Throwable::printStackTrace, null, gateway)) {
+            AgentRunner.startOnThread(runner);
+
+            final MarketDataLoadGenerator generator = new MarketDataLoadGenerator(gateway.localAddress(), PUBLISHERS, FRAMES_PER_PUBLISHER);
+            final long published = generator.run();
+
+            awaitFrames(gateway, published);
+
+            assertEquals(published, gateway.getFramesReceived());
+            assertEquals(published, sequencer.getSequencerNumber());
+            assertEquals(PUBLISHERS, gateway.getConnectionsAccepted());
+        }
+
+        assertEquals(0, outOfOrder[0]);
+        for (int i = 0; i < PUBLISHERS; i++) {
+            assertEquals(100L + FRAMES_PER_PUBLISHER - 1, lastPrice[i]);
+        }
+    }
+
+    @Test
+    public void testSkipsOtherMessagesAndClosesOnBadFraming() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        final MarketDataGateway gateway = new MarketDataGateway(new InetSocketAddress("localhost", 0), sequencer);
+
+        try (AgentRunner runner = new AgentRunner(new YieldingIdleStrategy(), Throwable::printStackTrace, null, gateway);
+             SocketChannel channel = SocketChannel.open(gateway.localAddress())) {
+            AgentRunner.startOnThread(runner);
+
+            final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(1024);
+            final UnsafeBuffer buffer = new UnsafeBuffer(byteBuffer);
+
+            int position = MarketDataLoadGenerator.encodeTick(buffer, 0, new MessageHeaderEncoder(), new BookUpdateEncoder(), 1L, 100L);
+
+            //an order isn't market data
+            final CancelOrderEncoder cancel = new CancelOrderEncoder();
+            cancel.wrapAndApplyHeader(buffer, position + MarketDataGateway.LENGTH_PREFIX_LENGTH, new messages.order.MessageHeaderEncoder()).orderId(2L);
+            buffer.putInt(position, new messages.order.MessageHeaderEncoder().encodedLength() + cancel.encodedLength(), ByteOrder.LITTLE_ENDIAN);
+            position += MarketDataGateway.LENGTH_PREFIX_LENGTH + new messages.order.MessageHeaderEncoder().encodedLength() + cancel.encodedLength();
+
+            byteBuffer.limit(position);
+            while(byteBuffer.hasRemaining()){
+                channel.write(byteBuffer);
+            }
+
+            awaitFrames(gateway, 2);
+            assertEquals(1L, gateway.getFramesReceived());
+            assertEquals(1L, gateway.getFramesRejected());
+
+            //a negative length means the stream is garbage
+            byteBuffer.clear();
+            buffer.putInt(0, -1, ByteOrder.LITTLE_ENDIAN);
+            byteBuffer.limit(MarketDataGateway.LENGTH_PREFIX_LENGTH);
+            channel.write(byteBuffer);
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while(gateway.getConnectionsClosed() == 0 && System.currentTimeMillis() < deadline){
+                Thread.sleep(1);
+            }
+            assertEquals(1L, gateway.getConnectionsClosed());
+            assertEquals(1L, sequencer.getSequencerNumber());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package codingblackfemales.sequencer.ipc;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.Consumer;
+import messages.marketdata.*;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharedMemoryNetworkTest {
+
+    private static final int MESSAGES = 10_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final BookUpdateEncoder encoder = new BookUpdateEncoder();
+
+    private UnsafeBuffer createTick(final UnsafeBuffer directBuffer, final long instrumentId){
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(instrumentId);
+        encoder.source(Source.STREAM);
+        encoder.bidBookCount(2)
+                .next().price(98L).size(100L)
+                .next().price(95L).size(200L);
+        encoder.askBookCount(1).next().price(100L).size(101L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        return directBuffer;
+    }
+
+    /**
+     * Checks frames arrive whole, in sequence, and optionally takes its time over each one.
+     */
+    private static class CheckingConsumer implements Consumer {
+
+        private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+        private final BookUpdateDecoder book = new BookUpdateDecoder();
+        private final boolean slow;
+
+        private long expectedSequence = 1;
+        private long errors = 0;
+        private volatile long received = 0;
+
+        private CheckingConsumer(final boolean slow) {
+            this.slow = slow;
+        }
+
+        @Override
+        public void onMessage(final DirectBuffer buffer) {
+            header.wrap(buffer, 0);
+            book.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            if(header.sequencerNumber() != expectedSequence || book.instrumentId() != expectedSequence - 1
+                    || book.bidBook().next().next().price() != 95L){
+                errors++;
+            }
+            expectedSequence++;
+            if(slow){
+                Thread.yield();
+            }
+            received++;
+        }
+    }
+
+    private static void await(final CheckingConsumer consumer, final long messages) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 20_000;
+        while(consumer.received < messages && System.currentTimeMillis() < deadline){
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testReadersInOtherMappingsSeeEveryFrameAtTheirOwnPace() throws Exception {
+
+        final File file = new File(folder.getRoot(), "md.ring");
+
+        //a small ring, so the publisher wraps and has to wait on the slow reader
+        try (SharedMemoryNetwork network = new SharedMemoryNetwork(SharedMemoryRing.create(file, 4096, 4));
+             SharedMemoryRing fastMapping = SharedMemoryRing.open(file);
+             SharedMemoryRing slowMapping = SharedMemoryRing.open(file)) {
+
+            final CheckingConsumer fast = new CheckingConsumer(false);
+            final CheckingConsumer slow = new CheckingConsumer(true);
+
+            final SharedMemoryConsumerAgent fastReader = new SharedMemoryConsumerAgent("fast", fastMapping, 0, 64);
+            fastReader.addConsumer(fast);
+            final SharedMemoryConsumerAgent slowReader = new SharedMemoryConsumerAgent("slow", slowMapping, 3, 64);
+            slowReader.addConsumer(slow);
+
+            try (AgentRunner fastRunner = new AgentRunner(new YieldingIdleStrategy(), Throwable::printStackTrace, null, fastReader);
+                 AgentRunner slowRunner = new AgentRunner(new YieldingIdleStrategy(), Throwable::printStackTrace, null, slowReader)) {
+                AgentRunner.startOnThread(fastRunner);
+                AgentRunner.startOnThread(slowRunner);
+
+                final DefaultSequencer sequencer = new DefaultSequencer(network);
+                final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+                for (int i = 0; i < MESSAGES; i++) {
+                    sequencer.onCommand(createTick(tick, i));
+                }
+
+                await(fast, MESSAGES);
+                await(slow, MESSAGES);
+            }
+
+            assertEquals(MESSAGES, fast.received);
+            assertEquals(MESSAGES, slow.received);
+            assertEquals(0, fast.errors);
+            assertEquals(0, slow.errors);
+            assertTrue(network.getBackPressured() > 0);
+            assertEquals(network.position(), fastMapping.readerCursor(0));
+
+            //closing the agents gives the slots back
+            assertFalse(fastMapping.isReaderActive(0));
+            assertFalse(fastMapping.isReaderActive(3));
+        }
+    }
+
+    @Test
+    public void testLateReaderStartsAtThePublisherPosition() throws Exception {
+
+        final File file = new File(folder.getRoot(), "md.ring");
+
+        try (SharedMemoryNetwork network = new SharedMemoryNetwork(SharedMemoryRing.create(file, 64 * 1024, 2));
+             SharedMemoryRing mapping = SharedMemoryRing.open(file)) {
+
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+            //nobody is reading, so nothing holds the publisher back
+            for (int i = 0; i < 1_000; i++) {
+                sequencer.onCommand(createTick(tick, i));
+            }
+            assertEquals(0, network.getBackPressured());
+
+            final SharedMemoryConsumerAgent reader = new SharedMemoryConsumerAgent("late", mapping, 1, 64);
+            final long[] received = new long[1];
+            reader.addConsumer(buffer -> received[0]++);
+
+            assertEquals(0, reader.doWork());
+            sequencer.onCommand(createTick(tick, 1_000));
+            assertEquals(1, reader.doWork());
+            assertEquals(1L, received[0]);
+            assertEquals(0L, reader.lag());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReaderSlotCanOnlyBeUsedOnce() throws Exception {
+
+        final File file = new File(folder.getRoot(), "md.ring");
+
+        try (SharedMemoryRing ring = SharedMemoryRing.create(file, 4096, 1)) {
+            new SharedMemoryConsumerAgent("first", ring, 0, 64);
+            new SharedMemoryConsumerAgent("second", ring, 0, 64);
+        }
+    }
+}
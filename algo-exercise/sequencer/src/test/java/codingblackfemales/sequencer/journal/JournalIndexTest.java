@@ -0,0 +1,216 @@
+package codingblackfemales.sequencer.journal;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.sequencer.orderid.SequentialOrderIdGenerator;
+import codingblackfemales.sequencer.util.InstrumentIdDecoder;
+import codingblackfemales.sequencer.util.OrderIdDecoder;
+import messages.marketdata.*;
+import messages.order.CreateOrderEncoder;
+import messages.order.FillOrderDecoder;
+import messages.order.FillOrderEncoder;
+import messages.order.Side;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.EpochNanoClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JournalIndexTest {
+
+    private static final int MESSAGES = 20_000;
+    private static final int SEGMENT_LENGTH = 64 * 1024;
+    private static final long START_NANOS = 1_700_000_000_000_000_000L;
+    private static final long NANOS_PER_FRAME = 1_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final InstrumentIdDecoder instrumentIdDecoder = new InstrumentIdDecoder();
+    private final OrderIdDecoder orderIdDecoder = new OrderIdDecoder();
+
+    private final UnsafeBuffer command = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+    private static class Record {
+        private final long sequenceNumber;
+        private final long timestamp;
+        private final long instrumentId;
+        private final long orderId;
+        private final int schemaId;
+        private final int templateId;
+
+        private Record(final long sequenceNumber, final long timestamp, final long instrumentId, final long orderId, final int schemaId, final int templateId) {
+            this.sequenceNumber = sequenceNumber;
+            this.timestamp = timestamp;
+            this.instrumentId = instrumentId;
+            this.orderId = orderId;
+            this.schemaId = schemaId;
+            this.templateId = templateId;
+        }
+    }
+
+    /**
+     * Writes ticks for ten instruments, with a CreateOrder followed by its Fill every four frames, one frame a milli.
+     */
+    private void writeJournal(final File directory, final JournalIndexWriter indexWriter){
+        final long[] now = {START_NANOS};
+        final EpochNanoClock clock = () -> now[0] += NANOS_PER_FRAME;
+
+        final JournalWriter writer = new JournalWriter(directory, SEGMENT_LENGTH, clock);
+        if(indexWriter != null){
+            writer.setIndexWriter(indexWriter);
+        }
+
+        try (JournalingNetwork journaling = new JournalingNetwork(new TestNetwork(), writer)) {
+            final DefaultSequencer sequencer = new DefaultSequencer(journaling);
+            sequencer.setOrderIdGenerator(new SequentialOrderIdGenerator(0));
+            long orderId = 0;
+            for (int i = 0; i < MESSAGES; i++) {
+                if(i % 4 == 0){
+                    new CreateOrderEncoder().wrapAndApplyHeader(command, 0, new messages.order.MessageHeaderEncoder())
+                            .instrumentId(i % 10).price(100L).quantity(10L).side(Side.BUY);
+                    orderId++;
+                }else if(i % 4 == 1){
+                    new FillOrderEncoder().wrapAndApplyHeader(command, 0, new messages.order.MessageHeaderEncoder())
+                            .orderId(orderId).price(100L).quantity(10L);
+                }else {
+                    final BookUpdateEncoder book = new BookUpdateEncoder().wrapAndApplyHeader(command, 0, new MessageHeaderEncoder());
+                    book.venue(Venue.XLON).instrumentId(i % 10).source(Source.STREAM);
+                    book.bidBookCount(1).next().price(98L).size(100L);
+                    book.askBookCount(1).next().price(100L).size(101L);
+                    book.instrumentStatus(InstrumentStatus.CONTINUOUS);
+                }
+                sequencer.onCommand(command);
+            }
+        }
+    }
+
+    private List<Record> readAll(final File directory){
+        final List<Record> records = new ArrayList<>();
+        new JournalReader(directory).read((frame, timestampNanos) -> records.add(record(frame, timestampNanos)));
+        return records;
+    }
+
+    private Record record(final DirectBuffer frame, final long timestampNanos){
+        header.wrap(frame, 0);
+        return new Record(header.sequencerNumber(), timestampNanos, instrumentIdDecoder.decodeInstrumentId(frame, 0),
+                orderIdDecoder.decodeOrderId(frame, 0), header.schemaId(), header.templateId());
+    }
+
+    private static List<Long> sequenceNumbers(final List<Record> records, final Predicate<Record> filter){
+        final List<Long> sequenceNumbers = new ArrayList<>();
+        for (Record record : records) {
+            if(filter.test(record)){
+                sequenceNumbers.add(record.sequenceNumber);
+            }
+        }
+        return sequenceNumbers;
+    }
+
+    private List<Long> collect(final List<Record> found, final JournalIndexQuery query){
+        final List<Record> records = new ArrayList<>();
+        final long count = query.run((frame, timestampNanos) -> records.add(record(frame, timestampNanos)));
+        assertEquals(records.size(), count);
+        found.addAll(records);
+        return sequenceNumbers(records, record -> true);
+    }
+
+    private interface JournalIndexQuery {
+        long run(JournalRecordHandler handler);
+    }
+
+    private void assertQueriesMatchScan(final File directory){
+        final List<Record> all = readAll(directory);
+        assertEquals(MESSAGES, all.size());
+
+        try (JournalIndex index = new JournalIndex(directory)) {
+            assertTrue(index.segmentCount() > 1);
+
+            final List<Record> found = new ArrayList<>();
+            for (long orderId : new long[]{1L, 2_000L, MESSAGES / 4}) {
+                found.clear();
+                final List<Long> order = collect(found, handler -> index.forOrder(orderId, handler));
+                assertEquals(sequenceNumbers(all, record -> record.orderId == orderId), order);
+                assertEquals(2, order.size());
+                assertEquals(orderId, found.get(1).orderId);
+            }
+
+            assertEquals(sequenceNumbers(all, record -> record.instrumentId == 3L),
+                    collect(found, handler -> index.forInstrument(3L, 0, Long.MAX_VALUE, handler)));
+            assertEquals(sequenceNumbers(all, record -> record.instrumentId == 7L && record.sequenceNumber >= 5_000 && record.sequenceNumber <= 12_345),
+                    collect(found, handler -> index.forInstrument(7L, 5_000, 12_345, handler)));
+            assertEquals(sequenceNumbers(all, record -> record.templateId == FillOrderDecoder.TEMPLATE_ID && record.schemaId == FillOrderDecoder.SCHEMA_ID
+                            && record.sequenceNumber >= 777 && record.sequenceNumber <= 15_000),
+                    collect(found, handler -> index.forMessageType(FillOrderDecoder.SCHEMA_ID, FillOrderDecoder.TEMPLATE_ID, 777, 15_000, handler)));
+            assertEquals(sequenceNumbers(all, record -> record.sequenceNumber >= 100 && record.sequenceNumber <= 5_000),
+                    collect(found, handler -> index.forSequenceRange(100, 5_000, handler)));
+
+            final long fromNanos = START_NANOS + 2_500 * NANOS_PER_FRAME + 1;
+            final long toNanos = START_NANOS + 9_000 * NANOS_PER_FRAME;
+            assertEquals(sequenceNumbers(all, record -> record.timestamp >= fromNanos && record.timestamp <= toNanos),
+                    collect(found, handler -> index.forTimeRange(fromNanos, toNanos, handler)));
+
+            assertEquals(0L, index.forOrder(MESSAGES, (frame, timestampNanos) -> {}));
+        }
+    }
+
+    @Test
+    public void testIndexedQueriesMatchAFullScan() throws Exception {
+        final File directory = folder.newFolder("journal");
+        final JournalIndexWriter indexWriter = new JournalIndexWriter(directory, SEGMENT_LENGTH);
+        writeJournal(directory, indexWriter);
+
+        assertEquals(MESSAGES, indexWriter.getFramesIndexed());
+        assertEquals(0L, indexWriter.getFramesUnindexed());
+        assertEquals(JournalDescriptor.segmentFiles(directory).length, directory.listFiles((dir, name) -> name.endsWith(JournalIndexDescriptor.INDEX_SUFFIX)).length);
+
+        assertQueriesMatchScan(directory);
+    }
+
+    @Test
+    public void testFullIndexFallsBackToScanningTheSegment() throws Exception {
+        final File directory = folder.newFolder("journal");
+        final JournalIndexWriter indexWriter = new JournalIndexWriter(directory, 100, JournalIndexDescriptor.DEFAULT_BUCKET_NANOS);
+        writeJournal(directory, indexWriter);
+
+        assertTrue(indexWriter.getFramesUnindexed() > 0);
+        assertEquals(MESSAGES, indexWriter.getFramesIndexed() + indexWriter.getFramesUnindexed());
+
+        assertQueriesMatchScan(directory);
+    }
+
+    @Test
+    public void testRebuildsTheIndexOfAJournalWrittenWithoutOne() throws Exception {
+        final File directory = folder.newFolder("journal");
+        writeJournal(directory, null);
+
+        //every segment is scanned
+        assertQueriesMatchScan(directory);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final JournalQuery query = new JournalQuery(new PrintStream(output, true));
+        assertEquals(MESSAGES, query.run(directory.getPath(), "rebuild", String.valueOf(SEGMENT_LENGTH)));
+
+        assertQueriesMatchScan(directory);
+
+        output.reset();
+        assertEquals(2L, query.run(directory.getPath(), "order", "42"));
+        final String[] lines = output.toString().split(System.lineSeparator());
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("seq=165 "));
+        assertTrue(lines[1].startsWith("seq=166 "));
+    }
+}
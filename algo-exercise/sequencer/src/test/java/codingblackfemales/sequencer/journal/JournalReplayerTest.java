@@ -0,0 +1,86 @@
+package codingblackfemales.sequencer.journal;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import messages.marketdata.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static codingblackfemales.sequencer.marketdata.TestTicks.createTick;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JournalReplayerTest {
+
+    private static final int MESSAGES = 10_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final BookUpdateDecoder decoder = new BookUpdateDecoder();
+
+    private File record(final int messages, final long nanosBetweenMessages) throws Exception {
+        final File directory = folder.newFolder();
+        final long[] clock = {0};
+        final TestNetwork network = new TestNetwork();
+
+        try (JournalRecorder recorder = new JournalRecorder(new JournalWriter(directory, 64 * 1024, () -> clock[0]))) {
+            network.addConsumer(recorder);
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            for (int i = 0; i < messages; i++) {
+                clock[0] += nanosBetweenMessages;
+                sequencer.onCommand(createTick(i));
+            }
+        }
+        return directory;
+    }
+
+    @Test
+    public void testReplaysFromSequenceNumberWithoutResequencing() throws Exception {
+
+        final File directory = record(MESSAGES, 1_000);
+        final long from = MESSAGES - 1_234;
+
+        final TestNetwork network = new TestNetwork();
+        final long[] expectedSequence = {from};
+        network.addConsumer(buffer -> {
+            headerDecoder.wrap(buffer, 0);
+            assertEquals(expectedSequence[0], headerDecoder.sequencerNumber());
+            decoder.wrap(buffer, headerDecoder.encodedLength(), headerDecoder.blockLength(), headerDecoder.version());
+            assertEquals(expectedSequence[0] - 1, decoder.instrumentId());
+            expectedSequence[0]++;
+        });
+
+        final JournalReplayer replayer = new JournalReplayer(directory).fromSequenceNumber(from);
+
+        assertEquals(MESSAGES - from + 1, replayer.replay(network));
+        assertEquals(MESSAGES + 1, expectedSequence[0]);
+        assertTrue(replayer.getMessagesPerSecond() > 0);
+    }
+
+    @Test
+    public void testFiltersBySchema() throws Exception {
+
+        final File directory = record(100, 1_000);
+        final TestNetwork network = new TestNetwork();
+
+        assertEquals(100, new JournalReplayer(directory).schemaId(MessageHeaderDecoder.SCHEMA_ID).replay(network));
+        assertEquals(0, new JournalReplayer(directory).schemaId(messages.order.MessageHeaderDecoder.SCHEMA_ID).replay(network));
+    }
+
+    @Test
+    public void testWallClockPacingKeepsRecordedGaps() throws Exception {
+
+        final File directory = record(21, TimeUnit.MILLISECONDS.toNanos(5));
+
+        final JournalReplayer replayer = new JournalReplayer(directory).pacing(JournalReplayer.Pacing.WALL_CLOCK);
+
+        assertEquals(21, replayer.replay(new TestNetwork()));
+        assertTrue(replayer.getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+}
@@ -0,0 +1,79 @@
+package codingblackfemales.sequencer.journal;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import messages.marketdata.*;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JournalingNetworkTest {
+
+    private static final int MESSAGES = 10_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final BookUpdateEncoder encoder = new BookUpdateEncoder();
+    private final BookUpdateDecoder decoder = new BookUpdateDecoder();
+
+    private UnsafeBuffer createTick(final long instrumentId){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(instrumentId);
+        encoder.source(Source.STREAM);
+        encoder.bidBookCount(2)
+                .next().price(98L).size(100L)
+                .next().price(95L).size(200L);
+        encoder.askBookCount(1).next().price(100L).size(101L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+
+        return directBuffer;
+    }
+
+    @Test
+    public void testJournalsEverySequencedFrame() throws Exception {
+
+        final File directory = folder.newFolder("journal");
+        final TestNetwork network = new TestNetwork();
+        final long[] dispatched = new long[1];
+        network.addConsumer(buffer -> dispatched[0]++);
+
+        try (JournalingNetwork journaling = new JournalingNetwork(network, new JournalWriter(directory, 64 * 1024))) {
+            final DefaultSequencer sequencer = new DefaultSequencer(journaling);
+            for (int i = 0; i < MESSAGES; i++) {
+                sequencer.onCommand(createTick(i));
+            }
+            assertEquals(MESSAGES, journaling.getWriter().appended());
+        }
+
+        assertEquals(MESSAGES, dispatched[0]);
+
+        final File[] segments = JournalDescriptor.segmentFiles(directory);
+        assertTrue(segments.length > 1);
+        assertEquals(1L, JournalDescriptor.baseSequenceNumber(segments[0]));
+
+        final long[] expectedSequence = {1L};
+        final long read = new JournalReader(directory).read(buffer -> {
+            headerDecoder.wrap(buffer, 0);
+            assertEquals(expectedSequence[0], headerDecoder.sequencerNumber());
+            decoder.wrap(buffer, headerDecoder.encodedLength(), headerDecoder.blockLength(), headerDecoder.version());
+            assertEquals(expectedSequence[0] - 1, decoder.instrumentId());
+            assertEquals(95L, decoder.bidBook().next().next().price());
+            expectedSequence[0]++;
+        });
+
+        assertEquals(MESSAGES, read);
+    }
+}
@@ -0,0 +1,36 @@
+package codingblackfemales.sequencer.marketdata;
+
+import messages.marketdata.*;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The book update the sequencer tests send when any tick will do: XLON, a bid of 98x100 and an ask of 100x101.
+ */
+public final class TestTicks {
+
+    public static final long BID_PRICE = 98L;
+    public static final long ASK_PRICE = 100L;
+
+    private TestTicks() {
+    }
+
+    public static UnsafeBuffer createTick(final long instrumentId){
+        return createTick(new UnsafeBuffer(ByteBuffer.allocateDirect(1024)), instrumentId);
+    }
+
+    /**
+     * Encodes the tick over whatever the buffer held, so a test can send many without allocating a buffer each.
+     */
+    public static UnsafeBuffer createTick(final UnsafeBuffer directBuffer, final long instrumentId){
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(directBuffer, 0, new MessageHeaderEncoder());
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(instrumentId);
+        encoder.source(Source.STREAM);
+        encoder.bidBookCount(1).next().price(BID_PRICE).size(100L);
+        encoder.askBookCount(1).next().price(ASK_PRICE).size(101L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        return directBuffer;
+    }
+}
@@ -0,0 +1,119 @@
+package codingblackfemales.sequencer.metrics;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.consumer.LoggingConsumer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import messages.marketdata.*;
+import messages.order.FillOrderDecoder;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import static codingblackfemales.sequencer.marketdata.TestTicks.createTick;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesWithinBucketPrecision() throws Exception {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1_000_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1_000_000, histogram.getTotalCount());
+        assertEquals(1, histogram.getMinValue());
+        assertEquals(1_000_000, histogram.getMaxValue());
+        assertEquals(500_000.5, histogram.getMean(), 0.001);
+
+        assertWithinPrecision(500_000, histogram.valueAtPercentile(50));
+        assertWithinPrecision(990_000, histogram.valueAtPercentile(99));
+        assertWithinPrecision(999_000, histogram.valueAtPercentile(99.9));
+        assertEquals(1_000_000, histogram.valueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.valueAtPercentile(99));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() throws Exception {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 100; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(49, histogram.valueAtPercentile(50));
+        assertEquals(98, histogram.valueAtPercentile(99));
+    }
+
+    @Test
+    public void testBucketsCoverEveryValue() throws Exception {
+
+        long value = 1;
+        while(value > 0){
+            final int index = LatencyHistogram.indexFor(value);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValueAt(index - 1) < value);
+            value = value * 3 / 2 + 1;
+        }
+    }
+
+    @Test
+    public void testTimedConsumerRecordsPerMessageTypeAndKeepsRouting() throws Exception {
+
+        final LatencyMetrics metrics = new LatencyMetrics();
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        sequencer.setSequencingLatency(metrics.stage(LatencyMetrics.SEQUENCING));
+
+        final TimedConsumer logging = metrics.timed("LoggingConsumer", new LoggingConsumer());
+        network.addConsumer(logging);
+
+        assertFalse(logging.isMessageRequired(AskBookUpdateDecoder.SCHEMA_ID, AskBookUpdateDecoder.TEMPLATE_ID));
+        assertTrue(logging.isMessageRequired(FillOrderDecoder.SCHEMA_ID, FillOrderDecoder.TEMPLATE_ID));
+
+        final UnsafeBuffer tick = createTick(123L);
+
+        for (int i = 0; i < 10; i++) {
+            sequencer.onCommand(tick);
+        }
+
+        assertEquals(10, metrics.stage(LatencyMetrics.SEQUENCING).getHistogram().getTotalCount());
+        assertEquals(10, logging.getStage().getHistogram(BookUpdateDecoder.SCHEMA_ID, BookUpdateDecoder.TEMPLATE_ID).getTotalCount());
+        assertNull(logging.getStage().getHistogram(FillOrderDecoder.SCHEMA_ID, FillOrderDecoder.TEMPLATE_ID));
+        assertTrue(metrics.report().contains("LoggingConsumer count=10"));
+    }
+
+    @Test
+    public void testReportingWhileNewMessageTypesAreRecorded() throws Exception {
+
+        final int messageTypes = 5_000;
+        final LatencyMetrics metrics = new LatencyMetrics();
+        final LatencyStage stage = metrics.stage("consumer");
+
+        final Thread recorder = new Thread(() -> {
+            for (int templateId = 0; templateId < messageTypes; templateId++) {
+                stage.record(1, templateId, 100L);
+            }
+        });
+        recorder.start();
+        while(recorder.isAlive()){
+            metrics.report();
+        }
+        recorder.join();
+
+        final long[] reported = new long[1];
+        stage.forEachMessage((key, histogram) -> reported[0] += histogram.getTotalCount());
+        assertEquals(messageTypes, reported[0]);
+        assertEquals(messageTypes, stage.getHistogram().getTotalCount());
+    }
+
+    private static void assertWithinPrecision(final long expected, final long actual){
+        assertTrue("expected ~" + expected + " was " + actual, Math.abs(actual - expected) <= expected / 64);
+    }
+}
@@ -0,0 +1,241 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.AbstractSequencerComponent;
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.event.MarketDataEventListener;
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import messages.marketdata.*;
+import messages.order.FillOrderDecoder;
+import messages.order.PartialFillOrderEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchDispatchTest {
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final messages.order.MessageHeaderEncoder orderHeaderEncoder = new messages.order.MessageHeaderEncoder();
+    private final MessageLengthDecoder lengthDecoder = new MessageLengthDecoder();
+
+    private UnsafeBuffer createTick(final long instrumentId, final long bidPrice){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder();
+
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(instrumentId);
+        encoder.source(Source.STREAM);
+        encoder.bidBookCount(1).next().price(bidPrice).size(100L);
+        encoder.askBookCount(1).next().price(bidPrice + 2).size(101L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+
+        return directBuffer;
+    }
+
+    private UnsafeBuffer createBid(final long instrumentId, final long price){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final BidBookUpdateEncoder encoder = new BidBookUpdateEncoder();
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        encoder.instrumentId(instrumentId);
+        encoder.venue(Venue.XLON);
+        encoder.bidBookCount(1).next().price(price).size(100L);
+        return directBuffer;
+    }
+
+    private UnsafeBuffer createAsk(final long instrumentId, final long price){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final AskBookUpdateEncoder encoder = new AskBookUpdateEncoder();
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        encoder.instrumentId(instrumentId);
+        encoder.venue(Venue.XLON);
+        encoder.askBookCount(1).next().price(price).size(100L);
+        return directBuffer;
+    }
+
+    private UnsafeBuffer createPartialFill(){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        new PartialFillOrderEncoder().wrapAndApplyHeader(directBuffer, 0, orderHeaderEncoder);
+        return directBuffer;
+    }
+
+    private FrameBatch batchOf(final DirectBuffer... frames){
+        final FrameBatchBuilder builder = new FrameBatchBuilder(128);
+        for (DirectBuffer frame : frames) {
+            builder.append(frame, 0, lengthDecoder.decodeLength(frame, 0));
+        }
+        return builder.batch();
+    }
+
+    private static class CountingComponent extends AbstractSequencerComponent implements Consumer {
+        private final List<Long> sequenceNumbers = new ArrayList<>();
+        private final List<Long> correlationIds = new ArrayList<>();
+        private int batches = 0;
+
+        @Override
+        public void onMessage(final DirectBuffer buffer) {
+        }
+
+        @Override
+        public void onMessage(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+            sequenceNumbers.add(header.sequencerNumber());
+            correlationIds.add(header.correlationId());
+        }
+
+        @Override
+        public void onBatch(final FrameBatch batch) {
+            batches++;
+            Consumer.super.onBatch(batch);
+        }
+    }
+
+    private static class LatestBookListener extends MarketDataEventListener {
+        private final List<String> updates = new ArrayList<>();
+        private int batchesEnded = 0;
+
+        @Override
+        public void onBookUpdate(final BookUpdateDecoder bookUpdate) {
+            final long instrumentId = bookUpdate.instrumentId();
+            updates.add("book:" + instrumentId + ":" + bookUpdate.bidBook().next().price());
+        }
+
+        @Override
+        public void onAskBook(final AskBookUpdateDecoder askBook) {
+            updates.add("ask:" + askBook.instrumentId() + ":" + askBook.askBook().next().price());
+        }
+
+        @Override
+        public void onBidBook(final BidBookUpdateDecoder bidBook) {
+            updates.add("bid:" + bidBook.instrumentId() + ":" + bidBook.bidBook().next().price());
+        }
+
+        @Override
+        protected void onBatchEnd() {
+            batchesEnded++;
+        }
+    }
+
+    @Test
+    public void testBatchIsSequencedAndRoutedInOneCall() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+
+        final CountingComponent fills = new CountingComponent();
+        fills.requireMessage(FillOrderDecoder.SCHEMA_ID, FillOrderDecoder.TEMPLATE_ID);
+        final CountingComponent everything = new CountingComponent();
+        final int[] plainConsumer = {0};
+
+        network.addConsumer(fills);
+        network.addConsumer(everything);
+        network.addConsumer(buffer -> plainConsumer[0]++);
+
+        sequencer.onCommand(createTick(1L, 98L));
+        sequencer.onCommandBatch(batchOf(createTick(1L, 98L), createTick(2L, 50L), createPartialFill()));
+
+        assertEquals(4L, sequencer.getSequencerNumber());
+        assertEquals(List.of(1L, 2L, 3L, 4L), everything.sequenceNumbers);
+        assertEquals(1, everything.batches);
+        assertEquals(0, fills.sequenceNumbers.size());
+        assertEquals(4, plainConsumer[0]);
+    }
+
+    @Test
+    public void testSkipsSupersededBookUpdates() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+
+        final LatestBookListener everyTick = new LatestBookListener();
+        final LatestBookListener latestBook = new LatestBookListener();
+        latestBook.setSkipSuperseded(true);
+        network.addConsumer(everyTick);
+        network.addConsumer(latestBook);
+
+        sequencer.onCommandBatch(batchOf(
+                createTick(1L, 98L),
+                createTick(2L, 50L),
+                createBid(1L, 97L),
+                createAsk(2L, 53L),
+                createTick(1L, 99L),
+                createBid(2L, 49L),
+                createBid(2L, 48L),
+                createPartialFill()));
+
+        assertEquals(7, everyTick.updates.size());
+        assertEquals(List.of("book:2:50", "ask:2:53", "book:1:99", "bid:2:48"), latestBook.updates);
+        assertEquals(3L, latestBook.getSkippedUpdates());
+        assertEquals(0L, everyTick.getSkippedUpdates());
+        assertEquals(1, latestBook.batchesEnded);
+    }
+
+    @Test
+    public void testCommandsSentDuringBatchAreSequencedAfterIt() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        final UnsafeBuffer partialFill = createPartialFill();
+
+        //reacts to every tick, ahead of the consumer that records the order frames arrive in
+        network.addConsumer(new MarketDataEventListener() {
+            @Override
+            public void onBookUpdate(final BookUpdateDecoder bookUpdate) {
+                sequencer.onCommand(partialFill);
+            }
+
+            @Override
+            public void onAskBook(final AskBookUpdateDecoder askBook) {
+            }
+
+            @Override
+            public void onBidBook(final BidBookUpdateDecoder bidBook) {
+            }
+        });
+        final CountingComponent recorder = new CountingComponent();
+        network.addConsumer(recorder);
+
+        sequencer.onCommandBatch(batchOf(createTick(1L, 98L), createTick(2L, 50L), createTick(3L, 20L)));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), recorder.sequenceNumbers);
+        assertEquals(List.of(0L, 0L, 0L, 3L, 3L, 3L), recorder.correlationIds);
+
+        //single frames still nest as before, the fill reaches the recorder ahead of the tick that caused it
+        sequencer.onCommand(createTick(1L, 98L));
+        assertEquals(List.of(8L, 7L), recorder.sequenceNumbers.subList(6, 8));
+        assertEquals(7L, (long) recorder.correlationIds.get(6));
+    }
+
+    @Test
+    public void testBatchIterationIsRepeatable() throws Exception {
+
+        final FrameBatch batch = batchOf(createTick(1L, 98L), createPartialFill(), createTick(2L, 50L));
+        assertEquals(3, batch.frameCount());
+
+        final MarketDataEventListener filter = new LatestBookListener();
+        batch.filter(filter);
+        for (int pass = 0; pass < 2; pass++) {
+            batch.reset();
+            int frames = 0;
+            while(batch.next()){
+                assertEquals(frames, batch.index());
+                assertEquals(BookUpdateDecoder.SCHEMA_ID, batch.header().schemaId());
+                frames++;
+            }
+            assertEquals(2, frames);
+        }
+
+        batch.filter(null).reset();
+        int frames = 0;
+        while(batch.next()){
+            assertTrue(batch.frame().capacity() > 0);
+            frames++;
+        }
+        assertEquals(3, frames);
+    }
+}
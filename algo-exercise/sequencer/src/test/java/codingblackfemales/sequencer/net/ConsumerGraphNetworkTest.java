@@ -0,0 +1,99 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import messages.marketdata.*;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.junit.Test;
+
+import static codingblackfemales.sequencer.marketdata.TestTicks.createTick;
+import static org.junit.Assert.assertEquals;
+
+public class ConsumerGraphNetworkTest {
+
+    private static final int MESSAGES = 10_000;
+
+    /**
+     * Records the last sequence number it has seen, and counts frames where the stages it is checked against
+     * are not where they should be.
+     */
+    private static class RecordingConsumer implements Consumer {
+
+        private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+
+        private volatile long lastSequence = 0;
+        private long outOfOrder = 0;
+        private long violations = 0;
+
+        private RecordingConsumer[] mustHaveSeen = new RecordingConsumer[0];
+        private RecordingConsumer mustNotBeAheadOf;
+
+        @Override
+        public void onMessage(DirectBuffer buffer) {
+            header.wrap(buffer, 0);
+            final long sequence = header.sequencerNumber();
+            if(sequence != lastSequence + 1){
+                outOfOrder++;
+            }
+            for (RecordingConsumer upstream : mustHaveSeen) {
+                if(upstream.lastSequence < sequence){
+                    violations++;
+                }
+            }
+            if(mustNotBeAheadOf != null && mustNotBeAheadOf.lastSequence < sequence - 1){
+                violations++;
+            }
+            lastSequence = sequence;
+        }
+    }
+
+    private static void awaitSequence(final RecordingConsumer consumer, final long sequence) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while(consumer.lastSequence < sequence && System.currentTimeMillis() < deadline){
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testGatedStagesSeeFramesInDependencyOrder() throws Exception {
+
+        final RecordingConsumer logging = new RecordingConsumer();
+        final RecordingConsumer marketData = new RecordingConsumer();
+        final RecordingConsumer orders = new RecordingConsumer();
+        final RecordingConsumer algo = new RecordingConsumer();
+
+        algo.mustHaveSeen = new RecordingConsumer[]{marketData, orders};
+        marketData.mustNotBeAheadOf = algo;
+        orders.mustNotBeAheadOf = algo;
+
+        //small ring so the publisher has to wait on the slowest stage
+        try (ConsumerGraphNetwork network = new ConsumerGraphNetwork(256, 256, new YieldingIdleStrategy())) {
+            network.addStage("logging", new YieldingIdleStrategy(), logging, buffer -> Thread.onSpinWait());
+            final ConsumerStage marketDataStage = network.addStage("market-data", new YieldingIdleStrategy(), marketData);
+            final ConsumerStage ordersStage = network.addStage("orders", new YieldingIdleStrategy(), orders);
+            final ConsumerStage algoStage = network.addStage("algo", new YieldingIdleStrategy(), algo).after(marketDataStage, ordersStage);
+            marketDataStage.boundedBy(algoStage, 1);
+            ordersStage.boundedBy(algoStage, 1);
+            network.start();
+
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            final UnsafeBuffer tick = createTick(123L);
+
+            for (int i = 0; i < MESSAGES; i++) {
+                sequencer.onCommand(tick);
+            }
+
+            awaitSequence(algo, MESSAGES);
+            awaitSequence(logging, MESSAGES);
+
+            assertEquals(MESSAGES - 1, algoStage.sequence());
+        }
+
+        for (RecordingConsumer consumer : new RecordingConsumer[]{logging, marketData, orders, algo}) {
+            assertEquals(MESSAGES, consumer.lastSequence);
+            assertEquals(0, consumer.outOfOrder);
+            assertEquals(0, consumer.violations);
+        }
+    }
+}
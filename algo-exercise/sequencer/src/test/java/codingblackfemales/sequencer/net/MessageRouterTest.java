@@ -0,0 +1,158 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.AbstractSequencerComponent;
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.event.MarketDataEventListener;
+import messages.marketdata.*;
+import messages.order.FillOrderDecoder;
+import messages.order.PartialFillOrderEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static codingblackfemales.sequencer.marketdata.TestTicks.createTick;
+import static org.junit.Assert.assertEquals;
+
+public class MessageRouterTest {
+
+    private final messages.order.MessageHeaderEncoder orderHeaderEncoder = new messages.order.MessageHeaderEncoder();
+
+    private UnsafeBuffer createPartialFill(){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        new PartialFillOrderEncoder().wrapAndApplyHeader(directBuffer, 0, orderHeaderEncoder);
+        return directBuffer;
+    }
+
+    private static class CountingComponent extends AbstractSequencerComponent implements Consumer {
+        private int received = 0;
+
+        @Override
+        public void onMessage(final DirectBuffer buffer) {
+            received++;
+        }
+    }
+
+    private static class CountingMarketDataListener extends MarketDataEventListener {
+        private int books = 0;
+        private int bids = 0;
+
+        @Override
+        public void onBookUpdate(final BookUpdateDecoder bookUpdate) {
+            books++;
+        }
+
+        @Override
+        public void onAskBook(final AskBookUpdateDecoder askBook) {
+        }
+
+        @Override
+        public void onBidBook(final BidBookUpdateDecoder bidBook) {
+            bids++;
+        }
+    }
+
+    @Test
+    public void testRoutesOnlyRequiredMessages() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+
+        final CountingComponent fills = new CountingComponent();
+        fills.requireMessage(FillOrderDecoder.SCHEMA_ID, FillOrderDecoder.TEMPLATE_ID);
+        final CountingComponent everything = new CountingComponent();
+        final CountingMarketDataListener marketData = new CountingMarketDataListener();
+        final int[] plainConsumer = {0};
+
+        network.addConsumer(fills);
+        network.addConsumer(everything);
+        network.addConsumer(marketData);
+        network.addConsumer(buffer -> plainConsumer[0]++);
+
+        sequencer.onCommand(createTick(123L));
+        sequencer.onCommand(createTick(123L));
+        //same template id as a bid book, but in the order schema
+        sequencer.onCommand(createPartialFill());
+
+        assertEquals(0, fills.received);
+        assertEquals(3, everything.received);
+        assertEquals(2, marketData.books);
+        assertEquals(0, marketData.bids);
+        assertEquals(3, plainConsumer[0]);
+    }
+
+    @Test
+    public void testNestedDispatchKeepsOuterHeader() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        final UnsafeBuffer partialFill = createPartialFill();
+        final int[] outerSchemas = {0, 0};
+
+        network.addConsumer(new Consumer() {
+            @Override
+            public void onMessage(final DirectBuffer buffer) {
+            }
+
+            @Override
+            public void onMessage(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+                if(header.schemaId() == BookUpdateDecoder.SCHEMA_ID){
+                    sequencer.onCommand(partialFill);
+                }
+            }
+        });
+        network.addConsumer(new Consumer() {
+            @Override
+            public void onMessage(final DirectBuffer buffer) {
+            }
+
+            @Override
+            public void onMessage(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+                outerSchemas[header.schemaId() - 1]++;
+            }
+        });
+
+        sequencer.onCommand(createTick(123L));
+
+        assertEquals(1, outerSchemas[0]);
+        assertEquals(1, outerSchemas[1]);
+    }
+
+    @Test
+    public void testDrainedOncePerOuterDispatch() throws Exception {
+
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        final UnsafeBuffer partialFill = createPartialFill();
+        final int[] drains = {0};
+        final int[] sequencedFromDrain = {0};
+
+        network.addConsumer(new Consumer() {
+            @Override
+            public void onMessage(final DirectBuffer buffer) {
+            }
+
+            @Override
+            public void onMessage(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+                if(header.schemaId() == BookUpdateDecoder.SCHEMA_ID){
+                    sequencer.onCommand(partialFill);
+                }
+            }
+
+            @Override
+            public void onDrained() {
+                drains[0]++;
+                if(sequencedFromDrain[0] == 0){
+                    sequencedFromDrain[0]++;
+                    sequencer.onCommand(partialFill);
+                }
+            }
+        });
+
+        sequencer.onCommand(createTick(123L));
+
+        //once for the tick and its nested fill, then once more for the fill sequenced from the first drain
+        assertEquals(2, drains[0]);
+    }
+}
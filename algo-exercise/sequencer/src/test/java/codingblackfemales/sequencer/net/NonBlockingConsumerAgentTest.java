@@ -0,0 +1,185 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.util.MessageLengthDecoder;
+import messages.marketdata.*;
+import messages.order.AckedOrderEncoder;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NonBlockingConsumerAgentTest {
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final BookUpdateEncoder encoder = new BookUpdateEncoder();
+    private final MessageLengthDecoder lengthDecoder = new MessageLengthDecoder();
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder book = new BookUpdateDecoder();
+
+    private final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+    private UnsafeBuffer createTick(final long instrumentId, final long price){
+        encoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(instrumentId);
+        encoder.source(Source.STREAM);
+        encoder.bidBookCount(1).next().price(price).size(100L);
+        encoder.askBookCount(1).next().price(price + 1).size(101L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        return buffer;
+    }
+
+    private void offer(final NonBlockingConsumerAgent agent, final UnsafeBuffer frame){
+        agent.offer(frame, lengthDecoder.decodeLength(frame, 0));
+    }
+
+    /**
+     * Records "instrumentId@price" for book updates and "other" for everything else.
+     */
+    private Consumer recordingConsumer(final List<String> received){
+        return frame -> {
+            header.wrap(frame, 0);
+            if(header.schemaId() == BookUpdateDecoder.SCHEMA_ID && header.templateId() == BookUpdateDecoder.TEMPLATE_ID){
+                book.wrap(frame, header.encodedLength(), header.blockLength(), header.version());
+                received.add(book.instrumentId() + "@" + book.bidBook().next().price());
+            }else{
+                received.add("other");
+            }
+        };
+    }
+
+    @Test
+    public void testDropOldestKeepsTheNewestFrames() {
+
+        final List<String> received = new ArrayList<>();
+        final NonBlockingConsumerAgent agent = new NonBlockingConsumerAgent("drop", new YieldingIdleStrategy(), BackPressurePolicy.DROP_OLDEST, 8, 1024, 256);
+        agent.addConsumer(recordingConsumer(received));
+
+        for (int price = 1; price <= 20; price++) {
+            offer(agent, createTick(1L, price));
+        }
+
+        assertEquals(8, agent.doWork());
+        assertEquals(8, received.size());
+        assertEquals("1@13", received.get(0));
+        assertEquals("1@20", received.get(7));
+        assertEquals(12L, agent.dropped());
+        assertEquals(8L, agent.delivered());
+    }
+
+    @Test
+    public void testConflateKeepsLatestBookPerInstrument() {
+
+        final List<String> received = new ArrayList<>();
+        final NonBlockingConsumerAgent agent = new NonBlockingConsumerAgent("conflate", new YieldingIdleStrategy(), BackPressurePolicy.CONFLATE, 8, 1024, 256);
+        agent.addConsumer(recordingConsumer(received));
+
+        for (int price = 1; price <= 50; price++) {
+            offer(agent, createTick(1L, price));
+            offer(agent, createTick(2L, price));
+            if(price == 25){
+                new AckedOrderEncoder().wrapAndApplyHeader(buffer, 0, new messages.order.MessageHeaderEncoder()).orderId(5L);
+                offer(agent, buffer);
+            }
+        }
+
+        assertEquals(3, agent.doWork());
+        //each book keeps its place in the queue, ahead of the ack, with the latest price
+        assertEquals(List.of("1@50", "2@50", "other"), received);
+        assertEquals(98L, agent.conflated());
+        assertEquals(0L, agent.dropped());
+
+        //once taken, the next update queues again
+        offer(agent, createTick(1L, 51));
+        assertEquals(1, agent.doWork());
+        assertEquals("1@51", received.get(3));
+    }
+
+    private UnsafeBuffer createBid(final long instrumentId, final long price){
+        new BidBookUpdateEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .venue(Venue.XLON).instrumentId(instrumentId).bidBookCount(1).next().price(price).size(100L);
+        return buffer;
+    }
+
+    @Test
+    public void testConflateNeverReordersAnInstrumentsBooks() {
+
+        final List<String> received = new ArrayList<>();
+        final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+        final NonBlockingConsumerAgent agent = new NonBlockingConsumerAgent("conflate", new YieldingIdleStrategy(), BackPressurePolicy.CONFLATE, 8, 1024, 256);
+        final Consumer books = recordingConsumer(received);
+        agent.addConsumer(frame -> {
+            header.wrap(frame, 0);
+            if(header.templateId() == BidBookUpdateDecoder.TEMPLATE_ID){
+                bid.wrap(frame, header.encodedLength(), header.blockLength(), header.version());
+                received.add("bid " + bid.instrumentId() + "@" + bid.bidBook().next().price());
+            }else{
+                books.onMessage(frame);
+            }
+        });
+
+        offer(agent, createTick(1L, 1));
+        offer(agent, createBid(1L, 2));
+        //replaces the bid queued after the first book, not the first book, so the stale bid can't follow it
+        offer(agent, createTick(1L, 3));
+        //a side doesn't replace a full book
+        offer(agent, createBid(1L, 4));
+        offer(agent, createBid(1L, 5));
+
+        assertEquals(3, agent.doWork());
+        assertEquals(List.of("1@1", "1@3", "bid 1@5"), received);
+        assertEquals(2L, agent.conflated());
+    }
+
+    @Test
+    public void testSlowConflatingConsumerNeverHoldsUpTheNetwork() throws Exception {
+
+        final int instruments = 4;
+        final int messages = 20_000;
+        final long[] fastReceived = new long[1];
+        final long[] latestPrices = new long[instruments];
+        final MessageHeaderDecoder slowHeader = new MessageHeaderDecoder();
+        final BookUpdateDecoder slowBook = new BookUpdateDecoder();
+
+        try (RingBufferNetwork network = new RingBufferNetwork(64 * 1024, true, YieldingIdleStrategy::new)) {
+            final RingBufferConsumerAgent fast = network.addConsumerThread("fast", new YieldingIdleStrategy(), frame -> fastReceived[0]++);
+            final NonBlockingConsumerAgent slow = (NonBlockingConsumerAgent) network.addConsumerThread("slow", new YieldingIdleStrategy(), BackPressurePolicy.CONFLATE, frame -> {
+                slowHeader.wrap(frame, 0);
+                slowBook.wrap(frame, slowHeader.encodedLength(), slowHeader.blockLength(), slowHeader.version());
+                latestPrices[(int) slowBook.instrumentId()] = slowBook.bidBook().next().price();
+                for (int i = 0; i < 10; i++) {
+                    Thread.yield();
+                }
+            });
+            network.start();
+
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            for (int i = 0; i < messages; i++) {
+                sequencer.onCommand(createTick(i % instruments, 100 + i / instruments));
+            }
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while((fast.consumed() < messages || slow.lag() > 0) && System.currentTimeMillis() < deadline){
+                Thread.sleep(1);
+            }
+            Thread.sleep(10);
+
+            assertEquals(messages, fastReceived[0]);
+            assertTrue(slow.delivered() < messages);
+            //every frame was delivered, conflated or dropped, a replaced update that was being taken is delivered again
+            assertTrue(slow.delivered() + slow.conflated() + slow.dropped() >= messages);
+        }
+
+        for (int i = 0; i < instruments; i++) {
+            assertEquals(100 + (messages - 1) / instruments, latestPrices[i]);
+        }
+    }
+}
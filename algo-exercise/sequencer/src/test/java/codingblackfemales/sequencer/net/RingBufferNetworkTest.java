@@ -0,0 +1,85 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import messages.marketdata.*;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.junit.Test;
+
+import static codingblackfemales.sequencer.marketdata.TestTicks.createTick;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferNetworkTest {
+
+    private static final int MESSAGES = 50_000;
+
+    private static class SequenceCheckingConsumer implements Consumer {
+
+        private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+        private final BookUpdateDecoder book = new BookUpdateDecoder();
+
+        private long lastSequence = 0;
+        private long outOfOrder = 0;
+        private long lastBidPrice = 0;
+        private volatile Thread thread;
+
+        @Override
+        public void onMessage(DirectBuffer buffer) {
+            thread = Thread.currentThread();
+            header.wrap(buffer, 0);
+            if(header.sequencerNumber() != lastSequence + 1){
+                outOfOrder++;
+            }
+            lastSequence = header.sequencerNumber();
+            book.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            lastBidPrice = book.bidBook().next().price();
+        }
+    }
+
+    private static void awaitConsumed(final RingBufferConsumerAgent agent, final long count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while(agent.consumed() < count && System.currentTimeMillis() < deadline){
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testDispatchToConsumerThreads() throws Exception {
+
+        final SequenceCheckingConsumer fast = new SequenceCheckingConsumer();
+        final SequenceCheckingConsumer slow = new SequenceCheckingConsumer();
+
+        try (RingBufferNetwork network = new RingBufferNetwork(64 * 1024, true, YieldingIdleStrategy::new)) {
+            final RingBufferConsumerAgent fastAgent = network.addConsumerThread("fast", new BusySpinIdleStrategy(), fast);
+            final RingBufferConsumerAgent slowAgent = network.addConsumerThread("slow", new YieldingIdleStrategy(), slow, buffer -> Thread.onSpinWait());
+            network.start();
+
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            final UnsafeBuffer tick = createTick(123L);
+
+            for (int i = 0; i < MESSAGES; i++) {
+                sequencer.onCommand(tick);
+            }
+
+            awaitConsumed(fastAgent, MESSAGES);
+            awaitConsumed(slowAgent, MESSAGES);
+
+            assertEquals(MESSAGES, fastAgent.consumed());
+            assertEquals(MESSAGES, slowAgent.consumed());
+            assertEquals(0, fastAgent.lag());
+        }
+
+        assertEquals(0, fast.outOfOrder);
+        assertEquals(0, slow.outOfOrder);
+        assertEquals(MESSAGES, fast.lastSequence);
+        assertEquals(MESSAGES, slow.lastSequence);
+        assertEquals(98L, fast.lastBidPrice);
+        assertTrue(fast.thread != null && slow.thread != null);
+        assertNotEquals(Thread.currentThread(), fast.thread);
+        assertNotEquals(fast.thread, slow.thread);
+    }
+}
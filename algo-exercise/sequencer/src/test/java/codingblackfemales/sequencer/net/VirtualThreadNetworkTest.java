@@ -0,0 +1,165 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import messages.marketdata.*;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static codingblackfemales.sequencer.marketdata.TestTicks.createTick;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadNetworkTest {
+
+    private static final int CONSUMERS = 200;
+    private static final int MESSAGES = 2_000;
+
+    private static class SequenceCheckingConsumer implements Consumer {
+
+        private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+
+        private long lastSequence = 0;
+        private long outOfOrder = 0;
+        private volatile boolean virtual = true;
+
+        @Override
+        public void onMessage(final DirectBuffer buffer) {
+            header.wrap(buffer, 0);
+            if(header.sequencerNumber() != lastSequence + 1){
+                outOfOrder++;
+            }
+            lastSequence = header.sequencerNumber();
+            virtual &= Thread.currentThread().isVirtual();
+        }
+    }
+
+    private static void awaitDelivered(final VirtualThreadMailbox mailbox, final long count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 20_000;
+        while(mailbox.delivered() + mailbox.dropped() < count && System.currentTimeMillis() < deadline){
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testEveryAuxiliaryConsumerGetsItsOwnVirtualThread() throws Exception {
+
+        final TestNetwork critical = new TestNetwork();
+        final long[] criticalReceived = new long[1];
+        final Thread dispatchingThread = Thread.currentThread();
+        final boolean[] criticalOnDispatchingThread = {true};
+        critical.addConsumer(buffer -> {
+            criticalReceived[0]++;
+            criticalOnDispatchingThread[0] &= Thread.currentThread() == dispatchingThread;
+        });
+
+        final SequenceCheckingConsumer[] consumers = new SequenceCheckingConsumer[CONSUMERS];
+
+        try (VirtualThreadNetwork network = new VirtualThreadNetwork(critical)) {
+            for (int i = 0; i < CONSUMERS; i++) {
+                consumers[i] = new SequenceCheckingConsumer();
+                network.addConsumer("aux-" + i, consumers[i]);
+            }
+            network.start();
+
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+            for (int i = 0; i < MESSAGES; i++) {
+                sequencer.onCommand(createTick(tick, i));
+            }
+
+            for (VirtualThreadMailbox mailbox : network.getMailboxes()) {
+                awaitDelivered(mailbox, MESSAGES);
+                assertEquals(MESSAGES, mailbox.delivered());
+                assertEquals(0L, mailbox.dropped());
+                assertTrue(mailbox.thread().isVirtual());
+            }
+        }
+
+        assertEquals(MESSAGES, criticalReceived[0]);
+        assertTrue(criticalOnDispatchingThread[0]);
+        for (SequenceCheckingConsumer consumer : consumers) {
+            assertEquals(0, consumer.outOfOrder);
+            assertEquals(MESSAGES, consumer.lastSequence);
+            assertTrue(consumer.virtual);
+        }
+    }
+
+    @Test
+    public void testEveryFrameWakesAParkedConsumer() throws Exception {
+
+        final int handoffs = 20_000;
+        try (VirtualThreadNetwork network = new VirtualThreadNetwork(new TestNetwork())) {
+            final VirtualThreadMailbox mailbox = network.addConsumer("aux", buffer -> {});
+            network.start();
+
+            //one frame at a time, so the consumer has run dry and is parking as each one arrives
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+            for (int i = 1; i <= handoffs; i++) {
+                sequencer.onCommand(createTick(tick, i));
+                final long deadline = System.currentTimeMillis() + 5_000;
+                while(mailbox.delivered() < i && System.currentTimeMillis() < deadline){
+                    Thread.onSpinWait();
+                }
+                assertEquals(i, mailbox.delivered());
+            }
+        }
+    }
+
+    @Test
+    public void testStuckConsumerDropsInsteadOfBlocking() throws Exception {
+
+        final TestNetwork critical = new TestNetwork();
+        final long[] criticalReceived = new long[1];
+        critical.addConsumer(buffer -> criticalReceived[0]++);
+
+        final Object gate = new Object();
+        final boolean[] released = {false};
+
+        try (VirtualThreadNetwork network = new VirtualThreadNetwork(critical)) {
+            final VirtualThreadMailbox stuck = network.addConsumer("stuck", buffer -> {
+                synchronized (gate) {
+                    while(!released[0]){
+                        try {
+                            gate.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }, 4096);
+            final long[] failingReceived = new long[1];
+            final VirtualThreadMailbox failing = network.addConsumer("failing", buffer -> {
+                if(++failingReceived[0] <= 3){
+                    throw new IllegalStateException("boom");
+                }
+            });
+            network.start();
+
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+            for (int i = 0; i < 1_000; i++) {
+                sequencer.onCommand(createTick(tick, i));
+            }
+
+            assertEquals(1_000, criticalReceived[0]);
+            assertTrue(stuck.dropped() > 0);
+
+            synchronized (gate) {
+                released[0] = true;
+                gate.notifyAll();
+            }
+            awaitDelivered(stuck, 1_000);
+            awaitDelivered(failing, 1_000);
+
+            assertEquals(1_000L, stuck.delivered() + stuck.dropped());
+            assertEquals(3L, failing.failed());
+            assertEquals(1_000L, failing.delivered());
+            assertFalse(failing.thread().isInterrupted());
+        }
+    }
+}
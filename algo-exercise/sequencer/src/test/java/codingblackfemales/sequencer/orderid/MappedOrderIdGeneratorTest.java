@@ -0,0 +1,35 @@
+package codingblackfemales.sequencer.orderid;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappedOrderIdGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCarriesOnAfterRestart() throws Exception {
+
+        final File file = new File(folder.getRoot(), "order.ids");
+
+        try (MappedOrderIdGenerator generator = new MappedOrderIdGenerator(file, 1L)) {
+            assertEquals(2L, generator.nextOrderId());
+            assertEquals(3L, generator.nextOrderId());
+        }
+
+        try (MappedOrderIdGenerator generator = new MappedOrderIdGenerator(file, 1L)) {
+            assertEquals(3L, generator.lastOrderId());
+            assertEquals(4L, generator.nextOrderId());
+            //ids already issued elsewhere, e.g. replayed from the journal, are never issued again
+            generator.skipPast(10L);
+            generator.skipPast(7L);
+            assertEquals(11L, generator.nextOrderId());
+        }
+    }
+}
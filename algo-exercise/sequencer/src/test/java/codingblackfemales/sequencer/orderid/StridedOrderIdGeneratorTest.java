@@ -0,0 +1,21 @@
+package codingblackfemales.sequencer.orderid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StridedOrderIdGeneratorTest {
+
+    @Test
+    public void testSkipsPastInWholeStrides() {
+
+        final StridedOrderIdGenerator generator = new StridedOrderIdGenerator(3, 4);
+        assertEquals(7L, generator.nextOrderId());
+        assertEquals(11L, generator.nextOrderId());
+
+        generator.skipPast(20L);
+        assertEquals(23L, generator.nextOrderId());
+        generator.skipPast(5L);
+        assertEquals(27L, generator.nextOrderId());
+    }
+}
@@ -0,0 +1,171 @@
+package codingblackfemales.sequencer.priority;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.metrics.LatencyMetrics;
+import codingblackfemales.sequencer.net.TestNetwork;
+import messages.marketdata.*;
+import messages.order.CancelOrderEncoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.Side;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static codingblackfemales.sequencer.marketdata.TestTicks.createTick;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PrioritySequencerTest {
+
+    private final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+    private final UnsafeBuffer order = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+    private final UnsafeBuffer cancel = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final List<Lane> sequencedLanes = new ArrayList<>();
+
+    private UnsafeBuffer createOrder(){
+        new CreateOrderEncoder().wrapAndApplyHeader(order, 0, new messages.order.MessageHeaderEncoder())
+                .instrumentId(1L).price(98L).quantity(100L).side(Side.BUY);
+        return order;
+    }
+
+    private UnsafeBuffer createCancel(){
+        new CancelOrderEncoder().wrapAndApplyHeader(cancel, 0, new messages.order.MessageHeaderEncoder()).orderId(2L);
+        return cancel;
+    }
+
+    private PrioritySequencer createSequencer(final int marketDataCapacity){
+        final TestNetwork network = new TestNetwork();
+        network.addConsumer(buffer -> sequencedLanes.add(Lane.laneFor(header, buffer, 0)));
+        return new PrioritySequencer(new DefaultSequencer(network), 4096, 4096, marketDataCapacity, YieldingIdleStrategy::new, 256);
+    }
+
+    @Test
+    public void testLaneIsChosenBySchemaAndTemplate() {
+        assertSame(Lane.MARKET_DATA, Lane.laneFor(header, createTick(tick, 1L), 0));
+        assertSame(Lane.ORDER, Lane.laneFor(header, createOrder(), 0));
+        assertSame(Lane.CANCEL, Lane.laneFor(header, createCancel(), 0));
+        //BidBookUpdate shares its template id with PartialFill
+        assertSame(Lane.MARKET_DATA, Lane.laneFor(BidBookUpdateEncoder.SCHEMA_ID, BidBookUpdateEncoder.TEMPLATE_ID));
+    }
+
+    @Test
+    public void testCancelsOvertakeOrdersAndOrdersOvertakeMarketData() {
+
+        final PrioritySequencer sequencer = createSequencer(64 * 1024);
+
+        for (int i = 0; i < 100; i++) {
+            sequencer.onCommand(createTick(tick, 1L));
+        }
+        for (int i = 0; i < 5; i++) {
+            sequencer.onCommand(createOrder());
+        }
+        sequencer.onCommand(createCancel());
+
+        assertEquals(100L, sequencer.getLane(Lane.MARKET_DATA).depth());
+        assertEquals(1L, sequencer.getLane(Lane.CANCEL).depth());
+
+        while(sequencer.doWork() > 0){
+        }
+
+        assertEquals(106, sequencedLanes.size());
+        assertSame(Lane.CANCEL, sequencedLanes.get(0));
+        for (int i = 1; i <= 5; i++) {
+            assertSame(Lane.ORDER, sequencedLanes.get(i));
+        }
+        for (int i = 6; i < 106; i++) {
+            assertSame(Lane.MARKET_DATA, sequencedLanes.get(i));
+        }
+
+        for (Lane lane : Lane.values()) {
+            assertEquals(0L, sequencer.getLane(lane).depth());
+        }
+        assertEquals(100L, sequencer.getLane(Lane.MARKET_DATA).maxDepth());
+        assertEquals(100L, sequencer.getLane(Lane.MARKET_DATA).waitTime().getHistogram().getTotalCount());
+        assertEquals(1L, sequencer.getLane(Lane.CANCEL).waitTime().getHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testCancelArrivingMidBurstIsNextToBeSequenced() {
+
+        final PrioritySequencer sequencer = createSequencer(64 * 1024);
+        for (int i = 0; i < 100; i++) {
+            sequencer.onCommand(createTick(tick, 1L));
+        }
+
+        //the first read takes one tick at a time, so a cancel offered now goes straight after it
+        sequencer.getLane(Lane.MARKET_DATA).read(1);
+        sequencer.onCommand(createCancel());
+        while(sequencer.doWork() > 0){
+        }
+
+        assertSame(Lane.MARKET_DATA, sequencedLanes.get(0));
+        assertSame(Lane.CANCEL, sequencedLanes.get(1));
+    }
+
+    @Test
+    public void testLanesAreBounded() {
+
+        final PrioritySequencer sequencer = createSequencer(1024);
+
+        int offered = 0;
+        while(sequencer.offer(createTick(tick, 1L))){
+            offered++;
+        }
+
+        assertEquals(1L, sequencer.getLane(Lane.MARKET_DATA).rejected());
+        assertEquals(offered, sequencer.getLane(Lane.MARKET_DATA).depth());
+        //a full market data lane doesn't hold up cancels
+        assertTrue(sequencer.offer(createCancel()));
+        assertFalse(sequencer.offer(createTick(tick, 1L)));
+    }
+
+    @Test
+    public void testRejectionsFromConcurrentPublishersAreAllCounted() throws InterruptedException {
+
+        final PrioritySequencer sequencer = createSequencer(1024);
+        while(sequencer.offer(createTick(tick, 1L))){
+        }
+        final long rejectedWhenFull = sequencer.getLane(Lane.MARKET_DATA).rejected();
+
+        //offering only reads the frame, so the publishers can share it
+        final UnsafeBuffer sharedTick = createTick(tick, 1L);
+        final Thread[] publishers = new Thread[4];
+        for (int t = 0; t < publishers.length; t++) {
+            publishers[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    sequencer.offer(sharedTick);
+                }
+            });
+        }
+        for (Thread publisher : publishers) {
+            publisher.start();
+        }
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+
+        assertEquals(rejectedWhenFull + 40_000L, sequencer.getLane(Lane.MARKET_DATA).rejected());
+    }
+
+    @Test
+    public void testWaitTimesAreReportedWithOtherStages() {
+
+        final PrioritySequencer sequencer = createSequencer(64 * 1024);
+        try (LatencyMetrics metrics = new LatencyMetrics()) {
+            sequencer.setLatencyMetrics(metrics);
+            sequencer.onCommand(createCancel());
+            sequencer.doWork();
+
+            assertSame(metrics.stage(PriorityLane.waitStageName(Lane.CANCEL)), sequencer.getLane(Lane.CANCEL).waitTime());
+            assertEquals(1L, metrics.stage("lane.cancel.wait").getHistogram().getTotalCount());
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package codingblackfemales.sequencer.shard;
+
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.util.OrderIdDecoder;
+import messages.marketdata.*;
+import messages.order.CancelOrderEncoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.Side;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedSequencerTest {
+
+    private static final int SHARDS = 4;
+    private static final int INSTRUMENTS = 16;
+    private static final int TICKS_PER_INSTRUMENT = 500;
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final BookUpdateEncoder encoder = new BookUpdateEncoder();
+
+    private UnsafeBuffer createTick(final UnsafeBuffer directBuffer, final long instrumentId, final long price){
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(instrumentId);
+        encoder.source(Source.STREAM);
+        encoder.bidBookCount(1).next().price(price).size(100L);
+        encoder.askBookCount(1).next().price(price + 1).size(100L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        return directBuffer;
+    }
+
+    /**
+     * Checks each instrument's ticks arrive in the order they were sent and the shard's own numbering has no gaps.
+     */
+    private static class ShardConsumer implements Consumer {
+
+        private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+        private final BookUpdateDecoder book = new BookUpdateDecoder();
+
+        private final Map<Long, Long> lastPrices = new HashMap<>();
+        private long lastSequence = 0;
+        private long outOfOrder = 0;
+        private volatile long received = 0;
+        private volatile Thread thread;
+
+        @Override
+        public void onMessage(final DirectBuffer buffer) {
+            thread = Thread.currentThread();
+            header.wrap(buffer, 0);
+            if(header.sequencerNumber() != lastSequence + 1){
+                outOfOrder++;
+            }
+            lastSequence = header.sequencerNumber();
+            book.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            final long price = book.bidBook().next().price();
+            final Long lastPrice = lastPrices.put(book.instrumentId(), price);
+            if(lastPrice != null && lastPrice + 1 != price){
+                outOfOrder++;
+            }
+            received++;
+        }
+    }
+
+    @Test
+    public void testRoutesInstrumentsToTheirShardInOrder() throws Exception {
+
+        final ShardConsumer[] consumers = new ShardConsumer[SHARDS];
+
+        try (ShardedSequencer sequencer = new ShardedSequencer(SHARDS, (shard, shardSequencer, network) -> {
+            consumers[shard] = new ShardConsumer();
+            network.addConsumer(consumers[shard]);
+        }, 64 * 1024, YieldingIdleStrategy::new, YieldingIdleStrategy::new)) {
+
+            sequencer.start();
+
+            final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+            for (long price = 1; price <= TICKS_PER_INSTRUMENT; price++) {
+                for (long instrumentId = 0; instrumentId < INSTRUMENTS; instrumentId++) {
+                    sequencer.onCommand(createTick(tick, instrumentId, price));
+                }
+            }
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            for (ShardConsumer consumer : consumers) {
+                while(consumer.received < (long) TICKS_PER_INSTRUMENT * INSTRUMENTS / SHARDS && System.currentTimeMillis() < deadline){
+                    Thread.sleep(1);
+                }
+            }
+        }
+
+        final Set<Thread> threads = new HashSet<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            final ShardConsumer consumer = consumers[shard];
+            assertEquals((long) TICKS_PER_INSTRUMENT * INSTRUMENTS / SHARDS, consumer.received);
+            assertEquals(0, consumer.outOfOrder);
+            assertEquals(INSTRUMENTS / SHARDS, consumer.lastPrices.size());
+            for (Long instrumentId : consumer.lastPrices.keySet()) {
+                assertEquals(shard, instrumentId % SHARDS);
+            }
+            assertNotEquals(Thread.currentThread(), consumer.thread);
+            threads.add(consumer.thread);
+        }
+        assertEquals(SHARDS, threads.size());
+    }
+
+    /**
+     * Fails the test if idled from any thread but the one it was created for.
+     */
+    private static class OwnedIdleStrategy implements IdleStrategy {
+
+        private final Thread owner = Thread.currentThread();
+        private final AtomicInteger foreignCalls;
+
+        private OwnedIdleStrategy(final AtomicInteger foreignCalls) {
+            this.foreignCalls = foreignCalls;
+        }
+
+        @Override
+        public void idle(final int workCount) {
+            if(workCount <= 0){
+                idle();
+            }
+        }
+
+        @Override
+        public void idle() {
+            if(Thread.currentThread() != owner){
+                foreignCalls.incrementAndGet();
+            }
+            Thread.yield();
+        }
+
+        @Override
+        public void reset() {
+            if(Thread.currentThread() != owner){
+                foreignCalls.incrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    public void testEachPublisherWaitsOnItsOwnIdleStrategy() throws Exception {
+
+        final int publishers = 4;
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger foreignCalls = new AtomicInteger();
+        final ShardConsumer consumer = new ShardConsumer();
+
+        //a ring holding a handful of ticks, so publishers keep finding it full
+        try (ShardedSequencer sequencer = new ShardedSequencer(1, (shard, shardSequencer, network) -> network.addConsumer(consumer),
+                1024, YieldingIdleStrategy::new, () -> {
+                    created.incrementAndGet();
+                    return new OwnedIdleStrategy(foreignCalls);
+                })) {
+
+            sequencer.start();
+
+            final Thread[] threads = new Thread[publishers];
+            for (int t = 0; t < publishers; t++) {
+                final long instrumentId = t;
+                threads[t] = new Thread(() -> {
+                    final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+                    final BookUpdateEncoder tickEncoder = new BookUpdateEncoder();
+                    for (long price = 1; price <= TICKS_PER_INSTRUMENT; price++) {
+                        tickEncoder.wrapAndApplyHeader(tick, 0, new MessageHeaderEncoder());
+                        tickEncoder.venue(Venue.XLON).instrumentId(instrumentId).source(Source.STREAM);
+                        tickEncoder.bidBookCount(1).next().price(price).size(100L);
+                        tickEncoder.askBookCount(1).next().price(price + 1).size(100L);
+                        tickEncoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+                        sequencer.onCommand(tick);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while(consumer.received < (long) TICKS_PER_INSTRUMENT * publishers && System.currentTimeMillis() < deadline){
+                Thread.sleep(1);
+            }
+        }
+
+        assertEquals((long) TICKS_PER_INSTRUMENT * publishers, consumer.received);
+        assertEquals(0, consumer.outOfOrder);
+        assertEquals(0, foreignCalls.get());
+        assertTrue(created.get() <= publishers);
+    }
+
+    @Test
+    public void testShardsNeverIssueTheSameOrderId() throws Exception {
+
+        final int orders = 1_000;
+        final Map<Long, Integer> issuedBy = new ConcurrentHashMap<>();
+        final AtomicLong received = new AtomicLong();
+
+        try (ShardedSequencer sequencer = new ShardedSequencer(SHARDS, (shard, shardSequencer, network) -> {
+            final OrderIdDecoder orderIdDecoder = new OrderIdDecoder();
+            network.addConsumer(frame -> {
+                if(issuedBy.put(orderIdDecoder.decodeOrderId(frame, 0), shard) != null){
+                    throw new IllegalStateException("orderId issued twice");
+                }
+                received.incrementAndGet();
+            });
+        })) {
+
+            sequencer.start();
+
+            final UnsafeBuffer order = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+            for (int i = 0; i < orders; i++) {
+                new CreateOrderEncoder().wrapAndApplyHeader(order, 0, new messages.order.MessageHeaderEncoder())
+                        .instrumentId(i % INSTRUMENTS).price(98L).quantity(100L).side(Side.BUY);
+                sequencer.onCommand(order);
+            }
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while(received.get() < orders && System.currentTimeMillis() < deadline){
+                Thread.sleep(1);
+            }
+
+            assertEquals(orders, received.get());
+            assertEquals(orders, issuedBy.size());
+            for (Map.Entry<Long, Integer> issued : issuedBy.entrySet()) {
+                assertEquals((int) issued.getValue(), sequencer.shardForOrder(issued.getKey()));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsMessagesWithoutInstrument() throws Exception {
+
+        try (ShardedSequencer sequencer = new ShardedSequencer(2, (shard, shardSequencer, network) -> {})) {
+            final UnsafeBuffer cancel = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+            new CancelOrderEncoder().wrapAndApplyHeader(cancel, 0, new messages.order.MessageHeaderEncoder()).orderId(2L);
+            sequencer.onCommand(cancel);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package codingblackfemales.sequencer.snapshot;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.journal.JournalDescriptor;
+import codingblackfemales.sequencer.journal.JournalWriter;
+import codingblackfemales.sequencer.journal.JournalingNetwork;
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.sequencer.orderid.SequentialOrderIdGenerator;
+import codingblackfemales.sequencer.util.OrderIdDecoder;
+import messages.marketdata.*;
+import messages.order.CreateOrderEncoder;
+import messages.order.Side;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static codingblackfemales.sequencer.marketdata.TestTicks.createTick;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotRecoveryTest {
+
+    private static final int MESSAGES = 1_050;
+    private static final int INTERVAL = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private UnsafeBuffer createOrder(){
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        new CreateOrderEncoder().wrapAndApplyHeader(directBuffer, 0, new messages.order.MessageHeaderEncoder())
+                .instrumentId(1L).price(98L).quantity(100L).side(Side.BUY);
+        return directBuffer;
+    }
+
+    /**
+     * Stands in for a service, its state depends on every frame it has seen.
+     */
+    private static class TickState implements Consumer, Snapshottable {
+
+        private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+        private final BookUpdateDecoder book = new BookUpdateDecoder();
+
+        private long ticks;
+        private long instrumentIdSum;
+
+        @Override
+        public void onMessage(final DirectBuffer buffer) {
+            header.wrap(buffer, 0);
+            if(header.schemaId() != BookUpdateDecoder.SCHEMA_ID){
+                return;
+            }
+            book.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            ticks++;
+            instrumentIdSum += book.instrumentId();
+        }
+
+        @Override
+        public int writeSnapshot(final MutableDirectBuffer buffer, final int offset) {
+            buffer.putLong(offset, ticks);
+            buffer.putLong(offset + 8, instrumentIdSum);
+            return 16;
+        }
+
+        @Override
+        public void loadSnapshot(final DirectBuffer buffer, final int offset, final int length) {
+            ticks = buffer.getLong(offset);
+            instrumentIdSum = buffer.getLong(offset + 8);
+        }
+    }
+
+    @Test
+    public void testRestartLoadsLatestSnapshotAndReplaysTail() throws Exception {
+
+        final File journal = folder.newFolder("journal");
+        final File snapshots = folder.newFolder("snapshots");
+
+        final TickState state = new TickState();
+        final SequentialOrderIdGenerator orderIds = new SequentialOrderIdGenerator(41);
+
+        final TestNetwork network = new TestNetwork();
+        network.addConsumer(state);
+
+        try (JournalingNetwork journaling = new JournalingNetwork(network, new JournalWriter(journal, 16 * 1024));
+             SnapshotWriter snapshotWriter = new SnapshotWriter(snapshots, INTERVAL, state, orderIds).pruneJournal(journal)) {
+
+            final DefaultSequencer sequencer = new DefaultSequencer(journaling);
+            sequencer.setOrderIdGenerator(orderIds);
+            sequencer.setSnapshotWriter(snapshotWriter);
+
+            final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+            for (int i = 0; i < MESSAGES; i++) {
+                sequencer.onCommand(createTick(tick, i));
+            }
+            //sequenced after the last snapshot, so its orderId is only in the journal
+            sequencer.onCommand(createOrder());
+
+            assertEquals(42L, orderIds.lastOrderId());
+            assertEquals(1000L, snapshotWriter.getLastSnapshotSequenceNumber());
+        }
+
+        //only the newest snapshots are kept, and the journal before them is gone
+        final File[] files = SnapshotDescriptor.snapshotFiles(snapshots);
+        assertEquals(SnapshotWriter.DEFAULT_RETAINED_SNAPSHOTS, files.length);
+        assertEquals(1000L, SnapshotDescriptor.sequenceNumber(files[files.length - 1]));
+        assertTrue(JournalDescriptor.baseSequenceNumber(JournalDescriptor.segmentFiles(journal)[0]) > 1L);
+
+        final TickState recovered = new TickState();
+        final SequentialOrderIdGenerator recoveredOrderIds = new SequentialOrderIdGenerator(1);
+        final TestNetwork recoveredNetwork = new TestNetwork();
+        recoveredNetwork.addConsumer(recovered);
+
+        final SnapshotRecovery recovery = new SnapshotRecovery(snapshots, journal).orderIds(recoveredOrderIds);
+        final long lastSequenceNumber = recovery.recover(recoveredNetwork, recovered, recoveredOrderIds);
+
+        assertEquals(MESSAGES + 1L, lastSequenceNumber);
+        assertEquals(1000L, recovery.getSnapshotSequenceNumber());
+        assertEquals(MESSAGES + 1L - 1000L, recovery.getTailReplayed());
+        assertEquals(state.ticks, recovered.ticks);
+        assertEquals(state.instrumentIdSum, recovered.instrumentIdSum);
+        //the snapshot has the generator at 41, the order replayed from the tail moves it past 42
+        assertEquals(42L, recovery.getLastReplayedOrderId());
+        assertEquals(42L, recoveredOrderIds.lastOrderId());
+
+        final long[] stampedOrderId = new long[1];
+        recoveredNetwork.addConsumer(buffer -> stampedOrderId[0] = new OrderIdDecoder().decodeOrderId(buffer, 0));
+        final DefaultSequencer sequencer = new DefaultSequencer(recoveredNetwork);
+        sequencer.setOrderIdGenerator(recoveredOrderIds);
+        sequencer.resumeFrom(lastSequenceNumber);
+        sequencer.onCommand(createOrder());
+        assertEquals(MESSAGES + 2L, sequencer.getSequencerNumber());
+        assertEquals(43L, stampedOrderId[0]);
+    }
+
+    @Test
+    public void testRecoversFromJournalAloneWithoutSnapshot() throws Exception {
+
+        final File journal = folder.newFolder("journal");
+        final File snapshots = folder.newFolder("snapshots");
+
+        final TestNetwork network = new TestNetwork();
+        try (JournalingNetwork journaling = new JournalingNetwork(network, new JournalWriter(journal, 16 * 1024))) {
+            final DefaultSequencer sequencer = new DefaultSequencer(journaling);
+            final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+            for (int i = 0; i < 10; i++) {
+                sequencer.onCommand(createTick(tick, i));
+            }
+        }
+
+        final TickState recovered = new TickState();
+        final TestNetwork recoveredNetwork = new TestNetwork();
+        recoveredNetwork.addConsumer(recovered);
+
+        assertEquals(10L, new SnapshotRecovery(snapshots, journal).recover(recoveredNetwork, recovered));
+        assertEquals(10L, recovered.ticks);
+        assertEquals(45L, recovered.instrumentIdSum);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsSnapshotWithDifferentComponents() throws Exception {
+
+        final File snapshots = folder.newFolder("snapshots");
+        try (SnapshotWriter snapshotWriter = new SnapshotWriter(snapshots, 1, new TickState())) {
+            snapshotWriter.snapshot(1L);
+        }
+
+        SnapshotRecovery.load(SnapshotDescriptor.latestSnapshot(snapshots), new TickState(), new TickState());
+    }
+
+    @Test
+    public void testRecoveringSequencerDropsUntilRecovered() {
+
+        final long[] sent = new long[1];
+        final RecoveringSequencer sequencer = new RecoveringSequencer(buffer -> sent[0]++);
+        final UnsafeBuffer tick = createTick(new UnsafeBuffer(ByteBuffer.allocateDirect(1024)), 1);
+
+        sequencer.onCommand(tick);
+        sequencer.recovered();
+        sequencer.onCommand(tick);
+
+        assertEquals(1L, sequencer.getDropped());
+        assertEquals(1L, sent[0]);
+    }
+}
@@ -7,6 +7,7 @@ import codingblackfemales.sequencer.net.TestNetwork;
 import codingblackfemales.service.MarketDataService;
 import codingblackfemales.sotw.marketdata.AskLevel;
 import codingblackfemales.sotw.marketdata.BidLevel;
+import codingblackfemales.sotw.marketdata.BookSide;
 import messages.marketdata.AskBookUpdateDecoder;
 import messages.marketdata.BidBookUpdateDecoder;
 import messages.marketdata.BookUpdateDecoder;
@@ -22,6 +23,10 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 
+/**
+ * Publishes the latest book to the UI's table, a row per level. The book is held in growable sides, so it takes
+ * however many levels an update carries, and rows a shallower book no longer fills are published empty.
+ */
 public class AlgoProvider extends MarketDataEventListener implements Provider {
 
     private static final Logger logger = LoggerFactory.getLogger(AlgoProvider.class);
@@ -31,12 +36,12 @@ public class AlgoProvider extends MarketDataEventListener implements Provider {
 
     private final Clock clock;
 
-    private int bidLength = 0;
-    private int askLength = 0;
-
     private long instrumentId;
-    private final BidLevel[] bidBook = new BidLevel[15];
-    private final AskLevel[] askBook = new AskLevel[15];
+    private final BookSide<BidLevel> bidBook = new BookSide<>(BidLevel::new, false);
+    private final BookSide<AskLevel> askBook = new BookSide<>(AskLevel::new, true);
+
+    //rows published so far, so the ones past the current book can be emptied
+    private int publishedRows = 0;
 
     public AlgoProvider(final DataTable table, final TestNetwork network, final Clock clock){
         this.table = table;
@@ -44,77 +49,32 @@ public class AlgoProvider extends MarketDataEventListener implements Provider {
         this.clock = clock;
     }
 
-    private static void empty(BidLevel[] levels){
-        for (int i=0; i<levels.length; i++) {
-            levels[i] = null;
-        }
-    }
-
-    private static void emptyLevelsTo(int startLevel, int toLevel, BidLevel[] levels){
-        for (int i=startLevel; i<toLevel; i++) {
-            levels[i] = null;
-        }
-    }
-
-    private static void empty(AskLevel[] levels){
-        for (int i=0; i<levels.length; i++) {
-            levels[i] = null;
-        }
-    }
-
-    private static void emptyLevelsTo(int startLevel, int toLevel, AskLevel[] levels){
-        for (int i=startLevel; i<toLevel; i++) {
-            levels[i] = null;
-        }
-    }
-
-
-
     @Override
     public void onBookUpdate(final BookUpdateDecoder bookUpdate) {
-        int bookLevel = 0;
-
-        //empty(askBook);
 
         instrumentId = bookUpdate.instrumentId();
 
-        for(BookUpdateDecoder.AskBookDecoder decoder : bookUpdate.askBook()){
-            final long price = decoder.price();
-            final long quantity = decoder.size();
-
-            askBook[bookLevel] = new AskLevel();
-            askBook[bookLevel].setPrice(price);
-            askBook[bookLevel].setQuantity(quantity);
-
-            logger.debug("[ALGO] ASK: price:" + price + " quantity:" + quantity);
-
-            bookLevel+= 1;
-            askLength = bookLevel;
-        }
-        //empty the rest of the levels where no data is supplied
-        if(bookLevel > 0 ){
-            emptyLevelsTo(bookLevel, 15, askBook);
-        }
-
-        bookLevel = 0;
-        //empty(bidBook);
-
-        for(BookUpdateDecoder.BidBookDecoder decoder : bookUpdate.bidBook()){
-            final long price = decoder.price();
-            final long quantity = decoder.size();
-            bidBook[bookLevel] = new BidLevel();
-            bidBook[bookLevel].setPrice(price);
-            bidBook[bookLevel].setQuantity(quantity);
-            logger.debug("[ALGO] BID: price:" + price + " quantity:" + quantity);
-
-            bookLevel+= 1;
-            bidLength = bookLevel;
-
+        final BookUpdateDecoder.AskBookDecoder asks = bookUpdate.askBook();
+        //a side with no levels in the update keeps the levels it had
+        if(asks.count() > 0){
+            askBook.clear();
+            for(BookUpdateDecoder.AskBookDecoder decoder : asks){
+                final long price = decoder.price();
+                final long quantity = decoder.size();
+                askBook.add(price, quantity);
+                logger.debug("[ALGO] ASK: price:" + price + " quantity:" + quantity);
+            }
         }
 
-        //empty the rest of the levels where no data is supplied
-        if(bookLevel > 0){
-            emptyLevelsTo(bookLevel, 15, bidBook);
+        final BookUpdateDecoder.BidBookDecoder bids = bookUpdate.bidBook();
+        if(bids.count() > 0){
+            bidBook.clear();
+            for(BookUpdateDecoder.BidBookDecoder decoder : bids){
+                final long price = decoder.price();
+                final long quantity = decoder.size();
+                bidBook.add(price, quantity);
+                logger.debug("[ALGO] BID: price:" + price + " quantity:" + quantity);
+            }
         }
 
         updateBookTable();
@@ -123,10 +83,11 @@ public class AlgoProvider extends MarketDataEventListener implements Provider {
     }
 
     private void updateBookTable(){
-        for (int j=0; j<Math.max(bidBook.length, askBook.length); j++){
+        final int rows = Math.max(publishedRows, Math.max(bidBook.length(), askBook.length()));
+        for (int j=0; j<rows; j++){
 
-            final BidLevel bidlevel =  bidBook[j];
-            final AskLevel askLevel =  askBook[j];
+            final BidLevel bidlevel =  bidBook.level(j);
+            final AskLevel askLevel =  askBook.level(j);
 
             final String key = String.valueOf(instrumentId) + j;
 
@@ -136,38 +97,7 @@ public class AlgoProvider extends MarketDataEventListener implements Provider {
 
             table.processUpdate(key, new RowWithData(key, update), clock.now());
         }
-    }
-
-
-    private void updateBidTable(){
-        for (int j=0; j<bidBook.length; j++){
-
-            final BidLevel bidlevel =  bidBook[j];
-
-            final String key = String.valueOf(instrumentId) + j;
-
-            final Map<String, Object> update = mkUpdate(key, instrumentId, j, bidlevel, null);
-
-            //logger.info("TABLE UPDATE" + update);
-
-            table.processUpdate(key, new RowWithData(key, update), clock.now());
-        }
-    }
-
-    private void updateAskTable(){
-        for (int j=0; j<askBook.length; j++){
-
-            final AskLevel asklevel =  askBook[j];
-
-            final String key = String.valueOf(instrumentId) + j;
-
-            final Map<String, Object> update = mkUpdate(key, instrumentId, j, null, asklevel);
-
-            //logger.info("TABLE UPDATE" + update);
-
-            table.processUpdate(key, new RowWithData(key, update), clock.now());
-        }
-
+        publishedRows = rows;
     }
 
     private void debugBidOfferCross(){
@@ -206,30 +136,17 @@ public class AlgoProvider extends MarketDataEventListener implements Provider {
     @Override
     public void onAskBook(final AskBookUpdateDecoder askBookDec) {
 
-
-        int bookLevel = 0;
-
         instrumentId = askBookDec.instrumentId();
 
-        bookLevel = 0;
-
-        for(AskBookUpdateDecoder.AskBookDecoder decoder : askBookDec.askBook()){
-            final long price = decoder.price();
-            final long quantity = decoder.size();
-
-            askBook[bookLevel] = new AskLevel();
-            askBook[bookLevel].setPrice(price);
-            askBook[bookLevel].setQuantity(quantity);
-
-            logger.debug("[ALGO] ASK: price:" + price + " quantity:" + quantity);
-
-            bookLevel+= 1;
-            askLength = bookLevel;
-        }
-
-        //empty the rest of the levels where no data is supplied
-        if(bookLevel > 0 ) {
-            emptyLevelsTo(bookLevel, 15, askBook);
+        final AskBookUpdateDecoder.AskBookDecoder asks = askBookDec.askBook();
+        if(asks.count() > 0){
+            askBook.clear();
+            for(AskBookUpdateDecoder.AskBookDecoder decoder : asks){
+                final long price = decoder.price();
+                final long quantity = decoder.size();
+                askBook.add(price, quantity);
+                logger.debug("[ALGO] ASK: price:" + price + " quantity:" + quantity);
+            }
         }
 
         updateBookTable();
@@ -240,26 +157,13 @@ public class AlgoProvider extends MarketDataEventListener implements Provider {
     @Override
     public void onBidBook(final BidBookUpdateDecoder bidBookDec) {
 
-        empty(bidBook);
-
-        int bookLevel = 0;
+        bidBook.clear();
 
         for(BidBookUpdateDecoder.BidBookDecoder decoder : bidBookDec.bidBook()){
             final long price = decoder.price();
             final long quantity = decoder.size();
-            bidBook[bookLevel] = new BidLevel();
-            bidBook[bookLevel].setPrice(price);
-            bidBook[bookLevel].setQuantity(quantity);
+            bidBook.add(price, quantity);
             logger.debug("[ALGO] BID: price:" + price + " quantity:" + quantity);
-
-            bookLevel+= 1;
-            bidLength = bookLevel;
-
-        }
-
-        //empty the rest of the levels where no data is supplied
-        if(bookLevel > 0 ){
-            emptyLevelsTo(bookLevel, 15, bidBook);
         }
 
         updateBookTable();